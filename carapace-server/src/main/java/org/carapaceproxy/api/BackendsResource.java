@@ -63,6 +63,7 @@ public class BackendsResource {
         private boolean lastProbeSuccess;
         private String httpResponse;
         private String httpBody;
+        private String circuitBreakerState;
 
         public BackendBean(String id, String host, int port) {
             this.id = id;
@@ -100,6 +101,7 @@ public class BackendsResource {
                 bean.available = snap.status() != BackendHealthStatus.Status.DOWN;
                 bean.reportedAsUnreachable = snap.status() == BackendHealthStatus.Status.DOWN;
                 bean.reportedAsUnreachableTs = snap.unreachableSince();
+                bean.circuitBreakerState = bhs.getCircuitBreaker().getState().name();
                 BackendHealthCheck lastProbe = bhs.getLastProbe();
                 if (lastProbe != null) {
                     bean.lastProbeTs = lastProbe.endTs();
@@ -31,6 +31,7 @@ import static org.carapaceproxy.server.config.ConnectionPoolConfiguration.DEFAUL
 import static org.carapaceproxy.server.config.ConnectionPoolConfiguration.DEFAULT_KEEPALIVE_INTERVAL;
 import static org.carapaceproxy.server.config.ConnectionPoolConfiguration.DEFAULT_MAX_CONNECTIONS_PER_ENDPOINT;
 import static org.carapaceproxy.server.config.ConnectionPoolConfiguration.DEFAULT_MAX_LIFETIME;
+import static org.carapaceproxy.server.config.ConnectionPoolConfiguration.DEFAULT_MIN_IDLE;
 import static org.carapaceproxy.server.config.ConnectionPoolConfiguration.DEFAULT_STUCK_REQUEST_TIMEOUT;
 import java.util.HashMap;
 import java.util.Map;
@@ -90,6 +91,7 @@ public class ConnectionPoolsResource {
         private int keepaliveCount = DEFAULT_KEEPALIVE_COUNT;
         private boolean keepAlive = DEFAULT_KEEPALIVE;
         private boolean enabled;
+        private int minIdle = DEFAULT_MIN_IDLE;
 
         private int totalConnections;
 
@@ -109,6 +111,7 @@ public class ConnectionPoolsResource {
                     configuration.getKeepaliveCount(),
                     configuration.isKeepAlive(),
                     configuration.isEnabled(),
+                    configuration.getMinIdle(),
                     connections
             );
         }
@@ -128,7 +131,8 @@ public class ConnectionPoolsResource {
                     getKeepaliveInterval(),
                     getKeepaliveCount(),
                     isKeepAlive(),
-                    isEnabled()
+                    isEnabled(),
+                    getMinIdle()
             );
         }
     }
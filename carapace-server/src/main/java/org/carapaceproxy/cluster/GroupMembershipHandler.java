@@ -103,6 +103,22 @@ public interface GroupMembershipHandler {
      */
     Map<String, String> loadInfoForPeer(String id);
 
+    /**
+     * To store data shared by all the peers, e.g. secrets that must be the same on every peer.
+     *
+     * @param key  id of the data
+     * @param data the data
+     */
+    void storeSharedData(String key, byte[] data);
+
+    /**
+     * To load data shared by all the peers.
+     *
+     * @param key id of the data
+     * @return the data, or null if it has never been stored
+     */
+    byte[] loadSharedData(String key);
+
     interface EventCallback {
 
         /**
@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.carapaceproxy.cluster.GroupMembershipHandler;
 
 /**
@@ -34,6 +35,7 @@ public class NullGroupMembershipHandler implements GroupMembershipHandler {
 
     private Map<String, String> peerInfo = Map.of("address", "localhost");
     private final String peerId = "local";
+    private final Map<String, byte[]> sharedData = new ConcurrentHashMap<>();
 
     @Override
     public void start() {
@@ -89,4 +91,14 @@ public class NullGroupMembershipHandler implements GroupMembershipHandler {
         return null;
     }
 
+    @Override
+    public void storeSharedData(String key, byte[] data) {
+        sharedData.put(key, data);
+    }
+
+    @Override
+    public byte[] loadSharedData(String key) {
+        return sharedData.get(key);
+    }
+
 }
@@ -194,6 +194,38 @@ public class ZooKeeperGroupMembershipHandler implements GroupMembershipHandler,
         return null;
     }
 
+    @Override
+    public void storeSharedData(String key, byte[] data) {
+        try {
+            final String path = "/proxy/data/" + key;
+            Stat exists = client.checkExists().creatingParentsIfNeeded().forPath(path);
+            if (exists == null) {
+                client.create()
+                        .creatingParentsIfNeeded()
+                        .withMode(CreateMode.PERSISTENT)
+                        .forPath(path, data);
+            } else {
+                client.setData().forPath(path, data);
+            }
+        } catch (Exception ex) {
+            LOG.error("Cannot store shared data {}", key, ex);
+        }
+    }
+
+    @Override
+    public byte[] loadSharedData(String key) {
+        try {
+            final String path = "/proxy/data/" + key;
+            Stat exists = client.checkExists().creatingParentsIfNeeded().forPath(path);
+            if (exists != null) {
+                return client.getData().forPath(path);
+            }
+        } catch (Exception ex) {
+            LOG.error("Cannot load shared data {}", key, ex);
+        }
+        return null;
+    }
+
     @Override
     public void watchEvent(String eventId, EventCallback callback) {
         try {
@@ -62,6 +62,8 @@ public class CertificateData {
     private String serialNumber; // hex
     @ToString.Exclude
     private byte[] keystoreData; // decoded chain
+    @EqualsAndHashCode.Exclude
+    private long version; // version of the stored data, 0 if unknown
 
     public CertificateData(String domain,
                            String chain,
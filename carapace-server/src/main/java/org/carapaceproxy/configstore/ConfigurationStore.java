@@ -21,10 +21,14 @@ package org.carapaceproxy.configstore;
 
 import herddb.utils.BooleanHolder;
 import java.security.KeyPair;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
@@ -159,6 +163,29 @@ public interface ConfigurationStore extends AutoCloseable {
         return usedIndexes.stream().max(Comparator.naturalOrder()).orElse(-1);
     }
 
+    /**
+     *
+     * @param prefix before the index of the property.
+     * @return the non-negative indexes used by the properties with the prefix, in ascending order.
+     */
+    default SortedSet<Integer> findIndexesForPrefix(String prefix) {
+        SortedSet<Integer> usedIndexes = new TreeSet<>();
+        this.forEach(prefix + ".", (k, v) -> {
+            String[] split = k.split("\\.");
+            try {
+                if (split.length > 0) {
+                    int index = Integer.parseInt(split[0]);
+                    if (index >= 0) {
+                        usedIndexes.add(index);
+                    }
+                }
+            } catch (NumberFormatException ignored) {
+
+            }
+        });
+        return usedIndexes;
+    }
+
     /**
      * Check if any of the properties match a predicate.
      *
@@ -197,8 +224,47 @@ public interface ConfigurationStore extends AutoCloseable {
 
     CertificateData loadCertificateForDomain(String domain);
 
+    /**
+     * Load the certificates of many domains at once.
+     *
+     * @param domains the domains
+     * @return the stored certificates by domain; domains without a stored certificate are missing
+     */
+    default Map<String, CertificateData> loadCertificatesForDomains(Collection<String> domains) {
+        final Map<String, CertificateData> certificates = new HashMap<>();
+        for (String domain : domains) {
+            final CertificateData cert = loadCertificateForDomain(domain);
+            if (cert != null) {
+                certificates.put(domain, cert);
+            }
+        }
+        return certificates;
+    }
+
+    /**
+     * Load the certificates whose stored {@link CertificateData#getVersion() version} differs from the known one.
+     * <p>
+     * Versions are compared domain by domain, so that certificates committed out of order by other peers are not missed.
+     * Stores that do not keep track of the versions return the certificates of all the given domains.
+     *
+     * @param knownVersions the versions already known by the caller, by domain
+     * @return the changed certificates by domain
+     */
+    default Map<String, CertificateData> loadChangedCertificates(Map<String, Long> knownVersions) {
+        return loadCertificatesForDomains(knownVersions.keySet());
+    }
+
     void saveCertificate(CertificateData cert);
 
+    /**
+     * Save many certificates at once.
+     *
+     * @param certs the certificates
+     */
+    default void saveCertificates(Collection<CertificateData> certs) {
+        certs.forEach(this::saveCertificate);
+    }
+
     void removeCertificate(String certId);
 
     void reload();
@@ -208,4 +274,10 @@ public interface ConfigurationStore extends AutoCloseable {
     String loadAcmeChallengeToken(String id);
 
     void deleteAcmeChallengeToken(String id);
+
+    void saveOcspResponse(String id, byte[] response);
+
+    byte[] loadOcspResponse(String id);
+
+    void deleteOcspResponse(String id);
 }
@@ -27,12 +27,16 @@ import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.Certificate;
+import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
 
 public final class ConfigurationStoreUtils {
 
+    // algorithms of the stored key pairs, see KeyPairsType
+    private static final String[] KEY_ALGORITHMS = {"RSA", "EC"};
+
     private ConfigurationStoreUtils() {
     }
 
@@ -49,13 +53,29 @@ public final class ConfigurationStoreUtils {
     public static PrivateKey base64DecodePrivateKey(String key) throws GeneralSecurityException {
         Base64.Decoder dec = Base64.getDecoder();
         PKCS8EncodedKeySpec keySpecPKCS8 = new PKCS8EncodedKeySpec(dec.decode(key));
-        return KeyFactory.getInstance("RSA").generatePrivate(keySpecPKCS8);
+        InvalidKeySpecException error = null;
+        for (String algorithm : KEY_ALGORITHMS) {
+            try {
+                return KeyFactory.getInstance(algorithm).generatePrivate(keySpecPKCS8);
+            } catch (InvalidKeySpecException err) {
+                error = err;
+            }
+        }
+        throw error;
     }
 
     public static PublicKey base64DecodePublicKey(String key) throws GeneralSecurityException {
         Base64.Decoder dec = Base64.getDecoder();
         X509EncodedKeySpec keySpecX509 = new X509EncodedKeySpec(dec.decode(key));
-        return KeyFactory.getInstance("RSA").generatePublic(keySpecX509);
+        InvalidKeySpecException error = null;
+        for (String algorithm : KEY_ALGORITHMS) {
+            try {
+                return KeyFactory.getInstance(algorithm).generatePublic(keySpecX509);
+            } catch (InvalidKeySpecException err) {
+                error = err;
+            }
+        }
+        throw error;
     }
 
     public static String base64EncodeCertificateChain(Certificate[] chain, PrivateKey key) throws GeneralSecurityException {
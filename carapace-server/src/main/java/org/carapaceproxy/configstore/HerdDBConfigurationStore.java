@@ -40,7 +40,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -89,6 +93,8 @@ public class HerdDBConfigurationStore implements ConfigurationStore {
     private static final String INSERT_INTO_CONFIG_TABLE = """
             INSERT INTO %s(pname, pvalue) values (?, ?)
             """.formatted(CONFIG_TABLE_NAME);
+    // how many properties are written by a single batch, large batches overflow the stack of the database
+    private static final int CONFIG_BATCH_SIZE = 100;
 
     // Table for KeyPairs
     private static final String KEYPAIR_TABLE_NAME = "keypairs";
@@ -116,21 +122,42 @@ public class HerdDBConfigurationStore implements ConfigurationStore {
                 pendingOrder string,
                 pendingChallenges string,
                 attemptCount int,
-                message string
+                message string,
+                modified long
             )""".formatted(DIGITAL_CERTIFICATES_TABLE_NAME);
+    // tables created by older versions lack the column
+    private static final String ALTER_DIGITAL_CERTIFICATES_TABLE_ADD_MODIFIED = """
+            ALTER TABLE %s ADD COLUMN modified long
+            """.formatted(DIGITAL_CERTIFICATES_TABLE_NAME);
     private static final String SELECT_FROM_DIGITAL_CERTIFICATES_TABLE = """
-            SELECT domain, subjectAltNames, chain, state, pendingOrder, pendingChallenges, attemptCount, message
+            SELECT domain, subjectAltNames, chain, state, pendingOrder, pendingChallenges, attemptCount, message, modified
             FROM %s
             WHERE domain=?
             """.formatted(DIGITAL_CERTIFICATES_TABLE_NAME);
+    private static final String SELECT_FROM_DIGITAL_CERTIFICATES_TABLE_BY_DOMAINS = """
+            SELECT domain, subjectAltNames, chain, state, pendingOrder, pendingChallenges, attemptCount, message, modified
+            FROM %s
+            WHERE domain IN (%%s)
+            """.formatted(DIGITAL_CERTIFICATES_TABLE_NAME);
+    private static final String SELECT_VERSIONS_FROM_DIGITAL_CERTIFICATES_TABLE = """
+            SELECT domain, modified
+            FROM %s
+            """.formatted(DIGITAL_CERTIFICATES_TABLE_NAME);
+    private static final String SELECT_MAX_MODIFIED_FROM_DIGITAL_CERTIFICATES_TABLE_BY_DOMAINS = """
+            SELECT MAX(modified)
+            FROM %s
+            WHERE domain IN (%%s)
+            """.formatted(DIGITAL_CERTIFICATES_TABLE_NAME);
+    // how many certificates are loaded or saved by a single statement
+    private static final int CERTIFICATES_BATCH_SIZE = 100;
     private static final String UPDATE_DIGITAL_CERTIFICATES_TABLE = """
             UPDATE %s
-            SET subjectAltNames=?, chain=?, state=?, pendingOrder=?, pendingChallenges=?, attemptCount=?, message=?
+            SET subjectAltNames=?, chain=?, state=?, pendingOrder=?, pendingChallenges=?, attemptCount=?, message=?, modified=?
             WHERE domain=?
             """.formatted(DIGITAL_CERTIFICATES_TABLE_NAME);
     private static final String INSERT_INTO_DIGITAL_CERTIFICATES_TABLE = """
-            INSERT INTO %s(domain, subjectAltNames, chain, state, pendingOrder, pendingChallenges, attemptCount, message)
-            values (?, ?, ?, ?, ?, ?, ?, ?)
+            INSERT INTO %s(domain, subjectAltNames, chain, state, pendingOrder, pendingChallenges, attemptCount, message, modified)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?)
             """.formatted(DIGITAL_CERTIFICATES_TABLE_NAME);
     private static final String REMOVE_DIGITAL_CERTIFICATES_TABLE = """
             DELETE FROM %s WHERE domain=?
@@ -151,6 +178,24 @@ public class HerdDBConfigurationStore implements ConfigurationStore {
             DELETE from %s WHERE id=?
             """.formatted(ACME_CHALLENGE_TOKENS_TABLE_NAME);
 
+    // Table for OCSP responses, shared by the peers
+    private static final String OCSP_RESPONSES_TABLE_NAME = "ocsp_responses";
+    private static final String CREATE_OCSP_RESPONSES_TABLE = """
+            CREATE TABLE %s(id string primary key, data string)
+            """.formatted(OCSP_RESPONSES_TABLE_NAME);
+    private static final String SELECT_FROM_OCSP_RESPONSES_TABLE = """
+            SELECT data from %s WHERE id=?
+            """.formatted(OCSP_RESPONSES_TABLE_NAME);
+    private static final String UPDATE_OCSP_RESPONSES_TABLE = """
+            UPDATE %s SET data=? WHERE id=?
+            """.formatted(OCSP_RESPONSES_TABLE_NAME);
+    private static final String INSERT_INTO_OCSP_RESPONSES_TABLE = """
+            INSERT INTO %s(id, data) values (?, ?)
+            """.formatted(OCSP_RESPONSES_TABLE_NAME);
+    private static final String DELETE_FROM_OCSP_RESPONSES_TABLE = """
+            DELETE from %s WHERE id=?
+            """.formatted(OCSP_RESPONSES_TABLE_NAME);
+
     private static final Logger LOG = LoggerFactory.getLogger(HerdDBConfigurationStore.class);
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
@@ -245,7 +290,8 @@ public class HerdDBConfigurationStore implements ConfigurationStore {
                     CREATE_CONFIG_TABLE,
                     CREATE_KEYPAIR_TABLE,
                     CREATE_DIGITAL_CERTIFICATES_TABLE,
-                    CREATE_ACME_CHALLENGE_TOKENS_TABLE
+                    CREATE_ACME_CHALLENGE_TOKENS_TABLE,
+                    CREATE_OCSP_RESPONSES_TABLE
             );
             tablesDDL.forEach((tableDDL) -> {
                 try (PreparedStatement ps = con.prepareStatement(tableDDL)) {
@@ -255,6 +301,12 @@ public class HerdDBConfigurationStore implements ConfigurationStore {
                     LOG.debug("Could not create table {}", tableDDL, err);
                 }
             });
+            try (PreparedStatement ps = con.prepareStatement(ALTER_DIGITAL_CERTIFICATES_TABLE_ADD_MODIFIED)) {
+                ps.executeUpdate();
+                LOG.info("Altered table {}", ALTER_DIGITAL_CERTIFICATES_TABLE_ADD_MODIFIED);
+            } catch (SQLException err) {
+                LOG.debug("Could not alter table {}", ALTER_DIGITAL_CERTIFICATES_TABLE_ADD_MODIFIED, err);
+            }
 
             try (PreparedStatement ps = con.prepareStatement(SELECT_ALL_FROM_CONFIG_TABLE); ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
@@ -281,50 +333,71 @@ public class HerdDBConfigurationStore implements ConfigurationStore {
 
     @Override
     public void commitConfiguration(ConfigurationStore newConfigurationStore) {
-        Set<String> currentKeys = new HashSet<>(this.properties.keySet());
-        Map<String, String> newProperties = new HashMap<>();
+        // only the differences from the loaded configuration are written
+        final Map<String, String> changed = new HashMap<>();
+        final Set<String> removed = new HashSet<>(this.properties.keySet());
+        newConfigurationStore.forEach((k, v) -> {
+            removed.remove(k);
+            if (!v.equals(properties.get(k))) {
+                changed.put(k, v);
+            }
+        });
+        if (changed.isEmpty() && removed.isEmpty()) {
+            LOG.info("No configuration change to save");
+            return;
+        }
+        LOG.info("Saving {} changed and deleting {} configuration properties", changed.size(), removed.size());
         try (Connection con = datasource.getConnection()) {
             con.setAutoCommit(false);
+            // the rows are looked up before writing any of them, as every statement scans the rows written by the transaction
+            final Set<String> stored = new HashSet<>();
+            try (PreparedStatement ps = con.prepareStatement(SELECT_ALL_FROM_CONFIG_TABLE); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    stored.add(rs.getString(1));
+                }
+            }
+            final List<Map.Entry<String, String>> toUpdate = new ArrayList<>();
+            final List<Map.Entry<String, String>> toInsert = new ArrayList<>();
+            changed.entrySet().forEach(entry -> (stored.contains(entry.getKey()) ? toUpdate : toInsert).add(entry));
+            final List<String> toDelete = removed.stream().filter(stored::contains).toList();
             try (PreparedStatement psUpdate = con.prepareStatement(UPDATE_CONFIG_TABLE);
                     PreparedStatement psDelete = con.prepareStatement(DELETE_FROM_CONFIG_TABLE);
                     PreparedStatement psInsert = con.prepareStatement(INSERT_INTO_CONFIG_TABLE)) {
-                newConfigurationStore.forEach((k, v) -> {
-                    try {
-                        LOG.info("Saving \"{}\"=\"{}\"", k, v);
-                        currentKeys.remove(k);
-                        newProperties.put(k, v);
-                        psUpdate.setString(1, v);
-                        psUpdate.setString(2, k);
-                        if (psUpdate.executeUpdate() == 0) {
-                            psInsert.setString(1, k);
-                            psInsert.setString(2, v);
-                            psInsert.executeUpdate();
-                        }
-                    } catch (SQLException err) {
-                        throw new ConfigurationStoreException(err);
+                for (int from = 0; from < toUpdate.size(); from += CONFIG_BATCH_SIZE) {
+                    for (Map.Entry<String, String> entry : toUpdate.subList(from, Math.min(from + CONFIG_BATCH_SIZE, toUpdate.size()))) {
+                        LOG.info("Saving \"{}\"=\"{}\"", entry.getKey(), entry.getValue());
+                        psUpdate.setString(1, entry.getValue());
+                        psUpdate.setString(2, entry.getKey());
+                        psUpdate.addBatch();
                     }
-                });
-                currentKeys.forEach(k -> {
-                    try {
+                    psUpdate.executeBatch();
+                }
+                for (int from = 0; from < toDelete.size(); from += CONFIG_BATCH_SIZE) {
+                    for (String k : toDelete.subList(from, Math.min(from + CONFIG_BATCH_SIZE, toDelete.size()))) {
                         LOG.info("Deleting \"{}\"", k);
                         psDelete.setString(1, k);
-                        psDelete.executeUpdate();
-                    } catch (SQLException err) {
-                        throw new ConfigurationStoreException(err);
+                        psDelete.addBatch();
                     }
-                });
+                    psDelete.executeBatch();
+                }
+                for (int from = 0; from < toInsert.size(); from += CONFIG_BATCH_SIZE) {
+                    for (Map.Entry<String, String> entry : toInsert.subList(from, Math.min(from + CONFIG_BATCH_SIZE, toInsert.size()))) {
+                        LOG.info("Saving \"{}\"=\"{}\"", entry.getKey(), entry.getValue());
+                        psInsert.setString(1, entry.getKey());
+                        psInsert.setString(2, entry.getValue());
+                        psInsert.addBatch();
+                    }
+                    psInsert.executeBatch();
+                }
             }
             con.commit();
 
             // Local cached properties updating
-            currentKeys.forEach(properties::remove);
-            properties.putAll(newProperties);
+            removed.forEach(properties::remove);
+            properties.putAll(changed);
         } catch (SQLException err) {
             LOG.error("Error while saving configuration from Database", err);
             throw new ConfigurationStoreException(err);
-        } catch (ConfigurationStoreException err) {
-            LOG.error("Error while saving configuration from Database", err);
-            throw err;
         }
     }
 
@@ -422,23 +495,7 @@ public class HerdDBConfigurationStore implements ConfigurationStore {
                 ps.setString(1, domain);
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        final var subjectAltNames = rs.getString(2);
-                        final var chain = rs.getString(3);
-                        final var state = DynamicCertificateState.fromStorableFormat(rs.getString(4));
-                        final var pendingOrder = rs.getString(5);
-                        final var pendingChallenges = parseChallengesData(rs.getString(6));
-                        final var attemptCount = rs.getInt(7);
-                        final var message = rs.getString(8);
-                        return new CertificateData(
-                                domain,
-                                subjectAltNames != null && !subjectAltNames.isBlank() ? Set.of(subjectAltNames.split(",")) : Set.of(),
-                                chain,
-                                state,
-                                pendingOrder != null ? URI.create(pendingOrder).toURL() : null,
-                                pendingChallenges,
-                                attemptCount,
-                                message
-                        );
+                        return readCertificate(rs);
                     }
                 }
                 return null;
@@ -449,6 +506,105 @@ public class HerdDBConfigurationStore implements ConfigurationStore {
         }
     }
 
+    @Override
+    public Map<String, CertificateData> loadCertificatesForDomains(Collection<String> domains) {
+        final List<String> toLoad = domains.stream().filter(domain -> !domain.equals(ACME_USER_KEY)).distinct().toList();
+        final Map<String, CertificateData> certificates = new HashMap<>();
+        try (Connection con = datasource.getConnection()) {
+            for (int from = 0; from < toLoad.size(); from += CERTIFICATES_BATCH_SIZE) {
+                final List<String> batch = toLoad.subList(from, Math.min(from + CERTIFICATES_BATCH_SIZE, toLoad.size()));
+                final String query = SELECT_FROM_DIGITAL_CERTIFICATES_TABLE_BY_DOMAINS.formatted(placeholders(batch.size()));
+                try (PreparedStatement ps = con.prepareStatement(query)) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        ps.setString(i + 1, batch.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            final CertificateData cert = readCertificate(rs);
+                            certificates.put(cert.getDomain(), cert);
+                        }
+                    }
+                }
+            }
+            return certificates;
+        } catch (Exception err) {
+            LOG.error("Error while performing Certificates loading for {} domains.", toLoad.size(), err);
+            throw new ConfigurationStoreException(err);
+        }
+    }
+
+    @Override
+    public Map<String, CertificateData> loadChangedCertificates(Map<String, Long> knownVersions) {
+        // only the versions are read, then the rows of the changed domains
+        final List<String> changed = new ArrayList<>();
+        try (Connection con = datasource.getConnection();
+                PreparedStatement ps = con.prepareStatement(SELECT_VERSIONS_FROM_DIGITAL_CERTIFICATES_TABLE);
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                final String domain = rs.getString(1);
+                final Long known = knownVersions.get(domain);
+                if (known != null && known != rs.getLong(2)) {
+                    changed.add(domain);
+                }
+            }
+        } catch (Exception err) {
+            LOG.error("Error while performing Certificates versions loading.", err);
+            throw new ConfigurationStoreException(err);
+        }
+        return loadCertificatesForDomains(changed);
+    }
+
+    private static CertificateData readCertificate(ResultSet rs) throws Exception {
+        final var domain = rs.getString(1);
+        final var subjectAltNames = rs.getString(2);
+        final var chain = rs.getString(3);
+        final var state = DynamicCertificateState.fromStorableFormat(rs.getString(4));
+        final var pendingOrder = rs.getString(5);
+        final var pendingChallenges = parseChallengesData(rs.getString(6));
+        final var attemptCount = rs.getInt(7);
+        final var message = rs.getString(8);
+        final var cert = new CertificateData(
+                domain,
+                subjectAltNames != null && !subjectAltNames.isBlank() ? Set.of(subjectAltNames.split(",")) : Set.of(),
+                chain,
+                state,
+                pendingOrder != null ? URI.create(pendingOrder).toURL() : null,
+                pendingChallenges,
+                attemptCount,
+                message
+        );
+        cert.setVersion(rs.getLong(9));
+        return cert;
+    }
+
+    /**
+     * Version to assign to the certificates saved by the current transaction.
+     * It follows the clock, but it is always greater than the stored version of any of the saved domains.
+     * Readers compare versions domain by domain, so the order in which concurrent transactions commit does not matter.
+     */
+    private static long nextCertificatesVersion(Connection con, List<String> domains) throws SQLException {
+        long max = 0;
+        for (int from = 0; from < domains.size(); from += CERTIFICATES_BATCH_SIZE) {
+            final List<String> batch = domains.subList(from, Math.min(from + CERTIFICATES_BATCH_SIZE, domains.size()));
+            final String query = SELECT_MAX_MODIFIED_FROM_DIGITAL_CERTIFICATES_TABLE_BY_DOMAINS.formatted(placeholders(batch.size()));
+            try (PreparedStatement ps = con.prepareStatement(query)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    ps.setString(i + 1, batch.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        max = Math.max(max, rs.getLong(1));
+                    }
+                }
+            }
+        }
+        return Math.max(System.currentTimeMillis(), max + 1);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
     private static Map<String, JSON> parseChallengesData(String challengesData) throws JsonProcessingException {
         if (StringUtils.isBlank(challengesData)) {
             return null;
@@ -459,42 +615,104 @@ public class HerdDBConfigurationStore implements ConfigurationStore {
 
     @Override
     public void saveCertificate(CertificateData cert) {
-        try (Connection con = datasource.getConnection();
-                PreparedStatement psInsert = con.prepareStatement(INSERT_INTO_DIGITAL_CERTIFICATES_TABLE);
-                PreparedStatement psUpdate = con.prepareStatement(UPDATE_DIGITAL_CERTIFICATES_TABLE)) {
-            final var domain = cert.getDomain();
-            final var subjectAltNames = cert.getSubjectAltNames() != null && !cert.getSubjectAltNames().isEmpty()
-                    ? String.join(",", cert.getSubjectAltNames())
-                    : null;
-            final var chain = cert.getChain();
-            final var state = cert.getState().toStorableFormat();
-            final var pendingOrder = cert.getPendingOrderLocation() != null
-                    ? cert.getPendingOrderLocation().toString()
-                    : null;
-            final var pendingChallenges = formatChallengesData(cert.getPendingChallengesData());
+        saveCertificates(List.of(cert));
+    }
+
+    @Override
+    public void saveCertificates(Collection<CertificateData> certs) {
+        if (certs.isEmpty()) {
+            return;
+        }
+        try (Connection con = datasource.getConnection()) {
+            con.setAutoCommit(false);
+            final long version = nextCertificatesVersion(con, certs.stream().map(CertificateData::getDomain).toList());
+            try (PreparedStatement psInsert = con.prepareStatement(INSERT_INTO_DIGITAL_CERTIFICATES_TABLE);
+                    PreparedStatement psUpdate = con.prepareStatement(UPDATE_DIGITAL_CERTIFICATES_TABLE)) {
+                final List<CertificateRow> rows = new ArrayList<>(certs.size());
+                for (CertificateData cert : certs) {
+                    rows.add(CertificateRow.of(cert, version));
+                }
+                for (int from = 0; from < rows.size(); from += CERTIFICATES_BATCH_SIZE) {
+                    final List<CertificateRow> batch = rows.subList(from, Math.min(from + CERTIFICATES_BATCH_SIZE, rows.size()));
+                    for (CertificateRow row : batch) {
+                        row.bindUpdate(psUpdate);
+                        psUpdate.addBatch();
+                    }
+                    final int[] updated = psUpdate.executeBatch();
+                    boolean inserts = false;
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (updated[i] == 0) {
+                            batch.get(i).bindInsert(psInsert);
+                            psInsert.addBatch();
+                            inserts = true;
+                        }
+                    }
+                    if (inserts) {
+                        psInsert.executeBatch();
+                    }
+                }
+            }
+            con.commit();
+            certs.forEach(cert -> cert.setVersion(version));
+        } catch (Exception err) {
+            LOG.error("Error while performing Certificates saving for {} domains.", certs.size(), err);
+            throw new ConfigurationStoreException(err);
+        }
+    }
+
+    /**
+     * Values of a certificate, as stored in the table.
+     */
+    private record CertificateRow(
+            String domain,
+            String subjectAltNames,
+            String chain,
+            String state,
+            String pendingOrder,
+            String pendingChallenges,
+            int attemptsCount,
+            String message,
+            long modified
+    ) {
+
+        static CertificateRow of(CertificateData cert, long modified) throws JsonProcessingException {
+            return new CertificateRow(
+                    cert.getDomain(),
+                    cert.getSubjectAltNames() != null && !cert.getSubjectAltNames().isEmpty()
+                            ? String.join(",", cert.getSubjectAltNames())
+                            : null,
+                    cert.getChain(),
+                    cert.getState().toStorableFormat(),
+                    cert.getPendingOrderLocation() != null ? cert.getPendingOrderLocation().toString() : null,
+                    formatChallengesData(cert.getPendingChallengesData()),
+                    cert.getAttemptsCount(),
+                    cert.getMessage(),
+                    modified
+            );
+        }
+
+        void bindUpdate(PreparedStatement psUpdate) throws SQLException {
             psUpdate.setString(1, subjectAltNames);
             psUpdate.setString(2, chain);
             psUpdate.setString(3, state);
             psUpdate.setString(4, pendingOrder);
             psUpdate.setString(5, pendingChallenges);
-            psUpdate.setInt(6, cert.getAttemptsCount());
-            psUpdate.setString(7, cert.getMessage());
-            psUpdate.setString(8, domain);
-            if (psUpdate.executeUpdate() == 0) {
-                psInsert.setString(1, domain);
-                psInsert.setString(2, subjectAltNames);
-                psInsert.setString(3, chain);
-                psInsert.setString(4, state);
-                psInsert.setString(5, pendingOrder);
-                psInsert.setString(6, pendingChallenges);
-                psInsert.setInt(7, cert.getAttemptsCount());
-                psInsert.setString(8, cert.getMessage());
-                psInsert.executeUpdate();
-            }
+            psUpdate.setInt(6, attemptsCount);
+            psUpdate.setString(7, message);
+            psUpdate.setLong(8, modified);
+            psUpdate.setString(9, domain);
+        }
 
-        } catch (Exception err) {
-            LOG.error("Error while performing Certificate saving for domain {}.", cert.getDomain(), err);
-            throw new ConfigurationStoreException(err);
+        void bindInsert(PreparedStatement psInsert) throws SQLException {
+            psInsert.setString(1, domain);
+            psInsert.setString(2, subjectAltNames);
+            psInsert.setString(3, chain);
+            psInsert.setString(4, state);
+            psInsert.setString(5, pendingOrder);
+            psInsert.setString(6, pendingChallenges);
+            psInsert.setInt(7, attemptsCount);
+            psInsert.setString(8, message);
+            psInsert.setLong(9, modified);
         }
     }
 
@@ -563,4 +781,52 @@ public class HerdDBConfigurationStore implements ConfigurationStore {
         }
     }
 
+    @Override
+    public void saveOcspResponse(String id, byte[] response) {
+        try (Connection con = datasource.getConnection();
+                PreparedStatement psUpdate = con.prepareStatement(UPDATE_OCSP_RESPONSES_TABLE);
+                PreparedStatement psInsert = con.prepareStatement(INSERT_INTO_OCSP_RESPONSES_TABLE)) {
+            final String data = Base64.getEncoder().encodeToString(response);
+            psUpdate.setString(1, data);
+            psUpdate.setString(2, id);
+            if (psUpdate.executeUpdate() == 0) {
+                psInsert.setString(1, id);
+                psInsert.setString(2, data);
+                psInsert.executeUpdate();
+            }
+        } catch (SQLException err) {
+            LOG.error("Error while performing saving of OCSP response with id: {}", id, err);
+            throw new ConfigurationStoreException(err);
+        }
+    }
+
+    @Override
+    public byte[] loadOcspResponse(String id) {
+        try (Connection con = datasource.getConnection();
+                PreparedStatement ps = con.prepareStatement(SELECT_FROM_OCSP_RESPONSES_TABLE)) {
+            ps.setString(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Base64.getDecoder().decode(rs.getString(1));
+                }
+            }
+            return null;
+        } catch (SQLException err) {
+            LOG.error("Error while performing loading of OCSP response with id: {}", id, err);
+            throw new ConfigurationStoreException(err);
+        }
+    }
+
+    @Override
+    public void deleteOcspResponse(String id) {
+        try (Connection con = datasource.getConnection();
+                PreparedStatement psDelete = con.prepareStatement(DELETE_FROM_OCSP_RESPONSES_TABLE)) {
+            psDelete.setString(1, id);
+            psDelete.executeUpdate();
+        } catch (SQLException err) {
+            LOG.error("Error while performing deleting of OCSP response with id: {}", id, err);
+            throw new ConfigurationStoreException(err);
+        }
+    }
+
 }
@@ -0,0 +1,213 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.configstore;
+
+import java.security.KeyPair;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+
+/**
+ * Read-only view of the properties of a {@link ConfigurationStore}, indexed in a single pass.
+ * <p>
+ * Indexed properties, like {@code route.3.match}, are grouped by prefix, index and field: the indexes used by a prefix
+ * and the fields of an indexed entry are available without scanning all the keys again.
+ * Keys, certificates and the other stored data are read and written through the underlying store.
+ * <p>
+ * The view does not follow later changes of the underlying properties.
+ */
+public class IndexedConfigurationStore implements ConfigurationStore {
+
+    private final ConfigurationStore store;
+    private final Map<String, String> properties = new HashMap<>();
+    // prefix -> indexes used
+    private final Map<String, TreeSet<Integer>> indexes = new HashMap<>();
+    // prefix.index. -> fields of the entry
+    private final Map<String, Map<String, String>> entries = new HashMap<>();
+
+    public IndexedConfigurationStore(ConfigurationStore store) {
+        this.store = store;
+        store.forEach(this::index);
+    }
+
+    /**
+     * @param store the store to index
+     * @return an indexed view of the store, or the store itself if it is already indexed
+     */
+    public static ConfigurationStore of(ConfigurationStore store) {
+        return store instanceof IndexedConfigurationStore ? store : new IndexedConfigurationStore(store);
+    }
+
+    private void index(String key, String value) {
+        properties.put(key, value);
+        int dot = key.indexOf('.');
+        while (dot >= 0) {
+            final int next = key.indexOf('.', dot + 1);
+            final Integer index = parseIndex(key, dot + 1, next < 0 ? key.length() : next);
+            if (index != null) {
+                indexes.computeIfAbsent(key.substring(0, dot), k -> new TreeSet<>()).add(index);
+                if (next >= 0) {
+                    entries.computeIfAbsent(key.substring(0, next + 1), k -> new HashMap<>()).put(key.substring(next + 1), value);
+                }
+            }
+            dot = next;
+        }
+    }
+
+    private static Integer parseIndex(String key, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        final char first = key.charAt(from);
+        if (!Character.isDigit(first) && first != '-' && first != '+') {
+            return null;
+        }
+        try {
+            return Integer.parseInt(key, from, to, 10);
+        } catch (NumberFormatException ignored) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getProperty(String key, String defaultValue) {
+        return properties.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> consumer) {
+        properties.forEach(consumer);
+    }
+
+    @Override
+    public void forEach(String prefix, BiConsumer<String, String> consumer) {
+        final Map<String, String> entry = entries.get(prefix);
+        if (entry != null) {
+            entry.forEach(consumer);
+            return;
+        }
+        properties.forEach((k, v) -> {
+            if (k.startsWith(prefix)) {
+                consumer.accept(k.substring(prefix.length()), v);
+            }
+        });
+    }
+
+    @Override
+    public int findMaxIndexForPrefix(String prefix) {
+        final TreeSet<Integer> used = indexes.get(prefix);
+        return used != null ? used.last() : -1;
+    }
+
+    @Override
+    public SortedSet<Integer> findIndexesForPrefix(String prefix) {
+        final TreeSet<Integer> used = indexes.get(prefix);
+        return used != null ? Collections.unmodifiableSortedSet(used.tailSet(0)) : Collections.emptySortedSet();
+    }
+
+    @Override
+    public KeyPair loadAcmeUserKeyPair() {
+        return store.loadAcmeUserKeyPair();
+    }
+
+    @Override
+    public boolean saveAcmeUserKey(KeyPair pair) {
+        return store.saveAcmeUserKey(pair);
+    }
+
+    @Override
+    public KeyPair loadKeyPairForDomain(String domain) {
+        return store.loadKeyPairForDomain(domain);
+    }
+
+    @Override
+    public boolean saveKeyPairForDomain(KeyPair pair, String domain, boolean update) {
+        return store.saveKeyPairForDomain(pair, domain, update);
+    }
+
+    @Override
+    public CertificateData loadCertificateForDomain(String domain) {
+        return store.loadCertificateForDomain(domain);
+    }
+
+    @Override
+    public Map<String, CertificateData> loadCertificatesForDomains(Collection<String> domains) {
+        return store.loadCertificatesForDomains(domains);
+    }
+
+    @Override
+    public Map<String, CertificateData> loadChangedCertificates(Map<String, Long> knownVersions) {
+        return store.loadChangedCertificates(knownVersions);
+    }
+
+    @Override
+    public void saveCertificate(CertificateData cert) {
+        store.saveCertificate(cert);
+    }
+
+    @Override
+    public void saveCertificates(Collection<CertificateData> certs) {
+        store.saveCertificates(certs);
+    }
+
+    @Override
+    public void removeCertificate(String certId) {
+        store.removeCertificate(certId);
+    }
+
+    @Override
+    public void reload() {
+        store.reload();
+    }
+
+    @Override
+    public void saveAcmeChallengeToken(String id, String data) {
+        store.saveAcmeChallengeToken(id, data);
+    }
+
+    @Override
+    public String loadAcmeChallengeToken(String id) {
+        return store.loadAcmeChallengeToken(id);
+    }
+
+    @Override
+    public void deleteAcmeChallengeToken(String id) {
+        store.deleteAcmeChallengeToken(id);
+    }
+
+    @Override
+    public void saveOcspResponse(String id, byte[] response) {
+        store.saveOcspResponse(id, response);
+    }
+
+    @Override
+    public byte[] loadOcspResponse(String id) {
+        return store.loadOcspResponse(id);
+    }
+
+    @Override
+    public void deleteOcspResponse(String id) {
+        store.deleteOcspResponse(id);
+    }
+}
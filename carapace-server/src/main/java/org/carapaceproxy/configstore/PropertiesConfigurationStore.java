@@ -43,6 +43,7 @@ public class PropertiesConfigurationStore implements ConfigurationStore {
     private final ConcurrentHashMap<String, CertificateData> certificates = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, KeyPair> domainsKeyPair = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, String> acmeChallengeTokens = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, byte[]> ocspResponses = new ConcurrentHashMap<>();
     private KeyPair acmeUserKey;
 
     public PropertiesConfigurationStore(Properties properties) {
@@ -169,6 +170,21 @@ public class PropertiesConfigurationStore implements ConfigurationStore {
         acmeChallengeTokens.remove(id);
     }
 
+    @Override
+    public void saveOcspResponse(String id, byte[] response) {
+        ocspResponses.put(id, response);
+    }
+
+    @Override
+    public byte[] loadOcspResponse(String id) {
+        return ocspResponses.get(id);
+    }
+
+    @Override
+    public void deleteOcspResponse(String id) {
+        ocspResponses.remove(id);
+    }
+
     public void addConnectionPool(final ConnectionPoolConfiguration connectionPool) {
         saveConnectionPool(connectionPool, findMaxIndexForPrefix("connectionpool") + 1);
     }
@@ -189,6 +205,7 @@ public class PropertiesConfigurationStore implements ConfigurationStore {
         properties.setProperty(prefix + "keepalivecount", String.valueOf(connectionPool.getKeepaliveCount()));
         properties.setProperty(prefix + "enabled", String.valueOf(connectionPool.isEnabled()));
         properties.setProperty(prefix + "keepalive", String.valueOf(connectionPool.isKeepAlive()));
+        properties.setProperty(prefix + "minidle", String.valueOf(connectionPool.getMinIdle()));
     }
 
     public void updateConnectionPool(final ConnectionPoolConfiguration connectionPool) {
@@ -0,0 +1,257 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.carapaceproxy.server.config.BackendConfiguration;
+import org.carapaceproxy.server.config.ConfigurationNotValidException;
+import org.carapaceproxy.utils.PrometheusUtils;
+import org.carapaceproxy.utils.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.netty.NettyPipeline;
+
+/**
+ * Client SSL contexts used to connect to the backends.
+ * <p>
+ * Connection pools are recreated on reload, but the contexts are kept while their settings and the files they trust
+ * are unchanged: the TLS sessions cached by a context survive, and the new connections can resume them instead of
+ * doing full handshakes.
+ */
+class BackendSslContexts {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BackendSslContexts.class);
+
+    private static final String HANDSHAKE_METRICS_HANDLER = "carapace.backendHandshakeMetrics";
+
+    private static final Counter FULL_HANDSHAKES_COUNTER = PrometheusUtils.createCounter(
+            "backends", "tls_full_handshakes_total", "TLS handshakes with the backends that negotiated a new session", "host"
+    ).register();
+
+    private static final Counter RESUMED_HANDSHAKES_COUNTER = PrometheusUtils.createCounter(
+            "backends", "tls_resumed_handshakes_total", "TLS handshakes with the backends that resumed a cached session", "host"
+    ).register();
+
+    private static final Summary HANDSHAKE_TIME_SUMMARY = PrometheusUtils.createSummary(
+            "backends", "tls_handshake_time_ms", "time spent by the TLS handshakes with the backends", "host"
+    ).register();
+
+    /**
+     * Builds the context for a set of settings.
+     */
+    interface Builder {
+
+        SslContext build(Key key) throws IOException, GeneralSecurityException;
+    }
+
+    /**
+     * Tells whether a file changed, e.g. a CA certificate rotated in place.
+     */
+    interface FileStamps {
+
+        /**
+         * @param path the path of the file, relative paths are resolved against the base path of the server
+         * @return a value that changes with the file, or null if there is no such file
+         */
+        String stamp(String path);
+    }
+
+    /**
+     * Settings of a context; the backends sharing them share the context, and its session cache.
+     *
+     * @param caCertificatePath     the CA file to trust, or null for the global truststore
+     * @param caCertificatePassword the password of the CA file
+     * @param sessionCacheSize      how many sessions to cache
+     * @param sessionTimeout        how long the sessions can be resumed, in seconds
+     */
+    record Key(String caCertificatePath, String caCertificatePassword, int sessionCacheSize, int sessionTimeout) {
+
+        static Key of(final BackendConfiguration backend) {
+            return StringUtils.isBlank(backend.caCertificatePath())
+                    ? new Key(null, null, backend.sslSessionCacheSize(), backend.sslSessionTimeout())
+                    : new Key(backend.caCertificatePath(), backend.caCertificatePassword(), backend.sslSessionCacheSize(), backend.sslSessionTimeout());
+        }
+
+        boolean usesTrustStore() {
+            return caCertificatePath == null;
+        }
+
+        @Override
+        public String toString() {
+            return "Key{caCertificatePath=" + caCertificatePath
+                    + ", caCertificatePassword=" + (caCertificatePassword != null ? "******" : null)
+                    + ", sessionCacheSize=" + sessionCacheSize
+                    + ", sessionTimeout=" + sessionTimeout
+                    + "}";
+        }
+    }
+
+    private record Entry(SslContext sslContext, String stamp) {
+    }
+
+    private final Builder builder;
+    private final FileStamps fileStamps;
+    private volatile Map<Key, Entry> contexts = new ConcurrentHashMap<>();
+    private String trustStoreFile;
+    private String trustStorePassword;
+
+    BackendSslContexts(final Builder builder, final FileStamps fileStamps) {
+        this.builder = builder;
+        this.fileStamps = fileStamps;
+    }
+
+    /**
+     * Prepare the contexts for the new backends, reusing the ones with the same settings.
+     *
+     * @param configuration the new configuration; contexts of the global truststore are built again when it changes
+     * @param backends      the new backends
+     */
+    synchronized void reloadConfiguration(final RuntimeServerConfiguration configuration, final Collection<BackendConfiguration> backends) throws ConfigurationNotValidException {
+        final boolean trustStoreChanged = !Objects.equals(trustStoreFile, configuration.getSslTrustStoreFile())
+                || !Objects.equals(trustStorePassword, configuration.getSslTrustStorePassword());
+        // the same file may be trusted by many backends
+        final Map<String, String> stamps = new HashMap<>();
+        final Function<Key, String> stampOf = key -> {
+            final String path = key.usesTrustStore() ? configuration.getSslTrustStoreFile() : key.caCertificatePath();
+            return path != null ? stamps.computeIfAbsent(path, fileStamps::stamp) : null;
+        };
+        final Map<Key, Entry> newContexts = new ConcurrentHashMap<>();
+        try {
+            newContexts.put(defaultKey(), reuseOrBuild(defaultKey(), stampOf.apply(defaultKey()), trustStoreChanged));
+            for (final BackendConfiguration backend : backends) {
+                if (!backend.ssl()) {
+                    continue;
+                }
+                final Key key = Key.of(backend);
+                if (!newContexts.containsKey(key)) {
+                    newContexts.put(key, reuseOrBuild(key, stampOf.apply(key), trustStoreChanged));
+                    LOG.debug("SSL context for backend {} prepared from {}", backend.id(), key);
+                }
+            }
+        } catch (IOException | GeneralSecurityException exception) {
+            throw new ConfigurationNotValidException(exception);
+        }
+        this.contexts = newContexts;
+        this.trustStoreFile = configuration.getSslTrustStoreFile();
+        this.trustStorePassword = configuration.getSslTrustStorePassword();
+    }
+
+    private Entry reuseOrBuild(final Key key, final String stamp, final boolean trustStoreChanged) throws IOException, GeneralSecurityException {
+        final Entry cached = contexts.get(key);
+        if (cached != null && !(trustStoreChanged && key.usesTrustStore()) && Objects.equals(cached.stamp(), stamp)) {
+            return cached;
+        }
+        return new Entry(builder.build(key), stamp);
+    }
+
+    private static Key defaultKey() {
+        return new Key(null, null, BackendConfiguration.DEFAULT_SSL_SESSION_CACHE_SIZE, BackendConfiguration.DEFAULT_SSL_SESSION_TIMEOUT);
+    }
+
+    /**
+     * The context to connect to a backend; backends unknown at the last reload use the global truststore.
+     */
+    SslContext get(final BackendConfiguration backend) {
+        final Map<Key, Entry> current = this.contexts;
+        final Entry entry = current.getOrDefault(Key.of(backend), current.get(defaultKey()));
+        return entry != null ? entry.sslContext() : null;
+    }
+
+    void clear() {
+        contexts = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Track the TLS handshake of a new connection to a backend.
+     *
+     * @param channel the channel of the connection, once its SSL handler is in place
+     * @param backend the backend
+     */
+    static void watchHandshake(final Channel channel, final BackendConfiguration backend) {
+        final ChannelPipeline pipeline = channel.pipeline();
+        if (pipeline.get(NettyPipeline.SslHandler) instanceof SslHandler sslHandler && pipeline.get(HANDSHAKE_METRICS_HANDLER) == null) {
+            pipeline.addAfter(NettyPipeline.SslHandler, HANDSHAKE_METRICS_HANDLER, new HandshakeMetricsHandler(sslHandler, backend.host() + "_" + backend.port()));
+        }
+    }
+
+    private static final class HandshakeMetricsHandler extends ChannelInboundHandlerAdapter {
+
+        private final SslHandler sslHandler;
+        private final String host;
+        private long startNanos;
+
+        private HandshakeMetricsHandler(final SslHandler sslHandler, final String host) {
+            this.sslHandler = sslHandler;
+            this.host = host;
+        }
+
+        @Override
+        public void handlerAdded(final ChannelHandlerContext ctx) {
+            if (ctx.channel().isActive()) {
+                start();
+            }
+        }
+
+        @Override
+        public void channelActive(final ChannelHandlerContext ctx) throws Exception {
+            // the SSL handler before this one has just sent the client hello
+            start();
+            super.channelActive(ctx);
+        }
+
+        private void start() {
+            startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void userEventTriggered(final ChannelHandlerContext ctx, final Object evt) throws Exception {
+            if (evt instanceof SslHandshakeCompletionEvent completion) {
+                if (completion.isSuccess() && startNanos != 0) {
+                    HANDSHAKE_TIME_SUMMARY.labels(host).observe((System.nanoTime() - startNanos) / 1_000_000.0);
+                    if (TlsHandshakes.isSessionReused(sslHandler.engine())) {
+                        RESUMED_HANDSHAKES_COUNTER.labels(host).inc();
+                    } else {
+                        FULL_HANDSHAKES_COUNTER.labels(host).inc();
+                    }
+                }
+                super.userEventTriggered(ctx, evt);
+                ctx.pipeline().remove(this);
+                return;
+            }
+            super.userEventTriggered(ctx, evt);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.carapaceproxy.server.mapper.StandardEndpointMapper;
+
+/**
+ * What changed between the applied dynamic configuration and a new one.
+ * <p>
+ * Each flag tells whether a part of the server has to be rebuilt or reloaded; the others keep their current state.
+ * Routing (routes, actions, directors, backends and headers) is not parsed into {@link RuntimeServerConfiguration}, so
+ * it is compared on the properties; everything else is compared on the parsed configurations.
+ *
+ * @param changedProperties the keys that were added, removed or changed
+ * @param mapper            whether the endpoint mapper has to be rebuilt
+ * @param filters           whether the request filters have to be rebuilt
+ * @param healthManager     whether the health manager settings changed
+ * @param certificates      whether the dynamic certificates settings changed
+ * @param trustStore        whether the truststore changed
+ * @param ocspStapling      whether the OCSP stapling settings changed
+ * @param sessionTicketKeys whether the session ticket keys settings changed
+ * @param listeners         whether the listeners settings changed
+ * @param cache             whether the cache settings changed
+ * @param requestsLogger    whether the access log settings changed
+ * @param connections       whether the connection pools settings changed
+ * @param retryBudget       whether the retry budget settings changed
+ * @param overload          whether the overload protection settings changed
+ */
+record ConfigurationDelta(
+        Set<String> changedProperties,
+        boolean mapper,
+        boolean filters,
+        boolean healthManager,
+        boolean certificates,
+        boolean trustStore,
+        boolean ocspStapling,
+        boolean sessionTicketKeys,
+        boolean listeners,
+        boolean cache,
+        boolean requestsLogger,
+        boolean connections,
+        boolean retryBudget,
+        boolean overload
+) {
+
+    // properties read by the StandardEndpointMapper
+    private static final List<String> MAPPER_PREFIXES = List.of("mapper.", "default.", "route.", "action.", "director.", "backend.", "header.");
+
+    /**
+     * Everything has to be applied, e.g. at boot.
+     */
+    static ConfigurationDelta full(final Map<String, String> properties) {
+        return new ConfigurationDelta(Set.copyOf(properties.keySet()),
+                true, true, true, true, true, true, true, true, true, true, true, true, true);
+    }
+
+    static ConfigurationDelta between(final Map<String, String> oldProperties, final RuntimeServerConfiguration oldConfiguration,
+                                      final Map<String, String> newProperties, final RuntimeServerConfiguration newConfiguration) {
+        final Set<String> changed = new HashSet<>();
+        newProperties.forEach((k, v) -> {
+            if (!v.equals(oldProperties.get(k))) {
+                changed.add(k);
+            }
+        });
+        oldProperties.keySet().forEach(k -> {
+            if (!newProperties.containsKey(k)) {
+                changed.add(k);
+            }
+        });
+        if (changed.isEmpty()) {
+            return new ConfigurationDelta(Set.of(),
+                    false, false, false, false, false, false, false, false, false, false, false, false, false);
+        }
+        // a custom mapper may read any property
+        final boolean mapper = !StandardEndpointMapper.class.getName().equals(newConfiguration.getMapperClassname())
+                || changed.stream().anyMatch(k -> MAPPER_PREFIXES.stream().anyMatch(k::startsWith));
+        final var o = oldConfiguration;
+        final var n = newConfiguration;
+        return new ConfigurationDelta(
+                Set.copyOf(changed),
+                mapper,
+                !Objects.equals(o.getRequestFilters(), n.getRequestFilters()),
+                o.getHealthProbePeriod() != n.getHealthProbePeriod()
+                        || o.getHealthConnectTimeout() != n.getHealthConnectTimeout()
+                        || o.getWarmupPeriod() != n.getWarmupPeriod()
+                        || o.isTolerant() != n.isTolerant()
+                        || !Objects.equals(o.getCircuitBreakerConfiguration(), n.getCircuitBreakerConfiguration())
+                        || !Objects.equals(o.getConcurrencyLimiterConfiguration(), n.getConcurrencyLimiterConfiguration()),
+                !Objects.equals(o.getCertificates(), n.getCertificates())
+                        || !Objects.equals(o.getDomainsCheckerIPAddresses(), n.getDomainsCheckerIPAddresses())
+                        || o.getDynamicCertificatesManagerPeriod() != n.getDynamicCertificatesManagerPeriod()
+                        || o.getKeyPairsSize() != n.getKeyPairsSize()
+                        || o.getKeyPairsType() != n.getKeyPairsType(),
+                !Objects.equals(o.getSslTrustStoreFile(), n.getSslTrustStoreFile())
+                        || !Objects.equals(o.getSslTrustStorePassword(), n.getSslTrustStorePassword()),
+                o.getOcspStaplingManagerPeriod() != n.getOcspStaplingManagerPeriod(),
+                o.getSessionTicketKeysRotationPeriod() != n.getSessionTicketKeysRotationPeriod(),
+                !Objects.equals(o.getListeners(), n.getListeners())
+                        || !Objects.equals(o.getCertificates(), n.getCertificates())
+                        || o.getClientsIdleTimeoutSeconds() != n.getClientsIdleTimeoutSeconds()
+                        || o.getClientsDrainTimeoutSeconds() != n.getClientsDrainTimeoutSeconds()
+                        || o.getResponseCompressionThreshold() != n.getResponseCompressionThreshold()
+                        || o.getMaxHeaderSize() != n.getMaxHeaderSize()
+                        || o.getSslContextsCacheMaxSize() != n.getSslContextsCacheMaxSize()
+                        || o.isOcspEnabled() != n.isOcspEnabled()
+                        || !Objects.equals(o.getSslTrustStoreFile(), n.getSslTrustStoreFile())
+                        || !Objects.equals(o.getSslTrustStorePassword(), n.getSslTrustStorePassword()),
+                o.getCacheMaxSize() != n.getCacheMaxSize()
+                        || o.getCacheMaxFileSize() != n.getCacheMaxFileSize()
+                        || o.isCacheDisabledForSecureRequestsWithoutPublic() != n.isCacheDisabledForSecureRequestsWithoutPublic()
+                        || !Objects.equals(o.getAlwaysCachedExtensions(), n.getAlwaysCachedExtensions()),
+                !Objects.equals(o.getAccessLogPath(), n.getAccessLogPath())
+                        || !Objects.equals(o.getAccessLogTimestampFormat(), n.getAccessLogTimestampFormat())
+                        || !Objects.equals(o.getAccessLogFormat(), n.getAccessLogFormat())
+                        || o.getAccessLogMaxQueueCapacity() != n.getAccessLogMaxQueueCapacity()
+                        || o.getAccessLogFlushInterval() != n.getAccessLogFlushInterval()
+                        || o.getAccessLogWaitBetweenFailures() != n.getAccessLogWaitBetweenFailures()
+                        || o.getAccessLogMaxSize() != n.getAccessLogMaxSize(),
+                // the connectionsmanager.* settings are compared through the default pool they build
+                !Objects.equals(o.getDefaultConnectionPool(), n.getDefaultConnectionPool())
+                        || !Objects.equals(o.getConnectionPools(), n.getConnectionPools())
+                        || o.isConnectionsColocation() != n.isConnectionsColocation(),
+                o.getRetryBudgetPercent() != n.getRetryBudgetPercent()
+                        || o.getRetryBudgetBurst() != n.getRetryBudgetBurst(),
+                o.isOverloadProtectionEnabled() != n.isOverloadProtectionEnabled()
+                        || o.getOverloadLagTarget() != n.getOverloadLagTarget()
+                        || o.getOverloadInterval() != n.getOverloadInterval()
+                        || o.getOverloadMaxPendingTasks() != n.getOverloadMaxPendingTasks()
+                        || !Objects.equals(o.getOverloadExemptRoutes(), n.getOverloadExemptRoutes())
+        );
+    }
+
+    boolean isEmpty() {
+        return changedProperties.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        // the changed keys may be many, only their number is reported
+        return "ConfigurationDelta{changedProperties=" + changedProperties.size()
+                + ", mapper=" + mapper
+                + ", filters=" + filters
+                + ", healthManager=" + healthManager
+                + ", certificates=" + certificates
+                + ", trustStore=" + trustStore
+                + ", ocspStapling=" + ocspStapling
+                + ", sessionTicketKeys=" + sessionTicketKeys
+                + ", listeners=" + listeners
+                + ", cache=" + cache
+                + ", requestsLogger=" + requestsLogger
+                + ", connections=" + connections
+                + ", retryBudget=" + retryBudget
+                + ", overload=" + overload
+                + "}";
+    }
+}
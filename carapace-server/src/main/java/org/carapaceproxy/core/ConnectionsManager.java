@@ -1,13 +1,17 @@
 package org.carapaceproxy.core;
 
 import static reactor.netty.Metrics.CONNECTION_PROVIDER_PREFIX;
+import static reactor.netty.Metrics.NAME;
 import io.micrometer.core.instrument.Metrics;
 import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import org.carapaceproxy.server.config.BackendConfiguration;
@@ -15,64 +19,130 @@ import org.carapaceproxy.server.config.ConnectionPoolConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.ConnectionProvider.ConnectionPoolSpec;
 
 public class ConnectionsManager implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionsManager.class);
-    private final Map<ConnectionPoolConfiguration, ConnectionProvider> connectionPools = new ConcurrentHashMap<>();
+    private volatile Map<ConnectionPoolConfiguration, ConnectionProvider> connectionPools = new ConcurrentHashMap<>();
     private volatile ConnectionPoolConfiguration defaultConnectionPoolConfiguration;
     private volatile ConnectionProvider defaultConnectionPoolProvider;
-
+    // providers bound to a single event loop, see getConnectionProvider(ConnectionPoolConfiguration, int, int)
+    private final Map<ConnectionPoolConfiguration, Map<Integer, ConnectionProvider>> partitions = new ConcurrentHashMap<>();
+    private volatile Collection<BackendConfiguration> endpoints = List.of();
+
+    /**
+     * Apply a new configuration of the pools.
+     * <p>
+     * Providers whose {@link ConnectionPoolConfiguration} did not change are kept with their warm connections,
+     * even if the backends changed: new backends get the settings of the pool as well.
+     * Providers of changed or removed pools are disposed gracefully, according to their dispose timeout.
+     *
+     * @param newConfiguration the new configuration
+     * @param newEndpoints     the configured backends
+     */
     public void reloadConfiguration(RuntimeServerConfiguration newConfiguration, Collection<BackendConfiguration> newEndpoints) {
-        close();
-
         // custom pools
         final var connectionPoolsCopy = new ArrayList<>(newConfiguration.getConnectionPools().values());
 
         // default pool
         connectionPoolsCopy.add(newConfiguration.getDefaultConnectionPool());
 
-        connectionPoolsCopy.forEach(connectionPool -> {
+        final Map<ConnectionPoolConfiguration, ConnectionProvider> retired = new HashMap<>(connectionPools);
+        if (defaultConnectionPoolProvider != null) {
+            retired.put(defaultConnectionPoolConfiguration, defaultConnectionPoolProvider);
+        }
+        final Map<ConnectionPoolConfiguration, ConnectionProvider> newConnectionPools = new ConcurrentHashMap<>();
+        ConnectionPoolConfiguration newDefaultConfiguration = null;
+        ConnectionProvider newDefaultProvider = null;
+        for (final ConnectionPoolConfiguration connectionPool : connectionPoolsCopy) {
             if (!connectionPool.isEnabled()) {
-                return;
+                continue;
+            }
+            ConnectionProvider provider = retired.remove(connectionPool);
+            if (provider == null) {
+                // metrics of a previous pool with the same id would hide the ones of the new pool
+                removeMetrics(connectionPool.getId());
+                provider = buildConnectionProvider(connectionPool, newEndpoints);
+                LOGGER.info("Built connection pool {}", connectionPool.getId());
+            } else {
+                LOGGER.debug("Keeping connection pool {}, configuration did not change", connectionPool.getId());
             }
-
-            ConnectionProvider.Builder builder = ConnectionProvider.builder(connectionPool.getId())
-                    .disposeTimeout(Duration.ofMillis(connectionPool.getDisposeTimeout()));
-
-            // max connections per endpoint limit setup
-            newEndpoints.forEach(be -> {
-                LOGGER.debug(
-                        "Setup max connections per endpoint {}:{} = {} for connectionpool {}", be.host(), be.port(), connectionPool.getMaxConnectionsPerEndpoint(), connectionPool.getId());
-                builder.forRemoteHost(InetSocketAddress.createUnresolved(be.host(), be.port()), spec -> {
-                    spec.maxConnections(connectionPool.getMaxConnectionsPerEndpoint());
-                    spec.pendingAcquireTimeout(Duration.ofMillis(connectionPool.getBorrowTimeout()));
-                    spec.maxIdleTime(Duration.ofMillis(connectionPool.getIdleTimeout()));
-                    spec.maxLifeTime(Duration.ofMillis(connectionPool.getMaxLifeTime()));
-                    spec.evictInBackground(Duration.ofMillis(connectionPool.getIdleTimeout() * 2L));
-                    spec.metrics(true);
-                    spec.lifo();
-                });
-            });
-
             if (connectionPool.getId().equals("*")) {
-                defaultConnectionPoolConfiguration = connectionPool;
-                defaultConnectionPoolProvider = builder.build();
+                newDefaultConfiguration = connectionPool;
+                newDefaultProvider = provider;
             } else {
-                connectionPools.put(connectionPool, builder.build());
+                newConnectionPools.put(connectionPool, provider);
+            }
+        }
+        connectionPools = newConnectionPools;
+        defaultConnectionPoolConfiguration = newDefaultConfiguration;
+        defaultConnectionPoolProvider = newDefaultProvider;
+        endpoints = List.copyOf(newEndpoints);
+
+        retired.forEach((connectionPool, provider) -> {
+            LOGGER.info("Retiring connection pool {}, draining for up to {} ms", connectionPool.getId(), connectionPool.getDisposeTimeout());
+            provider.dispose(); // graceful shutdown according to disposeTimeout
+            final Map<Integer, ConnectionProvider> retiredPartitions = partitions.remove(connectionPool);
+            if (retiredPartitions != null) {
+                retiredPartitions.values().forEach(ConnectionProvider::dispose);
+            }
+            final boolean replaced = connectionPoolsCopy.stream()
+                    .anyMatch(e -> e.isEnabled() && e.getId().equals(connectionPool.getId()));
+            if (!replaced) {
+                removeMetrics(connectionPool.getId());
+            }
+        });
+    }
+
+    private static ConnectionProvider buildConnectionProvider(final ConnectionPoolConfiguration connectionPool, final Collection<BackendConfiguration> endpoints) {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(connectionPool.getId())
+                .disposeTimeout(Duration.ofMillis(connectionPool.getDisposeTimeout()));
+
+        // backends added after the pool has been built get the default spec
+        applyPoolSpec(builder, connectionPool);
+
+        // max connections per endpoint limit setup
+        endpoints.forEach(be -> {
+            LOGGER.debug(
+                    "Setup max connections per endpoint {}:{} = {} for connectionpool {}", be.host(), be.port(), connectionPool.getMaxConnectionsPerEndpoint(), connectionPool.getId());
+            builder.forRemoteHost(InetSocketAddress.createUnresolved(be.host(), be.port()), spec -> applyPoolSpec(spec, connectionPool));
+        });
+        return builder.build();
+    }
+
+    private static void applyPoolSpec(final ConnectionPoolSpec<?> spec, final ConnectionPoolConfiguration connectionPool) {
+        spec.maxConnections(connectionPool.getMaxConnectionsPerEndpoint());
+        spec.pendingAcquireTimeout(Duration.ofMillis(connectionPool.getBorrowTimeout()));
+        spec.maxIdleTime(Duration.ofMillis(connectionPool.getIdleTimeout()));
+        spec.maxLifeTime(Duration.ofMillis(connectionPool.getMaxLifeTime()));
+        spec.evictInBackground(Duration.ofMillis(connectionPool.getIdleTimeout() * 2L));
+        spec.metrics(true);
+        spec.lifo();
+    }
+
+    private static void removeMetrics(final String connectionPoolId) {
+        Metrics.globalRegistry.forEachMeter(m -> {
+            if (m.getId().getName().startsWith(CONNECTION_PROVIDER_PREFIX)
+                    && connectionPoolId.equals(m.getId().getTag(NAME))) {
+                Metrics.globalRegistry.remove(m);
             }
         });
     }
 
     @Override
     public void close() {
-        connectionPools.values().forEach(ConnectionProvider::dispose); // graceful shutdown according to disposeTimeout
-        connectionPools.clear();
+        final var pools = connectionPools;
+        connectionPools = new ConcurrentHashMap<>();
+        pools.values().forEach(ConnectionProvider::dispose); // graceful shutdown according to disposeTimeout
+        partitions.values().forEach(it -> it.values().forEach(ConnectionProvider::dispose));
+        partitions.clear();
 
         if (defaultConnectionPoolProvider != null) {
             // being it volatile, we don't have the compile-time certainty that it won't become null after the check;
             //  still, it is reasonably safe to assume that it will be not null
             Objects.requireNonNull(defaultConnectionPoolProvider).dispose();
+            defaultConnectionPoolProvider = null;
         }
 
         Metrics.globalRegistry.forEachMeter(m -> {
@@ -90,6 +160,21 @@ public class ConnectionsManager implements AutoCloseable {
                 .orElse(defaultConnectionPoolConfiguration);
     }
 
+    /**
+     * The pools in use, including the default one.
+     *
+     * @return the providers of the enabled pools by their configuration
+     */
+    public Map<ConnectionPoolConfiguration, ConnectionProvider> getConnectionPools() {
+        final Map<ConnectionPoolConfiguration, ConnectionProvider> pools = new HashMap<>(connectionPools);
+        final ConnectionPoolConfiguration defaultConfiguration = defaultConnectionPoolConfiguration;
+        final ConnectionProvider defaultProvider = defaultConnectionPoolProvider;
+        if (defaultConfiguration != null && defaultProvider != null) {
+            pools.put(defaultConfiguration, defaultProvider);
+        }
+        return pools;
+    }
+
     public ConnectionProvider getConnectionProvider(final String hostName) {
         return getConnectionProvider(findConnectionPool(hostName));
     }
@@ -103,4 +188,57 @@ public class ConnectionsManager implements AutoCloseable {
         }
         throw new IllegalArgumentException("No connection provider for " + configuration);
     }
+
+    /**
+     * Get the provider of a partition of a pool.
+     * <p>
+     * When connections are colocated, every event loop acquires connections from its own partition of the pool,
+     * so that they are all bound to that event loop; the connections allowed per endpoint are split among the partitions.
+     * Partitions are built on first use.
+     *
+     * @param configuration   the configuration of the pool
+     * @param partition       the index of the partition, or a negative number for the shared provider of the pool
+     * @param partitionsCount the number of partitions of the pool
+     * @return the provider
+     */
+    public ConnectionProvider getConnectionProvider(final ConnectionPoolConfiguration configuration, final int partition, final int partitionsCount) {
+        final ConnectionProvider shared = getConnectionProvider(configuration);
+        if (partition < 0 || partitionsCount <= 1) {
+            return shared;
+        }
+        return partitions
+                .computeIfAbsent(configuration, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(partition, k -> buildConnectionProvider(partitionConfiguration(configuration, partitionsCount), endpoints));
+    }
+
+    /**
+     * The partitions of a pool built so far.
+     *
+     * @param configuration the configuration of the pool
+     * @return the indexes of the partitions in use
+     */
+    public Set<Integer> getPartitions(final ConnectionPoolConfiguration configuration) {
+        final Map<Integer, ConnectionProvider> providers = partitions.get(configuration);
+        return providers == null ? Set.of() : Set.copyOf(providers.keySet());
+    }
+
+    private static ConnectionPoolConfiguration partitionConfiguration(final ConnectionPoolConfiguration configuration, final int partitionsCount) {
+        return new ConnectionPoolConfiguration(
+                configuration.getId(), // same name, so that the stats of the partitions add up
+                configuration.getDomain(),
+                Math.max(1, Math.ceilDiv(configuration.getMaxConnectionsPerEndpoint(), partitionsCount)),
+                configuration.getBorrowTimeout(),
+                configuration.getConnectTimeout(),
+                configuration.getStuckRequestTimeout(),
+                configuration.getIdleTimeout(),
+                configuration.getMaxLifeTime(),
+                configuration.getDisposeTimeout(),
+                configuration.getKeepaliveIdle(),
+                configuration.getKeepaliveInterval(),
+                configuration.getKeepaliveCount(),
+                configuration.isKeepAlive(),
+                configuration.isEnabled(),
+                Math.ceilDiv(configuration.getMinIdle(), partitionsCount)
+        );
+    }
 }
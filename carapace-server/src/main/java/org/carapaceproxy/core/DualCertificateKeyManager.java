@@ -0,0 +1,162 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import java.net.Socket;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Locale;
+import javax.net.ssl.ExtendedSSLSession;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.X509ExtendedKeyManager;
+
+/**
+ * Key manager for keystores holding both an RSA and an ECDSA chain for the same names.
+ * <p>
+ * The ECDSA chain is served to the clients that advertise an ECDSA signature algorithm, the RSA one to the others.
+ * With TLS 1.2 and older the certificate type is bound to the cipher suite, so only the aliases matching the requested
+ * key type are returned and OpenSSL falls back to the next suite.
+ */
+final class DualCertificateKeyManager extends X509ExtendedKeyManager {
+
+    private static final String RSA = "RSA";
+    private static final String EC = "EC";
+    private static final String TLS_13 = "TLSv1.3";
+
+    private final X509ExtendedKeyManager delegate;
+    private final String rsaAlias;
+    private final String ecAlias;
+
+    DualCertificateKeyManager(final X509ExtendedKeyManager delegate, final String rsaAlias, final String ecAlias) {
+        this.delegate = delegate;
+        this.rsaAlias = rsaAlias;
+        this.ecAlias = ecAlias;
+    }
+
+    /**
+     * Whether the keystore holds both an RSA and an ECDSA key entry.
+     */
+    static boolean isDual(final KeyStore keystore) throws KeyStoreException {
+        return findKeyAlias(keystore, RSA) != null && findKeyAlias(keystore, EC) != null;
+    }
+
+    /**
+     * Wrap the key manager built over a keystore for which {@link #isDual(KeyStore)} holds.
+     */
+    static DualCertificateKeyManager wrap(final X509ExtendedKeyManager delegate, final KeyStore keystore) throws KeyStoreException {
+        return new DualCertificateKeyManager(delegate, findKeyAlias(keystore, RSA), findKeyAlias(keystore, EC));
+    }
+
+    private static String findKeyAlias(final KeyStore keystore, final String algorithm) throws KeyStoreException {
+        for (final String alias : Collections.list(keystore.aliases())) {
+            if (!keystore.isKeyEntry(alias)) {
+                continue;
+            }
+            final Certificate certificate = keystore.getCertificate(alias);
+            if (certificate != null && algorithm.equals(certificate.getPublicKey().getAlgorithm())) {
+                return alias;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Choose the alias to serve.
+     *
+     * @param keyType             the key type requested for the negotiated suite, as in {@link javax.net.ssl.X509KeyManager}
+     * @param protocol            the negotiated protocol
+     * @param signatureAlgorithms the signature algorithms advertised by the client
+     * @return the alias, or null if no chain suits the request
+     */
+    String chooseAlias(final String keyType, final String protocol, final String[] signatureAlgorithms) {
+        final boolean ecdsa = acceptsEcdsa(signatureAlgorithms);
+        if (TLS_13.equals(protocol)) {
+            return ecdsa ? ecAlias : rsaAlias;
+        }
+        if (keyType == null) {
+            return null;
+        }
+        return switch (keyType) {
+            case RSA -> rsaAlias;
+            case EC, "EC_EC" -> ecdsa ? ecAlias : null;
+            default -> null;
+        };
+    }
+
+    private static boolean acceptsEcdsa(final String[] signatureAlgorithms) {
+        for (final String algorithm : signatureAlgorithms) {
+            if (algorithm.toUpperCase(Locale.ROOT).contains("ECDSA")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String chooseEngineServerAlias(final String keyType, final Principal[] issuers, final SSLEngine engine) {
+        final SSLSession session = engine != null ? engine.getHandshakeSession() : null;
+        if (session instanceof ExtendedSSLSession extendedSession) {
+            return chooseAlias(keyType, extendedSession.getProtocol(), extendedSession.getPeerSupportedSignatureAlgorithms());
+        }
+        // client preferences unknown, the requested key type is all we have
+        return delegate.chooseEngineServerAlias(keyType, issuers, engine);
+    }
+
+    @Override
+    public String chooseServerAlias(final String keyType, final Principal[] issuers, final Socket socket) {
+        return delegate.chooseServerAlias(keyType, issuers, socket);
+    }
+
+    @Override
+    public String[] getServerAliases(final String keyType, final Principal[] issuers) {
+        return delegate.getServerAliases(keyType, issuers);
+    }
+
+    @Override
+    public String chooseEngineClientAlias(final String[] keyType, final Principal[] issuers, final SSLEngine engine) {
+        return delegate.chooseEngineClientAlias(keyType, issuers, engine);
+    }
+
+    @Override
+    public String chooseClientAlias(final String[] keyType, final Principal[] issuers, final Socket socket) {
+        return delegate.chooseClientAlias(keyType, issuers, socket);
+    }
+
+    @Override
+    public String[] getClientAliases(final String keyType, final Principal[] issuers) {
+        return delegate.getClientAliases(keyType, issuers);
+    }
+
+    @Override
+    public X509Certificate[] getCertificateChain(final String alias) {
+        return delegate.getCertificateChain(alias);
+    }
+
+    @Override
+    public PrivateKey getPrivateKey(final String alias) {
+        return delegate.getPrivateKey(alias);
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ReflectiveChannelFactory;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import io.prometheus.client.Gauge;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.carapaceproxy.configstore.ConfigurationStore;
+import org.carapaceproxy.server.config.ConfigurationNotValidException;
+import org.carapaceproxy.utils.PrometheusUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Event loop groups of the proxy.
+ * <p>
+ * The worker group serves the connections of the listeners and the connections to the backends.
+ * Optionally, a dedicated boss group accepts the connections of the listeners, and a dedicated group serves
+ * the connections of the TLS listeners, so that handshakes do not slow down plain HTTP traffic.
+ * <p>
+ * Threads are named after their group (e.g. {@code carapace-worker-1-3}) so that they can be pinned to CPUs from outside.
+ */
+public class EventLoops implements Runnable {
+
+    public static final int DEFAULT_METRICS_PERIOD = 10; // seconds
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventLoops.class);
+
+    private static final Gauge PENDING_TASKS_GAUGE = PrometheusUtils.createGauge(
+            "eventloop", "pending_tasks", "number of tasks waiting to be run by the event loop", "group", "loop"
+    ).register();
+
+    private static final Gauge REGISTERED_CHANNELS_GAUGE = PrometheusUtils.createGauge(
+            "eventloop", "registered_channels", "number of channels served by the event loop", "group", "loop"
+    ).register();
+
+    private static final Gauge TASK_LATENCY_GAUGE = PrometheusUtils.createGauge(
+            "eventloop", "task_latency_ms", "time a task waits before being run, i.e. the duration of a loop iteration", "group", "loop"
+    ).register();
+
+    private volatile TransportType transport = TransportType.getDefault();
+    private int bossThreads;
+    private int workerThreads;
+    private int sslThreads;
+    private int metricsPeriod = DEFAULT_METRICS_PERIOD;
+
+    private volatile EventLoopGroup bossGroup;
+    private volatile EventLoopGroup workerGroup;
+    private volatile EventLoopGroup sslGroup;
+
+    private ScheduledExecutorService timer;
+
+    /**
+     * Reads the static configuration of the event loops; it has to be called before any group is used.
+     *
+     * @param properties the boot configuration
+     * @throws ConfigurationNotValidException if the transport is unknown or a thread count is negative
+     */
+    public synchronized void configure(final ConfigurationStore properties) throws ConfigurationNotValidException {
+        if (workerGroup != null) {
+            throw new IllegalStateException("event loops already in use");
+        }
+        transport = TransportType.select(properties.getString("eventloop.transport", "auto"));
+        workerThreads = readThreads(properties, "eventloop.worker.threads");
+        bossThreads = readThreads(properties, "eventloop.boss.threads");
+        sslThreads = readThreads(properties, "eventloop.ssl.threads");
+        metricsPeriod = properties.getInt("eventloop.metrics.period", DEFAULT_METRICS_PERIOD);
+        LOG.info("eventloop.transport={}", transport);
+        LOG.info("eventloop.worker.threads={}", workerThreads);
+        LOG.info("eventloop.boss.threads={}", bossThreads);
+        LOG.info("eventloop.ssl.threads={}", sslThreads);
+        LOG.info("eventloop.metrics.period={}", metricsPeriod);
+    }
+
+    private static int readThreads(final ConfigurationStore properties, final String key) throws ConfigurationNotValidException {
+        final int threads = properties.getInt(key, 0);
+        if (threads < 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + threads + "' for " + key);
+        }
+        return threads;
+    }
+
+    public TransportType getTransport() {
+        return transport;
+    }
+
+    /**
+     * The group serving plain HTTP listeners and connections to the backends.
+     *
+     * @return the worker group
+     */
+    public EventLoopGroup getWorkerGroup() {
+        EventLoopGroup group = workerGroup;
+        if (group == null) {
+            synchronized (this) {
+                group = workerGroup;
+                if (group == null) {
+                    workerGroup = group = newGroup("worker", workerThreads, transport);
+                }
+            }
+        }
+        return group;
+    }
+
+    /**
+     * The group accepting connections on the listeners.
+     *
+     * @return a dedicated group, or the worker group if not configured
+     */
+    public EventLoopGroup getBossGroup() {
+        if (bossThreads <= 0) {
+            return getWorkerGroup();
+        }
+        EventLoopGroup group = bossGroup;
+        if (group == null) {
+            synchronized (this) {
+                group = bossGroup;
+                if (group == null) {
+                    bossGroup = group = newGroup("boss", bossThreads, transport);
+                }
+            }
+        }
+        return group;
+    }
+
+    /**
+     * The group serving TLS listeners.
+     *
+     * @return a dedicated group, or the worker group if not configured
+     */
+    public EventLoopGroup getSslGroup() {
+        if (sslThreads <= 0) {
+            return getWorkerGroup();
+        }
+        EventLoopGroup group = sslGroup;
+        if (group == null) {
+            synchronized (this) {
+                group = sslGroup;
+                if (group == null) {
+                    sslGroup = group = newGroup("ssl", sslThreads, transport);
+                }
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Event loops to run a listener on.
+     *
+     * @param ssl whether the listener is a TLS one
+     * @return loops accepting on the boss group and serving on the worker or TLS group
+     */
+    public LoopResources getServerLoopResources(final boolean ssl) {
+        return new OwnedLoopResources(transport, getBossGroup(), ssl ? getSslGroup() : getWorkerGroup());
+    }
+
+    /**
+     * Event loops to run a client on.
+     *
+     * @param group the worker group, or a colocated view of the group serving the inbound request
+     * @return loops connecting on the group
+     */
+    public LoopResources getClientLoopResources(final EventLoopGroup group) {
+        return new OwnedLoopResources(transport, group, group);
+    }
+
+    /**
+     * The groups actually in use, by name.
+     *
+     * @return the distinct groups
+     */
+    public Map<String, EventLoopGroup> getGroups() {
+        final Map<String, EventLoopGroup> groups = new LinkedHashMap<>();
+        groups.put("worker", getWorkerGroup());
+        if (bossGroup != null) {
+            groups.put("boss", bossGroup);
+        }
+        if (sslGroup != null) {
+            groups.put("ssl", sslGroup);
+        }
+        return groups;
+    }
+
+    private static EventLoopGroup newGroup(final String name, final int threads, final TransportType transport) {
+        // 0 threads means netty's default, i.e. twice the number of available processors
+        final EventLoopGroup group = transport.newEventLoopGroup(threads, new DefaultThreadFactory("carapace-" + name));
+        LOG.info("Created {} event loop group with {} threads, transport {}", name, countLoops(group), transport);
+        return group;
+    }
+
+    static int countLoops(final EventLoopGroup group) {
+        int count = 0;
+        for (final EventExecutor ignored : group) {
+            count++;
+        }
+        return count;
+    }
+
+    public synchronized void start() {
+        if (metricsPeriod <= 0) {
+            return;
+        }
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor();
+        }
+        LOG.info("Starting event loops metrics, period: {} seconds", metricsPeriod);
+        timer.scheduleAtFixedRate(this, 0, metricsPeriod, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdown();
+            try {
+                timer.awaitTermination(10, TimeUnit.SECONDS);
+                timer = null;
+            } catch (InterruptedException err) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        for (final Map.Entry<String, EventLoopGroup> group : getGroups().entrySet()) {
+            final String name = group.getKey();
+            final List<EventExecutor> loops = new ArrayList<>();
+            group.getValue().forEach(loops::add);
+            for (int i = 0; i < loops.size(); i++) {
+                final EventExecutor loop = loops.get(i);
+                final String index = String.valueOf(i);
+                if (loop instanceof SingleThreadEventExecutor singleThreadExecutor) {
+                    PENDING_TASKS_GAUGE.labels(name, index).set(singleThreadExecutor.pendingTasks());
+                }
+                if (loop instanceof SingleThreadEventLoop singleThreadLoop) {
+                    // -1 if the transport does not track them
+                    REGISTERED_CHANNELS_GAUGE.labels(name, index).set(singleThreadLoop.registeredChannels());
+                }
+                final long submittedAt = System.nanoTime();
+                try {
+                    loop.execute(() -> TASK_LATENCY_GAUGE.labels(name, index).set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submittedAt)));
+                } catch (RejectedExecutionException err) {
+                    // the event loop is shutting down
+                }
+            }
+        }
+    }
+
+    /**
+     * The groups are owned by {@link EventLoops}, so disposing the resources of a listener or a client does not shut them down.
+     * The channels are created for the transport of the groups.
+     */
+    private record OwnedLoopResources(TransportType transport, EventLoopGroup select, EventLoopGroup workers) implements LoopResources {
+
+        @Override
+        public EventLoopGroup onServerSelect(final boolean useNative) {
+            return select;
+        }
+
+        @Override
+        public EventLoopGroup onServer(final boolean useNative) {
+            return workers;
+        }
+
+        @Override
+        public EventLoopGroup onClient(final boolean useNative) {
+            return workers;
+        }
+
+        @Override
+        public <CHANNEL extends Channel> CHANNEL onChannel(final Class<CHANNEL> channelType, final EventLoopGroup group) {
+            final Class<? extends CHANNEL> channelClass = transport.channelClass(channelType);
+            return channelClass != null
+                    ? new ReflectiveChannelFactory<CHANNEL>(channelClass).newChannel()
+                    : LoopResources.super.onChannel(channelType, group);
+        }
+
+        @Override
+        public <CHANNEL extends Channel> Class<? extends CHANNEL> onChannelClass(final Class<CHANNEL> channelType, final EventLoopGroup group) {
+            final Class<? extends CHANNEL> channelClass = transport.channelClass(channelType);
+            return channelClass != null ? channelClass : LoopResources.super.onChannelClass(channelType, group);
+        }
+
+        @Override
+        public Mono<Void> disposeLater(final Duration quietPeriod, final Duration timeout) {
+            return Mono.empty();
+        }
+    }
+}
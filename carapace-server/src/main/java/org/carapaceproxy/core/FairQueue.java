@@ -0,0 +1,221 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import org.carapaceproxy.utils.PrometheusUtils;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Admission stage in front of the acquisition of a connection from a pool.
+ * <p>
+ * Up to {@code capacity} requests run at the same time, like the connections of the pool;
+ * the others wait in a queue per tenant, and the queues are served by deficit round-robin,
+ * so that every tenant gets a number of admissions proportional to its share, whatever its backlog is.
+ */
+public class FairQueue {
+
+    private static final Summary QUEUE_TIME_SUMMARY = PrometheusUtils.createSummary(
+            "backends", "fair_queue_time_ms", "time spent by the requests waiting for admission to a backend", "host"
+    ).register();
+
+    private static final Gauge WAITING_REQUESTS_GAUGE = PrometheusUtils.createGauge(
+            "backends", "fair_queue_waiting_requests", "requests waiting for admission to a backend", "host"
+    ).register();
+
+    private static final Counter TIMED_OUT_REQUESTS_COUNTER = PrometheusUtils.createCounter(
+            "backends", "fair_queue_timeouts_total", "requests that timed out waiting for admission to a backend", "host"
+    ).register();
+
+    /**
+     * Signals that a task waited too long for admission, so it never ran.
+     */
+    public static final class AdmissionTimeoutException extends TimeoutException {
+
+        public AdmissionTimeoutException(final String message) {
+            super(message);
+        }
+    }
+
+    private final String host;
+    private final Summary.Child queueTimeSummary;
+    private final Gauge.Child waitingRequestsGauge;
+    private final Counter.Child timedOutRequestsCounter;
+    private final Map<String, TenantQueue> queues = new HashMap<>();
+    private final ArrayDeque<TenantQueue> rounds = new ArrayDeque<>();
+    private int capacity;
+    private int running;
+
+    public FairQueue(final String host) {
+        this.host = host;
+        this.queueTimeSummary = QUEUE_TIME_SUMMARY.labels(host);
+        this.waitingRequestsGauge = WAITING_REQUESTS_GAUGE.labels(host);
+        this.timedOutRequestsCounter = TIMED_OUT_REQUESTS_COUNTER.labels(host);
+    }
+
+    /**
+     * Run a task once admitted.
+     *
+     * @param tenant   the tenant of the task
+     * @param share    the share of the tenant
+     * @param capacity the number of tasks that can run at the same time
+     * @param timeout  max time waiting for admission
+     * @param task     the task, it is subscribed once admitted, and its termination frees its slot
+     * @param <T>      the type of the data emitted by the task
+     * @return a {@link Flux} running the task after admission; it fails with {@link AdmissionTimeoutException} on timeout
+     */
+    public <T> Flux<T> submit(final String tenant, final int share, final int capacity, final Duration timeout, final Publisher<T> task) {
+        return Flux.defer(() -> enter(tenant, share, capacity, timeout, task));
+    }
+
+    /**
+     * Like {@link #submit(String, int, int, Duration, Publisher)}, but the task takes its slot or its place in the queue
+     * right away, so the queue is not idle anymore as soon as this returns; the result must be subscribed.
+     */
+    <T> Flux<T> enter(final String tenant, final int share, final int capacity, final Duration timeout, final Publisher<T> task) {
+        final Waiter waiter;
+        final List<Waiter> admitted;
+        synchronized (this) {
+            this.capacity = capacity;
+            if (rounds.isEmpty() && running < capacity) {
+                running++;
+                return Flux.from(task).doFinally(signal -> release());
+            }
+            waiter = new Waiter();
+            final TenantQueue queue = queues.computeIfAbsent(tenant, TenantQueue::new);
+            queue.share = Math.max(1, share);
+            queue.waiters.add(waiter);
+            if (queue.waiters.size() == 1) {
+                rounds.addLast(queue);
+            }
+            waitingRequestsGauge.inc();
+            // the capacity may have grown since the last admission
+            admitted = dispatch();
+        }
+        admitted.forEach(Waiter::admit);
+        return waiter.admission.asMono()
+                .timeout(timeout, Mono.defer(() -> {
+                    timedOutRequestsCounter.inc();
+                    return Mono.error(new AdmissionTimeoutException("Timed out waiting " + timeout.toMillis() + " ms for admission to " + host));
+                }))
+                .thenMany(task)
+                .doFinally(signal -> done(tenant, waiter));
+    }
+
+    public synchronized boolean isIdle() {
+        return running == 0 && rounds.isEmpty();
+    }
+
+    private void release() {
+        final List<Waiter> admitted;
+        synchronized (this) {
+            running--;
+            admitted = dispatch();
+        }
+        admitted.forEach(Waiter::admit);
+    }
+
+    private void done(final String tenant, final Waiter waiter) {
+        final List<Waiter> admitted;
+        synchronized (this) {
+            if (waiter.admitted) {
+                running--;
+            } else {
+                // timed out or cancelled while waiting
+                final TenantQueue queue = queues.get(tenant);
+                if (queue != null && queue.waiters.remove(waiter)) {
+                    waitingRequestsGauge.dec();
+                    if (queue.waiters.isEmpty()) {
+                        rounds.remove(queue);
+                        queues.remove(tenant);
+                    }
+                }
+            }
+            admitted = dispatch();
+        }
+        admitted.forEach(Waiter::admit);
+    }
+
+    /**
+     * Deficit round-robin: the tenant at the head of the round gets its share of admissions, then it moves to the tail.
+     * Must be called holding the lock; the returned waiters have to be notified after releasing it.
+     */
+    private List<Waiter> dispatch() {
+        List<Waiter> admitted = List.of();
+        while (running < capacity && !rounds.isEmpty()) {
+            final TenantQueue queue = rounds.peekFirst();
+            if (queue.deficit < 1) {
+                queue.deficit += queue.share;
+            }
+            final Waiter waiter = queue.waiters.pollFirst();
+            waiter.admitted = true;
+            running++;
+            queue.deficit--;
+            waitingRequestsGauge.dec();
+            if (admitted.isEmpty()) {
+                admitted = new ArrayList<>();
+            }
+            admitted.add(waiter);
+            if (queue.waiters.isEmpty()) {
+                rounds.pollFirst();
+                queues.remove(queue.tenant);
+            } else if (queue.deficit < 1) {
+                rounds.addLast(rounds.pollFirst());
+            }
+        }
+        return admitted;
+    }
+
+    private final class Waiter {
+
+        private final long enqueuedAt = System.nanoTime();
+        private final Sinks.Empty<Void> admission = Sinks.empty();
+        private boolean admitted;
+
+        void admit() {
+            queueTimeSummary.observe((System.nanoTime() - enqueuedAt) / 1_000_000.0);
+            admission.tryEmitEmpty();
+        }
+    }
+
+    private static final class TenantQueue {
+
+        private final String tenant;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private int share = 1;
+        private int deficit;
+
+        TenantQueue(final String tenant) {
+            this.tenant = tenant;
+        }
+    }
+}
@@ -43,9 +43,6 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.handler.codec.http.HttpMethod;
 import io.prometheus.client.exporter.MetricsServlet;
 import java.io.File;
@@ -55,6 +52,7 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.security.KeyStore;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -81,11 +79,14 @@ import org.carapaceproxy.configstore.CertificateData;
 import org.carapaceproxy.configstore.ConfigurationConsumer;
 import org.carapaceproxy.configstore.ConfigurationStore;
 import org.carapaceproxy.configstore.HerdDBConfigurationStore;
+import org.carapaceproxy.configstore.IndexedConfigurationStore;
 import org.carapaceproxy.configstore.PropertiesConfigurationStore;
 import org.carapaceproxy.server.backends.BackendHealthManager;
+import org.carapaceproxy.server.backends.BackendHealthStatus;
 import org.carapaceproxy.server.cache.CacheByteBufMemoryUsageMetric;
 import org.carapaceproxy.server.cache.ContentsCache;
 import org.carapaceproxy.server.certificates.DynamicCertificatesManager;
+import org.carapaceproxy.server.certificates.SessionTicketKeysManager;
 import org.carapaceproxy.server.certificates.ocsp.OcspStaplingManager;
 import org.carapaceproxy.server.config.BackendConfiguration;
 import org.carapaceproxy.server.config.ConfigurationChangeInProgressException;
@@ -172,6 +173,9 @@ public class HttpProxyServer implements AutoCloseable {
     @Setter
     private OcspStaplingManager ocspStaplingManager;
 
+    @Getter
+    private final SessionTicketKeysManager sessionTicketKeysManager;
+
     @Getter
     private volatile RuntimeServerConfiguration currentConfiguration;
 
@@ -191,12 +195,16 @@ public class HttpProxyServer implements AutoCloseable {
     @Getter
     private volatile List<RequestFilter> filters;
     private volatile boolean started;
+    // properties of the applied dynamic configuration, to compute the delta of the next one
+    private Map<String, String> appliedProperties;
 
     @Getter
     private final ByteBufAllocator cachePoolAllocator;
     private final CacheByteBufMemoryUsageMetric cacheByteBufMemoryUsageMetric;
     @Getter
-    private final EventLoopGroup eventLoopGroup;
+    private final EventLoops eventLoops = new EventLoops();
+    @Getter
+    private final OverloadController overloadController;
 
     /**
      * Guards concurrent configuration changes
@@ -261,19 +269,29 @@ public class HttpProxyServer implements AutoCloseable {
         this.dynamicCertificatesManager = new DynamicCertificatesManager(this);
         this.trustStoreManager = new TrustStoreManager(currentConfiguration, this);
         this.ocspStaplingManager = new OcspStaplingManager(trustStoreManager);
+        this.sessionTicketKeysManager = new SessionTicketKeysManager(listeners::applySessionTicketKeys);
         this.proxyRequestsManager = new ProxyRequestsManager(this);
         this.mapper = mapperFactory.build(this);
         this.backendHealthManager = new BackendHealthManager(currentConfiguration, this.mapper, this.basePath);
         this.proxyRequestsManager.reloadConfiguration(currentConfiguration, this.mapper.getBackends().values());
+        this.backendHealthManager.setReachableBackendListener(this.proxyRequestsManager::warmUp);
 
         this.usePooledByteBufAllocator = Boolean.getBoolean("cache.allocator.usepooledbytebufallocator");
         this.cachePoolAllocator = usePooledByteBufAllocator
                 ? new PooledByteBufAllocator(true)
                 : new UnpooledByteBufAllocator(true);
         this.cacheByteBufMemoryUsageMetric = new CacheByteBufMemoryUsageMetric(this);
-        // Best practice is to reuse EventLoopGroup
-        // http://normanmaurer.me/presentations/2014-facebook-eng-netty/slides.html#25.0
-        this.eventLoopGroup = Epoll.isAvailable() ? new EpollEventLoopGroup() : new NioEventLoopGroup();
+        this.overloadController = new OverloadController(() -> eventLoops.getGroups().values());
+    }
+
+    /**
+     * Best practice is to reuse EventLoopGroup
+     * http://normanmaurer.me/presentations/2014-facebook-eng-netty/slides.html#25.0
+     *
+     * @return the group serving plain HTTP listeners and connections to the backends
+     */
+    public EventLoopGroup getEventLoopGroup() {
+        return eventLoops.getWorkerGroup();
     }
 
     public void rewriteConfiguration(final ConfigurationConsumer function) throws ConfigurationNotValidException, InterruptedException, ConfigurationChangeInProgressException {
@@ -441,10 +459,18 @@ public class HttpProxyServer implements AutoCloseable {
             requestsLogger.start();
             listeners.start();
             backendHealthManager.start();
+            warmUpBackends(mapper.getBackends().values());
             dynamicCertificatesManager.attachGroupMembershipHandler(groupMembershipHandler);
             dynamicCertificatesManager.start();
             ocspStaplingManager.start();
+            if (cluster) {
+                // peers share the session ticket keys, so that clients can resume their sessions on any of them
+                sessionTicketKeysManager.attachGroupMembershipHandler(groupMembershipHandler);
+            }
+            sessionTicketKeysManager.start();
             cacheByteBufMemoryUsageMetric.start();
+            overloadController.start();
+            eventLoops.start();
             groupMembershipHandler.watchEvent("configurationChange", new ConfigurationChangeCallback());
         } catch (RuntimeException err) {
             close();
@@ -467,7 +493,10 @@ public class HttpProxyServer implements AutoCloseable {
         backendHealthManager.stop();
         dynamicCertificatesManager.stop();
         ocspStaplingManager.stop();
+        sessionTicketKeysManager.stop();
         cacheByteBufMemoryUsageMetric.stop();
+        overloadController.stop();
+        eventLoops.stop();
 
         if (adminServer != null) {
             try {
@@ -548,6 +577,7 @@ public class HttpProxyServer implements AutoCloseable {
         }
 
         this.dynamicCertificatesManager.setConfigurationStore(dynamicConfigurationStore);
+        this.ocspStaplingManager.setConfigurationStore(dynamicConfigurationStore);
 
         // "static" configuration cannot change without a reboot
         applyStaticConfiguration(bootConfigurationStore);
@@ -594,6 +624,9 @@ public class HttpProxyServer implements AutoCloseable {
         LOG.info("userrealm.class={}", userRealmClassname);
         LOG.info("cache.allocator.usepooledbytebufallocator={}", this.usePooledByteBufAllocator);
 
+        eventLoops.configure(properties);
+        listeners.configure(properties);
+
         String awsAccessKey = properties.getString("aws.accesskey", null);
         LOG.info("aws.accesskey={}", awsAccessKey);
         String awsSecretKey = properties.getString("aws.secretkey", null);
@@ -646,6 +679,7 @@ public class HttpProxyServer implements AutoCloseable {
     }
 
     public RuntimeServerConfiguration buildValidConfiguration(ConfigurationStore simpleStore) throws ConfigurationNotValidException {
+        simpleStore = IndexedConfigurationStore.of(simpleStore);
         RuntimeServerConfiguration newConfiguration = new RuntimeServerConfiguration();
 
         // Try to perform a service configuration from the passed store.
@@ -675,6 +709,8 @@ public class HttpProxyServer implements AutoCloseable {
 
         // Configuration reloading
         applyDynamicConfigurationFromAPI(new PropertiesConfigurationStore(props));
+        // the configuration may be unchanged, while the stored certificate is not
+        dynamicCertificatesManager.reloadStoredCertificate(cert.getDomain());
     }
 
     public void updateMaintenanceMode(boolean value) throws ConfigurationChangeInProgressException, InterruptedException {
@@ -737,31 +773,76 @@ public class HttpProxyServer implements AutoCloseable {
         }
         // at boot we are constructing a configuration from the database
         // if the system is already "up" we have to only apply the new config
-        ConfigurationStore storeWithConfig = atBoot ? dynamicConfigurationStore : newConfigurationStore;
+        ConfigurationStore storeWithConfig = IndexedConfigurationStore.of(atBoot ? dynamicConfigurationStore : newConfigurationStore);
         if (!configurationLock.tryLock()) {
             throw new ConfigurationChangeInProgressException();
         }
         try {
+            final Map<String, String> newProperties = new HashMap<>();
+            storeWithConfig.forEach(newProperties::put);
             // Build everything as locals first; do not touch the four `this.X` view fields yet.
-            RuntimeServerConfiguration newConfiguration = buildValidConfiguration(storeWithConfig);
-            EndpointMapper newMapper = buildMapper(newConfiguration.getMapperClassname(), this, storeWithConfig);
+            RuntimeServerConfiguration newConfiguration = new RuntimeServerConfiguration();
+            newConfiguration.configure(storeWithConfig);
+            final ConfigurationDelta delta = appliedProperties == null
+                    ? ConfigurationDelta.full(newProperties)
+                    : ConfigurationDelta.between(appliedProperties, currentConfiguration, newProperties, newConfiguration);
+            // a truststore replaced in place is loaded again as well, even if the configuration did not change
+            final boolean trustStoreChanged = delta.trustStore() || this.trustStoreManager.isTrustStoreChanged();
+            if (delta.isEmpty() && !trustStoreChanged) {
+                // the CA files trusted by the backends and the users file of the realm may have been replaced in place
+                proxyRequestsManager.reloadBackendSslContexts(newConfiguration, mapper.getBackends().values());
+                this.realm = buildRealm(userRealmClassname, storeWithConfig);
+                LOG.info("No dynamic configuration change to apply");
+                return;
+            }
+            LOG.info("Applying dynamic configuration delta: {}, truststore changed: {}", delta, trustStoreChanged);
+            EndpointMapper newMapper = delta.mapper() ? buildMapper(newConfiguration.getMapperClassname(), this, storeWithConfig) : mapper;
             UserRealm newRealm = buildRealm(userRealmClassname, storeWithConfig);
-            List<RequestFilter> newFilters = buildFilters(newConfiguration);
-
-            // Reload subsystems. Any of these can throw; if it does, the four view fields below
-            // are left untouched, so request-time readers keep seeing a coherent old snapshot.
-            this.backendHealthManager.reloadConfiguration(newConfiguration, newMapper);
-            this.dynamicCertificatesManager.reloadConfiguration(newConfiguration);
-            this.trustStoreManager.reloadConfiguration(newConfiguration);
-            this.ocspStaplingManager.reloadConfiguration(newConfiguration);
-            this.listeners.reloadConfiguration(newConfiguration);
-            this.cache.reloadConfiguration(newConfiguration);
-            this.requestsLogger.reloadConfiguration(newConfiguration);
+            List<RequestFilter> newFilters = delta.filters() ? buildFilters(newConfiguration) : filters;
+
+            // Reload only the subsystems whose configuration changed. Any of these can throw; if it does, the four view
+            // fields below are left untouched, so request-time readers keep seeing a coherent old snapshot.
+            if (delta.healthManager() || delta.mapper()) {
+                this.backendHealthManager.reloadConfiguration(newConfiguration, newMapper);
+            }
+            if (delta.certificates()) {
+                this.dynamicCertificatesManager.reloadConfiguration(newConfiguration);
+            }
+            if (trustStoreChanged) {
+                this.trustStoreManager.reloadConfiguration(newConfiguration);
+            }
+            // the responses of the certificates no longer configured are dropped
+            if (delta.ocspStapling() || delta.certificates()) {
+                this.ocspStaplingManager.reloadConfiguration(newConfiguration);
+            }
+            if (delta.sessionTicketKeys()) {
+                this.sessionTicketKeysManager.reloadConfiguration(newConfiguration);
+            }
+            // the SSL contexts of the listeners trust the truststore
+            if (delta.listeners() || trustStoreChanged) {
+                this.listeners.reloadConfiguration(newConfiguration);
+            }
+            if (delta.cache()) {
+                this.cache.reloadConfiguration(newConfiguration);
+            }
+            if (delta.requestsLogger()) {
+                this.requestsLogger.reloadConfiguration(newConfiguration);
+            }
             Map<String, BackendConfiguration> currentBackends = mapper != null ? mapper.getBackends() : Collections.emptyMap();
             Map<String, BackendConfiguration> newBackends = newMapper.getBackends();
 
-            if (!newBackends.equals(currentBackends) || isConnectionsConfigurationChanged(newConfiguration)) {
+            final boolean connectionsChanged = delta.connections() || !newBackends.equals(currentBackends);
+            if (connectionsChanged) {
                 proxyRequestsManager.reloadConfiguration(newConfiguration, newBackends.values());
+            } else {
+                // the CA files trusted by the backends may have been replaced in place
+                proxyRequestsManager.reloadBackendSslContexts(newConfiguration, newBackends.values());
+            }
+            if (delta.retryBudget()) {
+                proxyRequestsManager.getRetryBudget().reloadConfiguration(newConfiguration);
+            }
+            if (delta.overload()) {
+                overloadController.reloadConfiguration(newConfiguration);
             }
 
             if (!atBoot) {
@@ -775,6 +856,16 @@ public class HttpProxyServer implements AutoCloseable {
             this.realm = newRealm;
             this.mapper = newMapper;
             this.currentConfiguration = newConfiguration;
+            this.appliedProperties = newProperties;
+
+            if (delta.mapper()) {
+                proxyRequestsManager.retainRoutes(newMapper.getRoutes());
+            }
+
+            if (connectionsChanged && started) {
+                // new pools and backends start without connections
+                warmUpBackends(newBackends.values());
+            }
         } catch (ConfigurationNotValidException err) {
             // impossible to have a non valid configuration here
             throw new IllegalStateException(err);
@@ -783,14 +874,12 @@ public class HttpProxyServer implements AutoCloseable {
         }
     }
 
-    private boolean isConnectionsConfigurationChanged(RuntimeServerConfiguration newConfiguration) {
-        return newConfiguration.getMaxConnectionsPerEndpoint() != currentConfiguration.getMaxConnectionsPerEndpoint()
-                || newConfiguration.getBorrowTimeout() != currentConfiguration.getBorrowTimeout()
-                || newConfiguration.getConnectTimeout() != currentConfiguration.getConnectTimeout()
-                || newConfiguration.getStuckRequestTimeout() != currentConfiguration.getStuckRequestTimeout()
-                || newConfiguration.getIdleTimeout() != currentConfiguration.getIdleTimeout()
-                || newConfiguration.getMaxLifeTime() != currentConfiguration.getMaxLifeTime()
-                || !newConfiguration.getConnectionPools().equals(currentConfiguration.getConnectionPools());
+    private void warmUpBackends(final Collection<BackendConfiguration> backends) {
+        for (final BackendConfiguration backend : backends) {
+            if (backendHealthManager.getBackendStatus(backend.hostPort()).getStatus() != BackendHealthStatus.Status.DOWN) {
+                proxyRequestsManager.warmUp(backend);
+            }
+        }
     }
 
     private void readClusterConfiguration(ConfigurationStore staticConfiguration) throws ConfigurationNotValidException {
@@ -20,28 +20,38 @@
 package org.carapaceproxy.core;
 
 import static reactor.netty.ConnectionObserver.State.CONNECTED;
+import com.google.common.annotations.VisibleForTesting;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollChannelOption;
-import io.netty.channel.socket.nio.NioChannelOption;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.timeout.IdleStateHandler;
 import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
 import java.io.File;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import jdk.net.ExtendedSocketOptions;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.carapaceproxy.configstore.ConfigurationStore;
+import org.carapaceproxy.server.certificates.CertificatesIndex;
 import org.carapaceproxy.server.config.ConfigurationNotValidException;
 import org.carapaceproxy.server.config.NetworkListenerConfiguration;
 import org.carapaceproxy.utils.PrometheusUtils;
+import org.glassfish.jersey.internal.guava.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.scheduler.Schedulers;
 import reactor.netty.DisposableServer;
 import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.server.HttpServer;
@@ -60,18 +70,33 @@ public class Listeners {
 
     public static final String OCSP_CERTIFICATE_CHAIN = "ocsp-certificate";
 
+    public static final String THREAD_NAME = "listeners-boot";
+
+    // how many listeners are prepared concurrently, each one loads its default certificate and warms up its server
+    public static final int DEFAULT_BOOT_PARALLELISM = 4;
+
     private static final Logger LOG = LoggerFactory.getLogger(Listeners.class);
 
     private static final Gauge CURRENT_CONNECTED_CLIENTS_GAUGE = PrometheusUtils.createGauge(
             "clients", "current_connected", "currently connected clients"
     ).register();
 
+    private static final Summary BOOT_TIME_SUMMARY = PrometheusUtils.createSummary(
+            "listeners", "boot_time_ms", "time spent booting the listeners, by phase", "phase"
+    ).register();
+
     private final HttpProxyServer parent;
-    private final ConcurrentMap<String, SslContext> sslContexts = new ConcurrentHashMap<>();
+    private final SslContextsCache sslContexts = new SslContextsCache();
+    private CertificatesIndex certificatesIndex = CertificatesIndex.EMPTY;
     private final ConcurrentMap<EndpointKey, ListeningChannel> listeningChannels = new ConcurrentHashMap<>();
+    private final Set<ListeningChannel> drainingChannels = ConcurrentHashMap.newKeySet();
     private final File basePath;
+    private int bootParallelism = DEFAULT_BOOT_PARALLELISM;
+    private ExecutorService bootWorkers;
+    private BootObserver bootObserver = new BootObserver() {};
     private boolean started;
     private RuntimeServerConfiguration currentConfiguration;
+    private String trustStoreStamp;
 
     public Listeners(HttpProxyServer parent) {
         this.parent = parent;
@@ -97,11 +122,53 @@ public class Listeners {
         return listeningChannels;
     }
 
+    /**
+     * Reads the static configuration of the listeners; it has to be called before starting them.
+     *
+     * @param properties the boot configuration
+     * @throws ConfigurationNotValidException if the boot parallelism is not positive
+     */
+    public void configure(final ConfigurationStore properties) throws ConfigurationNotValidException {
+        final int parallelism = properties.getInt("listeners.boot.parallelism", DEFAULT_BOOT_PARALLELISM);
+        if (parallelism <= 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + parallelism + "' for listeners.boot.parallelism");
+        }
+        bootParallelism = parallelism;
+        LOG.info("listeners.boot.parallelism={}", bootParallelism);
+    }
+
     public void start() throws InterruptedException, ConfigurationNotValidException {
+        if (bootWorkers == null) {
+            bootWorkers = Executors.newFixedThreadPool(bootParallelism, new ThreadFactoryBuilder().setNameFormat(THREAD_NAME + "-%d").build());
+        }
         started = true;
         reloadConfiguration(currentConfiguration);
     }
 
+    /**
+     * Observes the boot of the listeners.
+     */
+    @VisibleForTesting
+    interface BootObserver {
+
+        /**
+         * Called by a boot worker before preparing a listener.
+         */
+        default void preparing(EndpointKey hostPort) {
+        }
+
+        /**
+         * Called after binding a listener.
+         */
+        default void bound(EndpointKey hostPort) {
+        }
+    }
+
+    @VisibleForTesting
+    void setBootObserver(final BootObserver bootObserver) {
+        this.bootObserver = bootObserver;
+    }
+
     /**
      * Apply a new configuration and refresh the listeners according to it.
      *
@@ -114,36 +181,45 @@ public class Listeners {
             this.currentConfiguration = newConfiguration;
             return;
         }
-        // Clear cached ssl contexts
-        sslContexts.clear();
+        // SSL contexts are kept as long as their keystore does not change,
+        // unless the settings they are built with change, including a truststore replaced in place
+        final String newTrustStoreStamp = parent.getTrustStoreManager().getTrustStoreStamp();
+        if (newConfiguration.isOcspEnabled() != currentConfiguration.isOcspEnabled()
+                || !Objects.equals(newConfiguration.getSslTrustStoreFile(), currentConfiguration.getSslTrustStoreFile())
+                || !Objects.equals(newConfiguration.getSslTrustStorePassword(), currentConfiguration.getSslTrustStorePassword())
+                || !Objects.equals(newTrustStoreStamp, trustStoreStamp)) {
+            sslContexts.invalidateAll();
+        }
+        trustStoreStamp = newTrustStoreStamp;
+        sslContexts.setMaxSize(newConfiguration.getSslContextsCacheMaxSize());
+        sslContexts.retain(newConfiguration.getCertificates(), certificate -> ListeningChannel.keystoreStamp(parent, basePath, certificate));
         final boolean certificatesChanged = !newConfiguration.getCertificates().equals(currentConfiguration.getCertificates());
 
         // stop dropped listeners, start new one
         final List<EndpointKey> listenersToStop = new ArrayList<>();
         final List<EndpointKey> listenersToRestart = new ArrayList<>();
+        final List<EndpointKey> listenersToReloadCertificates = new ArrayList<>();
         for (final Map.Entry<EndpointKey, ListeningChannel> channel : listeningChannels.entrySet()) {
             final EndpointKey hostPort = channel.getKey();
             final NetworkListenerConfiguration actualListenerConfig = currentConfiguration.getListener(hostPort);
             final NetworkListenerConfiguration newConfigurationForListener = newConfiguration.getListener(hostPort);
             // Certificate-only reload: the dynamic-certificate manager re-applies the current configuration
             // (same object reference) after a certificate changes. Every SSL listener serves the full
-            // certificate set via SNI (see ListeningChannel#sslContexts), so there is no per-listener subset
-            // to narrow to — any certificate change rebinds every SSL listener.
-            final boolean isReloadCertificate = newConfiguration == currentConfiguration 
-                    && newConfigurationForListener != null 
-                    && newConfigurationForListener.ssl();
+            // certificate set via SNI (see ListeningChannel#sniMapping), so any certificate change
+            // refreshes the SNI mapping of every SSL listener, without rebinding it.
+            final boolean isReloadCertificate = newConfiguration == currentConfiguration;
             if (newConfigurationForListener == null) {
                 LOG.info("listener: {} is to be shut down", hostPort);
                 listenersToStop.add(hostPort);
-            } else if (certificatesChanged
-                    || isReloadCertificate
-                    || !newConfigurationForListener.equals(actualListenerConfig)
+            } else if (!newConfigurationForListener.equals(actualListenerConfig)
                     || newConfiguration.getResponseCompressionThreshold() != currentConfiguration.getResponseCompressionThreshold()
                     || newConfiguration.getMaxHeaderSize() != currentConfiguration.getMaxHeaderSize()) {
                 LOG.info("listener: {} is to be restarted", hostPort);
                 listenersToRestart.add(hostPort);
+            } else if (newConfigurationForListener.ssl() && (certificatesChanged || isReloadCertificate)) {
+                LOG.info("listener: {} is to reload certificates", hostPort);
+                listenersToReloadCertificates.add(hostPort);
             }
-            channel.getValue().clear();
         }
         final List<EndpointKey> listenersToStart = new ArrayList<>();
         for (final NetworkListenerConfiguration config : newConfiguration.getListeners()) {
@@ -156,8 +232,23 @@ public class Listeners {
 
         // apply new configuration, this has to be done before rebooting listeners
         currentConfiguration = newConfiguration;
+        // index the certificates once for all the listeners
+        certificatesIndex = new CertificatesIndex(newConfiguration.getCertificates());
+
+        // the listeners are prepared concurrently, while they are bound one at a time in the configuration order
+        final long bootStart = System.currentTimeMillis();
+        final Map<EndpointKey, Future<PreparedListener>> preparations = new LinkedHashMap<>();
+        for (final EndpointKey hostPort : listenersToRestart) {
+            // unless both the previous and the new sockets use SO_REUSEPORT, the previous listener is stopped before binding the new one
+            final ListeningChannel current = listeningChannels.get(hostPort);
+            final ListeningChannel previous = current.isReusePort() && isReusePort(currentConfiguration.getListener(hostPort)) ? current : null;
+            preparations.put(hostPort, prepareListenerAsync(currentConfiguration.getListener(hostPort), previous));
+        }
+        for (final EndpointKey hostPort : listenersToStart) {
+            preparations.put(hostPort, prepareListenerAsync(currentConfiguration.getListener(hostPort), null));
+        }
 
-        // Per-listener try/catch isolates failures (e.g. disposeChannel timeouts, bad cert in bootListener)
+        // Per-listener try/catch isolates failures (e.g. disposeChannel timeouts, bad cert in prepareListener)
         // so one listener cannot cascade into halting the whole reload. InterruptedException still aborts.
         try {
             for (final EndpointKey hostPort : listenersToStop) {
@@ -172,27 +263,39 @@ public class Listeners {
             for (final EndpointKey hostPort : listenersToRestart) {
                 LOG.info("Restart {}", hostPort);
                 try {
-                    stopListener(hostPort);
-                    final var newConfigurationForListener = currentConfiguration.getListener(hostPort);
-                    bootListener(newConfigurationForListener);
+                    restartListener(hostPort, awaitPreparation(preparations.get(hostPort)));
                 } catch (final ConfigurationNotValidException | RuntimeException ex) {
                     LOG.error("Failed to restart listener {}", hostPort, ex);
                 }
             }
 
+            for (final EndpointKey hostPort : listenersToReloadCertificates) {
+                LOG.info("Reload certificates of {}", hostPort);
+                try {
+                    listeningChannels.get(hostPort).reloadCertificates(currentConfiguration, certificatesIndex);
+                } catch (final ConfigurationNotValidException | RuntimeException ex) {
+                    LOG.error("Failed to reload certificates of listener {}, keeping the previous ones", hostPort, ex);
+                }
+            }
+
             for (final EndpointKey hostPort : listenersToStart) {
                 LOG.info("Starting {}", hostPort);
                 try {
-                    final var newConfigurationForListener = currentConfiguration.getListener(hostPort);
-                    bootListener(newConfigurationForListener);
+                    bindListener(awaitPreparation(preparations.get(hostPort)));
                 } catch (final ConfigurationNotValidException | RuntimeException ex) {
                     LOG.error("Failed to start listener {}", hostPort, ex);
                 }
             }
         } catch (final InterruptedException stopMe) {
+            preparations.values().forEach(preparation -> preparation.cancel(true));
             Thread.currentThread().interrupt();
             throw stopMe;
         }
+        if (!preparations.isEmpty()) {
+            final long bootTime = System.currentTimeMillis() - bootStart;
+            BOOT_TIME_SUMMARY.labels("total").observe(bootTime);
+            LOG.info("Booted {} listeners in {} ms", preparations.size(), bootTime);
+        }
     }
 
     private void stopListener(EndpointKey hostPort) throws InterruptedException {
@@ -202,15 +305,86 @@ public class Listeners {
         }
     }
 
-    private void bootListener(final NetworkListenerConfiguration config) throws InterruptedException, ConfigurationNotValidException {
-        final ListeningChannel listeningChannel = new ListeningChannel(basePath, currentConfiguration, parent, sslContexts, config);
+    /**
+     * Replace a listener without leaving its port unbound: when both the previous and the new sockets use SO_REUSEPORT,
+     * the new sockets are bound alongside the old ones, that then stop accepting and drain their connections.
+     */
+    private void restartListener(final EndpointKey hostPort, final PreparedListener listener) throws InterruptedException {
+        final ListeningChannel previous = listener.previous();
+        if (previous == null) {
+            stopListener(hostPort);
+            bindListener(listener);
+            return;
+        }
+        // if the new listener cannot start, the previous one keeps serving
+        bindListener(listener);
+        drainListener(previous);
+    }
+
+    private void drainListener(final ListeningChannel channel) {
+        final Duration timeout = Duration.ofSeconds(currentConfiguration.getClientsDrainTimeoutSeconds());
+        drainingChannels.add(channel);
+        Schedulers.boundedElastic().schedule(() -> {
+            try {
+                channel.disposeChannel(timeout);
+                LOG.info("drained previous listener at {}", channel.getHostPort());
+            } catch (RuntimeException err) {
+                LOG.error("Failed to drain previous listener at {}", channel.getHostPort(), err);
+            } finally {
+                drainingChannels.remove(channel);
+            }
+        });
+    }
+
+    /**
+     * A listener whose certificates are loaded and whose server is warmed up, ready to be bound.
+     *
+     * @param listeningChannel the listener
+     * @param httpServer       the server to bind
+     * @param previous         the listener to replace without leaving its port unbound, if any
+     */
+    private record PreparedListener(ListeningChannel listeningChannel, HttpServer httpServer, ListeningChannel previous) {
+    }
+
+    private Future<PreparedListener> prepareListenerAsync(final NetworkListenerConfiguration config, final ListeningChannel previous) {
+        final BootObserver observer = bootObserver;
+        return bootWorkers.submit(() -> {
+            observer.preparing(config.getKey());
+            final long start = System.currentTimeMillis();
+            final PreparedListener listener = prepareListener(config, previous);
+            final long prepareTime = System.currentTimeMillis() - start;
+            BOOT_TIME_SUMMARY.labels("prepare").observe(prepareTime);
+            LOG.info("Prepared listener at {} in {} ms", listener.listeningChannel().getHostPort(), prepareTime);
+            return listener;
+        });
+    }
+
+    private static PreparedListener awaitPreparation(final Future<PreparedListener> preparation) throws InterruptedException, ConfigurationNotValidException {
+        try {
+            return preparation.get();
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof ConfigurationNotValidException err) {
+                throw err;
+            }
+            if (ex.getCause() instanceof RuntimeException err) {
+                throw err;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private PreparedListener prepareListener(final NetworkListenerConfiguration config, final ListeningChannel previous) throws ConfigurationNotValidException {
+        final ListeningChannel listeningChannel = new ListeningChannel(basePath, currentConfiguration, parent, sslContexts, certificatesIndex, config);
         final EndpointKey hostPort = listeningChannel.getHostPort();
         LOG.info("Starting listener at {}:{} ssl:{}", hostPort.host(), hostPort.port(), config.ssl());
 
         // Listener setup
+        final TransportType transport = parent.getEventLoops().getTransport();
+        // an ephemeral port is kept across restarts
+        final int port = hostPort.port() == 0 && previous != null ? previous.getChannelPort() : hostPort.port();
         HttpServer httpServer = HttpServer.create()
                 .host(hostPort.host())
-                .port(hostPort.port())
+                .port(port)
                 .protocol(config.protocols().toArray(HttpProtocol[]::new));
         if (config.ssl()) {
             httpServer = httpServer.secure(sslContextSpec -> {
@@ -231,25 +405,21 @@ public class Listeners {
                 .forwarded(ForwardedStrategy.of(config.forwardedStrategy(), config.trustedIps()))
                 .option(ChannelOption.SO_BACKLOG, config.soBacklog())
                 .childOption(ChannelOption.SO_KEEPALIVE, config.keepAlive())
-                .runOn(parent.getEventLoopGroup())
-                .childOption(Epoll.isAvailable()
-                        ? EpollChannelOption.TCP_KEEPIDLE
-                        : NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE), config.keepAliveIdle())
-                .childOption(Epoll.isAvailable()
-                        ? EpollChannelOption.TCP_KEEPINTVL
-                        : NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPINTERVAL), config.keepAliveInterval())
-                .childOption(Epoll.isAvailable()
-                        ? EpollChannelOption.TCP_KEEPCNT
-                        : NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPCOUNT), config.keepAliveCount())
+                .runOn(parent.getEventLoops().getServerLoopResources(config.ssl()))
+                .childOption(transport.tcpKeepIdle(), config.keepAliveIdle())
+                .childOption(transport.tcpKeepInterval(), config.keepAliveInterval())
+                .childOption(transport.tcpKeepCount(), config.keepAliveCount())
                 .maxKeepAliveRequests(config.maxKeepAliveRequests())
                 .doOnChannelInit((observer, channel, remoteAddress) -> {
                     final ChannelHandler idle = new IdleStateHandler(0, 0, currentConfiguration.getClientsIdleTimeoutSeconds());
                     channel.pipeline().addFirst("idleStateHandler", idle);
+                    listeningChannel.watchHandshake(channel);
                 })
+                .channelGroup(listeningChannel.getConnections())
                 .doOnConnection(conn -> {
                     CURRENT_CONNECTED_CLIENTS_GAUGE.inc();
+                    listeningChannel.incAcceptedConnections(conn.channel().parent());
                     conn.channel().closeFuture().addListener(e -> CURRENT_CONNECTED_CLIENTS_GAUGE.dec());
-                    config.group().add(conn.channel());
                 })
                 .childObserve((connection, state) -> {
                     if (state == CONNECTED) {
@@ -286,15 +456,84 @@ public class Listeners {
 
         // Initialization of event loop groups, native transport libraries and the native libraries for the security
         httpServer.warmup().block();
+        return new PreparedListener(listeningChannel, httpServer, previous);
+    }
+
+    private void bindListener(final PreparedListener listener) {
+        final long start = System.currentTimeMillis();
+        final ListeningChannel listeningChannel = listener.listeningChannel();
+        final NetworkListenerConfiguration config = listeningChannel.getConfig();
+        final EndpointKey hostPort = listeningChannel.getHostPort();
+        final TransportType transport = parent.getEventLoops().getTransport();
+        HttpServer httpServer = listener.httpServer();
 
         // Listener startup
-        final DisposableServer channel = httpServer.bindNow(); // blocking
-        listeningChannel.setChannel(channel);
+        if (config.acceptors() != 1 && !transport.supportsReusePort()) {
+            LOG.warn("SO_REUSEPORT requires a native transport, listener {} will use a single acceptor", hostPort);
+        }
+        final int acceptors = getAcceptors(config);
+        if (isReusePort(config)) {
+            // the kernel spreads new connections among the sockets bound to the same port,
+            // and a restarted listener can bind before the previous one is closed
+            httpServer = httpServer.option(transport.soReusePort().orElseThrow(), true);
+            listeningChannel.setReusePort(true);
+        }
+        try {
+            for (int i = 0; i < acceptors; i++) {
+                // with an ephemeral port, the other sockets have to bind the one of the first
+                final HttpServer acceptor = i == 0 ? httpServer : httpServer.port(listeningChannel.getChannelPort());
+                final DisposableServer channel = acceptor.bindNow(); // blocking
+                listeningChannel.addChannel(channel);
+                LOG.info("started listener at {}: {}", hostPort, channel);
+            }
+        } catch (RuntimeException err) {
+            listeningChannel.disposeChannel();
+            throw err;
+        }
         listeningChannels.put(hostPort, listeningChannel);
-        LOG.info("started listener at {}: {}", hostPort, channel);
+        final long bindTime = System.currentTimeMillis() - start;
+        BOOT_TIME_SUMMARY.labels("bind").observe(bindTime);
+        LOG.info("Bound listener at {} in {} ms", hostPort, bindTime);
+        bootObserver.bound(hostPort);
+    }
+
+    /**
+     * Whether the sockets of a listener are bound with SO_REUSEPORT.
+     * The port is not shared unless asked: any other process of the same user could bind it and get part of the traffic.
+     */
+    private boolean isReusePort(final NetworkListenerConfiguration config) {
+        return parent.getEventLoops().getTransport().supportsReusePort() && (config.reusePort() || getAcceptors(config) > 1);
+    }
+
+    private int getAcceptors(final NetworkListenerConfiguration config) {
+        final int acceptors = config.acceptors();
+        if (acceptors == 1 || !parent.getEventLoops().getTransport().supportsReusePort()) {
+            return 1;
+        }
+        return acceptors > 0 ? acceptors : EventLoops.countLoops(parent.getEventLoops().getBossGroup());
+    }
+
+    /**
+     * Apply the session ticket keys shared by the cluster to the SSL contexts already built;
+     * the ones built afterward get them on creation.
+     */
+    void applySessionTicketKeys() {
+        sslContexts.forEach(parent.getSessionTicketKeysManager()::apply);
     }
 
     public void stop() {
+        started = false;
+        if (bootWorkers != null) {
+            bootWorkers.shutdownNow();
+            bootWorkers = null;
+        }
+        for (final ListeningChannel channel : drainingChannels) {
+            try {
+                channel.disposeChannel();
+            } catch (RuntimeException ex) {
+                LOG.error("Failed to stop previous listener {}", channel.getHostPort(), ex);
+            }
+        }
         for (var key : listeningChannels.keySet()) {
             try {
                 stopListener(key);
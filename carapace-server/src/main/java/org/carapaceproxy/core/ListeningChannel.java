@@ -1,17 +1,29 @@
 package org.carapaceproxy.core;
 
 import static org.carapaceproxy.utils.AlpnUtils.configureAlpnForServer;
+import static org.carapaceproxy.utils.CertificatesUtils.fileStamp;
 import static org.carapaceproxy.utils.CertificatesUtils.loadKeyStoreData;
-import static org.carapaceproxy.utils.CertificatesUtils.loadKeyStoreFromFile;
 import static org.carapaceproxy.utils.CertificatesUtils.readChainFromKeystore;
+import static org.carapaceproxy.utils.CertificatesUtils.readKeyStoreFile;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.handler.ssl.OpenSsl;
 import io.netty.handler.ssl.OpenSslCachingX509KeyManagerFactory;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
 import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.KeyManagerFactoryWrapper;
 import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -28,8 +40,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+import org.carapaceproxy.configstore.CertificateData;
+import org.carapaceproxy.server.certificates.CertificatesIndex;
 import org.carapaceproxy.server.config.ConfigurationNotValidException;
 import org.carapaceproxy.server.config.NetworkListenerConfiguration;
 import org.carapaceproxy.server.config.SSLCertificateConfiguration;
@@ -39,6 +56,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.netty.DisposableServer;
 import reactor.netty.FutureMono;
+import reactor.netty.NettyPipeline;
 
 public class ListeningChannel {
 
@@ -48,88 +66,259 @@ public class ListeningChannel {
             "listeners", "requests_total", "total requests", "listener"
     ).register();
 
+    private static final Counter ACCEPTED_CONNECTIONS_COUNTER = PrometheusUtils.createCounter(
+            "listeners", "accepted_connections_total", "connections accepted by each socket of the listener", "listener", "acceptor"
+    ).register();
+
+    private static final Counter FULL_HANDSHAKES_COUNTER = PrometheusUtils.createCounter(
+            "listeners", "tls_full_handshakes_total", "TLS handshakes that did not resume a previous session", "listener"
+    ).register();
+
+    private static final Gauge RESUMPTION_RATIO_GAUGE = PrometheusUtils.createGauge(
+            "listeners", "tls_resumption_ratio", "ratio of the TLS handshakes that resumed a previous session", "listener"
+    ).register();
+
+    private static final String HANDSHAKE_METRICS_HANDLER = "carapace.listenerHandshakeMetrics";
+
+    // the handshake metrics registered for each listener, see HandshakeMetrics#register()
+    private static final Map<String, HandshakeMetrics> HANDSHAKE_METRICS = new HashMap<>();
+
+    private static final AttributeKey<reactor.netty.tcp.SslProvider> SSL_PROVIDER = AttributeKey.valueOf("sni-ssl-provider");
+
     private final int localPort;
     private final NetworkListenerConfiguration config;
     private final Counter.Child totalRequests;
+    private final HandshakeMetrics handshakeMetrics;
     /**
-     * SSL contexts this listener can present, keyed by certificate id.
+     * Certificates this listener can present, selected per connection by SNI (see {@link #apply}).
      * <p>
-     * Built from the <em>global</em> {@link RuntimeServerConfiguration#getCertificates()} map, so it is the
-     * same set for every SSL listener: a listener serves the full certificate set and selects per connection
-     * by SNI (see {@link #apply}). A {@link NetworkListenerConfiguration} carries no per-listener certificate
-     * list — only a single {@link NetworkListenerConfiguration#defaultCertificate()} for clients that send no
-     * SNI. Consequently there is no listener-specific certificate subset: when any certificate's binding
-     * changes, every SSL listener must rebind.
+     * The certificates are the <em>global</em> {@link RuntimeServerConfiguration#getCertificates()}, indexed once
+     * per configuration and shared by every SSL listener. A {@link NetworkListenerConfiguration} carries no
+     * per-listener certificate list — only a single {@link NetworkListenerConfiguration#defaultCertificate()}
+     * for clients that send no SNI, whose context is built eagerly; the others are built on the first handshake.
+     * When the certificates change, the index is swapped in the {@link SniMapping}, without rebinding the listener.
      */
-    private final Map<String, SslContext> sslContexts;
+    private final SniMapping sniMapping;
+    private final SslContextsCache sslContexts;
+    private volatile SslContext defaultSslContext;
     private final File basePath;
-    private final RuntimeServerConfiguration currentConfiguration;
+    private volatile RuntimeServerConfiguration currentConfiguration;
     private final HttpProxyServer parent;
-    private DisposableServer channel;
+    private final List<DisposableServer> channels = new CopyOnWriteArrayList<>();
+    private final Map<Channel, Counter.Child> acceptedConnections = new ConcurrentHashMap<>();
+    private final ChannelGroup connections = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    private volatile boolean reusePort;
 
     public ListeningChannel(
             final File basePath,
             final RuntimeServerConfiguration currentConfiguration,
             final HttpProxyServer parent,
-            final ConcurrentMap<String, SslContext> cachedSslContexts,
+            final SslContextsCache sslContexts,
+            final CertificatesIndex certificates,
             final NetworkListenerConfiguration config
     ) throws ConfigurationNotValidException {
         this.localPort = config.port() + parent.getListenersOffsetPort();
         this.config = config;
         this.totalRequests = TOTAL_REQUESTS_PER_LISTENER_COUNTER.labels(config.host() + "_" + this.localPort);
         this.basePath = basePath;
-        this.currentConfiguration = currentConfiguration;
         this.parent = parent;
-        this.sslContexts = new HashMap<>(currentConfiguration.getCertificates().size());
-        for (final SSLCertificateConfiguration certificate : currentConfiguration.getCertificates().values()) {
-            final String certificateId = certificate.getId();
-            final SslContext sslContext = cachedSslContexts.containsKey(certificateId)
-                    ? cachedSslContexts.get(certificateId)
-                    : bootSslContext(config, certificate);
-            if (sslContext == null) {
-                // certificate configuration has some problem, should fallback to default certificate (legacy behavior)
-                continue;
+        this.sslContexts = sslContexts;
+        // the SSL contexts are shared among the listeners, the handshakes are counted on the connections
+        this.handshakeMetrics = config.ssl() ? new HandshakeMetrics(config.host() + "_" + this.localPort) : null;
+        this.sniMapping = new SniMapping(new SniMapping.Providers() {
+            @Override
+            public reactor.netty.tcp.SslProvider getIfPresent(final SSLCertificateConfiguration certificate) {
+                final SslContext sslContext = sslContexts.getIfPresent(config, certificate);
+                return sslContext != null ? sslProvider(sslContext) : null;
+            }
+
+            @Override
+            public reactor.netty.tcp.SslProvider load(final SSLCertificateConfiguration certificate) throws ConfigurationNotValidException {
+                final SslContext sslContext = sslContexts.get(config, certificate, sslContextLoader(certificate));
+                return sslContext != null ? sslProvider(sslContext) : null;
             }
-            sslContexts.put(certificateId, sslContext);
+        });
+        reloadCertificates(currentConfiguration, certificates);
+    }
+
+    /**
+     * Swap the certificates of a configuration in the SNI mapping;
+     * the handshakes in progress complete with the previous ones.
+     *
+     * @param newConfiguration the configuration
+     * @param certificates     the index of its certificates
+     * @throws ConfigurationNotValidException if the default certificate cannot be loaded; the previous certificates are kept
+     */
+    public void reloadCertificates(
+            final RuntimeServerConfiguration newConfiguration,
+            final CertificatesIndex certificates
+    ) throws ConfigurationNotValidException {
+        final RuntimeServerConfiguration previousConfiguration = this.currentConfiguration;
+        this.currentConfiguration = newConfiguration;
+        if (!config.ssl()) {
+            return;
+        }
+        final SslContext newDefaultSslContext;
+        try {
+            final SSLCertificateConfiguration defaultCertificate = newConfiguration.getCertificates().get(config.defaultCertificate());
+            newDefaultSslContext = defaultCertificate != null
+                    ? sslContexts.get(config, defaultCertificate, sslContextLoader(defaultCertificate))
+                    : null;
+        } catch (ConfigurationNotValidException err) {
+            this.currentConfiguration = previousConfiguration;
+            throw err;
+        }
+        this.defaultSslContext = newDefaultSslContext;
+        sniMapping.update(
+                certificates,
+                config.defaultCertificate(),
+                newDefaultSslContext != null ? sslProvider(newDefaultSslContext) : null);
+    }
+
+    /**
+     * The provider is kept along with its context, so that handshakes do not build one each time.
+     */
+    private reactor.netty.tcp.SslProvider sslProvider(final SslContext sslContext) {
+        final Attribute<reactor.netty.tcp.SslProvider> attr = sslContext.attributes().attr(SSL_PROVIDER);
+        final reactor.netty.tcp.SslProvider provider = attr.get();
+        if (provider != null) {
+            return provider;
+        }
+        final reactor.netty.tcp.SslProvider built = buildSslProvider(sslContext);
+        final reactor.netty.tcp.SslProvider previous = attr.setIfAbsent(built);
+        return previous != null ? previous : built;
+    }
+
+    private reactor.netty.tcp.SslProvider buildSslProvider(final SslContext sslContext) {
+        final reactor.netty.tcp.SslProvider.Builder builder = reactor.netty.tcp.SslProvider.builder().sslContext(sslContext);
+        if (isOcspEnabled()) {
+            builder.handlerConfigurator(new OcspSslHandler(sslContext, parent.getOcspStaplingManager()));
         }
+        return builder.build();
     }
 
     private static KeyManagerFactory loadKeyFactory(final SSLCertificateConfiguration certificate, final KeyStore keystore) throws NoSuchAlgorithmException, KeyStoreException, UnrecoverableKeyException {
-        final KeyManagerFactory keyFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        final KeyManagerFactory keyFactory = DualCertificateKeyManager.isDual(keystore)
+                ? loadDualKeyFactory(certificate, keystore)
+                : KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
         final KeyManagerFactory wrapperFactory = new OpenSslCachingX509KeyManagerFactory(keyFactory);
         wrapperFactory.init(keystore, certificate.getPassword().toCharArray());
         LOG.debug("Initialized KeyManagerFactory with algorithm: {}", wrapperFactory.getAlgorithm());
         return wrapperFactory;
     }
 
+    /**
+     * With both an RSA and an ECDSA chain, the one to serve is picked according to the client signature algorithms.
+     */
+    private static KeyManagerFactory loadDualKeyFactory(final SSLCertificateConfiguration certificate, final KeyStore keystore) throws NoSuchAlgorithmException, KeyStoreException, UnrecoverableKeyException {
+        final KeyManagerFactory keyFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyFactory.init(keystore, certificate.getPassword().toCharArray());
+        if (!(keyFactory.getKeyManagers()[0] instanceof X509ExtendedKeyManager keyManager)) {
+            return keyFactory;
+        }
+        LOG.debug("Serving both RSA and ECDSA chains for certificate id {}", certificate.getId());
+        return new KeyManagerFactoryWrapper(DualCertificateKeyManager.wrap(keyManager, keystore));
+    }
+
     public void disposeChannel() {
         // 2s timeouts: a longer wait can't drain HTTP/2 connections that the client keeps idle anyway,
         // and overlapping a 10s+ stall with a 30s certificate-rotation cycle stalls the reload pipeline.
-        // Always attempt the event-loop group close in a finally so a disposeNow timeout doesn't leak it;
-        // the group close itself can still throw IllegalStateException, callers must guard accordingly.
+        disposeChannel(Duration.ofSeconds(2));
+    }
+
+    /**
+     * Stop accepting connections, then wait for the in-flight requests to complete before closing the connections.
+     *
+     * @param timeout how long to wait for the in-flight requests
+     */
+    public void disposeChannel(final Duration timeout) {
+        // Always attempt the connections close in a finally so a disposeNow timeout doesn't leak them;
+        // the close itself can still throw IllegalStateException, callers must guard accordingly.
         try {
-            this.channel.disposeNow(Duration.ofSeconds(2));
+            // with more sockets, none of them must keep accepting while waiting for the connections
+            this.channels.forEach(DisposableServer::dispose);
+            for (final DisposableServer channel : this.channels) {
+                channel.disposeNow(timeout);
+            }
         } finally {
-            FutureMono.from(this.config.group().close()).block(Duration.ofSeconds(2));
+            if (handshakeMetrics != null) {
+                handshakeMetrics.unregister();
+            }
+            FutureMono.from(this.connections.close()).block(Duration.ofSeconds(2));
         }
     }
 
+    /**
+     * Connections accepted by this listener; when it is replaced, they are drained while the new one takes over.
+     *
+     * @return the group of the connections
+     */
+    public ChannelGroup getConnections() {
+        return this.connections;
+    }
+
     public void incRequests() {
         totalRequests.inc();
     }
 
-    public void clear() {
-        this.sslContexts.clear();
+    /**
+     * Track the TLS handshake of a new connection.
+     *
+     * @param channel the channel of the connection, once its SSL handler is in place
+     */
+    public void watchHandshake(final Channel channel) {
+        final ChannelPipeline pipeline = channel.pipeline();
+        if (handshakeMetrics != null && pipeline.get(NettyPipeline.SslHandler) != null && pipeline.get(HANDSHAKE_METRICS_HANDLER) == null) {
+            pipeline.addAfter(NettyPipeline.SslHandler, HANDSHAKE_METRICS_HANDLER, new HandshakeMetricsHandler(handshakeMetrics));
+        }
+    }
+
+    public void incAcceptedConnections(final Channel serverChannel) {
+        final Counter.Child counter = serverChannel != null ? this.acceptedConnections.get(serverChannel) : null;
+        if (counter != null) {
+            counter.inc();
+        }
+    }
+
+    private SslContextsCache.Loader sslContextLoader(final SSLCertificateConfiguration certificate) {
+        return new SslContextsCache.Loader() {
+            @Override
+            public byte[] read() throws ConfigurationNotValidException {
+                return readKeyStore(certificate);
+            }
+
+            @Override
+            public SslContext build(final byte[] keystore) throws ConfigurationNotValidException {
+                return bootSslContext(config, certificate, keystore);
+            }
+
+            @Override
+            public String stamp() {
+                return keystoreStamp(parent, basePath, certificate);
+            }
+        };
+    }
+
+    /**
+     * A value that changes with the keystore of a certificate, without reading it.
+     *
+     * @return the stamp of the dynamic certificate data or of the configured file, null if the certificate has neither
+     * @see SslContextsCache.Loader#stamp()
+     */
+    static String keystoreStamp(final HttpProxyServer parent, final File basePath, final SSLCertificateConfiguration certificate) {
+        final CertificateData data = parent.getDynamicCertificatesManager().getCertificateDataForDomain(certificate.getId());
+        if (data != null && data.getKeystoreData() != null && data.getKeystoreData().length > 0) {
+            // dynamic certificates are replaced with new keystore data whenever they are renewed or loaded again
+            return "dynamic:" + data.getSerialNumber() + ":" + System.identityHashCode(data.getKeystoreData());
+        }
+        return StringUtils.isBlank(certificate.getFile()) ? null : fileStamp(certificate.getFile(), basePath);
     }
 
-    private SslContext bootSslContext(final NetworkListenerConfiguration listener, final SSLCertificateConfiguration certificate) throws ConfigurationNotValidException {
+    private SslContext bootSslContext(final NetworkListenerConfiguration listener, final SSLCertificateConfiguration certificate, final byte[] keystoreContent) throws ConfigurationNotValidException {
         try {
             final EndpointKey hostPort = new EndpointKey(listener.host(), listener.port()).offsetPort(parent.getListenersOffsetPort());
-            final KeyStore keystore = loadKeyStore(certificate, hostPort);
-            if (keystore == null) {
-                // certificate configuration has some problem, should fallback to default certificate (legacy behavior)
-                return null;
-            }
+            LOG.debug("Start SSL with certificate id {}, on listener {}:{}", certificate.getId(), hostPort.host(), hostPort.port());
+            final KeyStore keystore = loadKeyStore(certificate, keystoreContent);
             final KeyManagerFactory keyFactory = loadKeyFactory(certificate, keystore);
             final SslContextBuilder sslContextBuilder = SslContextBuilder
                     .forServer(keyFactory)
@@ -147,9 +336,10 @@ public class ListeningChannel {
                 sslContextBuilder.ciphers(ciphers);
             }
             final SslContext sslContext = sslContextBuilder.build();
+            parent.getSessionTicketKeysManager().apply(sslContext);
             final Certificate[] chain = readChainFromKeystore(keystore);
             if (currentConfiguration.isOcspEnabled() && OpenSsl.isOcspSupported() && chain.length > 0) {
-                parent.getOcspStaplingManager().addCertificateForStapling(chain);
+                parent.getOcspStaplingManager().addCertificateForStapling(certificate.getId(), chain);
                 Attribute<Object> attr = sslContext.attributes().attr(AttributeKey.valueOf(Listeners.OCSP_CERTIFICATE_CHAIN));
                 attr.set(chain[0]);
             }
@@ -160,22 +350,33 @@ public class ListeningChannel {
         }
     }
 
-    private KeyStore loadKeyStore(final SSLCertificateConfiguration certificate, final EndpointKey hostPort) throws KeyStoreException, NoSuchAlgorithmException, CertificateException, IOException {
+    /**
+     * Read the content of the keystore of a certificate, either the dynamic certificate data or the configured file.
+     *
+     * @return the content, or null if the certificate has neither
+     */
+    private byte[] readKeyStore(final SSLCertificateConfiguration certificate) throws ConfigurationNotValidException {
+        // Try to find certificate data on db
+        final byte[] keystoreContent = parent.getDynamicCertificatesManager().getCertificateForDomain(certificate.getId());
+        if (keystoreContent != null) {
+            return keystoreContent;
+        }
+        if (StringUtils.isBlank(certificate.getFile())) {
+            LOG.warn("No certificate file or dynamic certificate data for certificate id {}", certificate.getId());
+            // certificate configuration has some problem, should fallback to default certificate (legacy behavior)
+            return null;
+        }
         try {
-            // Try to find certificate data on db
-            final byte[] keystoreContent = parent.getDynamicCertificatesManager().getCertificateForDomain(certificate.getId());
-            final KeyStore keystore;
-            if (keystoreContent == null) {
-                if (StringUtils.isBlank(certificate.getFile())) {
-                    LOG.warn("No certificate file or dynamic certificate data for certificate id {}", certificate.getId());
-                    return null;
-                }
-                LOG.debug("Start SSL with certificate id {}, on listener {}:{} file={}", certificate.getId(), hostPort.host(), hostPort.port(), certificate.getFile());
-                keystore = loadKeyStoreFromFile(certificate.getFile(), certificate.getPassword(), basePath);
-            } else {
-                LOG.debug("Start SSL with dynamic certificate id {}, on listener {}:{}", certificate.getId(), hostPort.host(), hostPort.port());
-                keystore = loadKeyStoreData(keystoreContent, certificate.getPassword());
-            }
+            return readKeyStoreFile(certificate.getFile(), basePath);
+        } catch (IOException err) {
+            LOG.error("ERROR reading keystore file {} for certificate {}", certificate.getFile(), certificate.getId());
+            throw new ConfigurationNotValidException(err);
+        }
+    }
+
+    private static KeyStore loadKeyStore(final SSLCertificateConfiguration certificate, final byte[] keystoreContent) throws KeyStoreException, NoSuchAlgorithmException, CertificateException, IOException {
+        try {
+            final KeyStore keystore = loadKeyStoreData(keystoreContent, certificate.getPassword());
             LOG.debug("Loaded keystore with type: {}, size: {}, aliases: {}", keystore.getType(), keystore.size(), Collections.list(keystore.aliases()));
             return keystore;
         } catch (KeyStoreException | NoSuchAlgorithmException | CertificateException | IOException e) {
@@ -198,8 +399,33 @@ public class ListeningChannel {
         return (int) this.totalRequests.get();
     }
 
-    public void setChannel(DisposableServer channel) {
-        this.channel = channel;
+    /**
+     * Add a bound socket; a listener has more than one when it uses SO_REUSEPORT.
+     *
+     * @param channel the bound socket
+     */
+    public void addChannel(DisposableServer channel) {
+        if (handshakeMetrics != null && this.channels.isEmpty()) {
+            handshakeMetrics.register();
+        }
+        final String acceptor = String.valueOf(this.channels.size());
+        this.acceptedConnections.put(channel.channel(), ACCEPTED_CONNECTIONS_COUNTER.labels(config.host() + "_" + this.localPort, acceptor));
+        this.channels.add(channel);
+    }
+
+    /**
+     * @return whether the sockets are bound with SO_REUSEPORT, so that a new listener can bind the same port alongside them
+     */
+    public boolean isReusePort() {
+        return this.reusePort;
+    }
+
+    void setReusePort(final boolean reusePort) {
+        this.reusePort = reusePort;
+    }
+
+    public List<DisposableServer> getChannels() {
+        return this.channels;
     }
 
     public EndpointKey getHostPort() {
@@ -207,37 +433,98 @@ public class ListeningChannel {
     }
 
     public int getChannelPort() {
-        if (this.channel != null) {
-            if (this.channel.address() instanceof InetSocketAddress address) {
+        if (!this.channels.isEmpty()) {
+            final DisposableServer channel = this.channels.get(0);
+            if (channel.address() instanceof InetSocketAddress address) {
                 return address.getPort();
             }
-            LOG.warn("Unexpected channel address {}", this.channel.address());
+            LOG.warn("Unexpected channel address {}", channel.address());
         }
         return -1;
     }
 
     public SslContext getDefaultSslContext() {
-        return this.sslContexts.get(config.defaultCertificate());
+        return this.defaultSslContext;
     }
 
     public reactor.netty.tcp.SslProvider.Builder apply(reactor.netty.tcp.SslProvider.Builder parentBuilder) {
-        for (final Map.Entry<String, SslContext> entry : this.sslContexts.entrySet()) {
-            if ("*".equals(entry.getKey())) {
-                continue;
+        // consulted at every handshake, see #reloadCertificates
+        return parentBuilder.setSniAsyncMappings(sniMapping);
+    }
+
+    public boolean isOcspEnabled() {
+        return currentConfiguration.isOcspEnabled() && OpenSsl.isOcspSupported();
+    }
+
+    /**
+     * Handshakes completed by a listener.
+     * A restarted listener registers its own metrics before the previous one is drained, that then leaves them in place.
+     */
+    private static final class HandshakeMetrics {
+
+        private final String listener;
+        private final Counter.Child fullHandshakes = new Counter.Child();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder resumed = new LongAdder();
+        private final Gauge.Child resumptionRatio = new Gauge.Child() {
+            @Override
+            public double get() {
+                final long total = completed.sum();
+                return total > 0 ? (double) resumed.sum() / total : 0;
             }
-            final String key = entry.getKey();
-            final SslContext sslContext = entry.getValue();
-            parentBuilder.addSniMapping(key, spec -> {
-                final reactor.netty.tcp.SslProvider.Builder builder = spec.sslContext(sslContext);
-                if (isOcspEnabled()) {
-                    builder.handlerConfigurator(new OcspSslHandler(sslContext, parent.getOcspStaplingManager()));
+        };
+
+        private HandshakeMetrics(final String listener) {
+            this.listener = listener;
+        }
+
+        void register() {
+            synchronized (HANDSHAKE_METRICS) {
+                HANDSHAKE_METRICS.put(listener, this);
+                FULL_HANDSHAKES_COUNTER.setChild(fullHandshakes, listener);
+                RESUMPTION_RATIO_GAUGE.setChild(resumptionRatio, listener);
+            }
+        }
+
+        void unregister() {
+            synchronized (HANDSHAKE_METRICS) {
+                if (HANDSHAKE_METRICS.remove(listener, this)) {
+                    FULL_HANDSHAKES_COUNTER.remove(listener);
+                    RESUMPTION_RATIO_GAUGE.remove(listener);
                 }
-            });
+            }
+        }
+
+        void completed(final boolean sessionReused) {
+            completed.increment();
+            if (sessionReused) {
+                resumed.increment();
+            } else {
+                fullHandshakes.inc();
+            }
         }
-        return parentBuilder;
     }
 
-    public boolean isOcspEnabled() {
-        return currentConfiguration.isOcspEnabled() && OpenSsl.isOcspSupported();
+    private static final class HandshakeMetricsHandler extends ChannelInboundHandlerAdapter {
+
+        private final HandshakeMetrics metrics;
+
+        private HandshakeMetricsHandler(final HandshakeMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void userEventTriggered(final ChannelHandlerContext ctx, final Object evt) throws Exception {
+            if (evt instanceof SslHandshakeCompletionEvent completion) {
+                // with SNI, the handler in place is the one that replaced the SNI handler
+                if (completion.isSuccess() && ctx.pipeline().get(SslHandler.class) instanceof SslHandler sslHandler) {
+                    metrics.completed(TlsHandshakes.isSessionReused(sslHandler.engine()));
+                }
+                super.userEventTriggered(ctx, evt);
+                ctx.pipeline().remove(this);
+                return;
+            }
+            super.userEventTriggered(ctx, evt);
+        }
     }
 }
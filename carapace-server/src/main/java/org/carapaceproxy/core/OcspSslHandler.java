@@ -4,7 +4,6 @@ import io.netty.handler.ssl.ReferenceCountedOpenSslEngine;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.util.AttributeKey;
-import java.io.IOException;
 import java.security.cert.Certificate;
 import java.util.function.Consumer;
 import org.carapaceproxy.server.certificates.ocsp.OcspStaplingManager;
@@ -34,15 +33,12 @@ public class OcspSslHandler implements Consumer<SslHandler> {
             LOG.error("Unexpected SSL handler type: {}", sslHandler.engine());
             return;
         }
-        try {
-            final byte[] ocspResponse = ocspStaplingManager.getOcspResponseForCertificate(cert);
-            if (ocspResponse == null) {
-                LOG.error("No OCSP response for certificate: {}", cert);
-                return;
-            }
-            engine.setOcspResponse(ocspResponse);
-        } catch (IOException ex) {
-            LOG.error("Error setting OCSP response.", ex);
+        // already encoded by the manager, nothing to compute during the handshake
+        final byte[] ocspResponse = ocspStaplingManager.getOcspResponseForCertificate(cert);
+        if (ocspResponse == null) {
+            LOG.error("No OCSP response for certificate: {}", cert);
+            return;
         }
+        engine.setOcspResponse(ocspResponse);
     }
 }
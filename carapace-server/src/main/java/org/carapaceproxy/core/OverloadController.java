@@ -0,0 +1,232 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.carapaceproxy.utils.PrometheusUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Overload protection of the proxy itself.
+ * <p>
+ * It periodically submits a probe task to every event loop of the {@link EventLoops groups}
+ * to measure how long tasks wait before being run, and reads the number of pending tasks.
+ * As in CoDel, short bursts are tolerated: the proxy is considered overloaded only when the lag
+ * stays above the target for a whole interval, and it recovers as soon as the lag gets back under the target.
+ * While overloaded, {@link ProxyRequestsManager} sheds proxied requests with a cheap 503.
+ */
+public class OverloadController implements Runnable {
+
+    public static final long DEFAULT_LAG_TARGET = 50; // ms
+    public static final long DEFAULT_INTERVAL = 500; // ms
+    public static final int DEFAULT_MAX_PENDING_TASKS = 10_000;
+    private static final long PROBE_PERIOD = 50; // ms
+
+    private static final Logger LOG = LoggerFactory.getLogger(OverloadController.class);
+
+    private static final Gauge EVENT_LOOP_LAG_GAUGE = PrometheusUtils.createGauge(
+            "overload", "eventloop_lag_ms", "max scheduling lag of the event loops"
+    ).register();
+
+    private static final Gauge EVENT_LOOP_PENDING_TASKS_GAUGE = PrometheusUtils.createGauge(
+            "overload", "eventloop_pending_tasks", "max number of pending tasks of the event loops"
+    ).register();
+
+    private static final Gauge OVERLOADED_GAUGE = PrometheusUtils.createGauge(
+            "overload", "overloaded", "whether the proxy is shedding load (1) or not (0)"
+    ).register();
+
+    public static final Counter SHED_REQUESTS_COUNTER = PrometheusUtils.createCounter(
+            "overload", "shed_requests_total", "requests rejected because the proxy is overloaded"
+    ).register();
+
+    private final Supplier<Collection<EventLoopGroup>> eventLoopGroups;
+    private final Map<EventExecutor, Probe> probes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService timer;
+    private ScheduledFuture<?> scheduledFuture;
+
+    // can change at runtime
+    private volatile boolean enabled;
+    private volatile long lagTarget = DEFAULT_LAG_TARGET;
+    private volatile long interval = DEFAULT_INTERVAL;
+    private volatile int maxPendingTasks = DEFAULT_MAX_PENDING_TASKS;
+    private volatile Set<String> exemptRoutes = Set.of();
+
+    private volatile boolean overloaded;
+    private long aboveTargetSince = -1;
+
+    public OverloadController(final Supplier<Collection<EventLoopGroup>> eventLoopGroups) {
+        this.eventLoopGroups = eventLoopGroups;
+    }
+
+    public synchronized void start() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor();
+        }
+        if (enabled && scheduledFuture == null) {
+            LOG.info("Starting OverloadController, lag target {} ms, interval {} ms", lagTarget, interval);
+            scheduledFuture = timer.scheduleAtFixedRate(this, PROBE_PERIOD, PROBE_PERIOD, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdown();
+            try {
+                timer.awaitTermination(10, TimeUnit.SECONDS);
+                timer = null;
+                scheduledFuture = null;
+            } catch (InterruptedException err) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        setOverloaded(false);
+    }
+
+    public synchronized void reloadConfiguration(final RuntimeServerConfiguration newConfiguration) {
+        this.lagTarget = newConfiguration.getOverloadLagTarget();
+        this.interval = newConfiguration.getOverloadInterval();
+        this.maxPendingTasks = newConfiguration.getOverloadMaxPendingTasks();
+        this.exemptRoutes = newConfiguration.getOverloadExemptRoutes();
+        final boolean wasEnabled = this.enabled;
+        this.enabled = newConfiguration.isOverloadProtectionEnabled();
+        if (wasEnabled && !enabled) {
+            if (scheduledFuture != null) {
+                scheduledFuture.cancel(false);
+                scheduledFuture = null;
+            }
+            aboveTargetSince = -1;
+            setOverloaded(false);
+        } else if (!wasEnabled && enabled && timer != null) {
+            start();
+        }
+    }
+
+    /**
+     * Whether the requests should be shed.
+     *
+     * @return true if the event loops are lagging behind since more than the configured interval
+     */
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    /**
+     * Whether requests of a route are never shed, e.g. health checks.
+     *
+     * @param routeId the route of the request
+     * @return true if the route is exempted from load shedding
+     */
+    public boolean isExempt(final String routeId) {
+        return exemptRoutes.contains(routeId);
+    }
+
+    @Override
+    public void run() {
+        final long now = System.nanoTime();
+        long maxLag = 0;
+        int maxPending = 0;
+        for (final EventLoopGroup eventLoopGroup : eventLoopGroups.get()) {
+            for (final EventExecutor executor : eventLoopGroup) {
+                final Probe probe = probes.computeIfAbsent(executor, k -> new Probe());
+                maxLag = Math.max(maxLag, probe.lag(now));
+                if (executor instanceof SingleThreadEventExecutor singleThreadExecutor) {
+                    maxPending = Math.max(maxPending, singleThreadExecutor.pendingTasks());
+                }
+                probe.submit(executor, now);
+            }
+        }
+        final long lagMillis = TimeUnit.NANOSECONDS.toMillis(maxLag);
+        EVENT_LOOP_LAG_GAUGE.set(lagMillis);
+        EVENT_LOOP_PENDING_TASKS_GAUGE.set(maxPending);
+        onSample(lagMillis, maxPending, TimeUnit.NANOSECONDS.toMillis(now));
+    }
+
+    @VisibleForTesting
+    synchronized void onSample(final long lagMillis, final int pendingTasks, final long nowMillis) {
+        final boolean aboveTarget = lagMillis > lagTarget || (maxPendingTasks > 0 && pendingTasks > maxPendingTasks);
+        if (!aboveTarget) {
+            aboveTargetSince = -1;
+            setOverloaded(false);
+            return;
+        }
+        if (aboveTargetSince < 0) {
+            aboveTargetSince = nowMillis;
+        } else if (nowMillis - aboveTargetSince >= interval) {
+            if (!overloaded) {
+                LOG.warn("Event loops lagging {} ms with {} pending tasks since {} ms, shedding load", lagMillis, pendingTasks, nowMillis - aboveTargetSince);
+            }
+            setOverloaded(true);
+        }
+    }
+
+    private void setOverloaded(final boolean overloaded) {
+        if (this.overloaded && !overloaded) {
+            LOG.info("Event loops recovered, stop shedding load");
+        }
+        this.overloaded = overloaded;
+        OVERLOADED_GAUGE.set(overloaded ? 1 : 0);
+    }
+
+    private static final class Probe {
+
+        private volatile long submittedAt;
+        private volatile long lastLag;
+        private volatile boolean pending;
+
+        long lag(final long now) {
+            // a probe still waiting in the queue is lagging at least since its submission
+            return pending ? now - submittedAt : lastLag;
+        }
+
+        void submit(final EventExecutor executor, final long now) {
+            if (pending) {
+                return;
+            }
+            submittedAt = now;
+            pending = true;
+            try {
+                executor.execute(() -> {
+                    lastLag = System.nanoTime() - submittedAt;
+                    pending = false;
+                });
+            } catch (RejectedExecutionException err) {
+                // the event loop is shutting down
+                pending = false;
+            }
+        }
+    }
+}
@@ -23,45 +23,53 @@ import static org.carapaceproxy.server.mapper.MapResult.REDIRECT_PROTO_HTTP;
 import static org.carapaceproxy.server.mapper.MapResult.REDIRECT_PROTO_HTTPS;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollChannelOption;
-import io.netty.channel.socket.nio.NioChannelOption;
+import io.netty.channel.EventLoopGroup;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http2.Http2CodecUtil;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.util.concurrent.EventExecutor;
 import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
-import java.io.IOException;
 import java.net.ConnectException;
-import java.security.GeneralSecurityException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import jdk.net.ExtendedSocketOptions;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.apache.http.HttpStatus;
 import org.carapaceproxy.EndpointStats;
 import org.carapaceproxy.SimpleHTTPResponse;
 import org.carapaceproxy.server.backends.BackendHealthStatus;
+import org.carapaceproxy.server.backends.CircuitBreaker;
+import org.carapaceproxy.server.backends.ConcurrencyLimiter;
 import org.carapaceproxy.server.cache.ContentsCache;
 import org.carapaceproxy.server.config.BackendConfiguration;
 import org.carapaceproxy.server.config.ConfigurationNotValidException;
 import org.carapaceproxy.server.config.ConnectionPoolConfiguration;
+import org.carapaceproxy.server.config.FairQueuingConfiguration;
 import org.carapaceproxy.server.config.NetworkListenerConfiguration;
+import org.carapaceproxy.server.config.RouteConfiguration;
 import org.carapaceproxy.server.filters.ServerHeaderRequestFilter;
 import org.carapaceproxy.server.mapper.CustomHeader;
 import org.carapaceproxy.server.mapper.MapResult;
@@ -73,11 +81,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.netty.ByteBufFlux;
 import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
 import reactor.netty.http.client.HttpClientResponse;
 import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
 
 /**
  * Manager forwarding {@link ProxyRequest} from clients to proper endpoints.
@@ -94,18 +104,47 @@ public class ProxyRequestsManager implements AutoCloseable {
             "backends", "stuck_requests_total", "stuck requests, this requests will be killed"
     ).register();
 
+    public static final Counter RETRIED_REQUESTS_COUNTER = PrometheusUtils.createCounter(
+            "backends", "retried_requests_total", "requests retried on another backend after a connection failure"
+    ).register();
+
+    public static final Counter HEDGED_REQUESTS_COUNTER = PrometheusUtils.createCounter(
+            "backends", "hedged_requests_total", "requests sent to another backend because of a slow response"
+    ).register();
+
+    public static final Counter RETRY_BUDGET_EXHAUSTED_COUNTER = PrometheusUtils.createCounter(
+            "backends", "retry_budget_exhausted_total", "retries and hedged requests not sent because of the exhausted retry budget"
+    ).register();
+
+    public static final Counter WARMUP_REQUESTS_COUNTER = PrometheusUtils.createCounter(
+            "backends", "warmup_requests_total", "requests sent to keep idle connections to the backends", "host"
+    ).register();
+
     private static final Logger LOGGER = LoggerFactory.getLogger(ProxyRequestsManager.class);
-    private static final String DEFAULT_KEY = "*";
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm-ss.SSS");
+    private static final Set<HttpResponseStatus> BACKEND_FAILURE_STATUSES = Set.of(
+            HttpResponseStatus.BAD_GATEWAY, HttpResponseStatus.SERVICE_UNAVAILABLE, HttpResponseStatus.GATEWAY_TIMEOUT
+    );
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.TRACE, HttpMethod.PUT, HttpMethod.DELETE
+    );
 
     private final HttpProxyServer parent;
     private final Map<EndpointKey, EndpointStats> endpointsStats = new ConcurrentHashMap<>();
     private final ConnectionsManager connectionsManager = new ConnectionsManager();
+    private final RetryBudget retryBudget = new RetryBudget();
+    private final RouteLatencyTracker latencyTracker = new RouteLatencyTracker();
+    private final Map<String, FairQueue> fairQueues = new ConcurrentHashMap<>();
+    private volatile List<InboundLoop> inboundLoops;
 
-    private volatile Map<String, SslContext> clientSslContexts = new ConcurrentHashMap<>();
+    private final BackendSslContexts clientSslContexts;
 
     public ProxyRequestsManager(HttpProxyServer parent) {
         this.parent = parent;
+        this.clientSslContexts = new BackendSslContexts(key -> key.usesTrustStore()
+                ? parent.getTrustStoreManager().buildDefaultClientSslContext(key.sessionCacheSize(), key.sessionTimeout())
+                : parent.getTrustStoreManager().buildClientSslContextForCaFile(key.caCertificatePath(), key.caCertificatePassword(), key.sessionCacheSize(), key.sessionTimeout()),
+                path -> parent.getTrustStoreManager().fileStamp(path));
     }
 
     private static Publisher<Void> writeSimpleResponse(ProxyRequest request, FullHttpResponse response, List<CustomHeader> customHeaders) {
@@ -171,34 +210,18 @@ public class ProxyRequestsManager implements AutoCloseable {
     }
 
     public void reloadConfiguration(RuntimeServerConfiguration newConfiguration, Collection<BackendConfiguration> newEndpoints) throws ConfigurationNotValidException {
-        final Map<String, SslContext> newContexts = new ConcurrentHashMap<>();
-        try {
-            for (final BackendConfiguration backend : newEndpoints) {
-                final String path = backend.caCertificatePath();
-                if (!StringUtils.isBlank(path)) {
-                    if (newContexts.containsKey(path)) {
-                        LOGGER.debug("SSL context for backend {} was already prepared from {}", backend.id(), path);
-                        continue;
-                    }
-                    final SslContext cached = clientSslContexts.get(path);
-                    if (cached != null) {
-                        newContexts.put(path, cached);
-                        LOGGER.debug("SSL context for backend {} was already loaded from {}", backend.id(), path);
-                    } else {
-                        final SslContext sslContext = parent.getTrustStoreManager()
-                                .buildClientSslContextForCaFile(path, backend.caCertificatePassword());
-                        newContexts.put(path, sslContext);
-                        LOGGER.debug("Cached SSL context for backend {} from {}", backend.id(), path);
-                    }
-                }
-            }
-            final SslContext defaultCtx = parent.getTrustStoreManager().buildDefaultClientSslContext();
-            newContexts.put(DEFAULT_KEY, defaultCtx);
-        } catch (IOException | GeneralSecurityException exception) {
-            throw new ConfigurationNotValidException(exception);
-        }
-        this.clientSslContexts = newContexts;
+        clientSslContexts.reloadConfiguration(newConfiguration, newEndpoints);
         connectionsManager.reloadConfiguration(newConfiguration, newEndpoints);
+        // queues of pools or endpoints no longer in use would never be reclaimed;
+        // an exchange enters its queue while holding the same lock, so a queue in use cannot be dropped
+        fairQueues.keySet().forEach(id -> fairQueues.computeIfPresent(id, (k, queue) -> queue.isIdle() ? null : queue));
+    }
+
+    /**
+     * Build again the SSL contexts of the backends whose trusted files changed; the others are kept.
+     */
+    public void reloadBackendSslContexts(RuntimeServerConfiguration newConfiguration, Collection<BackendConfiguration> newEndpoints) throws ConfigurationNotValidException {
+        clientSslContexts.reloadConfiguration(newConfiguration, newEndpoints);
     }
 
     @Override
@@ -242,8 +265,8 @@ public class ProxyRequestsManager implements AutoCloseable {
             case BAD_REQUEST -> serveBadRequestMessage(request);
             case STATIC, ACME_CHALLENGE -> serveStaticMessage(request);
             case REDIRECT -> serveRedirect(request);
-            case PROXY -> forward(request, false, action.getHealthStatus());
-            case CACHE -> serveFromCache(request, action.getHealthStatus()); // cached content
+            case PROXY -> isShed(action) ? serveOverloaded(request) : forward(request, false, action.getHealthStatus());
+            case CACHE -> isShed(action) ? serveOverloaded(request) : serveFromCache(request, action.getHealthStatus()); // cached content
             default -> throw new IllegalStateException("Action " + action.getAction() + " not supported");
         };
         // Log on terminal signal so response status, backend timing, and cache info are populated.
@@ -397,6 +420,11 @@ public class ProxyRequestsManager implements AutoCloseable {
 
     /**
      * Forward a requested received by the {@link Listeners} to the corresponding backend endpoint.
+     * <p>
+     * Idempotent requests without a body may be retried on the {@link MapResult#getFallbacks() fallback backends}
+     * when the connection to the chosen one fails, and hedged on a fallback backend when the response headers
+     * are not received within the configured percentile of the latency of the route;
+     * both are capped by the {@link RetryBudget}.
      *
      * @param request      the unpacked incoming request to forward to the corresponding backend endpoint
      * @param cache        whether the request is cacheable or not
@@ -404,14 +432,82 @@ public class ProxyRequestsManager implements AutoCloseable {
      * @return a {@link Flux} forwarding the returned {@link Publisher} sequence
      */
     public Publisher<Void> forward(final ProxyRequest request, final boolean cache, final BackendHealthStatus healthStatus) {
-        Objects.requireNonNull(request.getAction());
-        final EndpointKey key = EndpointKey.make(request.getAction().getHost(), request.getAction().getPort());
+        final MapResult action = Objects.requireNonNull(request.getAction());
+
+        AtomicBoolean cacheable = new AtomicBoolean(cache);
+        final ContentsCache.ContentReceiver cacheReceiver = cacheable.get() ? parent.getCache().createCacheReceiver(request) : null;
+        if (cacheReceiver != null) { // cacheable
+            // https://tools.ietf.org/html/rfc7234#section-4.3.4
+            cleanRequestFromCacheValidators(request);
+        } else {
+            cacheable.set(false);
+        }
+
+        retryBudget.deposit();
+        final boolean replayable = isReplayable(request);
+        final ForwardContext context = new ForwardContext(request, cacheable, cacheReceiver, replayable ? action.getMaxRetries() : 0);
+        // the mapper only checked the backend: its circuit breaker and concurrency limit are acquired here, when it is really called
+        final MapResult target = healthStatus.tryAcquireCall() ? action : nextFallback(context);
+        if (target == null) {
+            LOGGER.debug("Backend {}:{} refused request {} and no fallback is available", action.getHost(), action.getPort(), request.getUri());
+            return serveServiceUnavailable(request);
+        }
+        final Sinks.One<Boolean> primaryWon = Sinks.one();
+        final Mono<Void> primary = forwardAttempt(context, target, target.getHealthStatus(), false, primaryWon);
+        final long hedgeDelay = replayable && action.getHedgePercentile() > 0 && !action.getFallbacks().isEmpty()
+                ? latencyTracker.getPercentile(action.getRouteId(), action.getHedgePercentile())
+                : -1;
+
+        PENDING_REQUESTS_GAUGE.inc();
+        final Mono<Void> result;
+        if (hedgeDelay < 0) {
+            result = primary;
+        } else {
+            // the first attempt receiving the response headers cancels the other one
+            final Sinks.One<Boolean> hedgeWon = Sinks.one();
+            final Mono<Void> hedge = Mono.delay(Duration.ofMillis(hedgeDelay))
+                    .then(Mono.defer(() -> hedgeAttempt(context, hedgeWon)))
+                    .takeUntilOther(primaryWon.asMono());
+            result = Flux.merge(primary.takeUntilOther(hedgeWon.asMono()), hedge).then();
+        }
+        return result.doFinally(signal -> PENDING_REQUESTS_GAUGE.dec());
+    }
+
+    private Mono<Void> hedgeAttempt(final ForwardContext context, final Sinks.One<Boolean> won) {
+        if (context.isClaimed()) {
+            return Mono.empty();
+        }
+        final MapResult fallback = nextFallback(context);
+        if (fallback == null) {
+            return Mono.empty();
+        }
+        if (!retryBudget.tryAcquire()) {
+            RETRY_BUDGET_EXHAUSTED_COUNTER.inc();
+            fallback.getHealthStatus().releaseCall();
+            return Mono.empty();
+        }
+        HEDGED_REQUESTS_COUNTER.inc();
+        LOGGER.debug("Hedging request {} on backend {}:{}", context.request.getUri(), fallback.getHost(), fallback.getPort());
+        return forwardAttempt(context, fallback, fallback.getHealthStatus(), true, won);
+    }
+
+    private Mono<Void> forwardAttempt(
+            final ForwardContext context,
+            final MapResult action,
+            final BackendHealthStatus healthStatus,
+            final boolean replay,
+            final Sinks.One<Boolean> won) {
+        final ProxyRequest request = context.request;
+        final EndpointKey key = EndpointKey.make(action.getHost(), action.getPort());
         final EndpointStats endpointStats = endpointsStats.computeIfAbsent(key, EndpointStats::new);
 
         final String hostName = request.getRequestHostname();
         final ConnectionPoolConfiguration connectionConfig = connectionsManager.findConnectionPool(hostName);
         final String connectionId = connectionConfig.getId();
-        final ConnectionProvider connectionProvider = connectionsManager.getConnectionProvider(connectionConfig);
+        // attempts started outside of the event loops (e.g. hedged ones) use the shared provider
+        final List<InboundLoop> loops = getInboundLoops();
+        final int partition = parent.getCurrentConfiguration().isConnectionsColocation() ? currentInboundLoopIndex(loops) : -1;
+        final ConnectionProvider connectionProvider = connectionsManager.getConnectionProvider(connectionConfig, partition, loops.size());
         LOGGER.debug("Using connection {} for domain {}", connectionId, hostName);
         if (LOGGER.isDebugEnabled()) {
             final Map<String, HttpProxyServer.ConnectionPoolStats> stats = parent.getConnectionPoolsStats().get(key);
@@ -420,24 +516,7 @@ public class ProxyRequestsManager implements AutoCloseable {
             }
             LOGGER.debug("Max connections for {}: {}", connectionId, connectionProvider.maxConnectionsPerHost());
         }
-        HttpClient forwarder = getClient(connectionProvider, request)
-                .followRedirect(false) // the client is the one that should follow the redirect, not the proxy
-                .runOn(parent.getEventLoopGroup())
-                .compress(parent.getCurrentConfiguration().isRequestCompressionEnabled())
-                .responseTimeout(Duration.ofMillis(connectionConfig.getStuckRequestTimeout()))
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectionConfig.getConnectTimeout())
-                // Enables TCP keepalive: TCP starts sending keepalive probes when a connection is idle for some time.
-                .option(ChannelOption.SO_KEEPALIVE, connectionConfig.isKeepAlive())
-                .option(Epoll.isAvailable()
-                        ? EpollChannelOption.TCP_KEEPIDLE
-                        : NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE), connectionConfig.getKeepaliveIdle())
-                .option(Epoll.isAvailable()
-                        ? EpollChannelOption.TCP_KEEPINTVL
-                        : NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPINTERVAL), connectionConfig.getKeepaliveInterval())
-                .option(Epoll.isAvailable()
-                        ? EpollChannelOption.TCP_KEEPCNT
-                        : NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPCOUNT), connectionConfig.getKeepaliveCount())
-                .httpResponseDecoder(option -> option.maxHeaderSize(parent.getCurrentConfiguration().getMaxHeaderSize()))
+        HttpClient forwarder = configureClient(getClient(connectionProvider, request, key), connectionConfig, partition >= 0 ? loops.get(partition).colocatedGroup() : null)
                 .doOnRequest((req, conn) -> {
                     if (LOGGER.isDebugEnabled()) {
                         LOGGER.debug(
@@ -468,118 +547,313 @@ public class ProxyRequestsManager implements AutoCloseable {
                     endpointStats.getLastActivity().set(System.currentTimeMillis());
                 });
 
-        AtomicBoolean cacheable = new AtomicBoolean(cache);
-        final ContentsCache.ContentReceiver cacheReceiver = cacheable.get() ? parent.getCache().createCacheReceiver(request) : null;
-        if (cacheReceiver != null) { // cacheable
-            // https://tools.ietf.org/html/rfc7234#section-4.3.4
-            cleanRequestFromCacheValidators(request);
-        } else {
-            cacheable.set(false);
-        }
-
-        PENDING_REQUESTS_GAUGE.inc();
-        healthStatus.incrementConnections();
-        return forwarder.request(request.getMethod())
-                .uri(request.getUri())
-                .send((req, out) -> {
-                    final HttpHeaders copy = request.getRequestHeaders().copy();
-                    // Strip hop-by-hop headers before forwarding to the backend (RFC 2616 §13.5.1, RFC 7230 §6.1).
-                    // This also ensures compliance with HTTP/2 which prohibits connection-specific headers (RFC 9113 §8.2.2).
-                    HttpUtils.stripHopByHopHeaders(copy);
-                    // HTTP2-Settings is connection-specific and must not be forwarded (RFC 7540 §3.2)
-                    copy.remove(Http2CodecUtil.HTTP_UPGRADE_SETTINGS_HEADER);
-                    req.headers(copy);
-                    // netty overrides the value, we need to force it
-                    req.header(HttpHeaderNames.HOST, request.getRequestHostname());
-                    return out.send(request.getRequestData()); // client request body
-                })
-                .response((resp, flux) -> { // endpoint response
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug(
-                                "Receive response from backend for {} Using client id {}_{} uri{} timestamp {} Backend: {}",
-                                request.getRemoteAddress(),
-                                key,
-                                connectionId,
-                                request.getUri(),
-                                DATE_TIME_FORMATTER.format(LocalDateTime.now()),
-                                request.getAction().getHost()
-                        );
-                    }
-
-                    request.setResponseStatus(resp.status());
-                    final HttpHeaders responseHeaders = resp.responseHeaders().copy();
-                    HttpUtils.stripHopByHopHeaders(responseHeaders);
-                    request.setResponseHeaders(responseHeaders);
-                    if (cacheable.get() && parent.getCache().isCacheable(resp) && Objects.requireNonNull(cacheReceiver).receivedFromRemote(resp)) {
-                        addCachedResponseHeaders(request);
-                    } else {
-                        cacheable.set(false);
-                    }
-                    applyCustomResponseHeaders(request);
-
-                    if (aggregateChunksForLegacyHttp(request)) {
-                        return request.sendResponseData(flux.aggregate().retain().map(ByteBuf::asByteBuf)
-                                .doOnNext(data -> {
-                                    request.setLastActivity(System.currentTimeMillis());
-                                    endpointStats.getLastActivity().set(System.currentTimeMillis());
-                                    if (cacheable.get()) {
-                                        Objects.requireNonNull(cacheReceiver).receivedFromRemote(data, parent.getCachePoolAllocator());
-                                    }
-                                }).doOnSuccess(data -> {
-                                    if (cacheable.get()) {
-                                        parent.getCache().cacheContent(cacheReceiver);
-                                    }
-                                }));
-                    }
-
-                    return request.sendResponseData(flux.retain().doOnNext(data -> { // response data
-                        request.setLastActivity(System.currentTimeMillis());
-                        endpointStats.getLastActivity().set(System.currentTimeMillis());
-                        if (cacheable.get()) {
-                            Objects.requireNonNull(cacheReceiver).receivedFromRemote(data, parent.getCachePoolAllocator());
+        final AtomicBoolean cacheable = context.cacheable;
+        final ContentsCache.ContentReceiver cacheReceiver = context.cacheReceiver;
+        // the time waited in the fair queue is not part of the response time of the backend
+        final AtomicLong attemptStartTs = new AtomicLong(System.currentTimeMillis());
+        final CircuitBreaker circuitBreaker = healthStatus.getCircuitBreaker();
+        final AtomicBoolean outcomeRecorded = new AtomicBoolean();
+        final AtomicBoolean ended = new AtomicBoolean();
+        context.inFlight.incrementAndGet();
+        // a connection is counted only once the exchange is admitted, not while it waits in the fair queue
+        final Flux<Void> exchange = Flux.defer(() -> {
+            attemptStartTs.set(System.currentTimeMillis());
+            healthStatus.incrementConnections();
+            return forwarder.request(request.getMethod())
+                    .uri(request.getUri())
+                    .send((req, out) -> {
+                        final HttpHeaders copy = request.getRequestHeaders().copy();
+                        // Strip hop-by-hop headers before forwarding to the backend (RFC 2616 §13.5.1, RFC 7230 §6.1).
+                        // This also ensures compliance with HTTP/2 which prohibits connection-specific headers (RFC 9113 §8.2.2).
+                        HttpUtils.stripHopByHopHeaders(copy);
+                        // HTTP2-Settings is connection-specific and must not be forwarded (RFC 7540 §3.2)
+                        copy.remove(Http2CodecUtil.HTTP_UPGRADE_SETTINGS_HEADER);
+                        req.headers(copy);
+                        // netty overrides the value, we need to force it
+                        req.header(HttpHeaderNames.HOST, request.getRequestHostname());
+                        // the client request body can be consumed only once: replayed requests are body-less
+                        return out.send(replay ? Mono.empty() : request.getRequestData());
+                    })
+                    .response((resp, flux) -> { // endpoint response
+                        if (outcomeRecorded.compareAndSet(false, true)) {
+                            final long elapsed = System.currentTimeMillis() - attemptStartTs.get();
+                            final ConcurrencyLimiter concurrencyLimiter = healthStatus.getConcurrencyLimiter();
+                            if (BACKEND_FAILURE_STATUSES.contains(resp.status())) {
+                                circuitBreaker.onFailure(elapsed);
+                                concurrencyLimiter.onDropped();
+                            } else {
+                                circuitBreaker.onSuccess(elapsed);
+                                concurrencyLimiter.onSample(elapsed, concurrencyLimiter.getInFlight());
+                            }
+                            concurrencyLimiter.release();
+                        }
+                        // every response is a sample, even a discarded one, otherwise the slow backends would be left out
+                        if (action.getHedgePercentile() > 0) {
+                            latencyTracker.record(action.getRouteId(), System.currentTimeMillis() - attemptStartTs.get());
+                        }
+                        if (!context.claim(won)) {
+                            // another attempt is already serving the client, this response is discarded
+                            return Mono.empty();
                         }
-                    }).doOnComplete(() -> {
+                        request.setAction(action);
                         if (LOGGER.isDebugEnabled()) {
                             LOGGER.debug(
-                                    "Send all response to client {} Using client id {}_{} for uri {} timestamp {} Backend: {}",
+                                    "Receive response from backend for {} Using client id {}_{} uri{} timestamp {} Backend: {}",
                                     request.getRemoteAddress(),
                                     key,
                                     connectionId,
                                     request.getUri(),
                                     DATE_TIME_FORMATTER.format(LocalDateTime.now()),
-                                    request.getAction().getHost()
+                                    key.host()
                             );
                         }
-                        if (cacheable.get()) {
-                            parent.getCache().cacheContent(cacheReceiver);
+
+                        request.setResponseStatus(resp.status());
+                        final HttpHeaders responseHeaders = resp.responseHeaders().copy();
+                        HttpUtils.stripHopByHopHeaders(responseHeaders);
+                        request.setResponseHeaders(responseHeaders);
+                        if (cacheable.get() && parent.getCache().isCacheable(resp) && Objects.requireNonNull(cacheReceiver).receivedFromRemote(resp)) {
+                            addCachedResponseHeaders(request);
+                        } else {
+                            cacheable.set(false);
+                        }
+                        applyCustomResponseHeaders(request);
+
+                        if (aggregateChunksForLegacyHttp(request)) {
+                            return request.sendResponseData(flux.aggregate().retain().map(ByteBuf::asByteBuf)
+                                    .doOnNext(data -> {
+                                        request.setLastActivity(System.currentTimeMillis());
+                                        endpointStats.getLastActivity().set(System.currentTimeMillis());
+                                        if (cacheable.get()) {
+                                            Objects.requireNonNull(cacheReceiver).receivedFromRemote(data, parent.getCachePoolAllocator());
+                                        }
+                                    }).doOnSuccess(data -> {
+                                        if (cacheable.get()) {
+                                            parent.getCache().cacheContent(cacheReceiver);
+                                        }
+                                    }));
+                        }
+
+                        return request.sendResponseData(flux.retain().doOnNext(data -> { // response data
+                            request.setLastActivity(System.currentTimeMillis());
+                            endpointStats.getLastActivity().set(System.currentTimeMillis());
+                            if (cacheable.get()) {
+                                Objects.requireNonNull(cacheReceiver).receivedFromRemote(data, parent.getCachePoolAllocator());
+                            }
+                        }).doOnComplete(() -> {
+                            if (LOGGER.isDebugEnabled()) {
+                                LOGGER.debug(
+                                        "Send all response to client {} Using client id {}_{} for uri {} timestamp {} Backend: {}",
+                                        request.getRemoteAddress(),
+                                        key,
+                                        connectionId,
+                                        request.getUri(),
+                                        DATE_TIME_FORMATTER.format(LocalDateTime.now()),
+                                        key.host()
+                                );
+                            }
+                            if (cacheable.get()) {
+                                parent.getCache().cacheContent(cacheReceiver);
+                            }
+                        }));
+                    })
+                    .doFinally(signal -> healthStatus.decrementConnections());
+        });
+        return admit(connectionConfig, connectionProvider, partition, key, request, action, exchange)
+                // decrement once per attempt: success and error callbacks can both fire (headers ok, body fails)
+                .doFinally(signal -> context.end(ended))
+                .onErrorResume(err -> { // custom endpoint request/response error handling
+                    if (err instanceof FairQueue.AdmissionTimeoutException) {
+                        // the backend was never reached: neither its circuit breaker nor its concurrency limit are affected
+                        if (outcomeRecorded.compareAndSet(false, true)) {
+                            healthStatus.releaseCall();
                         }
-                    }));
-                }).onErrorResume(err -> { // custom endpoint request/response error handling
-                    final EndpointKey endpoint = EndpointKey.make(request.getAction().getHost(), request.getAction().getPort());
+                        LOGGER.debug("Request {} not admitted to endpoint {}: {}", request.getUri(), key, err.getMessage());
+                        return serveAttemptError(context, action, won, ended, this::serveServiceUnavailable);
+                    }
+                    if (outcomeRecorded.compareAndSet(false, true)) {
+                        circuitBreaker.onFailure(System.currentTimeMillis() - attemptStartTs.get());
+                        healthStatus.getConcurrencyLimiter().onDropped();
+                        healthStatus.getConcurrencyLimiter().release();
+                    }
                     if (err instanceof ReadTimeoutException) {
                         STUCK_REQUESTS_COUNTER.inc();
-                        LOGGER.error("Read timeout error occurred for endpoint {}; request: {}", endpoint, request);
+                        LOGGER.error("Read timeout error occurred for endpoint {}; request: {}", key, request);
                         if (parent.getCurrentConfiguration().isBackendsUnreachableOnStuckRequests()) {
                             parent.getBackendHealthManager().reportBackendUnreachable(
-                                    endpoint, System.currentTimeMillis(), "Error: " + err
+                                    key, System.currentTimeMillis(), "Error: " + err
                             );
                         }
-                        return serveInternalErrorMessage(request);
+                        return serveAttemptError(context, action, won, ended, this::serveInternalErrorMessage);
                     }
 
-                    LOGGER.error("Error proxying request for endpoint {}; request: {}", endpoint, request, err);
+                    LOGGER.error("Error proxying request for endpoint {}; request: {}", key, request, err);
                     if (err instanceof ConnectException) {
                         parent.getBackendHealthManager().reportBackendUnreachable(
-                                endpoint, System.currentTimeMillis(), "Error: " + err
+                                key, System.currentTimeMillis(), "Error: " + err
                         );
+                        final MapResult retry = context.canRetry() ? nextFallback(context) : null;
+                        if (retry != null) {
+                            if (retryBudget.tryAcquire()) {
+                                RETRIED_REQUESTS_COUNTER.inc();
+                                LOGGER.info("Retrying request {} on backend {}:{} after connection failure to {}", request.getUri(), retry.getHost(), retry.getPort(), key);
+                                final Mono<Void> retryAttempt = forwardAttempt(context, retry, retry.getHealthStatus(), true, won);
+                                // the retry is in flight before this attempt ends, so that its failure is served as the last one
+                                context.end(ended);
+                                return retryAttempt;
+                            }
+                            RETRY_BUDGET_EXHAUSTED_COUNTER.inc();
+                            retry.getHealthStatus().releaseCall();
+                        }
                     }
-                    return serveServiceUnavailable(request);
+                    return serveAttemptError(context, action, won, ended, this::serveServiceUnavailable);
                 })
-                // decrement once per request: success and error callbacks can both fire (headers ok, body fails)
-                .doFinally(signal -> {
-                    PENDING_REQUESTS_GAUGE.dec();
-                    healthStatus.decrementConnections();
-                });
+                // a cancelled attempt (the other one won, or the client left) will never report its outcome
+                .doOnCancel(() -> {
+                    if (outcomeRecorded.compareAndSet(false, true)) {
+                        healthStatus.releaseCall();
+                    }
+                })
+                .then();
+    }
+
+    /**
+     * When fair queuing is enabled, the exchange waits for its turn in the {@link FairQueue} of the connection pool
+     * of the endpoint, so that a tenant bursting requests cannot starve the others once the pool is exhausted.
+     * With colocated connections, every partition of the pool has its own queue, as large as the partition.
+     */
+    private Flux<Void> admit(
+            final ConnectionPoolConfiguration connectionConfig,
+            final ConnectionProvider connectionProvider,
+            final int partition,
+            final EndpointKey key,
+            final ProxyRequest request,
+            final MapResult action,
+            final Flux<Void> exchange) {
+        final FairQueuingConfiguration configuration = parent.getCurrentConfiguration().getFairQueuingConfiguration();
+        if (!configuration.enabled()) {
+            return exchange;
+        }
+        final String tenant = configuration.tenantOf(request.getUserId(), action.getRouteId());
+        final String id = connectionConfig.getId() + "_" + partition + "_" + key.host() + "_" + key.port();
+        return Flux.defer(() -> {
+            final AtomicReference<Flux<Void>> admission = new AtomicReference<>();
+            fairQueues.compute(id, (k, queue) -> {
+                final FairQueue current = queue != null ? queue : new FairQueue(key.host() + "_" + key.port());
+                admission.set(current.enter(
+                        tenant,
+                        configuration.shareOf(tenant),
+                        connectionProvider.maxConnections(),
+                        Duration.ofMillis(connectionConfig.getBorrowTimeout()),
+                        exchange
+                ));
+                return current;
+            });
+            return admission.get();
+        });
+    }
+
+    /**
+     * Serve the error of a failed attempt, unless another attempt of the same request is still able to serve the client.
+     * The attempt ends before checking the others, so that when the last ones fail together exactly one of them serves the error.
+     */
+    private Publisher<Void> serveAttemptError(
+            final ForwardContext context,
+            final MapResult action,
+            final Sinks.One<Boolean> won,
+            final AtomicBoolean ended,
+            final Function<ProxyRequest, Publisher<Void>> errorPage) {
+        final boolean last = context.end(ended) == 0;
+        if (!context.isClaimedBy(won) && (!last || !context.claim(won))) {
+            return Mono.empty();
+        }
+        context.request.setAction(action);
+        return errorPage.apply(context.request);
+    }
+
+    /**
+     * Pick the next usable fallback backend of the request, acquiring the call to it.
+     *
+     * @return the mapping of the request to the fallback backend, or null if there is none
+     */
+    private MapResult nextFallback(final ForwardContext context) {
+        final MapResult action = Objects.requireNonNull(context.request.getAction());
+        final List<EndpointKey> fallbacks = action.getFallbacks();
+        int index;
+        while ((index = context.nextFallback.getAndIncrement()) < fallbacks.size()) {
+            final EndpointKey fallback = fallbacks.get(index);
+            final BackendHealthStatus status = parent.getBackendHealthManager().getBackendStatus(fallback);
+            if (status.getStatus() != BackendHealthStatus.Status.DOWN
+                    && status.tryAcquireCall()) {
+                return action.toBuilder()
+                        .host(fallback.host())
+                        .port(fallback.port())
+                        .ssl(parent.getBackendConfiguration(fallback).ssl())
+                        .healthStatus(status)
+                        .build();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isReplayable(final ProxyRequest request) {
+        return IDEMPOTENT_METHODS.contains(request.getMethod()) && !HttpUtils.mayHaveBody(request.getRequestHeaders());
+    }
+
+    /**
+     * Make sure that every pool with a {@link ConnectionPoolConfiguration#getMinIdle() min-idle} setting holds at least
+     * that many connections to the backend, with TLS already negotiated.
+     * <p>
+     * As many concurrent HEAD requests to the probe path of the backend are sent,
+     * so that each of them needs its own connection; the connections go back to the pool as idle ones.
+     * Pools already holding enough connections just reuse them.
+     *
+     * @param backend the backend to connect to
+     */
+    public void warmUp(final BackendConfiguration backend) {
+        final boolean colocation = parent.getCurrentConfiguration().isConnectionsColocation();
+        final List<InboundLoop> loops = getInboundLoops();
+        connectionsManager.getConnectionPools().forEach((connectionConfig, connectionProvider) -> {
+            if (connectionConfig.getMinIdle() <= 0) {
+                return;
+            }
+            if (!colocation || loops.size() <= 1) {
+                warmUp(backend, connectionConfig, connectionProvider, connectionConfig.getMinIdle(), null);
+                return;
+            }
+            // every partition is warmed up from its own event loop, the connections are bound to it
+            final int minIdle = Math.ceilDiv(connectionConfig.getMinIdle(), loops.size());
+            for (int i = 0; i < loops.size(); i++) {
+                final ConnectionProvider partition = connectionsManager.getConnectionProvider(connectionConfig, i, loops.size());
+                final InboundLoop loop = loops.get(i);
+                loop.eventLoop().execute(() -> warmUp(backend, connectionConfig, partition, minIdle, loop.colocatedGroup()));
+            }
+        });
+    }
+
+    private void warmUp(
+            final BackendConfiguration backend,
+            final ConnectionPoolConfiguration connectionConfig,
+            final ConnectionProvider connectionProvider,
+            final int connections,
+            final EventLoopGroup colocatedGroup) {
+        final String path = StringUtils.isBlank(backend.probePath()) ? "/" : backend.probePath();
+        final HttpClient client = configureClient(
+                getClient(connectionProvider, backend, getClientProtocols(backend.ssl(), false)),
+                connectionConfig,
+                colocatedGroup
+        );
+        LOGGER.debug("Warming up {} connections to backend {} in connection pool {}", connections, backend.hostPort(), connectionConfig.getId());
+        Flux.range(0, connections)
+                .flatMap(i -> client.head()
+                        .uri(path)
+                        .response()
+                        .doOnSuccess(resp -> WARMUP_REQUESTS_COUNTER.labels(backend.host() + "_" + backend.port()).inc())
+                        .onErrorResume(err -> {
+                            LOGGER.debug("Cannot warm up connections to backend {} in connection pool {}: {}", backend.hostPort(), connectionConfig.getId(), err.toString());
+                            return Mono.empty();
+                        }), connections)
+                .subscribe();
     }
 
     /**
@@ -592,36 +866,91 @@ public class ProxyRequestsManager implements AutoCloseable {
      *
      * @param connectionProvider the connection provider to use
      * @param request            the request object
+     * @param endpoint           the backend endpoint to connect to
      * @return a configured HttpClient
      */
-    private HttpClient getClient(final ConnectionProvider connectionProvider, final ProxyRequest request) {
-        final EndpointKey endpoint = EndpointKey.make(request.getAction().getHost(), request.getAction().getPort());
+    private HttpClient getClient(final ConnectionProvider connectionProvider, final ProxyRequest request, final EndpointKey endpoint) {
         final BackendConfiguration backend = parent.getBackendConfiguration(endpoint);
+        return getClient(connectionProvider, backend, getClientProtocols(backend.ssl(), HttpUtils.mayHaveBody(request.getRequestHeaders())));
+    }
+
+    private HttpClient getClient(final ConnectionProvider connectionProvider, final BackendConfiguration backend, final HttpProtocol[] protocols) {
+        final EndpointKey endpoint = backend.hostPort();
         final boolean secure = backend.ssl();
         final HttpClient httpClient = HttpClient.create(connectionProvider)
                 .host(endpoint.host())
                 .port(endpoint.port())
-                .protocol(getClientProtocols(secure, request));
+                .protocol(protocols);
         if (secure) {
-            final String caCertificatePath = backend.caCertificatePath();
-            final SslContext sslContext;
-            if (!StringUtils.isBlank(caCertificatePath) && clientSslContexts.containsKey(caCertificatePath)) {
-                sslContext = clientSslContexts.get(caCertificatePath);
-            } else {
-                sslContext = clientSslContexts.get(DEFAULT_KEY);
-            }
-            final SslContext finalSslContext = sslContext;
-            return httpClient.secure(spec -> spec.sslContext(finalSslContext));
+            final SslContext sslContext = clientSslContexts.get(backend);
+            return httpClient
+                    .secure(spec -> spec.sslContext(sslContext))
+                    .doOnChannelInit((observer, channel, remoteAddress) -> BackendSslContexts.watchHandshake(channel, backend));
         }
         return httpClient;
     }
 
-    private HttpProtocol[] getClientProtocols(final boolean secure, final ProxyRequest request) {
+    /**
+     * Settings of the connections to the backends, shared by proxied requests and warm-up requests;
+     * connections are pooled per client configuration, so the two must be the same.
+     * Colocated connections run on the colocated view of the group of the inbound event loop, {@code null} otherwise.
+     */
+    private HttpClient configureClient(final HttpClient client, final ConnectionPoolConfiguration connectionConfig, final EventLoopGroup colocatedGroup) {
+        final TransportType transport = parent.getEventLoops().getTransport();
+        return client
+                .followRedirect(false) // the client is the one that should follow the redirect, not the proxy
+                .runOn(parent.getEventLoops().getClientLoopResources(colocatedGroup != null ? colocatedGroup : parent.getEventLoopGroup()))
+                .compress(parent.getCurrentConfiguration().isRequestCompressionEnabled())
+                .responseTimeout(Duration.ofMillis(connectionConfig.getStuckRequestTimeout()))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectionConfig.getConnectTimeout())
+                // Enables TCP keepalive: TCP starts sending keepalive probes when a connection is idle for some time.
+                .option(ChannelOption.SO_KEEPALIVE, connectionConfig.isKeepAlive())
+                .option(transport.tcpKeepIdle(), connectionConfig.getKeepaliveIdle())
+                .option(transport.tcpKeepInterval(), connectionConfig.getKeepaliveInterval())
+                .option(transport.tcpKeepCount(), connectionConfig.getKeepaliveCount())
+                .httpResponseDecoder(option -> option.maxHeaderSize(parent.getCurrentConfiguration().getMaxHeaderSize()));
+    }
+
+    /**
+     * The event loops serving inbound requests: the worker ones, then the TLS ones when they have their own group.
+     * Each one gets a partition of the colocated pools.
+     */
+    private List<InboundLoop> getInboundLoops() {
+        List<InboundLoop> loops = inboundLoops;
+        if (loops == null) {
+            final List<InboundLoop> found = new ArrayList<>();
+            final EventLoopGroup workerGroup = parent.getEventLoopGroup();
+            addInboundLoops(workerGroup, found);
+            final EventLoopGroup sslGroup = parent.getEventLoops().getSslGroup();
+            if (sslGroup != workerGroup) {
+                addInboundLoops(sslGroup, found);
+            }
+            inboundLoops = loops = List.copyOf(found);
+        }
+        return loops;
+    }
+
+    private static void addInboundLoops(final EventLoopGroup group, final List<InboundLoop> loops) {
+        // new connections are opened on the calling event loop, when it belongs to the group
+        final EventLoopGroup colocatedGroup = LoopResources.colocate(group);
+        group.forEach(executor -> loops.add(new InboundLoop(executor, colocatedGroup)));
+    }
+
+    private static int currentInboundLoopIndex(final List<InboundLoop> loops) {
+        for (int i = 0; i < loops.size(); i++) {
+            if (loops.get(i).eventLoop().inEventLoop()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private HttpProtocol[] getClientProtocols(final boolean secure, final boolean mayHaveBody) {
         if (secure) {
             // ALPN handles negotiation safely
             return new HttpProtocol[]{HttpProtocol.H2, HttpProtocol.HTTP11};
         }
-        if (HttpUtils.mayHaveBody(request.getRequestHeaders())) {
+        if (mayHaveBody) {
             // H2C uses "Upgrade" header; RFC 7540 forbids "Upgrade: h2c" if the request has a body.
             return new HttpProtocol[]{HttpProtocol.HTTP11};
         }
@@ -655,6 +984,25 @@ public class ProxyRequestsManager implements AutoCloseable {
         return writeSimpleResponse(request, response, customHeaders);
     }
 
+    /**
+     * Only requests that would reach a backend are shed: local responses (static, redirects, ACME challenges...)
+     * are cheap to serve, and routes like health checks can be exempted explicitly.
+     */
+    private boolean isShed(final MapResult action) {
+        final OverloadController overloadController = parent.getOverloadController();
+        return overloadController.isOverloaded() && !overloadController.isExempt(action.getRouteId());
+    }
+
+    private Publisher<Void> serveOverloaded(ProxyRequest request) {
+        OverloadController.SHED_REQUESTS_COUNTER.inc();
+        // the default page is loaded once and shared, no mapper lookup is done while overloaded
+        final FullHttpResponse response = parent
+                .getStaticContentsManager()
+                .buildResponse(HttpStatus.SC_SERVICE_UNAVAILABLE, StaticContentsManager.DEFAULT_SERVICE_UNAVAILABLE_ERROR, request.getHttpProtocol());
+        response.headers().set(HttpHeaderNames.RETRY_AFTER, 1);
+        return writeSimpleResponse(request, response, List.of());
+    }
+
     private void addCachedResponseHeaders(ProxyRequest request) {
         HttpHeaders headers = request.getResponseHeaders();
         if (!headers.contains(HttpHeaderNames.EXPIRES)) {
@@ -707,4 +1055,79 @@ public class ProxyRequestsManager implements AutoCloseable {
     public ConnectionsManager getConnectionsManager() {
         return connectionsManager;
     }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * Drop the latency samples of the routes no longer configured.
+     *
+     * @param routes the routes of the new mapper
+     */
+    public void retainRoutes(final List<RouteConfiguration> routes) {
+        latencyTracker.retain(routes.stream().map(RouteConfiguration::getId).collect(Collectors.toSet()));
+    }
+
+    /**
+     * State shared by the attempts forwarding the same client request: the original one, its retries and the hedged one.
+     * Only the first attempt claiming the request writes the response to the client.
+     */
+    private static final class ForwardContext {
+
+        private final ProxyRequest request;
+        private final AtomicBoolean cacheable;
+        private final ContentsCache.ContentReceiver cacheReceiver;
+        private final AtomicInteger retriesLeft;
+        private final AtomicInteger nextFallback = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicReference<Sinks.One<Boolean>> owner = new AtomicReference<>();
+
+        private ForwardContext(
+                final ProxyRequest request,
+                final AtomicBoolean cacheable,
+                final ContentsCache.ContentReceiver cacheReceiver,
+                final int maxRetries) {
+            this.request = request;
+            this.cacheable = cacheable;
+            this.cacheReceiver = cacheReceiver;
+            this.retriesLeft = new AtomicInteger(maxRetries);
+        }
+
+        /**
+         * End an attempt, once.
+         *
+         * @param ended whether the attempt already ended
+         * @return the attempts still in flight
+         */
+        private int end(final AtomicBoolean ended) {
+            return ended.compareAndSet(false, true) ? inFlight.decrementAndGet() : inFlight.get();
+        }
+
+        private boolean claim(final Sinks.One<Boolean> attempt) {
+            if (owner.compareAndSet(null, attempt)) {
+                // cancel the competing attempt, if any
+                attempt.tryEmitValue(true);
+                return true;
+            }
+            return owner.get() == attempt;
+        }
+
+        private boolean isClaimed() {
+            return owner.get() != null;
+        }
+
+        private boolean isClaimedBy(final Sinks.One<Boolean> attempt) {
+            return owner.get() == attempt;
+        }
+
+        private boolean canRetry() {
+            return !isClaimed()
+                    && !request.getResponse().hasSentHeaders()
+                    && retriesLeft.getAndDecrement() > 0;
+        }
+    }
+
+    private record InboundLoop(EventExecutor eventLoop, EventLoopGroup colocatedGroup) {
+    }
 }
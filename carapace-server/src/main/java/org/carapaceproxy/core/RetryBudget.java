@@ -0,0 +1,94 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget limiting the retries and the hedged requests sent to the backends.
+ * <p>
+ * It works as a token bucket shared by all the routes and backends of the proxy:
+ * every forwarded request earns a fraction of a token, every retry or hedged request spends a whole one;
+ * this way, when backends start failing, the extra load caused by retries is capped
+ * to a percentage of the regular traffic instead of multiplying it.
+ */
+public class RetryBudget {
+
+    public static final int DEFAULT_PERCENT = 10;
+    public static final int DEFAULT_BURST = 100;
+
+    private static final long TOKEN = 1_000; // balance is kept in thousandths of a token
+
+    private final AtomicLong balance = new AtomicLong();
+    private volatile long credit;
+    private volatile long capacity;
+
+    public RetryBudget() {
+        this(DEFAULT_PERCENT, DEFAULT_BURST);
+    }
+
+    RetryBudget(final int percent, final int burst) {
+        configure(percent, burst);
+        balance.set(capacity);
+    }
+
+    public void reloadConfiguration(final RuntimeServerConfiguration newConfiguration) {
+        configure(newConfiguration.getRetryBudgetPercent(), newConfiguration.getRetryBudgetBurst());
+    }
+
+    private void configure(final int percent, final int burst) {
+        this.credit = percent * TOKEN / 100;
+        this.capacity = burst * TOKEN;
+        balance.accumulateAndGet(capacity, Math::min);
+    }
+
+    /**
+     * Earn the credit of a forwarded request.
+     */
+    public void deposit() {
+        final long max = capacity;
+        balance.accumulateAndGet(credit, (current, value) -> Math.min(current + value, max));
+    }
+
+    /**
+     * Spend a token for a retry or a hedged request.
+     *
+     * @return true if the budget allows the additional request
+     */
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    /**
+     * Get the number of whole tokens currently available.
+     *
+     * @return available retries
+     */
+    public long getAvailableTokens() {
+        return balance.get() / TOKEN;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracker of the time the backends take to send the response headers, for each route.
+ * <p>
+ * It keeps a sliding window of the latest samples and computes the percentiles
+ * used as the delay before hedging a slow request on another backend.
+ */
+public class RouteLatencyTracker {
+
+    static final int WINDOW_SIZE = 1_024;
+    static final int MIN_SAMPLES = 100;
+    private static final int RECOMPUTE_INTERVAL = 64; // samples recorded before sorting the window again
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public void record(final String routeId, final long millis) {
+        windows.computeIfAbsent(routeId, k -> new Window()).add(millis);
+    }
+
+    /**
+     * Drop the windows of the routes not in the given ones.
+     *
+     * @param routeIds the routes to keep
+     */
+    public void retain(final Set<String> routeIds) {
+        windows.keySet().retainAll(routeIds);
+    }
+
+    /**
+     * Get a percentile of the latency of a route.
+     *
+     * @param routeId    the route
+     * @param percentile the percentile, between 1 and 99
+     * @return the latency in milliseconds, or -1 if there are not enough samples yet
+     */
+    public long getPercentile(final String routeId, final int percentile) {
+        final Window window = windows.get(routeId);
+        return window == null ? -1 : window.percentile(percentile);
+    }
+
+    private static final class Window {
+
+        private final long[] samples = new long[WINDOW_SIZE];
+        private int count;
+        private int next;
+        private long[] sorted;
+        private int recordedSinceSort;
+
+        synchronized void add(final long millis) {
+            samples[next] = millis;
+            next = (next + 1) % WINDOW_SIZE;
+            if (count < WINDOW_SIZE) {
+                count++;
+            }
+            recordedSinceSort++;
+        }
+
+        synchronized long percentile(final int percentile) {
+            if (count < MIN_SAMPLES) {
+                return -1;
+            }
+            if (sorted == null || recordedSinceSort >= RECOMPUTE_INTERVAL) {
+                sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                recordedSinceSort = 0;
+            }
+            final int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+}
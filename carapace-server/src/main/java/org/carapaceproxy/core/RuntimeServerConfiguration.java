@@ -31,13 +31,14 @@ import static org.carapaceproxy.server.config.ConnectionPoolConfiguration.DEFAUL
 import static org.carapaceproxy.server.config.ConnectionPoolConfiguration.DEFAULT_KEEPALIVE_INTERVAL;
 import static org.carapaceproxy.server.config.ConnectionPoolConfiguration.DEFAULT_MAX_CONNECTIONS_PER_ENDPOINT;
 import static org.carapaceproxy.server.config.ConnectionPoolConfiguration.DEFAULT_MAX_LIFETIME;
+import static org.carapaceproxy.server.config.ConnectionPoolConfiguration.DEFAULT_MIN_IDLE;
 import static org.carapaceproxy.server.config.ConnectionPoolConfiguration.DEFAULT_STUCK_REQUEST_TIMEOUT;
+import static org.carapaceproxy.server.config.NetworkListenerConfiguration.DEFAULT_ACCEPTORS;
 import static org.carapaceproxy.server.config.NetworkListenerConfiguration.DEFAULT_FORWARDED_STRATEGY;
+import static org.carapaceproxy.server.config.NetworkListenerConfiguration.DEFAULT_REUSE_PORT;
 import static org.carapaceproxy.server.config.NetworkListenerConfiguration.DEFAULT_SSL_PROTOCOLS;
 import static org.carapaceproxy.server.config.NetworkListenerConfiguration.getDefaultHttpProtocols;
 import static org.carapaceproxy.server.filters.RequestFilterFactory.buildRequestFilter;
-import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.util.concurrent.DefaultEventExecutor;
 import java.io.File;
 import java.security.NoSuchAlgorithmException;
 import java.sql.Timestamp;
@@ -53,8 +54,13 @@ import java.util.stream.Collectors;
 import javax.net.ssl.SSLContext;
 import lombok.Data;
 import org.carapaceproxy.configstore.ConfigurationStore;
+import org.carapaceproxy.server.certificates.KeyPairsType;
+import org.carapaceproxy.server.certificates.SessionTicketKeysManager;
+import org.carapaceproxy.server.config.CircuitBreakerConfiguration;
+import org.carapaceproxy.server.config.ConcurrencyLimiterConfiguration;
 import org.carapaceproxy.server.config.ConfigurationNotValidException;
 import org.carapaceproxy.server.config.ConnectionPoolConfiguration;
+import org.carapaceproxy.server.config.FairQueuingConfiguration;
 import org.carapaceproxy.server.config.NetworkListenerConfiguration;
 import org.carapaceproxy.server.config.RequestFilterConfiguration;
 import org.carapaceproxy.server.config.SSLCertificateConfiguration;
@@ -102,6 +108,8 @@ public class RuntimeServerConfiguration {
     private int keepaliveInterval = DEFAULT_KEEPALIVE_INTERVAL; // sec
     private int keepaliveCount = DEFAULT_KEEPALIVE_COUNT;
     private boolean clientKeepAlive = DEFAULT_KEEPALIVE;
+    private int minIdle = DEFAULT_MIN_IDLE;
+    private boolean connectionsColocation = false;
     private boolean serverKeepAlive = DEFAULT_KEEPALIVE;
     private int maxKeepAliveRequests = 1000;
     private long cacheMaxSize = 0;
@@ -127,21 +135,35 @@ public class RuntimeServerConfiguration {
     private boolean tolerant = false;
     private int dynamicCertificatesManagerPeriod = 0;
     private int keyPairsSize = DEFAULT_KEYPAIRS_SIZE;
+    private KeyPairsType keyPairsType = KeyPairsType.RSA;
     private Set<String> domainsCheckerIPAddresses;
     private Set<String> supportedSSLProtocols = null;
     private int ocspStaplingManagerPeriod = 0;
+    private int sessionTicketKeysRotationPeriod = SessionTicketKeysManager.DEFAULT_ROTATION_PERIOD;
     private int clientsIdleTimeoutSeconds = 120;
+    private int clientsDrainTimeoutSeconds = 30;
     private int responseCompressionThreshold; // bytes; default (0) enabled for all requests
     private boolean requestCompressionEnabled = true;
     private String sslTrustStoreFile;
     private String sslTrustStorePassword;
     private boolean ocspEnabled = false;
+    private int sslContextsCacheMaxSize = SslContextsCache.DEFAULT_MAX_SIZE;
     private int maxHeaderSize = 8_192; //bytes; default 8kb
     private boolean maintenanceModeEnabled = false;
     private boolean http10BackwardCompatibilityEnabled = false;
     private String localCertificatesStorePath;
     private Set<String> localCertificatesStorePeersIds;
     private int maxAttempts = DEFAULT_MAX_CONNECTIONS_PER_ENDPOINT;
+    private int retryBudgetPercent = RetryBudget.DEFAULT_PERCENT;
+    private int retryBudgetBurst = RetryBudget.DEFAULT_BURST;
+    private CircuitBreakerConfiguration circuitBreakerConfiguration = CircuitBreakerConfiguration.DISABLED;
+    private ConcurrencyLimiterConfiguration concurrencyLimiterConfiguration = ConcurrencyLimiterConfiguration.DISABLED;
+    private FairQueuingConfiguration fairQueuingConfiguration = FairQueuingConfiguration.DISABLED;
+    private boolean overloadProtectionEnabled = false;
+    private long overloadLagTarget = OverloadController.DEFAULT_LAG_TARGET;
+    private long overloadInterval = OverloadController.DEFAULT_INTERVAL;
+    private int overloadMaxPendingTasks = OverloadController.DEFAULT_MAX_PENDING_TASKS;
+    private Set<String> overloadExemptRoutes = Set.of();
     private Set<String> alwaysCachedExtensions = Set.of("png", "gif", "jpg", "jpeg", "js", "css", "woff2", "webp");
 
     public RuntimeServerConfiguration() {
@@ -158,7 +180,8 @@ public class RuntimeServerConfiguration {
                 keepaliveInterval,
                 keepaliveCount,
                 true,
-                true
+                true,
+                minIdle
         );
     }
 
@@ -192,6 +215,26 @@ public class RuntimeServerConfiguration {
         LOG.info("connectionsmanager.keepaliveinterval={}", keepaliveInterval);
         LOG.info("connectionsmanager.keepalivecount={}", keepaliveCount);
 
+        this.minIdle = properties.getInt("connectionsmanager.minidle", minIdle);
+        if (this.minIdle < 0 || this.minIdle > this.maxConnectionsPerEndpoint) {
+            throw new ConfigurationNotValidException("Invalid value '" + this.minIdle + "' for connectionsmanager.minidle");
+        }
+        LOG.info("connectionsmanager.minidle={}", minIdle);
+
+        this.connectionsColocation = properties.getBoolean("connectionsmanager.colocation", connectionsColocation);
+        LOG.info("connectionsmanager.colocation={}", connectionsColocation);
+
+        this.retryBudgetPercent = properties.getInt("connectionsmanager.retrybudget.percent", retryBudgetPercent);
+        if (this.retryBudgetPercent < 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + this.retryBudgetPercent + "' for connectionsmanager.retrybudget.percent");
+        }
+        this.retryBudgetBurst = properties.getInt("connectionsmanager.retrybudget.burst", retryBudgetBurst);
+        if (this.retryBudgetBurst < 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + this.retryBudgetBurst + "' for connectionsmanager.retrybudget.burst");
+        }
+        LOG.info("connectionsmanager.retrybudget.percent={}", retryBudgetPercent);
+        LOG.info("connectionsmanager.retrybudget.burst={}", retryBudgetBurst);
+
         this.mapperClassname = properties.getClassname("mapper.class", StandardEndpointMapper.class.getName());
         LOG.info("mapper.class={}", this.mapperClassname);
 
@@ -233,6 +276,10 @@ public class RuntimeServerConfiguration {
         configureListeners(properties);
         configureFilters(properties);
         configureConnectionPools(properties);
+        configureCircuitBreaker(properties);
+        configureConcurrencyLimiter(properties);
+        configureFairQueuing(properties);
+        configureOverloadProtection(properties);
 
         healthProbePeriod = properties.getInt("healthmanager.period", DEFAULT_PROBE_PERIOD);
         LOG.info("healthmanager.period={}", healthProbePeriod);
@@ -256,15 +303,32 @@ public class RuntimeServerConfiguration {
         LOG.info("dynamiccertificatesmanager.period={}", dynamicCertificatesManagerPeriod);
         keyPairsSize = properties.getInt("dynamiccertificatesmanager.keypairssize", DEFAULT_KEYPAIRS_SIZE);
         LOG.info("dynamiccertificatesmanager.keypairssize={}", keyPairsSize);
+        final String keyPairsTypeValue = properties.getString("dynamiccertificatesmanager.keypairs.type", keyPairsType.name());
+        try {
+            keyPairsType = KeyPairsType.fromConfiguration(keyPairsTypeValue);
+        } catch (IllegalArgumentException err) {
+            throw new ConfigurationNotValidException("Invalid value '" + keyPairsTypeValue + "' for dynamiccertificatesmanager.keypairs.type, allowed values are rsa and ec");
+        }
+        LOG.info("dynamiccertificatesmanager.keypairs.type={}", keyPairsType);
 
         domainsCheckerIPAddresses = properties.getValues("dynamiccertificatesmanager.domainschecker.ipaddresses");
         LOG.info("dynamiccertificatesmanager.domainschecker.ipaddresses={}", domainsCheckerIPAddresses);
 
         ocspStaplingManagerPeriod = properties.getInt("ocspstaplingmanager.period", 0);
         LOG.info("ocspstaplingmanager.period={}", ocspStaplingManagerPeriod);
+        sessionTicketKeysRotationPeriod = properties.getInt("sessionticketkeys.rotation.period", sessionTicketKeysRotationPeriod);
+        if (sessionTicketKeysRotationPeriod < 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + sessionTicketKeysRotationPeriod + "' for sessionticketkeys.rotation.period");
+        }
+        LOG.info("sessionticketkeys.rotation.period={}", sessionTicketKeysRotationPeriod);
 
         clientsIdleTimeoutSeconds = properties.getInt("clients.idle.timeout", clientsIdleTimeoutSeconds);
         LOG.info("clients.idle.timeout={}", clientsIdleTimeoutSeconds);
+        clientsDrainTimeoutSeconds = properties.getInt("clients.drain.timeout", clientsDrainTimeoutSeconds);
+        if (clientsDrainTimeoutSeconds < 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + clientsDrainTimeoutSeconds + "' for clients.drain.timeout");
+        }
+        LOG.info("clients.drain.timeout={}", clientsDrainTimeoutSeconds);
 
         responseCompressionThreshold = properties.getInt("response.compression.threshold", responseCompressionThreshold);
         LOG.info("response.compression.threshold={}", responseCompressionThreshold);
@@ -279,6 +343,11 @@ public class RuntimeServerConfiguration {
 
         ocspEnabled = properties.getBoolean("ocsp.enabled", ocspEnabled);
         LOG.info("ocsp.enabled={}", ocspEnabled);
+        sslContextsCacheMaxSize = properties.getInt("sslcontexts.cache.maxsize", sslContextsCacheMaxSize);
+        if (sslContextsCacheMaxSize <= 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + sslContextsCacheMaxSize + "' for sslcontexts.cache.maxsize");
+        }
+        LOG.info("sslcontexts.cache.maxsize={}", sslContextsCacheMaxSize);
 
         maxHeaderSize = properties.getInt("carapace.maxheadersize", maxHeaderSize);
         if (this.maxHeaderSize <= 0) {
@@ -313,8 +382,7 @@ public class RuntimeServerConfiguration {
     }
 
     private void configureCertificates(ConfigurationStore properties) throws ConfigurationNotValidException {
-        final var max = properties.findMaxIndexForPrefix("certificate");
-        for (int i = 0; i <= max; i++) {
+        for (int i : properties.findIndexesForPrefix("certificate")) {
             final var prefix = "certificate." + i + ".";
             final var hostname = properties.getString(prefix + "hostname", "");
             if (!hostname.isEmpty()) {
@@ -340,13 +408,16 @@ public class RuntimeServerConfiguration {
     }
 
     private void configureListeners(ConfigurationStore properties) throws ConfigurationNotValidException {
-        int max = properties.findMaxIndexForPrefix("listener");
-        for (int i = 0; i <= max; i++) {
+        for (int i : properties.findIndexesForPrefix("listener")) {
             final var prefix = "listener." + i + ".";
             final var port = properties.getInt(prefix + "port", 0);
             if (port > 0) {
                 final var ssl = properties.getBoolean(prefix + "ssl", false);
                 final var protocols = properties.getValues(prefix + "protocol", Set.of());
+                final var acceptors = properties.getInt(prefix + "acceptors", DEFAULT_ACCEPTORS);
+                if (acceptors < 0) {
+                    throw new ConfigurationNotValidException("Invalid value '" + acceptors + "' for " + prefix + "acceptors");
+                }
                 this.addListener(new NetworkListenerConfiguration(
                         properties.getString(prefix + "host", "0.0.0.0"),
                         port,
@@ -366,14 +437,14 @@ public class RuntimeServerConfiguration {
                                 .map(String::toUpperCase)
                                 .map(HttpProtocol::valueOf)
                                 .collect(Collectors.toUnmodifiableSet()),
-                        new DefaultChannelGroup(new DefaultEventExecutor())));
+                        acceptors,
+                        properties.getBoolean(prefix + "reuseport", DEFAULT_REUSE_PORT)));
             }
         }
     }
 
     private void configureFilters(ConfigurationStore properties) throws ConfigurationNotValidException {
-        int max = properties.findMaxIndexForPrefix("filter");
-        for (int i = 0; i <= max; i++) {
+        for (int i : properties.findIndexesForPrefix("filter")) {
             String prefix = "filter." + i + ".";
             String type = properties.getString(prefix + "type", "");
             if (!type.isEmpty()) {
@@ -392,8 +463,7 @@ public class RuntimeServerConfiguration {
     }
 
     private void configureConnectionPools(ConfigurationStore properties) throws ConfigurationNotValidException {
-        int max = properties.findMaxIndexForPrefix("connectionpool");
-        for (int i = 0; i <= max; i++) {
+        for (int i : properties.findIndexesForPrefix("connectionpool")) {
             final String prefix = "connectionpool." + i + ".";
             String id = properties.getString(prefix + "id", "");
             if (id.isEmpty()) {
@@ -417,6 +487,10 @@ public class RuntimeServerConfiguration {
             int keepalivecount = properties.getInt(prefix + "keepalivecount", keepaliveCount);
             boolean enabled = properties.getBoolean(prefix + "enabled", false);
             boolean keepAlive = properties.getBoolean(prefix + "keepalive", true);
+            int minidle = properties.getInt(prefix + "minidle", minIdle);
+            if (minidle < 0 || minidle > maxconnectionsperendpoint) {
+                throw new ConfigurationNotValidException("Invalid value '" + minidle + "' for " + prefix + "minidle");
+            }
 
             ConnectionPoolConfiguration connectionPool = new ConnectionPoolConfiguration(
                     id,
@@ -432,7 +506,8 @@ public class RuntimeServerConfiguration {
                     keepaliveinterval,
                     keepalivecount,
                     keepAlive,
-                    enabled
+                    enabled,
+                    minidle
             );
             connectionPools.put(id, connectionPool);
             LOG.info("Configured connectionpool.{}: {}", i, connectionPool);
@@ -452,11 +527,128 @@ public class RuntimeServerConfiguration {
                 getKeepaliveInterval(),
                 getKeepaliveCount(),
                 isClientKeepAlive(),
-                true
+                true,
+                getMinIdle()
         );
         LOG.info("Configured default connectionpool: {}", defaultConnectionPool);
     }
 
+    private void configureCircuitBreaker(ConfigurationStore properties) throws ConfigurationNotValidException {
+        final boolean enabled = properties.getBoolean("circuitbreaker.enabled", false);
+        final int failureRateThreshold = properties.getInt("circuitbreaker.failureratethreshold", CircuitBreakerConfiguration.DEFAULT_FAILURE_RATE_THRESHOLD);
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100) {
+            throw new ConfigurationNotValidException("Invalid value '" + failureRateThreshold + "' for circuitbreaker.failureratethreshold (allowed: 1-100)");
+        }
+        final int slowCallRateThreshold = properties.getInt("circuitbreaker.slowcallratethreshold", CircuitBreakerConfiguration.DEFAULT_SLOW_CALL_RATE_THRESHOLD);
+        if (slowCallRateThreshold <= 0 || slowCallRateThreshold > 100) {
+            throw new ConfigurationNotValidException("Invalid value '" + slowCallRateThreshold + "' for circuitbreaker.slowcallratethreshold (allowed: 1-100)");
+        }
+        final long slowCallDuration = properties.getLong("circuitbreaker.slowcallduration", CircuitBreakerConfiguration.DEFAULT_SLOW_CALL_DURATION);
+        if (slowCallDuration <= 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + slowCallDuration + "' for circuitbreaker.slowcallduration");
+        }
+        final int windowSize = properties.getInt("circuitbreaker.windowsize", CircuitBreakerConfiguration.DEFAULT_WINDOW_SIZE);
+        if (windowSize <= 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + windowSize + "' for circuitbreaker.windowsize");
+        }
+        final int minimumCalls = properties.getInt("circuitbreaker.minimumcalls", Math.min(CircuitBreakerConfiguration.DEFAULT_MINIMUM_CALLS, windowSize));
+        if (minimumCalls <= 0 || minimumCalls > windowSize) {
+            throw new ConfigurationNotValidException("Invalid value '" + minimumCalls + "' for circuitbreaker.minimumcalls (allowed: 1-" + windowSize + ")");
+        }
+        final long openDuration = properties.getLong("circuitbreaker.openduration", CircuitBreakerConfiguration.DEFAULT_OPEN_DURATION);
+        if (openDuration < 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + openDuration + "' for circuitbreaker.openduration");
+        }
+        final int halfOpenCalls = properties.getInt("circuitbreaker.halfopencalls", CircuitBreakerConfiguration.DEFAULT_HALF_OPEN_CALLS);
+        if (halfOpenCalls <= 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + halfOpenCalls + "' for circuitbreaker.halfopencalls");
+        }
+        circuitBreakerConfiguration = new CircuitBreakerConfiguration(
+                enabled, failureRateThreshold, slowCallRateThreshold, slowCallDuration, minimumCalls, windowSize, openDuration, halfOpenCalls
+        );
+        LOG.info("circuitbreaker.enabled={}", enabled);
+        LOG.info("circuitbreaker.failureratethreshold={}", failureRateThreshold);
+        LOG.info("circuitbreaker.slowcallratethreshold={}", slowCallRateThreshold);
+        LOG.info("circuitbreaker.slowcallduration={}", slowCallDuration);
+        LOG.info("circuitbreaker.minimumcalls={}", minimumCalls);
+        LOG.info("circuitbreaker.windowsize={}", windowSize);
+        LOG.info("circuitbreaker.openduration={}", openDuration);
+        LOG.info("circuitbreaker.halfopencalls={}", halfOpenCalls);
+    }
+
+    private void configureConcurrencyLimiter(ConfigurationStore properties) throws ConfigurationNotValidException {
+        final boolean enabled = properties.getBoolean("concurrencylimiter.enabled", false);
+        final int minLimit = properties.getInt("concurrencylimiter.minlimit", ConcurrencyLimiterConfiguration.DEFAULT_MIN_LIMIT);
+        if (minLimit <= 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + minLimit + "' for concurrencylimiter.minlimit");
+        }
+        final int maxLimit = properties.getInt("concurrencylimiter.maxlimit", ConcurrencyLimiterConfiguration.DEFAULT_MAX_LIMIT);
+        if (maxLimit < minLimit) {
+            throw new ConfigurationNotValidException("Invalid value '" + maxLimit + "' for concurrencylimiter.maxlimit, it cannot be less than concurrencylimiter.minlimit");
+        }
+        final int initialLimit = properties.getInt("concurrencylimiter.initiallimit", Math.max(minLimit, Math.min(maxLimit, ConcurrencyLimiterConfiguration.DEFAULT_INITIAL_LIMIT)));
+        if (initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new ConfigurationNotValidException("Invalid value '" + initialLimit + "' for concurrencylimiter.initiallimit (allowed: " + minLimit + "-" + maxLimit + ")");
+        }
+        concurrencyLimiterConfiguration = new ConcurrencyLimiterConfiguration(enabled, initialLimit, minLimit, maxLimit);
+        LOG.info("concurrencylimiter.enabled={}", enabled);
+        LOG.info("concurrencylimiter.initiallimit={}", initialLimit);
+        LOG.info("concurrencylimiter.minlimit={}", minLimit);
+        LOG.info("concurrencylimiter.maxlimit={}", maxLimit);
+    }
+
+    private void configureFairQueuing(ConfigurationStore properties) throws ConfigurationNotValidException {
+        final boolean enabled = properties.getBoolean("fairqueuing.enabled", false);
+        final String tenantKey = properties.getString("fairqueuing.tenantkey", FairQueuingConfiguration.TenantKey.USERID.name());
+        final FairQueuingConfiguration.TenantKey key;
+        try {
+            key = FairQueuingConfiguration.TenantKey.valueOf(tenantKey.toUpperCase());
+        } catch (IllegalArgumentException err) {
+            throw new ConfigurationNotValidException("Invalid value '" + tenantKey + "' for fairqueuing.tenantkey (allowed: userid, route)");
+        }
+        final int defaultShare = properties.getInt("fairqueuing.defaultshare", FairQueuingConfiguration.DEFAULT_SHARE);
+        if (defaultShare <= 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + defaultShare + "' for fairqueuing.defaultshare");
+        }
+        final Map<String, String> rawShares = new HashMap<>();
+        properties.forEach("fairqueuing.share.", rawShares::put);
+        final Map<String, Integer> shares = new HashMap<>();
+        for (final Map.Entry<String, String> share : rawShares.entrySet()) {
+            final int value = properties.getInt("fairqueuing.share." + share.getKey(), defaultShare);
+            if (value <= 0) {
+                throw new ConfigurationNotValidException("Invalid value '" + value + "' for fairqueuing.share." + share.getKey());
+            }
+            shares.put(share.getKey(), value);
+        }
+        fairQueuingConfiguration = new FairQueuingConfiguration(enabled, key, Map.copyOf(shares), defaultShare);
+        LOG.info("fairqueuing.enabled={}", enabled);
+        LOG.info("fairqueuing.tenantkey={}", key);
+        LOG.info("fairqueuing.defaultshare={}", defaultShare);
+        shares.forEach((tenant, share) -> LOG.info("fairqueuing.share.{}={}", tenant, share));
+    }
+
+    private void configureOverloadProtection(ConfigurationStore properties) throws ConfigurationNotValidException {
+        overloadProtectionEnabled = properties.getBoolean("overload.enabled", overloadProtectionEnabled);
+        overloadLagTarget = properties.getLong("overload.lagtarget", overloadLagTarget);
+        if (overloadLagTarget <= 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + overloadLagTarget + "' for overload.lagtarget");
+        }
+        overloadInterval = properties.getLong("overload.interval", overloadInterval);
+        if (overloadInterval <= 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + overloadInterval + "' for overload.interval");
+        }
+        overloadMaxPendingTasks = properties.getInt("overload.maxpendingtasks", overloadMaxPendingTasks);
+        if (overloadMaxPendingTasks < 0) {
+            throw new ConfigurationNotValidException("Invalid value '" + overloadMaxPendingTasks + "' for overload.maxpendingtasks");
+        }
+        overloadExemptRoutes = properties.getValues("overload.exemptroutes", overloadExemptRoutes);
+        LOG.info("overload.enabled={}", overloadProtectionEnabled);
+        LOG.info("overload.lagtarget={}", overloadLagTarget);
+        LOG.info("overload.interval={}", overloadInterval);
+        LOG.info("overload.maxpendingtasks={}", overloadMaxPendingTasks);
+        LOG.info("overload.exemptroutes={}", overloadExemptRoutes);
+    }
+
     public void addListener(NetworkListenerConfiguration listener) throws ConfigurationNotValidException {
         if (listener.ssl() && !certificates.containsKey(listener.defaultCertificate())) {
             throw new ConfigurationNotValidException(
@@ -0,0 +1,107 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import io.netty.util.AsyncMapping;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import org.carapaceproxy.server.certificates.CertificatesIndex;
+import org.carapaceproxy.server.config.SSLCertificateConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.tcp.SslProvider;
+
+/**
+ * SNI mapping of a TLS listener, consulted at every handshake.
+ * <p>
+ * The certificate is chosen through the {@link CertificatesIndex} shared by all the listeners,
+ * and its SSL context is built on the first handshake that needs it, off the event loop.
+ * The index can be swapped atomically while the listener is running, so certificates can be added,
+ * renewed or removed without rebinding the server socket or touching the established connections.
+ */
+public final class SniMapping implements AsyncMapping<String, SslProvider> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SniMapping.class);
+
+    /**
+     * Source of the providers of the certificates.
+     */
+    public interface Providers {
+
+        /**
+         * @return the provider if its context is already built, null otherwise
+         */
+        SslProvider getIfPresent(SSLCertificateConfiguration certificate);
+
+        /**
+         * Build the provider; it may block to load the certificate.
+         *
+         * @return the provider, or null if the certificate data is not available
+         */
+        SslProvider load(SSLCertificateConfiguration certificate) throws Exception;
+    }
+
+    private final Providers providers;
+    private volatile Snapshot snapshot = new Snapshot(CertificatesIndex.EMPTY, null, null);
+
+    public SniMapping(final Providers providers) {
+        this.providers = providers;
+    }
+
+    /**
+     * Replace the certificates.
+     *
+     * @param index              the certificates by name
+     * @param defaultCertificate id of the certificate for clients that send no SNI or an unknown hostname
+     * @param defaultProvider    the provider of the default certificate
+     */
+    public void update(final CertificatesIndex index, final String defaultCertificate, final SslProvider defaultProvider) {
+        this.snapshot = new Snapshot(index, defaultCertificate, defaultProvider);
+    }
+
+    @Override
+    public Future<SslProvider> map(final String input, final Promise<SslProvider> promise) {
+        final Snapshot current = this.snapshot;
+        final SSLCertificateConfiguration certificate = current.index().lookup(input);
+        if (certificate == null || certificate.getId().equals(current.defaultCertificate())) {
+            return promise.setSuccess(current.defaultProvider());
+        }
+        final SslProvider cached = providers.getIfPresent(certificate);
+        if (cached != null) {
+            return promise.setSuccess(cached);
+        }
+        // loading the certificate may block
+        Schedulers.boundedElastic().schedule(() -> {
+            SslProvider provider = null;
+            try {
+                provider = providers.load(certificate);
+            } catch (Exception err) {
+                LOG.error("Cannot load certificate {} for SNI hostname {}", certificate.getId(), input, err);
+            }
+            // certificate configuration has some problem, should fallback to default certificate (legacy behavior)
+            promise.trySuccess(provider != null ? provider : current.defaultProvider());
+        });
+        return promise;
+    }
+
+    private record Snapshot(CertificatesIndex index, String defaultCertificate, SslProvider defaultProvider) {
+    }
+}
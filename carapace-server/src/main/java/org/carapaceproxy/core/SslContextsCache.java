@@ -0,0 +1,293 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.netty.handler.ssl.SslContext;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.carapaceproxy.server.config.ConfigurationNotValidException;
+import org.carapaceproxy.server.config.NetworkListenerConfiguration;
+import org.carapaceproxy.server.config.SSLCertificateConfiguration;
+import org.carapaceproxy.utils.PrometheusUtils;
+import reactor.netty.http.HttpProtocol;
+
+/**
+ * SSL contexts built for the TLS listeners.
+ * <p>
+ * A context depends on the content of the keystore and on the TLS settings of the listener,
+ * so that the listeners with the same settings share it along with its session cache;
+ * it survives a configuration reload as long as the keystore and those settings do not change:
+ * a reload only compares a cheap stamp of each keystore (e.g. the modification time of its file),
+ * and the keystores whose stamp changed are read again on their next use, to compute their fingerprint.
+ * Contexts are built on the first handshake that needs them, and the size of the cache is bounded
+ * so that hosting many certificates does not mean keeping all of them in memory.
+ */
+public class SslContextsCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1_000;
+
+    private static final Gauge CACHED_SSL_CONTEXTS_GAUGE = PrometheusUtils.createGauge(
+            "listeners", "sslcontexts_cached", "SSL contexts currently cached"
+    ).register();
+
+    private static final Counter BUILT_SSL_CONTEXTS_COUNTER = PrometheusUtils.createCounter(
+            "listeners", "sslcontexts_built_total", "SSL contexts built"
+    ).register();
+
+    private static final Counter REUSED_SSL_CONTEXTS_COUNTER = PrometheusUtils.createCounter(
+            "listeners", "sslcontexts_reused_total", "SSL contexts reused for an unchanged keystore after a reload"
+    ).register();
+
+    /**
+     * Builds a context; it may block to load the certificate.
+     */
+    public interface Loader {
+
+        /**
+         * @return the content of the keystore, or null if the certificate data is not available
+         * @throws ConfigurationNotValidException if the keystore cannot be read
+         */
+        byte[] read() throws ConfigurationNotValidException;
+
+        /**
+         * @param keystore the content of the keystore
+         * @return the context
+         * @throws ConfigurationNotValidException if the certificate cannot be loaded
+         */
+        SslContext build(byte[] keystore) throws ConfigurationNotValidException;
+
+        /**
+         * @return a value that changes with the keystore, or null if unknown
+         * @see #retain(Map, Function)
+         */
+        default String stamp() {
+            return null;
+        }
+    }
+
+    // the listeners with the same TLS settings share the contexts
+    private record Binding(String certificateId, Set<String> sslProtocols, String sslCiphers, Set<HttpProtocol> protocols) {
+
+        static Binding of(final NetworkListenerConfiguration listener, final SSLCertificateConfiguration certificate) {
+            return new Binding(
+                    certificate.getId(),
+                    listener.sslProtocols(),
+                    listener.sslCiphers(),
+                    listener.protocols()
+            );
+        }
+    }
+
+    private record Key(Binding binding, String fingerprint) {
+    }
+
+    // the context currently bound to a listener and a certificate; a stale one is checked against the keystore on its next use
+    private record Bound(Key key, SSLCertificateConfiguration certificate, String stamp, boolean stale) {
+
+        Bound toStale() {
+            return new Bound(key, certificate, stamp, true);
+        }
+    }
+
+    private volatile Cache<Key, SslContext> cache = newCache(DEFAULT_MAX_SIZE);
+    private int maxSize = DEFAULT_MAX_SIZE;
+    /**
+     * Fingerprint last read for each certificate and listener settings, so that handshakes find the context
+     * without reading the keystore; it turns stale on reload when the keystore may have changed.
+     */
+    private final ConcurrentMap<Binding, Bound> bindings = new ConcurrentHashMap<>();
+    // keystores being read, so that concurrent handshakes needing the same certificate read it once
+    private final ConcurrentMap<Binding, CompletableFuture<SslContext>> loading = new ConcurrentHashMap<>();
+
+    private static Cache<Key, SslContext> newCache(final int maxSize) {
+        return Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * Resize the cache; contexts already built are dropped and built again on demand.
+     *
+     * @param maxSize the maximum number of contexts
+     */
+    public synchronized void setMaxSize(final int maxSize) {
+        if (maxSize != this.maxSize) {
+            this.maxSize = maxSize;
+            final Cache<Key, SslContext> previous = this.cache;
+            this.cache = newCache(maxSize);
+            previous.invalidateAll();
+            this.bindings.clear();
+            CACHED_SSL_CONTEXTS_GAUGE.set(0);
+        }
+    }
+
+    public SslContext getIfPresent(final NetworkListenerConfiguration listener, final SSLCertificateConfiguration certificate) {
+        final Bound bound = bindings.get(Binding.of(listener, certificate));
+        return bound != null && !bound.stale() ? cache.getIfPresent(bound.key()) : null;
+    }
+
+    public SslContext get(
+            final NetworkListenerConfiguration listener,
+            final SSLCertificateConfiguration certificate,
+            final Loader loader
+    ) throws ConfigurationNotValidException {
+        final Binding binding = Binding.of(listener, certificate);
+        final Bound bound = bindings.get(binding);
+        if (bound != null && !bound.stale()) {
+            final SslContext cached = cache.getIfPresent(bound.key());
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final CompletableFuture<SslContext> load = new CompletableFuture<>();
+        final CompletableFuture<SslContext> running = loading.putIfAbsent(binding, load);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException err) {
+                if (err.getCause() instanceof ConfigurationNotValidException cause) {
+                    throw cause;
+                }
+                throw err;
+            }
+        }
+        try {
+            final SslContext sslContext = load(binding, certificate, loader);
+            load.complete(sslContext);
+            return sslContext;
+        } catch (ConfigurationNotValidException | RuntimeException err) {
+            load.completeExceptionally(err);
+            throw err;
+        } finally {
+            loading.remove(binding, load);
+        }
+    }
+
+    private SslContext load(final Binding binding, final SSLCertificateConfiguration certificate, final Loader loader) throws ConfigurationNotValidException {
+        final String stamp = loader.stamp();
+        final byte[] keystore = loader.read();
+        if (keystore == null) {
+            return null;
+        }
+        final Key key = new Key(binding, fingerprint(keystore, certificate.getPassword()));
+        final Cache<Key, SslContext> current = this.cache;
+        final Bound previous = bindings.put(binding, new Bound(key, certificate, stamp, false));
+        if (previous != null && !previous.key().equals(key)) {
+            // the previous keystore of the same certificate is no longer referenced
+            current.invalidate(previous.key());
+        }
+        final SslContext cached = current.getIfPresent(key);
+        if (cached != null) {
+            REUSED_SSL_CONTEXTS_COUNTER.inc();
+            return cached;
+        }
+        try {
+            return current.get(key, k -> {
+                try {
+                    final SslContext sslContext = loader.build(keystore);
+                    BUILT_SSL_CONTEXTS_COUNTER.inc();
+                    return sslContext;
+                } catch (ConfigurationNotValidException err) {
+                    throw new CompletionException(err);
+                }
+            });
+        } catch (CompletionException err) {
+            if (err.getCause() instanceof ConfigurationNotValidException cause) {
+                throw cause;
+            }
+            throw err;
+        } finally {
+            CACHED_SSL_CONTEXTS_GAUGE.set(current.estimatedSize());
+        }
+    }
+
+    /**
+     * Keep only the contexts of the certificates still configured.
+     * The keystores whose configuration or stamp changed are read again on their next use, to detect whether they changed;
+     * the contexts of the other ones are still found by handshakes without reading anything.
+     *
+     * @param certificates the configured certificates, by id
+     * @param stamps       the current stamp of the keystore of a certificate, see {@link Loader#stamp()}
+     */
+    public void retain(final Map<String, SSLCertificateConfiguration> certificates, final Function<SSLCertificateConfiguration, String> stamps) {
+        final Cache<Key, SslContext> current = this.cache;
+        // a certificate is usually bound to many listeners, compute its stamp once
+        final Map<String, String> currentStamps = new ConcurrentHashMap<>();
+        bindings.replaceAll((binding, bound) -> {
+            final SSLCertificateConfiguration certificate = certificates.get(binding.certificateId());
+            if (bound.stale() || certificate == null) {
+                // already stale, or dropped below
+                return bound;
+            }
+            final String stamp = currentStamps.computeIfAbsent(certificate.getId(), id -> Objects.requireNonNullElse(stamps.apply(certificate), ""));
+            return bound.stamp() != null && bound.stamp().equals(stamp) && bound.certificate().equals(certificate)
+                    ? bound
+                    : bound.toStale();
+        });
+        bindings.keySet().removeIf(binding -> !certificates.containsKey(binding.certificateId()));
+        current.asMap().keySet().removeIf(key -> !certificates.containsKey(key.binding().certificateId()));
+        CACHED_SSL_CONTEXTS_GAUGE.set(current.estimatedSize());
+    }
+
+    /**
+     * Apply an action to every context, e.g. to update its session ticket keys.
+     *
+     * @param action the action
+     */
+    public void forEach(final Consumer<SslContext> action) {
+        cache.asMap().values().forEach(action);
+    }
+
+    /**
+     * Drop every context, e.g. because the trust store they are built with changed.
+     */
+    public void invalidateAll() {
+        bindings.clear();
+        cache.invalidateAll();
+        CACHED_SSL_CONTEXTS_GAUGE.set(0);
+    }
+
+    private static String fingerprint(final byte[] keystore, final String password) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(keystore);
+            if (password != null) {
+                digest.update(password.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException err) {
+            // every JVM implements SHA-256
+            throw new IllegalStateException(err);
+        }
+    }
+}
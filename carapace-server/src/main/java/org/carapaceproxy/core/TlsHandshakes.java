@@ -0,0 +1,50 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import io.netty.handler.ssl.ReferenceCountedOpenSslEngine;
+import io.netty.internal.tcnative.SSL;
+import javax.net.ssl.SSLEngine;
+
+/**
+ * Tells how the TLS handshakes of the listeners and of the backend connections completed.
+ */
+final class TlsHandshakes {
+
+    private TlsHandshakes() {
+    }
+
+    /**
+     * Whether the handshake completed by an engine resumed a previous session, as reported by OpenSSL.
+     *
+     * @param engine the engine of the connection, after its handshake
+     * @return true if the session was resumed, false for a full handshake or an engine not backed by OpenSSL
+     */
+    static boolean isSessionReused(final SSLEngine engine) {
+        if (engine instanceof ReferenceCountedOpenSslEngine openSslEngine) {
+            // the native SSL is freed with the engine, under the same lock
+            synchronized (openSslEngine) {
+                final long ssl = openSslEngine.sslPointer();
+                return ssl != 0 && SSL.isSessionReused(ssl);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioChannelOption;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.unix.UnixChannelOption;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringChannelOption;
+import io.netty.incubator.channel.uring.IOUringDatagramChannel;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
+import jdk.net.ExtendedSocketOptions;
+import org.carapaceproxy.server.config.ConfigurationNotValidException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Network transport of the event loops, shared by listeners and backend clients.
+ * <p>
+ * The channel classes have to match the event loops: they are chosen here rather than by Reactor Netty,
+ * whose native detection may prefer another transport (e.g. io_uring, when it is on the classpath).
+ */
+public enum TransportType {
+
+    IO_URING,
+    EPOLL,
+    NIO;
+
+    private static final Logger LOG = LoggerFactory.getLogger(TransportType.class);
+
+    /**
+     * The transport used when none is configured: epoll if available, NIO otherwise.
+     *
+     * @return the default transport
+     */
+    public static TransportType getDefault() {
+        return Epoll.isAvailable() ? EPOLL : NIO;
+    }
+
+    /**
+     * Resolve the configured transport, falling back to the default one if it is not available on this system.
+     *
+     * @param name one of auto, io_uring, epoll and nio
+     * @return the transport to use
+     * @throws ConfigurationNotValidException if the name is unknown
+     */
+    public static TransportType select(final String name) throws ConfigurationNotValidException {
+        if (name == null || name.isBlank() || "auto".equalsIgnoreCase(name)) {
+            return getDefault();
+        }
+        final TransportType requested;
+        try {
+            requested = valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException err) {
+            throw new ConfigurationNotValidException("Invalid transport '" + name + "', supported ones: auto, io_uring, epoll, nio");
+        }
+        if (requested.isAvailable()) {
+            return requested;
+        }
+        final TransportType fallback = getDefault();
+        LOG.warn("Transport {} is not available ({}), falling back to {}", requested, requested.unavailabilityCause(), fallback);
+        return fallback;
+    }
+
+    public boolean isAvailable() {
+        return switch (this) {
+            case IO_URING -> IOUring.isAvailable();
+            case EPOLL -> Epoll.isAvailable();
+            case NIO -> true;
+        };
+    }
+
+    private Throwable unavailabilityCause() {
+        return switch (this) {
+            case IO_URING -> IOUring.unavailabilityCause();
+            case EPOLL -> Epoll.unavailabilityCause();
+            case NIO -> null;
+        };
+    }
+
+    public EventLoopGroup newEventLoopGroup(final int threads, final ThreadFactory threadFactory) {
+        return switch (this) {
+            case IO_URING -> new IOUringEventLoopGroup(threads, threadFactory);
+            case EPOLL -> new EpollEventLoopGroup(threads, threadFactory);
+            case NIO -> new NioEventLoopGroup(threads, threadFactory);
+        };
+    }
+
+    public ChannelOption<Integer> tcpKeepIdle() {
+        return switch (this) {
+            case IO_URING -> IOUringChannelOption.TCP_KEEPIDLE;
+            case EPOLL -> EpollChannelOption.TCP_KEEPIDLE;
+            case NIO -> NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE);
+        };
+    }
+
+    public ChannelOption<Integer> tcpKeepInterval() {
+        return switch (this) {
+            case IO_URING -> IOUringChannelOption.TCP_KEEPINTVL;
+            case EPOLL -> EpollChannelOption.TCP_KEEPINTVL;
+            case NIO -> NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPINTERVAL);
+        };
+    }
+
+    public ChannelOption<Integer> tcpKeepCount() {
+        return switch (this) {
+            case IO_URING -> IOUringChannelOption.TCP_KEEPCNT;
+            case EPOLL -> EpollChannelOption.TCP_KEEPCNT;
+            case NIO -> NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPCOUNT);
+        };
+    }
+
+    /**
+     * The channel class of this transport for a kind of channel.
+     *
+     * @param channelType one of {@link ServerSocketChannel}, {@link SocketChannel} and {@link DatagramChannel}
+     * @return the class, or null for other kinds of channels
+     */
+    @SuppressWarnings("unchecked")
+    public <C extends Channel> Class<? extends C> channelClass(final Class<C> channelType) {
+        final Class<? extends Channel> channelClass;
+        if (channelType == ServerSocketChannel.class) {
+            channelClass = switch (this) {
+                case IO_URING -> IOUringServerSocketChannel.class;
+                case EPOLL -> EpollServerSocketChannel.class;
+                case NIO -> NioServerSocketChannel.class;
+            };
+        } else if (channelType == SocketChannel.class) {
+            channelClass = switch (this) {
+                case IO_URING -> IOUringSocketChannel.class;
+                case EPOLL -> EpollSocketChannel.class;
+                case NIO -> NioSocketChannel.class;
+            };
+        } else if (channelType == DatagramChannel.class) {
+            channelClass = switch (this) {
+                case IO_URING -> IOUringDatagramChannel.class;
+                case EPOLL -> EpollDatagramChannel.class;
+                case NIO -> NioDatagramChannel.class;
+            };
+        } else {
+            return null;
+        }
+        return (Class<? extends C>) channelClass;
+    }
+
+    /**
+     * Whether more sockets can be bound to the same port.
+     *
+     * @return true for the native transports
+     */
+    public boolean supportsReusePort() {
+        return soReusePort().isPresent();
+    }
+
+    /**
+     * @return the SO_REUSEPORT option, empty if the transport does not support it
+     */
+    public Optional<ChannelOption<Boolean>> soReusePort() {
+        return this != NIO ? Optional.of(UnixChannelOption.SO_REUSEPORT) : Optional.empty();
+    }
+}
@@ -1,8 +1,11 @@
 package org.carapaceproxy.core;
 
+import static org.carapaceproxy.server.config.BackendConfiguration.DEFAULT_SSL_SESSION_CACHE_SIZE;
+import static org.carapaceproxy.server.config.BackendConfiguration.DEFAULT_SSL_SESSION_TIMEOUT;
 import static org.carapaceproxy.utils.CertificatesUtils.loadKeyStoreFromFile;
 import io.netty.handler.ssl.ApplicationProtocolConfig;
 import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.OpenSslSessionContext;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import java.io.File;
@@ -15,6 +18,7 @@ import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.TrustManagerFactory;
 import lombok.Getter;
@@ -28,6 +32,7 @@ public class TrustStoreManager {
 
     private final File basePath;
     private RuntimeServerConfiguration currentConfiguration;
+    private String trustStoreStamp;
 
     @Getter
     private Map<String, X509Certificate> certificateAuthorities = new HashMap<>();
@@ -44,6 +49,7 @@ public class TrustStoreManager {
         String trustStoreFile = currentConfiguration.getSslTrustStoreFile();
         String trustStorePassword = currentConfiguration.getSslTrustStorePassword();
 
+        trustStoreStamp = trustStoreFile != null ? fileStamp(trustStoreFile) : null;
         if (trustStoreFile == null) {
             return;
         }
@@ -71,7 +77,34 @@ public class TrustStoreManager {
         loadTrustStore();
     }
 
-    private SslContext buildClientSslContext(final TrustManagerFactory trustManager) throws SSLException {
+    /**
+     * @return the stamp of the truststore file currently loaded, see {@link #fileStamp(String)}
+     */
+    public String getTrustStoreStamp() {
+        return trustStoreStamp;
+    }
+
+    /**
+     * Whether the truststore file changed since it was loaded, e.g. because it was replaced in place.
+     *
+     * @return true if it has to be loaded again
+     */
+    public boolean isTrustStoreChanged() {
+        final String trustStoreFile = currentConfiguration.getSslTrustStoreFile();
+        return trustStoreFile != null && !Objects.equals(trustStoreStamp, fileStamp(trustStoreFile));
+    }
+
+    /**
+     * A value that changes when a file is modified.
+     *
+     * @param path the path of the file, relative to basePath allowed
+     * @return the modification time and the size of the file, or null if it does not exist
+     */
+    public String fileStamp(final String path) {
+        return CertificatesUtils.fileStamp(path, basePath);
+    }
+
+    private SslContext buildClientSslContext(final TrustManagerFactory trustManager, final int sessionCacheSize, final int sessionTimeout) throws SSLException {
         final SslContextBuilder builder = SslContextBuilder.forClient();
         if (trustManager != null) {
             builder.trustManager(trustManager);
@@ -82,7 +115,18 @@ public class TrustStoreManager {
                 ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
                 ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1
         ));
-        return builder.build();
+        if (sessionCacheSize > 0) {
+            builder.sessionCacheSize(sessionCacheSize);
+        }
+        if (sessionTimeout > 0) {
+            builder.sessionTimeout(sessionTimeout);
+        }
+        final SslContext sslContext = builder.build();
+        if (sslContext.sessionContext() instanceof OpenSslSessionContext sessionContext) {
+            // OpenSSL contexts are created with session tickets disabled; setting the keys enables them
+            sessionContext.setTicketKeys();
+        }
+        return sslContext;
     }
 
     private TrustManagerFactory getTrustManagerFactory(final String caPath, final String password)
@@ -102,7 +146,20 @@ public class TrustStoreManager {
      * @throws SSLException if SSL material cannot be built
      */
     public SslContext buildDefaultClientSslContext() throws SSLException {
-        return buildClientSslContext(getTrustManagerFactory());
+        return buildDefaultClientSslContext(DEFAULT_SSL_SESSION_CACHE_SIZE, DEFAULT_SSL_SESSION_TIMEOUT);
+    }
+
+    /**
+     * Build a default client-side Netty SslContext using the global TrustStore (if configured)
+     * and with ALPN configured for HTTP/2 support.
+     *
+     * @param sessionCacheSize how many TLS sessions to cache for resumption, or 0 for the default
+     * @param sessionTimeout   how long the cached TLS sessions can be resumed, in seconds, or 0 for the default
+     * @return the built SslContext
+     * @throws SSLException if SSL material cannot be built
+     */
+    public SslContext buildDefaultClientSslContext(final int sessionCacheSize, final int sessionTimeout) throws SSLException {
+        return buildClientSslContext(getTrustManagerFactory(), sessionCacheSize, sessionTimeout);
     }
 
     /**
@@ -116,7 +173,23 @@ public class TrustStoreManager {
      */
     public SslContext buildClientSslContextForCaFile(String caPath, String password)
             throws GeneralSecurityException, IOException {
-        return buildClientSslContext(getTrustManagerFactory(caPath, password));
+        return buildClientSslContextForCaFile(caPath, password, DEFAULT_SSL_SESSION_CACHE_SIZE, DEFAULT_SSL_SESSION_TIMEOUT);
+    }
+
+    /**
+     * Build a client-side Netty SslContext using a backend-specific CA file.
+     * ALPN will be configured for HTTP/2 support.
+     *
+     * @param caPath           path to the CA keystore file (relative to basePath allowed)
+     * @param password         optional password for the keystore (null treated as empty)
+     * @param sessionCacheSize how many TLS sessions to cache for resumption, or 0 for the default
+     * @param sessionTimeout   how long the cached TLS sessions can be resumed, in seconds, or 0 for the default
+     * @return the built SslContext
+     * @throws IOException if the CA file cannot be read
+     */
+    public SslContext buildClientSslContextForCaFile(String caPath, String password, int sessionCacheSize, int sessionTimeout)
+            throws GeneralSecurityException, IOException {
+        return buildClientSslContext(getTrustManagerFactory(caPath, password), sessionCacheSize, sessionTimeout);
     }
 
 }
@@ -30,12 +30,15 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManagerFactory;
 import org.carapaceproxy.core.EndpointKey;
 import org.carapaceproxy.core.RuntimeServerConfiguration;
 import org.carapaceproxy.server.config.BackendConfiguration;
+import org.carapaceproxy.server.config.CircuitBreakerConfiguration;
+import org.carapaceproxy.server.config.ConcurrencyLimiterConfiguration;
 import org.carapaceproxy.server.mapper.EndpointMapper;
 import org.carapaceproxy.utils.CertificatesUtils;
 import org.carapaceproxy.utils.PrometheusUtils;
@@ -71,6 +74,9 @@ public class BackendHealthManager implements Runnable {
     private volatile boolean started;
     private volatile long warmupPeriod;
     private volatile boolean tolerant;
+    private volatile CircuitBreakerConfiguration circuitBreakerConfiguration;
+    private volatile ConcurrencyLimiterConfiguration concurrencyLimiterConfiguration;
+    private volatile Consumer<BackendConfiguration> reachableBackendListener = backend -> {};
 
     public BackendHealthManager(final RuntimeServerConfiguration conf, final EndpointMapper mapper) {
         this(conf, mapper, new File("."));
@@ -81,6 +87,8 @@ public class BackendHealthManager implements Runnable {
         this.connectTimeout = conf.getHealthConnectTimeout();
         this.warmupPeriod = conf.getWarmupPeriod();
         this.tolerant = conf.isTolerant();
+        this.circuitBreakerConfiguration = conf.getCircuitBreakerConfiguration();
+        this.concurrencyLimiterConfiguration = conf.getConcurrencyLimiterConfiguration();
         this.basePath = basePath != null ? basePath.getAbsoluteFile() : new File(".");
 
         // will be overridden before start
@@ -99,6 +107,17 @@ public class BackendHealthManager implements Runnable {
         this.period = period;
     }
 
+    /**
+     * Set a callback invoked after every successful probe of a backend,
+     * i.e. when it becomes {@link BackendHealthStatus.Status#COLD cold} again, when it gets
+     * {@link BackendHealthStatus.Status#STABLE stable}, and periodically while it stays reachable.
+     *
+     * @param reachableBackendListener the callback
+     */
+    public void setReachableBackendListener(final Consumer<BackendConfiguration> reachableBackendListener) {
+        this.reachableBackendListener = Objects.requireNonNull(reachableBackendListener);
+    }
+
     public synchronized void start() {
         started = true;
         if (period <= 0) {
@@ -156,6 +175,18 @@ public class BackendHealthManager implements Runnable {
             LOG.info("Applying new health tolerance configuration {}; cold backends now {} exceed safe capacity", this.tolerant, this.tolerant ? "may" : "may not");
         }
 
+        if (!this.circuitBreakerConfiguration.equals(newConfiguration.getCircuitBreakerConfiguration())) {
+            this.circuitBreakerConfiguration = newConfiguration.getCircuitBreakerConfiguration();
+            this.backends.values().forEach(it -> it.getCircuitBreaker().setConfiguration(circuitBreakerConfiguration));
+            LOG.info("Applying new circuit breaker configuration {}", this.circuitBreakerConfiguration);
+        }
+
+        if (!this.concurrencyLimiterConfiguration.equals(newConfiguration.getConcurrencyLimiterConfiguration())) {
+            this.concurrencyLimiterConfiguration = newConfiguration.getConcurrencyLimiterConfiguration();
+            this.backends.values().forEach(it -> it.getConcurrencyLimiter().setConfiguration(concurrencyLimiterConfiguration));
+            LOG.info("Applying new concurrency limiter configuration {}", this.concurrencyLimiterConfiguration);
+        }
+
         this.mapper = mapper;
 
         if (restart || started) {
@@ -190,6 +221,7 @@ public class BackendHealthManager implements Runnable {
                             LOG.debug("backend {} seems reachable. Response time {} ms", endpoint, checkResult.responseTime());
                 }
                 reportBackendReachable(endpoint, checkResult.endTs());
+                reachableBackendListener.accept(backend);
             } else {
                 switch (status.getStatus()) {
                     case DOWN ->
@@ -254,7 +286,7 @@ public class BackendHealthManager implements Runnable {
     }
 
     public BackendHealthStatus getBackendStatus(final EndpointKey hostPort) {
-        return backends.computeIfAbsent(hostPort, key -> new BackendHealthStatus(key, warmupPeriod));
+        return backends.computeIfAbsent(hostPort, key -> new BackendHealthStatus(key, warmupPeriod, circuitBreakerConfiguration, concurrencyLimiterConfiguration));
     }
 
     public BackendHealthStatus getBackendStatus(final String backendId) {
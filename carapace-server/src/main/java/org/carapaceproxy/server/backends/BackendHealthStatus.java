@@ -23,6 +23,8 @@ import java.sql.Timestamp;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import org.carapaceproxy.core.EndpointKey;
+import org.carapaceproxy.server.config.CircuitBreakerConfiguration;
+import org.carapaceproxy.server.config.ConcurrencyLimiterConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +39,8 @@ public class BackendHealthStatus {
 
     private final EndpointKey hostPort;
     private final AtomicInteger connections;
+    private final CircuitBreaker circuitBreaker;
+    private final ConcurrencyLimiter concurrencyLimiter;
 
     // Status + the three associated timestamps move together via a single AtomicReference so concurrent
     // reportAs(Un)Reachable callers cannot leave the four fields in a torn combination (e.g. status=DOWN
@@ -47,7 +51,17 @@ public class BackendHealthStatus {
     private volatile long warmupPeriod;
 
     public BackendHealthStatus(final EndpointKey hostPort, final long warmupPeriod) {
+        this(hostPort, warmupPeriod, CircuitBreakerConfiguration.DISABLED, ConcurrencyLimiterConfiguration.DISABLED);
+    }
+
+    public BackendHealthStatus(
+            final EndpointKey hostPort,
+            final long warmupPeriod,
+            final CircuitBreakerConfiguration circuitBreakerConfiguration,
+            final ConcurrencyLimiterConfiguration concurrencyLimiterConfiguration) {
         this.hostPort = hostPort;
+        this.circuitBreaker = new CircuitBreaker(hostPort, circuitBreakerConfiguration);
+        this.concurrencyLimiter = new ConcurrencyLimiter(hostPort, concurrencyLimiterConfiguration);
         // we assume that the backend just became reachable when the status is created
         final long created = System.currentTimeMillis();
         this.state = new AtomicReference<>(new State(Status.COLD, 0L, created, created));
@@ -120,6 +134,8 @@ public class BackendHealthStatus {
                 + ", unreachableUntil=" + snapshot.lastUnreachable()
                 + ", lastReachable=" + snapshot.lastReachable()
                 + ", lastProbe=" + this.lastProbe
+                + ", circuitBreaker=" + this.circuitBreaker.getState()
+                + ", concurrencyLimit=" + this.concurrencyLimiter.getLimit()
                 + '}';
     }
 
@@ -136,6 +152,49 @@ public class BackendHealthStatus {
         this.connections.updateAndGet(v -> Math.max(0, v - 1));
     }
 
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Check, without acquiring anything, whether the backend can take another request without exceeding its adaptive concurrency limit.
+     *
+     * @return false if the in-flight requests to the backend already reached the limit
+     */
+    public boolean hasConcurrency() {
+        return concurrencyLimiter.isAvailable();
+    }
+
+    /**
+     * Acquire the permission to send a request to the backend, both under its concurrency limit and from its circuit breaker.
+     * Every call acquired has to end either with an outcome reported to the circuit breaker and its concurrency slot released,
+     * or be {@link #releaseCall() released} altogether.
+     *
+     * @return false if either one refuses the request; then nothing is held
+     */
+    public boolean tryAcquireCall() {
+        if (!concurrencyLimiter.tryAcquire()) {
+            return false;
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            concurrencyLimiter.release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Give back a call whose outcome will never be known, e.g. because it was cancelled or never reached the backend.
+     */
+    public void releaseCall() {
+        circuitBreaker.releasePermission();
+        concurrencyLimiter.release();
+    }
+
     public void setWarmupPeriod(final long warmupPeriod) {
         this.warmupPeriod = warmupPeriod;
     }
@@ -0,0 +1,249 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.backends;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import org.carapaceproxy.core.EndpointKey;
+import org.carapaceproxy.server.config.CircuitBreakerConfiguration;
+import org.carapaceproxy.utils.PrometheusUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker of a backend.
+ * <p>
+ * While {@link State#CLOSED closed}, it tracks the outcome of the most recent calls;
+ * when the rate of failed or slow calls exceeds the configured thresholds, it {@link State#OPEN opens}
+ * and the backend is skipped by the mapper, so that requests fail over to another backend or fail fast.
+ * After a while, it becomes {@link State#HALF_OPEN half-open} and lets a few trial calls through:
+ * their outcome decides whether to close the circuit again or to keep it open.
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private static final Gauge CIRCUIT_BREAKER_STATE_GAUGE = PrometheusUtils.createGauge(
+            "backends", "circuit_breaker_state", "circuit breaker state (0 closed, 1 open, 2 half-open)", "host"
+    ).register();
+
+    private static final Counter CIRCUIT_BREAKER_TRANSITIONS_COUNTER = PrometheusUtils.createCounter(
+            "backends", "circuit_breaker_transitions_total", "circuit breaker state transitions", "host", "state"
+    ).register();
+
+    private static final int FAILURE = 1;
+    private static final int SLOW = 2;
+
+    private final String metricLabel;
+    private CircuitBreakerConfiguration configuration;
+    private State state = State.CLOSED;
+    private long stateSince = System.currentTimeMillis();
+
+    // sliding window of the outcomes of the calls, while closed
+    private int[] outcomes;
+    private int next;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+
+    // trial calls, while half-open
+    private int trialsPermitted;
+    private int trials;
+    private int trialFailures;
+    private int trialSlowCalls;
+
+    public CircuitBreaker(final EndpointKey hostPort, final CircuitBreakerConfiguration configuration) {
+        this.metricLabel = hostPort.host() + "_" + hostPort.port();
+        this.configuration = configuration;
+        this.outcomes = new int[Math.max(1, configuration.windowSize())];
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized void setConfiguration(final CircuitBreakerConfiguration configuration) {
+        if (this.configuration.equals(configuration)) {
+            return;
+        }
+        this.configuration = configuration;
+        this.outcomes = new int[Math.max(1, configuration.windowSize())];
+        resetWindow();
+        transitionTo(State.CLOSED);
+    }
+
+    /**
+     * Check whether a call to the backend is allowed, without consuming a trial call.
+     *
+     * @return false if the circuit is open
+     */
+    public synchronized boolean isCallPermitted() {
+        if (!configuration.enabled()) {
+            return true;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> openDurationElapsed();
+            case HALF_OPEN -> trialsPermitted < configuration.halfOpenCalls() || trialsExpired();
+        };
+    }
+
+    /**
+     * Acquire the permission to call the backend; when half-open, it consumes one of the trial calls.
+     *
+     * @return true if the backend can be called
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (!configuration.enabled()) {
+            return true;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (!openDurationElapsed()) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+                // falls through
+            case HALF_OPEN:
+                if (trialsExpired()) {
+                    // the outcome of some trial calls never came back (e.g. served from cache or cancelled)
+                    transitionTo(State.HALF_OPEN);
+                }
+                if (trialsPermitted >= configuration.halfOpenCalls()) {
+                    return false;
+                }
+                trialsPermitted++;
+                return true;
+            default:
+                throw new IllegalStateException("Unexpected state " + state);
+        }
+    }
+
+    /**
+     * Give back a permission whose call will report no outcome; when half-open, the trial call can be taken again.
+     */
+    public synchronized void releasePermission() {
+        if (configuration.enabled() && state == State.HALF_OPEN && trialsPermitted > trials) {
+            trialsPermitted--;
+        }
+    }
+
+    public void onSuccess(final long durationMillis) {
+        record(durationMillis, false);
+    }
+
+    public void onFailure(final long durationMillis) {
+        record(durationMillis, true);
+    }
+
+    private synchronized void record(final long durationMillis, final boolean failed) {
+        if (!configuration.enabled()) {
+            return;
+        }
+        final boolean slow = durationMillis >= configuration.slowCallDuration();
+        switch (state) {
+            case CLOSED -> {
+                if (calls == outcomes.length) {
+                    final int evicted = outcomes[next];
+                    failures -= evicted & FAILURE;
+                    slowCalls -= (evicted & SLOW) >> 1;
+                } else {
+                    calls++;
+                }
+                outcomes[next] = (failed ? FAILURE : 0) | (slow ? SLOW : 0);
+                next = (next + 1) % outcomes.length;
+                failures += failed ? 1 : 0;
+                slowCalls += slow ? 1 : 0;
+                if (calls >= configuration.minimumCalls() && exceedsThresholds(calls, failures, slowCalls)) {
+                    LOG.warn("{}: opening circuit breaker, {} failed and {} slow calls out of {}", metricLabel, failures, slowCalls, calls);
+                    transitionTo(State.OPEN);
+                }
+            }
+            case HALF_OPEN -> {
+                trials++;
+                trialFailures += failed ? 1 : 0;
+                trialSlowCalls += slow ? 1 : 0;
+                if (trials >= configuration.halfOpenCalls()) {
+                    if (exceedsThresholds(trials, trialFailures, trialSlowCalls)) {
+                        LOG.warn("{}: trial calls failed, circuit breaker is open again", metricLabel);
+                        transitionTo(State.OPEN);
+                    } else {
+                        LOG.info("{}: trial calls succeeded, closing circuit breaker", metricLabel);
+                        resetWindow();
+                        transitionTo(State.CLOSED);
+                    }
+                }
+            }
+            case OPEN -> {
+                // late outcome of a call started before opening
+            }
+        }
+    }
+
+    private boolean exceedsThresholds(final int calls, final int failures, final int slowCalls) {
+        return failures * 100 >= configuration.failureRateThreshold() * calls
+                || slowCalls * 100 >= configuration.slowCallRateThreshold() * calls;
+    }
+
+    private boolean openDurationElapsed() {
+        return System.currentTimeMillis() - stateSince >= configuration.openDuration();
+    }
+
+    private boolean trialsExpired() {
+        return System.currentTimeMillis() - stateSince >= configuration.openDuration() + configuration.slowCallDuration();
+    }
+
+    private void resetWindow() {
+        next = 0;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    private void transitionTo(final State newState) {
+        if (state != newState) {
+            CIRCUIT_BREAKER_TRANSITIONS_COUNTER.labels(metricLabel, newState.name().toLowerCase()).inc();
+            CIRCUIT_BREAKER_STATE_GAUGE.labels(metricLabel).set(newState.ordinal());
+        }
+        state = newState;
+        stateSince = System.currentTimeMillis();
+        trialsPermitted = 0;
+        trials = 0;
+        trialFailures = 0;
+        trialSlowCalls = 0;
+    }
+
+    public enum State {
+        /**
+         * Calls go through, their outcome is tracked.
+         */
+        CLOSED,
+        /**
+         * Calls are rejected.
+         */
+        OPEN,
+        /**
+         * A limited number of trial calls go through.
+         */
+        HALF_OPEN
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.backends;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.carapaceproxy.core.EndpointKey;
+import org.carapaceproxy.server.config.ConcurrencyLimiterConfiguration;
+import org.carapaceproxy.utils.PrometheusUtils;
+
+/**
+ * Adaptive limit of the in-flight requests to a backend.
+ * The limiter owns the count of the in-flight requests: a request is counted when it {@link #tryAcquire() acquires}
+ * a slot under the limit, and until it {@link #release() releases} it, so that concurrent requests cannot overshoot the limit.
+ * <p>
+ * The limit follows a gradient algorithm: it compares the short-term round-trip time of the requests
+ * with the long-term one; while they stay close, the limit grows by a queue allowance of {@code sqrt(limit)},
+ * when the short-term RTT rises because requests start queueing at the backend, the limit shrinks proportionally.
+ * Failed requests shrink the limit multiplicatively.
+ */
+public class ConcurrencyLimiter {
+
+    private static final Gauge CONCURRENCY_LIMIT_GAUGE = PrometheusUtils.createGauge(
+            "backends", "concurrency_limit", "adaptive limit of in-flight requests", "host"
+    ).register();
+
+    private static final Counter LIMITED_REQUESTS_COUNTER = PrometheusUtils.createCounter(
+            "backends", "concurrency_limited_requests_total", "requests not sent to a backend over its concurrency limit", "host"
+    ).register();
+
+    private static final double TOLERANCE = 1.5; // short-term RTT allowed over the long-term one before shrinking
+    private static final double SMOOTHING = 0.2;
+    private static final double SHORT_RTT_FACTOR = 2.0 / (1 + 10); // EMA over ~10 samples
+    private static final double LONG_RTT_FACTOR = 2.0 / (1 + 600); // EMA over ~600 samples
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final String metricLabel;
+    private volatile ConcurrencyLimiterConfiguration configuration;
+    private volatile double limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private double shortRtt;
+    private double longRtt;
+
+    public ConcurrencyLimiter(final EndpointKey hostPort, final ConcurrencyLimiterConfiguration configuration) {
+        this.metricLabel = hostPort.host() + "_" + hostPort.port();
+        setConfiguration(configuration);
+    }
+
+    public synchronized void setConfiguration(final ConcurrencyLimiterConfiguration configuration) {
+        this.configuration = configuration;
+        this.limit = configuration.initialLimit();
+        this.shortRtt = 0;
+        this.longRtt = 0;
+        if (configuration.enabled()) {
+            CONCURRENCY_LIMIT_GAUGE.labels(metricLabel).set(limit);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Check whether another request can be sent to the backend, without acquiring a slot nor counting it as limited.
+     *
+     * @return false if the backend is at its concurrency limit
+     */
+    public boolean isAvailable() {
+        return !configuration.enabled() || inFlight.get() < (int) limit;
+    }
+
+    /**
+     * Acquire a slot for a request to the backend, unless it is at its concurrency limit.
+     * The requests are counted even when the limiter is disabled, so that it can be enabled while they are in flight.
+     *
+     * @return false if the backend is at its concurrency limit; the request is not counted then
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (configuration.enabled() && current >= (int) limit) {
+                LIMITED_REQUESTS_COUNTER.labels(metricLabel).inc();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release the slot of a request that is no longer in flight, whatever its outcome.
+     */
+    public void release() {
+        inFlight.updateAndGet(current -> Math.max(0, current - 1));
+    }
+
+    /**
+     * Update the limit with the round-trip time of a request.
+     *
+     * @param rttMillis time the backend took to send the response headers
+     * @param inFlight  the requests in flight to the backend when the response was received
+     */
+    public synchronized void onSample(final long rttMillis, final int inFlight) {
+        final ConcurrencyLimiterConfiguration conf = this.configuration;
+        if (!conf.enabled()) {
+            return;
+        }
+        final double rtt = Math.max(1, rttMillis);
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+            return;
+        }
+        shortRtt += (rtt - shortRtt) * SHORT_RTT_FACTOR;
+        longRtt += (rtt - longRtt) * LONG_RTT_FACTOR;
+        if (longRtt / shortRtt > 2) {
+            // the latency dropped for a long time, let the baseline recover faster
+            longRtt *= 0.95;
+        }
+        if (inFlight < limit / 2) {
+            // the backend is not the bottleneck, no evidence to grow the limit
+            return;
+        }
+        final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        final double newLimit = limit * gradient + Math.sqrt(limit);
+        update(limit * (1 - SMOOTHING) + newLimit * SMOOTHING, conf);
+    }
+
+    /**
+     * Shrink the limit after a failed request.
+     */
+    public synchronized void onDropped() {
+        final ConcurrencyLimiterConfiguration conf = this.configuration;
+        if (conf.enabled()) {
+            update(limit * BACKOFF_RATIO, conf);
+        }
+    }
+
+    private void update(final double newLimit, final ConcurrencyLimiterConfiguration conf) {
+        limit = Math.max(conf.minLimit(), Math.min(conf.maxLimit(), newLimit));
+        CONCURRENCY_LIMIT_GAUGE.labels(metricLabel).set(limit);
+    }
+}
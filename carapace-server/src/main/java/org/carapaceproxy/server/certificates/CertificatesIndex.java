@@ -0,0 +1,121 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.certificates;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.carapaceproxy.server.config.SSLCertificateConfiguration;
+import org.carapaceproxy.utils.CertificatesUtils;
+
+/**
+ * Index of the certificates by the names they cover, to choose the one to present for a SNI hostname.
+ * <p>
+ * Exact names are hashed, while wildcard names are hashed by the domain they are the wildcard of
+ * (e.g. {@code *.shop.example.com} under {@code shop.example.com}): as a wildcard covers exactly one label,
+ * a hostname can only match the wildcard of the domain left after removing its first label.
+ * A lookup costs at most two hash lookups, no matter how many certificates there are.
+ * <br>
+ * The catch-all {@code *} certificate is not matched by any hostname: a client is presented the default certificate
+ * of the listener, and the catch-all one only when there is no such default.
+ * <p>
+ * The index is immutable: it is built once per configuration and shared by all the listeners.
+ */
+public final class CertificatesIndex {
+
+    public static final CertificatesIndex EMPTY = new CertificatesIndex(Map.of());
+
+    private final Map<String, SSLCertificateConfiguration> certificates;
+    private final Map<String, SSLCertificateConfiguration> exact = new HashMap<>();
+    private final Map<String, SSLCertificateConfiguration> wildcards = new HashMap<>();
+    private SSLCertificateConfiguration catchAll;
+
+    public CertificatesIndex(final Map<String, SSLCertificateConfiguration> certificates) {
+        this.certificates = Map.copyOf(certificates);
+        for (final SSLCertificateConfiguration certificate : certificates.values()) {
+            if (certificate.getSubjectAltNames() == null || certificate.getSubjectAltNames().isEmpty()) {
+                if (certificate.isWildcard()) {
+                    addWildcard(certificate.getHostname(), certificate);
+                } else {
+                    exact.put(normalize(certificate.getHostname()), certificate);
+                }
+                continue;
+            }
+            for (final String name : certificate.getNames()) {
+                if (CertificatesUtils.isWildcard(name)) {
+                    addWildcard(CertificatesUtils.removeWildcard(name), certificate);
+                } else {
+                    exact.put(normalize(name), certificate);
+                }
+            }
+        }
+    }
+
+    private void addWildcard(final String domain, final SSLCertificateConfiguration certificate) {
+        final String normalized = normalize(domain);
+        if (normalized.isEmpty()) {
+            catchAll = certificate;
+            return;
+        }
+        wildcards.merge(normalized, certificate, (current, other) -> other.isMoreSpecific(current) ? other : current);
+    }
+
+    /**
+     * Find the certificate covering a hostname.
+     *
+     * @param hostname the SNI hostname, null if the client did not send it
+     * @return an exact match, otherwise the wildcard covering its first label, or null
+     */
+    public SSLCertificateConfiguration lookup(final String hostname) {
+        if (hostname == null) {
+            return null;
+        }
+        final String normalized = normalize(hostname);
+        final SSLCertificateConfiguration match = exact.get(normalized);
+        if (match != null) {
+            return match;
+        }
+        final int dot = normalized.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        return wildcards.get(normalized.substring(dot + 1));
+    }
+
+    /**
+     * Choose the certificate to present for a hostname.
+     *
+     * @param hostname           the SNI hostname, null if the client did not send it
+     * @param defaultCertificate id of the certificate to fall back to
+     * @return the certificate, or the catch-all one if neither a match nor the default one exist
+     */
+    public SSLCertificateConfiguration choose(final String hostname, final String defaultCertificate) {
+        final SSLCertificateConfiguration match = lookup(hostname);
+        if (match != null) {
+            return match;
+        }
+        final SSLCertificateConfiguration fallback = defaultCertificate != null ? certificates.get(defaultCertificate) : null;
+        return fallback != null ? fallback : catchAll;
+    }
+
+    private static String normalize(final String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
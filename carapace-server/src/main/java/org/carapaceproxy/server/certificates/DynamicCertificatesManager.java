@@ -47,15 +47,20 @@ import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -100,10 +105,13 @@ public class DynamicCertificatesManager implements Runnable {
     private static final boolean TESTING_MODE = Boolean.getBoolean("carapace.acme.testmode");
 
     private static final int DNS_CHALLENGE_REACHABILITY_CHECKS_LIMIT = Integer.getInteger("carapace.acme.dnschallengereachabilitycheck.limit", 10);
+    // how many certificates are processed concurrently, each one waits for ACME, DNS and the store
+    private static final int LIFECYCLE_PARALLELISM = Integer.getInteger("carapace.acme.lifecycle.parallelism", 4);
 
     private static final Logger LOG = LoggerFactory.getLogger(DynamicCertificatesManager.class);
     private static final String EVENT_CERTIFICATES_STATE_CHANGED = "certificates_state_changed";
     private static final String EVENT_CERTIFICATES_REQUEST_STORE = "certificates_request_store";
+    private static final String EVENT_DATA_DOMAINS = "domains";
 
     private volatile Map<String, CertificateData> certificates = new ConcurrentHashMap<>();
     private ACMEClient acmeClient; // Let's Encrypt client
@@ -115,12 +123,16 @@ public class DynamicCertificatesManager implements Runnable {
     private Set<String> domainsCheckerIPAddresses;
 
     private ScheduledExecutorService scheduler;
+    private final ExecutorService workers = Executors.newFixedThreadPool(
+            LIFECYCLE_PARALLELISM, new ThreadFactoryBuilder().setNameFormat(THREAD_NAME + "-%d").build()
+    );
     private ScheduledFuture<?> scheduledFuture;
     private volatile boolean started; // keep track of start() calling
 
     private ConfigurationStore store;
     private volatile int period = 0; // in seconds
     private volatile int keyPairsSize = DEFAULT_KEYPAIRS_SIZE;
+    private volatile KeyPairsType keyPairsType = KeyPairsType.RSA;
     private GroupMembershipHandler groupMembershipHandler;
     private final HttpProxyServer server;
 
@@ -170,6 +182,7 @@ public class DynamicCertificatesManager implements Runnable {
             throw new DynamicCertificatesManagerException("ConfigurationStore not set.");
         }
         keyPairsSize = configuration.getKeyPairsSize();
+        keyPairsType = configuration.getKeyPairsType();
         if (acmeClient == null) {
             acmeClient = new ACMEClient(loadOrCreateAcmeUserKeyPair(), TESTING_MODE);
         }
@@ -197,22 +210,26 @@ public class DynamicCertificatesManager implements Runnable {
     }
 
     private void loadCertificates(Map<String, SSLCertificateConfiguration> certificates) throws ConfigurationNotValidException {
+        final List<SSLCertificateConfiguration> configs = new ArrayList<>();
+        for (SSLCertificateConfiguration config : certificates.values()) {
+            if (config.isDynamic()) {
+                if (config.isWildcard() && (awsAccessKey == null || awsSecretKey == null)) {
+                    throw new ConfigurationNotValidException(
+                            "For ACME wildcards certificates AWS Route53 credentials has to be set"
+                    );
+                }
+                configs.add(config);
+            }
+        }
         try {
+            final var stored = store.loadCertificatesForDomains(configs.stream().map(SSLCertificateConfiguration::getId).toList());
             final var _certificates = new ConcurrentHashMap<String, CertificateData>();
-            for (Entry<String, SSLCertificateConfiguration> e : certificates.entrySet()) {
-                SSLCertificateConfiguration config = e.getValue();
-                if (config.isDynamic()) {
-                    String domain = config.getId(); // hostname or *.hostname
-                    if (config.isWildcard() && (awsAccessKey == null || awsSecretKey == null)) {
-                        throw new ConfigurationNotValidException(
-                                "For ACME wildcards certificates AWS Route53 credentials has to be set"
-                        );
-                    }
-                    boolean forceManual = MANUAL == config.getMode();
-                    _certificates.put(domain, loadOrCreateDynamicCertificateForDomain(
-                            domain, config.getSubjectAltNames(), forceManual, config.getDaysBeforeRenewal()
-                    ));
-                }
+            for (SSLCertificateConfiguration config : configs) {
+                String domain = config.getId(); // hostname or *.hostname
+                boolean forceManual = MANUAL == config.getMode();
+                _certificates.put(domain, toDynamicCertificate(
+                        domain, stored.get(domain), config.getSubjectAltNames(), forceManual, config.getDaysBeforeRenewal()
+                ));
             }
             this.certificates = _certificates; // only certificates/domains specified in the config have to be managed.
         } catch (GeneralSecurityException | MalformedURLException e) {
@@ -220,11 +237,14 @@ public class DynamicCertificatesManager implements Runnable {
         }
     }
 
-    private CertificateData loadOrCreateDynamicCertificateForDomain(String domain,
-                                                                    Set<String> subjectAltNames,
-                                                                    boolean forceManual,
-                                                                    int daysBeforeRenewal) throws GeneralSecurityException, MalformedURLException {
-        CertificateData cert = store.loadCertificateForDomain(domain);
+    /**
+     * @param cert the certificate stored for the domain, or null to create a new one
+     */
+    private CertificateData toDynamicCertificate(String domain,
+                                                 CertificateData cert,
+                                                 Set<String> subjectAltNames,
+                                                 boolean forceManual,
+                                                 int daysBeforeRenewal) throws GeneralSecurityException, MalformedURLException {
         if (cert == null) {
             cert = new CertificateData(domain, subjectAltNames, null, WAITING, null, null);
         } else if (cert.getChain() != null && !cert.getChain().isEmpty()) {
@@ -258,6 +278,7 @@ public class DynamicCertificatesManager implements Runnable {
 
     public synchronized void stop() {
         started = false;
+        workers.shutdownNow();
         if (scheduler != null) {
             scheduler.shutdown();
             if (r53Client != null) {
@@ -282,100 +303,135 @@ public class DynamicCertificatesManager implements Runnable {
     }
 
     private void certificatesLifecycle() {
-        var flushCache = false;
-        List<CertificateData> _certificates = certificates.entrySet().stream()
-                .filter(e -> !e.getValue().isManual())
-                .sorted(Entry.comparingByKey())
-                .map(Entry::getValue)
-                .toList();
-        for (CertificateData data : _certificates) {
-            var updateCertificate = true;
+        // expiration is checked on the cached certificates, only the ones needing some work are loaded and processed
+        final List<CertificateData> actionable = new ArrayList<>();
+        for (CertificateData data : certificates.values()) {
+            try {
+                if (!data.isManual() && (data.getState() != AVAILABLE || isCertificateExpired(data.getExpiringDate(), data.getDaysBeforeRenewal()))) {
+                    actionable.add(data);
+                }
+            } catch (GeneralSecurityException ex) {
+                LOG.error("Error while checking dynamic certificate for domain {}", data.getDomain(), ex);
+            }
+        }
+        if (actionable.isEmpty()) {
+            return;
+        }
+        actionable.sort(Comparator.comparing(CertificateData::getDomain));
+        // this has to be always fetch from db!
+        final var stored = store.loadCertificatesForDomains(actionable.stream().map(CertificateData::getDomain).toList());
+        final List<CompletableFuture<CertificateData>> processing = new ArrayList<>(actionable.size());
+        for (CertificateData data : actionable) {
             final var domain = data.getDomain();
             try {
-                // this has to be always fetch from db!
-                CertificateData cert = loadOrCreateDynamicCertificateForDomain(domain, data.getSubjectAltNames(), false, data.getDaysBeforeRenewal());
-                switch (cert.getState()) {
-                    // certificate waiting to be issues/renew
-                    case WAITING -> startCertificateProcessing(domain, cert);
-                    // certificate domain reported as unreachable for issuing/renewing
-                    case DOMAIN_UNREACHABLE -> {
-                        if (cert.getAttemptsCount() <= getConfig().getMaxAttempts()) {
-                            startCertificateProcessing(domain, cert);
-                        }
-                    }
-                    // waiting for dns propagation for all dns challenges
-                    case DNS_CHALLENGE_WAIT -> checkDnsChallengesReachabilityForCertificate(cert);
-                    // challenges verification by LE pending
-                    case VERIFYING -> checkChallengesResponsesForCertificate(cert);
-                    // challenge succeeded
-                    case VERIFIED -> {
-                        LOG.info("Certificate for domain {} VERIFIED.", domain);
-                        Order pendingOrder = acmeClient.getLogin().bindOrder(cert.getPendingOrderLocation());
-                        // if the order is already valid, we have to skip finalization
-                        if (pendingOrder.getStatus() != Status.VALID) {
-                            try {
-                                KeyPair keys = loadOrCreateKeyPairForDomain(domain);
-                                acmeClient.orderCertificate(pendingOrder, keys);
-                            } catch (AcmeException ex) { // order finalization failed
-                                LOG.error("Certificate order finalization for domain {} FAILED.", domain, ex);
-                                cert.error(ex.getMessage());
-                                break;
-                            }
-                        }
-                        cert.step(ORDERING);
-                    }
-                    // certificate ordering
-                    case ORDERING -> {
-                        LOG.info("ORDERING certificate for domain {}.", domain);
-                        Order order = acmeClient.getLogin().bindOrder(cert.getPendingOrderLocation());
-                        Status status = acmeClient.checkResponseForOrder(order);
-                        if (status == Status.VALID) {
-                            List<X509Certificate> certificateChain = acmeClient.fetchCertificateForOrder(order).getCertificateChain();
-                            PrivateKey key = loadOrCreateKeyPairForDomain(domain).getPrivate();
-                            String chain = base64EncodeCertificateChain(certificateChain.toArray(new Certificate[0]), key);
-                            cert.setChain(chain);
-                            cert.success(AVAILABLE);
-                            LOG.info("Certificate issuing for domain: {} SUCCEED. Certificate AVAILABLE.", domain);
-                        } else if (status == Status.INVALID) {
-                            cert.error("Order status for certificate is " + status);
-                        }
+                final CertificateData cert = toDynamicCertificate(domain, stored.get(domain), data.getSubjectAltNames(), false, data.getDaysBeforeRenewal());
+                processing.add(CompletableFuture
+                        .supplyAsync(() -> processCertificate(cert) ? cert : null, workers)
+                        .exceptionally(err -> {
+                            LOG.error("Error while handling dynamic certificate for domain {}", domain, err);
+                            return null;
+                        }));
+            } catch (GeneralSecurityException | MalformedURLException ex) {
+                LOG.error("Error while handling dynamic certificate for domain {}", domain, ex);
+            }
+        }
+        CompletableFuture.allOf(processing.toArray(CompletableFuture[]::new)).join();
+        final List<CertificateData> updated = processing.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .toList();
+        if (!updated.isEmpty()) {
+            final List<String> domains = updated.stream().map(CertificateData::getDomain).toList();
+            LOG.info("Save certificate request status for domains {}", domains);
+            store.saveCertificates(updated);
+            groupMembershipHandler.fireEvent(EVENT_CERTIFICATES_STATE_CHANGED, Map.of(EVENT_DATA_DOMAINS, domains));
+            // remember that events  are not delivered to the local JVM;
+            // already running inside the mutex via certificatesLifecycle's caller, so skip the dispatcher.
+            reloadCertificatesFromDBInternal(domains);
+        }
+    }
+
+    /**
+     * Move the certificate a step forward in its lifecycle.
+     *
+     * @return whether the certificate has to be saved
+     */
+    private boolean processCertificate(final CertificateData cert) {
+        var updateCertificate = true;
+        final var domain = cert.getDomain();
+        try {
+            switch (cert.getState()) {
+                // certificate waiting to be issues/renew
+                case WAITING -> startCertificateProcessing(domain, cert);
+                // certificate domain reported as unreachable for issuing/renewing
+                case DOMAIN_UNREACHABLE -> {
+                    if (cert.getAttemptsCount() <= getConfig().getMaxAttempts()) {
+                        startCertificateProcessing(domain, cert);
                     }
-                    // challenge/order failed
-                    case REQUEST_FAILED -> {
-                        if (cert.getAttemptsCount() <= getConfig().getMaxAttempts()){
-                            LOG.info("Certificate issuing for domain: {} current status is FAILED, setting status=WAITING again.", domain);
-                            cert.step(WAITING);
+                }
+                // waiting for dns propagation for all dns challenges
+                case DNS_CHALLENGE_WAIT -> checkDnsChallengesReachabilityForCertificate(cert);
+                // challenges verification by LE pending
+                case VERIFYING -> checkChallengesResponsesForCertificate(cert);
+                // challenge succeeded
+                case VERIFIED -> {
+                    LOG.info("Certificate for domain {} VERIFIED.", domain);
+                    Order pendingOrder = acmeClient.getLogin().bindOrder(cert.getPendingOrderLocation());
+                    // if the order is already valid, we have to skip finalization
+                    if (pendingOrder.getStatus() != Status.VALID) {
+                        try {
+                            KeyPair keys = loadOrCreateKeyPairForDomain(domain);
+                            acmeClient.orderCertificate(pendingOrder, keys);
+                        } catch (AcmeException ex) { // order finalization failed
+                            LOG.error("Certificate order finalization for domain {} FAILED.", domain, ex);
+                            cert.error(ex.getMessage());
+                            break;
                         }
                     }
-                    // certificate saved/available/not expired
-                    case AVAILABLE -> {
-                        if (isCertificateExpired(cert.getExpiringDate(), cert.getDaysBeforeRenewal())) {
-                            cert.step(EXPIRED);
-                        } else {
-                            updateCertificate = false;
-                        }
+                    cert.step(ORDERING);
+                }
+                // certificate ordering
+                case ORDERING -> {
+                    LOG.info("ORDERING certificate for domain {}.", domain);
+                    Order order = acmeClient.getLogin().bindOrder(cert.getPendingOrderLocation());
+                    Status status = acmeClient.checkResponseForOrder(order);
+                    if (status == Status.VALID) {
+                        List<X509Certificate> certificateChain = acmeClient.fetchCertificateForOrder(order).getCertificateChain();
+                        PrivateKey key = loadOrCreateKeyPairForDomain(domain).getPrivate();
+                        String chain = base64EncodeCertificateChain(certificateChain.toArray(new Certificate[0]), key);
+                        cert.setChain(chain);
+                        cert.success(AVAILABLE);
+                        LOG.info("Certificate issuing for domain: {} SUCCEED. Certificate AVAILABLE.", domain);
+                    } else if (status == Status.INVALID) {
+                        cert.error("Order status for certificate is " + status);
                     }
-                    // certificate expired
-                    case EXPIRED -> {
-                        LOG.info("Certificate for domain: {} EXPIRED.", domain);
+                }
+                // challenge/order failed
+                case REQUEST_FAILED -> {
+                    if (cert.getAttemptsCount() <= getConfig().getMaxAttempts()){
+                        LOG.info("Certificate issuing for domain: {} current status is FAILED, setting status=WAITING again.", domain);
                         cert.step(WAITING);
                     }
-                    default -> throw new IllegalStateException();
                 }
-                if (updateCertificate) {
-                    LOG.info("Save certificate request status for domain {}", domain);
-                    store.saveCertificate(cert);
-                    flushCache = true;
+                // certificate saved/available/not expired
+                case AVAILABLE -> {
+                    if (isCertificateExpired(cert.getExpiringDate(), cert.getDaysBeforeRenewal())) {
+                        cert.step(EXPIRED);
+                    } else {
+                        updateCertificate = false;
+                    }
                 }
-            } catch (AcmeException | IOException | GeneralSecurityException | IllegalStateException ex) {
-                LOG.error("Error while handling dynamic certificate for domain {}", domain, ex);
+                // certificate expired
+                case EXPIRED -> {
+                    LOG.info("Certificate for domain: {} EXPIRED.", domain);
+                    cert.step(WAITING);
+                }
+                default -> throw new IllegalStateException();
             }
-        }
-        if (flushCache) {
-            groupMembershipHandler.fireEvent(EVENT_CERTIFICATES_STATE_CHANGED, null);
-            // remember that events  are not delivered to the local JVM;
-            // already running inside the mutex via certificatesLifecycle's caller, so skip the dispatcher.
-            reloadCertificatesFromDBInternal();
+            return updateCertificate;
+        } catch (AcmeException | IOException | GeneralSecurityException | IllegalStateException ex) {
+            LOG.error("Error while handling dynamic certificate for domain {}", domain, ex);
+            return false;
         }
     }
 
@@ -398,6 +454,7 @@ public class DynamicCertificatesManager implements Runnable {
             }
         }
         if (unreachableNames.isEmpty()) {
+            replaceKeyPairOfOtherTypeForDomain(domain);
             createOrderAndChallengesForCertificate(cert);
         } else {
             cert.error(DOMAIN_UNREACHABLE, unreachableNames.toString());
@@ -564,7 +621,7 @@ public class DynamicCertificatesManager implements Runnable {
     private KeyPair loadOrCreateKeyPairForDomain(String domain) {
         KeyPair pair = store.loadKeyPairForDomain(domain);
         if (pair == null) {
-            pair = KeyPairUtils.createKeyPair(keyPairsSize > 0 ? keyPairsSize : DEFAULT_KEYPAIRS_SIZE);
+            pair = createKeyPairForDomain();
             if (!store.saveKeyPairForDomain(pair, domain, false)) {
                 pair = store.loadKeyPairForDomain(domain); // load key created by another peer concurrently
             }
@@ -573,6 +630,22 @@ public class DynamicCertificatesManager implements Runnable {
         return pair;
     }
 
+    private KeyPair createKeyPairForDomain() {
+        return keyPairsType.createKeyPair(keyPairsSize > 0 ? keyPairsSize : DEFAULT_KEYPAIRS_SIZE);
+    }
+
+    /**
+     * When the configured key type changed, the domain key pair is replaced before a new order is created, so that
+     * the CSR of the order and the final keystore always share the same key.
+     */
+    private void replaceKeyPairOfOtherTypeForDomain(String domain) {
+        final KeyPair pair = store.loadKeyPairForDomain(domain);
+        if (pair != null && !keyPairsType.matches(pair)) {
+            LOG.info("Replacing {} key pair of domain {} with a new {} one", pair.getPrivate().getAlgorithm(), domain, keyPairsType);
+            store.saveKeyPairForDomain(createKeyPairForDomain(), domain, true);
+        }
+    }
+
     @VisibleForTesting
     public DynamicCertificateState getStateOfCertificate(String id) {
         if (certificates.containsKey(id)) {
@@ -593,14 +666,29 @@ public class DynamicCertificatesManager implements Runnable {
                 cert.success(state);
                 store.saveCertificate(cert);
                 // remember that events are not delivered to the local JVM
-                reloadCertificatesFromDB();
+                reloadCertificatesFromDB(List.of(id));
                 if (groupMembershipHandler != null) {
-                    groupMembershipHandler.fireEvent(EVENT_CERTIFICATES_STATE_CHANGED, null);
+                    groupMembershipHandler.fireEvent(EVENT_CERTIFICATES_STATE_CHANGED, Map.of(EVENT_DATA_DOMAINS, List.of(id)));
                 }
             }
         }
     }
 
+    /**
+     * Reload the certificate of a domain after it has been saved to the store, on this peer and on the others.
+     *
+     * @param id the domain of the certificate
+     */
+    public void reloadStoredCertificate(String id) {
+        if (certificates.containsKey(id)) {
+            // remember that events are not delivered to the local JVM
+            reloadCertificatesFromDB(List.of(id));
+            if (groupMembershipHandler != null) {
+                groupMembershipHandler.fireEvent(EVENT_CERTIFICATES_STATE_CHANGED, Map.of(EVENT_DATA_DOMAINS, List.of(id)));
+            }
+        }
+    }
+
     private RuntimeServerConfiguration getConfig() {
         return server.getCurrentConfiguration();
     }
@@ -626,9 +714,10 @@ public class DynamicCertificatesManager implements Runnable {
 
         @Override
         public void eventFired(String eventId, Map<String, Object> data) {
-            LOG.info("Certificates state changed");
+            final var domains = data != null ? (List<?>) data.get(EVENT_DATA_DOMAINS) : null;
+            LOG.info("Certificates state changed for domains {}", domains);
             try {
-                reloadCertificatesFromDB();
+                reloadCertificatesFromDB(domains != null ? domains.stream().map(String.class::cast).toList() : null);
             } catch (Exception err) {
                 LOG.error("Failed to reload certificates from db. Cause: {0}", err);
             }
@@ -638,7 +727,7 @@ public class DynamicCertificatesManager implements Runnable {
         public void reconnected() {
             LOG.info("Reloading certificates after ZK reconnection");
             try {
-                reloadCertificatesFromDB();
+                reloadCertificatesFromDB(null);
             } catch (Exception err) {
                 LOG.error("Failed to reload certificates from db. Cause: {0}", err);
             }
@@ -679,29 +768,46 @@ public class DynamicCertificatesManager implements Runnable {
      * this class (e.g. {@link #run()} and {@link #setStateOfCertificate}).
      * <p>
      * Callers already running inside the mutex (e.g. {@link #certificatesLifecycle()})
-     * should invoke {@link #reloadCertificatesFromDBInternal()} directly instead.
+     * should invoke {@link #reloadCertificatesFromDBInternal(Collection)} directly instead.
+     *
+     * @param changedDomains the domains whose certificates changed, or null to look for the ones whose stored version differs from the loaded one
      */
-    private void reloadCertificatesFromDB() {
+    private void reloadCertificatesFromDB(Collection<String> changedDomains) {
         if (groupMembershipHandler != null) {
-            groupMembershipHandler.executeInMutex(THREAD_NAME, period > 0 ? period : 1, this::reloadCertificatesFromDBInternal);
+            groupMembershipHandler.executeInMutex(THREAD_NAME, period > 0 ? period : 1, () -> reloadCertificatesFromDBInternal(changedDomains));
         } else {
-            reloadCertificatesFromDBInternal();
+            reloadCertificatesFromDBInternal(changedDomains);
         }
     }
 
-    private void reloadCertificatesFromDBInternal() {
-        LOG.info("Reloading certificates from db");
+    private void reloadCertificatesFromDBInternal(Collection<String> changedDomains) {
+        final var oldCertificates = this.certificates;
+        final Collection<String> toReload;
+        final Map<String, CertificateData> stored;
+        if (changedDomains != null) {
+            toReload = changedDomains.stream().filter(oldCertificates::containsKey).toList();
+            stored = store.loadCertificatesForDomains(toReload);
+        } else {
+            final Map<String, Long> knownVersions = new HashMap<>();
+            oldCertificates.forEach((domain, cert) -> knownVersions.put(domain, cert.getVersion()));
+            stored = store.loadChangedCertificates(knownVersions);
+            toReload = stored.keySet();
+        }
+        LOG.info("Reloading certificates from db for domains {}", toReload);
+        if (toReload.isEmpty()) {
+            return;
+        }
         try {
-            Map<String, CertificateData> newCertificates = new ConcurrentHashMap<>();
-            for (Entry<String, CertificateData> entry : certificates.entrySet()) {
-                String domain = entry.getKey();
-                CertificateData cert = entry.getValue();
+            final Map<String, CertificateData> newCertificates = new ConcurrentHashMap<>(oldCertificates);
+            final List<CertificateData> reloaded = new ArrayList<>(toReload.size());
+            for (String domain : toReload) {
+                CertificateData cert = oldCertificates.get(domain);
                 // "wildcard" and "manual" flags and "daysBeforeRenewal" are not stored in db > have to be re-set from existing config
-                CertificateData freshCert = loadOrCreateDynamicCertificateForDomain(domain, cert.getSubjectAltNames(), cert.isManual(), cert.getDaysBeforeRenewal());
+                CertificateData freshCert = toDynamicCertificate(domain, stored.get(domain), cert.getSubjectAltNames(), cert.isManual(), cert.getDaysBeforeRenewal());
                 newCertificates.put(domain, freshCert);
+                reloaded.add(freshCert);
                 LOG.info("RELOADED certificate for domain {}: {}", domain, freshCert);
             }
-            var oldCertificates = this.certificates;
             final boolean anyBindingChange = hasAnyBindingChange(oldCertificates, newCertificates);
             this.certificates = newCertificates; // only certificates/domains specified in the config have to be managed.
             if (anyBindingChange) {
@@ -710,7 +816,7 @@ public class DynamicCertificatesManager implements Runnable {
                 LOG.debug("No certificate binding change detected; skipping listener reload");
             }
             // storing certificates on local path
-            storeLocalCertificates(newCertificates.values(), oldCertificates);
+            storeLocalCertificates(reloaded, oldCertificates);
         } catch (GeneralSecurityException | MalformedURLException | InterruptedException | ConfigurationNotValidException e) {
             throw new DynamicCertificatesManagerException("Unable to load dynamic certificates from db.", e);
         }
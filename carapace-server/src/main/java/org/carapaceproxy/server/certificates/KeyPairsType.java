@@ -0,0 +1,59 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.certificates;
+
+import java.security.KeyPair;
+import java.util.Locale;
+import java.util.Set;
+import org.shredzone.acme4j.util.KeyPairUtils;
+
+/**
+ * Algorithm of the key pairs generated for ACME issued certificates.
+ */
+public enum KeyPairsType {
+    /** RSA key pairs, sized according to the configured key size */
+    RSA("RSA"),
+
+    /** ECDSA key pairs on the P-256 curve; cheaper handshakes and smaller certificates */
+    EC("EC", "ECDSA");
+
+    private static final String EC_CURVE = "secp256r1";
+
+    private final Set<String> algorithms;
+
+    KeyPairsType(String... algorithms) {
+        this.algorithms = Set.of(algorithms);
+    }
+
+    public KeyPair createKeyPair(int size) {
+        return switch (this) {
+            case RSA -> KeyPairUtils.createKeyPair(size);
+            case EC -> KeyPairUtils.createECKeyPair(EC_CURVE);
+        };
+    }
+
+    public boolean matches(KeyPair pair) {
+        return algorithms.contains(pair.getPrivate().getAlgorithm());
+    }
+
+    public static KeyPairsType fromConfiguration(String type) {
+        return KeyPairsType.valueOf(type.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.certificates;
+
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.SslContext;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.carapaceproxy.cluster.GroupMembershipHandler;
+import org.carapaceproxy.core.RuntimeServerConfiguration;
+import org.glassfish.jersey.internal.guava.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manager of the TLS session ticket keys shared by the peers of a cluster.
+ * <p>
+ * By default, every SSL context encrypts the session tickets with its own random keys,
+ * so a client reconnecting to another peer cannot resume its session and pays a full handshake.
+ * This manager keeps a current, a next and a previous key in the shared data of the cluster and rotates them periodically,
+ * in mutual exclusion with the other peers: new tickets are encrypted with the current key,
+ * while the others are still accepted, so that tickets issued just before a rotation,
+ * or by a peer that rotated a bit earlier, can still be decrypted.
+ *
+ * @see GroupMembershipHandler#storeSharedData(String, byte[])
+ */
+public class SessionTicketKeysManager implements Runnable {
+
+    public static final String THREAD_NAME = "session-ticket-keys-manager";
+    public static final int DEFAULT_ROTATION_PERIOD = 3_600; // in seconds
+
+    private static final Logger LOG = LoggerFactory.getLogger(SessionTicketKeysManager.class);
+    private static final String EVENT_KEYS_CHANGED = "session_ticket_keys_changed";
+    private static final String SHARED_DATA_KEY = "session_ticket_keys";
+    private static final int NAME_SIZE = 16;
+    private static final int HMAC_KEY_SIZE = 16;
+    private static final int AES_KEY_SIZE = 16;
+    private static final int KEY_SIZE = NAME_SIZE + HMAC_KEY_SIZE + AES_KEY_SIZE;
+    // rotation timestamp, then the current, the next and the previous key
+    private static final int DATA_SIZE = Long.BYTES + 3 * KEY_SIZE;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Runnable onKeysChanged;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> scheduledFuture;
+    private volatile boolean started; // keep track of start() calling
+    private volatile int period = DEFAULT_ROTATION_PERIOD; // in seconds
+    private GroupMembershipHandler groupMembershipHandler;
+    private byte[] keys;
+    private volatile OpenSslSessionTicketKey[] ticketKeys;
+
+    /**
+     * @param onKeysChanged called when the keys change, to apply them to the SSL contexts already built
+     */
+    public SessionTicketKeysManager(final Runnable onKeysChanged) {
+        this.onKeysChanged = onKeysChanged;
+    }
+
+    public void attachGroupMembershipHandler(final GroupMembershipHandler groupMembershipHandler) {
+        this.groupMembershipHandler = groupMembershipHandler;
+        groupMembershipHandler.watchEvent(EVENT_KEYS_CHANGED, new OnKeysChanged());
+    }
+
+    public synchronized void reloadConfiguration(final RuntimeServerConfiguration configuration) {
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(true);
+        }
+        period = configuration.getSessionTicketKeysRotationPeriod();
+        if (scheduledFuture != null || started) {
+            start();
+        }
+    }
+
+    public synchronized void start() {
+        started = true;
+        if (period <= 0 || groupMembershipHandler == null) {
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat(THREAD_NAME).build());
+        }
+        LOG.info("Starting {}, rotation period: {} seconds", SessionTicketKeysManager.class.getCanonicalName(), period);
+        scheduledFuture = scheduler.scheduleWithFixedDelay(this, 0, getCheckPeriod(), TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        started = false;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+                scheduler = null;
+                scheduledFuture = null;
+            } catch (InterruptedException err) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private int getCheckPeriod() {
+        // the rotation of the cluster may be late of a check period at most
+        return Math.max(1, period / 4);
+    }
+
+    @Override
+    public void run() {
+        groupMembershipHandler.executeInMutex(THREAD_NAME, getCheckPeriod(), this::rotateIfExpired);
+    }
+
+    private void rotateIfExpired() {
+        final byte[] stored = groupMembershipHandler.loadSharedData(SHARED_DATA_KEY);
+        final long now = System.currentTimeMillis();
+        final boolean valid = stored != null && stored.length == DATA_SIZE;
+        if (valid && now - ByteBuffer.wrap(stored).getLong() < period * 1000L) {
+            update(stored);
+            return;
+        }
+        final byte[] rotated = rotate(now, valid ? stored : null);
+        groupMembershipHandler.storeSharedData(SHARED_DATA_KEY, rotated);
+        // the keys are secret: the event only notifies the peers, which read them from the shared data
+        groupMembershipHandler.fireEvent(EVENT_KEYS_CHANGED, null);
+        LOG.info("Session ticket keys rotated");
+        update(rotated);
+    }
+
+    static byte[] rotate(final long now, final byte[] previous) {
+        final ByteBuffer data = ByteBuffer.allocate(DATA_SIZE).putLong(now);
+        final byte[] next = new byte[KEY_SIZE];
+        RANDOM.nextBytes(next);
+        if (previous == null) {
+            final byte[] current = new byte[KEY_SIZE];
+            RANDOM.nextBytes(current);
+            final byte[] old = new byte[KEY_SIZE];
+            RANDOM.nextBytes(old);
+            return data.put(current).put(next).put(old).array();
+        }
+        // the next key becomes the current one, the current one the previous one
+        final ByteBuffer source = ByteBuffer.wrap(previous, Long.BYTES, 2 * KEY_SIZE);
+        final byte[] current = new byte[KEY_SIZE];
+        final byte[] old = new byte[KEY_SIZE];
+        source.get(old).get(current);
+        return data.put(current).put(next).put(old).array();
+    }
+
+    private synchronized void update(final byte[] newKeys) {
+        if (newKeys == null || newKeys.length != DATA_SIZE || Arrays.equals(newKeys, keys)) {
+            return;
+        }
+        this.keys = newKeys;
+        this.ticketKeys = toTicketKeys(newKeys);
+        onKeysChanged.run();
+    }
+
+    static OpenSslSessionTicketKey[] toTicketKeys(final byte[] data) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data, Long.BYTES, 3 * KEY_SIZE);
+        // the first key is the one used to encrypt new tickets
+        final OpenSslSessionTicketKey[] result = new OpenSslSessionTicketKey[3];
+        for (int i = 0; i < result.length; i++) {
+            final byte[] name = new byte[NAME_SIZE];
+            final byte[] hmacKey = new byte[HMAC_KEY_SIZE];
+            final byte[] aesKey = new byte[AES_KEY_SIZE];
+            buffer.get(name).get(hmacKey).get(aesKey);
+            result[i] = new OpenSslSessionTicketKey(name, hmacKey, aesKey);
+        }
+        return result;
+    }
+
+    /**
+     * Use the shared keys for the session tickets of a server SSL context.
+     *
+     * @param sslContext the context
+     */
+    public void apply(final SslContext sslContext) {
+        final OpenSslSessionTicketKey[] current = this.ticketKeys;
+        if (current != null && sslContext.sessionContext() instanceof OpenSslSessionContext sessionContext) {
+            sessionContext.setTicketKeys(current);
+        }
+    }
+
+    private class OnKeysChanged implements GroupMembershipHandler.EventCallback {
+
+        @Override
+        public void eventFired(final String eventId, final Map<String, Object> data) {
+            LOG.info("Session ticket keys rotated by another peer");
+            update(groupMembershipHandler.loadSharedData(SHARED_DATA_KEY));
+        }
+
+        @Override
+        public void reconnected() {
+            LOG.info("Reloading session ticket keys after ZK reconnection");
+            synchronized (SessionTicketKeysManager.this) {
+                if (started && scheduler != null) {
+                    scheduler.execute(SessionTicketKeysManager.this);
+                }
+            }
+        }
+    }
+}
@@ -25,11 +25,16 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.net.URI;
 import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -43,6 +48,7 @@ import org.bouncycastle.cert.ocsp.OCSPReq;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.bouncycastle.cert.ocsp.SingleResp;
 import org.bouncycastle.operator.OperatorCreationException;
+import org.carapaceproxy.configstore.ConfigurationStore;
 import org.carapaceproxy.core.RuntimeServerConfiguration;
 import org.carapaceproxy.core.TrustStoreManager;
 import org.glassfish.jersey.internal.guava.ThreadFactoryBuilder;
@@ -51,6 +57,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Manager performing: - periodic OCSP stapling requests - OCSP responses management
+ * <p>
+ * Responses are kept already encoded, so that handshakes only copy them, and they are refreshed in parallel
+ * halfway through their validity, well ahead of their next update.
+ * They are also saved in the {@link ConfigurationStore}, so that after a restart, or on the other peers,
+ * a response that is still fresh is reused instead of asking the OCSP responder of the CA again.
  *
  * @author paolo.venturi
  */
@@ -58,30 +69,48 @@ public class OcspStaplingManager implements Runnable {
 
     public static final String THREAD_NAME = "ocsp-stapling-manager";
     private static final long DAY_SECONDS = 1000 * 60 * 60 * 24;
+    private static final int PARALLELISM = 8;
+    private static final byte[] NO_RESPONSE = new byte[0];
 
     private static final Logger LOG = LoggerFactory.getLogger(OcspStaplingManager.class);
     private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
     private ScheduledFuture<?> scheduledFuture;
     private volatile boolean started; // keep track of start() calling
     private volatile int period = 0; // in seconds
 
     private final ConcurrentHashMap<Certificate, OcspCheck> ocspChecks = new ConcurrentHashMap<>();
     private TrustStoreManager trustStoreManager;
+    private volatile ConfigurationStore store;
 
     private static final class OcspCheck {
 
-        Certificate[] chain;
-        OCSPResp response;
+        final Certificate[] chain;
+        final String id;
+        // ids of the configured certificates served with this chain
+        final Set<String> certificateIds = ConcurrentHashMap.newKeySet();
+        volatile OCSPResp response;
+        volatile byte[] encodedResponse = NO_RESPONSE;
 
-        public OcspCheck(Certificate[] chain, OCSPResp response) {
+        public OcspCheck(Certificate[] chain) {
             this.chain = chain;
+            this.id = fingerprint(chain[0]);
+        }
+
+        void update(OCSPResp response, byte[] encodedResponse) {
             this.response = response;
+            this.encodedResponse = encodedResponse;
         }
     }
 
     public OcspStaplingManager(TrustStoreManager trustStoreManager) {
         this.trustStoreManager = trustStoreManager;
         scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat(THREAD_NAME).build());
+        workers = Executors.newFixedThreadPool(PARALLELISM, new ThreadFactoryBuilder().setNameFormat(THREAD_NAME + "-%d").build());
+    }
+
+    public void setConfigurationStore(ConfigurationStore store) {
+        this.store = store;
     }
 
     public synchronized void reloadConfiguration(RuntimeServerConfiguration configuration) {
@@ -89,7 +118,16 @@ public class OcspStaplingManager implements Runnable {
             scheduledFuture.cancel(true);
         }
         period = configuration.getOcspStaplingManagerPeriod();
-        ocspChecks.clear();
+        // responses are kept across reloads, only the ones of expired or no longer configured certificates are dropped
+        final Set<String> configured = configuration.getCertificates().keySet();
+        ocspChecks.values().removeIf(check -> {
+            check.certificateIds.retainAll(configured);
+            if (check.certificateIds.isEmpty() || ((X509Certificate) check.chain[0]).getNotAfter().before(new Date())) {
+                deleteStoredResponse(check);
+                return true;
+            }
+            return false;
+        });
         if (scheduledFuture != null || started) {
             start();
         }
@@ -108,6 +146,7 @@ public class OcspStaplingManager implements Runnable {
     public synchronized void stop() {
         started = false;
         scheduler.shutdown();
+        workers.shutdownNow();
         try {
             scheduler.awaitTermination(10, TimeUnit.SECONDS);
             scheduledFuture = null;
@@ -118,20 +157,29 @@ public class OcspStaplingManager implements Runnable {
 
     @Override
     public void run() {
-        ocspChecks.values().forEach((check) -> {
-            X509Certificate cert = (X509Certificate) check.chain[0];
-            String dn = cert.getSubjectDN().getName();
-            try {
-                if (check.response == null || isExpired(check.response)) { // new or expired
-                    LOG.info("Performing OCSP stapling for {}", dn);
-                    if (!performStaplingForCertificate(check.chain)) {
-                        LOG.error("OCSP stapling failed for {}", dn);
-                    }
-                }
-            } catch (IOException | OCSPException | GeneralSecurityException | OperatorCreationException ex) {
-                LOG.error("Unable to perform OCSP stapling for {}", dn, ex);
+        final List<CompletableFuture<Void>> refreshes = ocspChecks.values().stream()
+                .filter(check -> check.response == null || isRefreshDue(check.response))
+                .map(check -> CompletableFuture.runAsync(() -> refresh(check), workers))
+                .toList();
+        CompletableFuture.allOf(refreshes.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void refresh(OcspCheck check) {
+        X509Certificate cert = (X509Certificate) check.chain[0];
+        String dn = cert.getSubjectDN().getName();
+        try {
+            // another peer, or this one before a restart, may have already got a fresh response
+            if (loadStoredResponse(check)) {
+                LOG.info("Using stored OCSP response for {}", dn);
+                return;
             }
-        });
+            LOG.info("Performing OCSP stapling for {}", dn);
+            if (!performStaplingForCertificate(check.chain)) {
+                LOG.error("OCSP stapling failed for {}", dn);
+            }
+        } catch (IOException | OCSPException | GeneralSecurityException | OperatorCreationException | RuntimeException ex) {
+            LOG.error("Unable to perform OCSP stapling for {}", dn, ex);
+        }
     }
 
     public static boolean isExpired(OCSPResp response) throws OCSPException {
@@ -152,6 +200,26 @@ public class OcspStaplingManager implements Runnable {
         return nextUpdate.before(expiringDate);
     }
 
+    /**
+     * A response has to be refreshed once half of its validity has elapsed, or when it is about to expire.
+     *
+     * @param response the response
+     * @return whether a new response should be requested
+     */
+    public static boolean isRefreshDue(OCSPResp response) {
+        try {
+            if (isExpired(response)) {
+                return true;
+            }
+            SingleResp first = ((BasicOCSPResp) response.getResponseObject()).getResponses()[0];
+            long thisUpdate = first.getThisUpdate().getTime();
+            long nextUpdate = first.getNextUpdate().getTime();
+            return System.currentTimeMillis() >= thisUpdate + (nextUpdate - thisUpdate) / 2;
+        } catch (OCSPException ex) {
+            return true;
+        }
+    }
+
     public boolean performStaplingForCertificate(Certificate[] chain) throws IOException, OCSPException, GeneralSecurityException, OperatorCreationException {
         if (!OpenSsl.isAvailable() || !OpenSsl.isOcspSupported()) {
             return false;
@@ -207,17 +275,95 @@ public class OcspStaplingManager implements Runnable {
         }
 
         // Step 4: Cache the OCSP response and use it as long as it's not expired.
-        ocspChecks.replace(cert, new OcspCheck(chain, response));
+        OcspCheck check = ocspChecks.get(cert);
+        if (check != null) {
+            byte[] encoded = response.getEncoded();
+            check.update(response, encoded);
+            saveStoredResponse(check, encoded);
+        }
         return true;
     }
 
-    public void addCertificateForStapling(Certificate[] chain) {
-        ocspChecks.putIfAbsent(chain[0], new OcspCheck(chain, null));
+    private boolean loadStoredResponse(OcspCheck check) throws IOException {
+        ConfigurationStore current = this.store;
+        if (current == null) {
+            return false;
+        }
+        byte[] encoded = current.loadOcspResponse(check.id);
+        if (encoded == null || encoded.length == 0) {
+            return false;
+        }
+        OCSPResp response = new OCSPResp(encoded);
+        if (response.getStatus() != OCSPResponseStatus.SUCCESSFUL || isRefreshDue(response)) {
+            return false;
+        }
+        check.update(response, encoded);
+        return true;
+    }
+
+    private void saveStoredResponse(OcspCheck check, byte[] encoded) {
+        ConfigurationStore current = this.store;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.saveOcspResponse(check.id, encoded);
+        } catch (RuntimeException ex) {
+            LOG.error("Unable to store OCSP response for {}", check.id, ex);
+        }
+    }
+
+    private void deleteStoredResponse(OcspCheck check) {
+        ConfigurationStore current = this.store;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.deleteOcspResponse(check.id);
+        } catch (RuntimeException ex) {
+            LOG.error("Unable to delete OCSP response for {}", check.id, ex);
+        }
+    }
+
+    private static String fingerprint(Certificate cert) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(cert.getEncoded()));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalArgumentException("Unable to encode certificate " + cert, ex);
+        }
+    }
+
+    /**
+     * Staple the responses for a certificate, until it is no longer configured.
+     * <p>
+     * A chain replacing the one of the same certificate, e.g. after a renewal, supersedes it.
+     *
+     * @param certificateId the id of the configured certificate
+     * @param chain         the chain served for it
+     */
+    public void addCertificateForStapling(String certificateId, Certificate[] chain) {
+        OcspCheck check = new OcspCheck(chain);
+        check.certificateIds.add(certificateId);
+        OcspCheck existing = ocspChecks.putIfAbsent(chain[0], check);
+        if (existing != null) {
+            existing.certificateIds.add(certificateId);
+        } else if (started && period > 0) {
+            // do not wait for the next period to staple a new certificate
+            workers.execute(() -> refresh(check));
+        }
+        ocspChecks.entrySet().removeIf(entry -> {
+            OcspCheck other = entry.getValue();
+            if (entry.getKey().equals(chain[0]) || !other.certificateIds.remove(certificateId) || !other.certificateIds.isEmpty()) {
+                return false;
+            }
+            deleteStoredResponse(other);
+            return true;
+        });
     }
 
-    public byte[] getOcspResponseForCertificate(Certificate cert) throws IOException {
+    public byte[] getOcspResponseForCertificate(Certificate cert) {
         OcspCheck check = ocspChecks.get(cert);
-        return check != null && check.response != null ? check.response.getEncoded() : new byte[0];
+        return check != null ? check.encodedResponse : NO_RESPONSE;
     }
 
     @VisibleForTesting
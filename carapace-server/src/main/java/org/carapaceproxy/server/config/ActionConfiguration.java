@@ -66,6 +66,8 @@ public class ActionConfiguration {
     private String redirectHost;
     private int redirectPort;
     private String redirectPath;
+    private int maxRetries; // retries on another backend of idempotent requests, 0 to disable
+    private int hedgePercentile; // percentile of the route latency after which the request is hedged, 0 to disable
 
     public ActionConfiguration(String id, String type, String director, String file, int errorcode) {
         this.id = id;
@@ -32,6 +32,9 @@ import org.carapaceproxy.server.backends.BackendHealthStatus.Status;
  * @param ssl                  whether to use SSL when connecting to this backend
  * @param caCertificatePath    path to a CA certificate to trust when connecting to this backend (optional)
  * @param caCertificatePassword password for the CA certificate (optional)
+ * @param probeScheme          the scheme to use to probe the backend
+ * @param sslSessionCacheSize  how many TLS sessions to cache for resumption, or 0 for the default of the SSL provider
+ * @param sslSessionTimeout    how long the cached TLS sessions can be resumed, in seconds, or 0 for the default of the SSL provider
  */
 public record BackendConfiguration(
         String id,
@@ -41,9 +44,26 @@ public record BackendConfiguration(
         boolean ssl,
         String caCertificatePath,
         String caCertificatePassword,
-        String probeScheme
+        String probeScheme,
+        int sslSessionCacheSize,
+        int sslSessionTimeout
 ) {
 
+    public static final int DEFAULT_SSL_SESSION_CACHE_SIZE = 0;
+    public static final int DEFAULT_SSL_SESSION_TIMEOUT = 0;
+
+    public BackendConfiguration(
+            final String id,
+            final EndpointKey hostPort,
+            final String probePath,
+            final int safeCapacity,
+            final boolean ssl,
+            final String caCertificatePath,
+            final String caCertificatePassword,
+            final String probeScheme) {
+        this(id, hostPort, probePath, safeCapacity, ssl, caCertificatePath, caCertificatePassword, probeScheme, DEFAULT_SSL_SESSION_CACHE_SIZE, DEFAULT_SSL_SESSION_TIMEOUT);
+    }
+
     /**
      * Configuration of a single backend server.
      *
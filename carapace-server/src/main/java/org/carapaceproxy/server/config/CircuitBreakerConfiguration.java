@@ -0,0 +1,62 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.config;
+
+/**
+ * Configuration of the circuit breakers guarding the backends.
+ *
+ * @param enabled               whether the circuit breakers are enabled
+ * @param failureRateThreshold  percentage of failed calls that opens the circuit
+ * @param slowCallRateThreshold percentage of slow calls that opens the circuit
+ * @param slowCallDuration      time in milliseconds after which a call is considered slow
+ * @param minimumCalls          minimum number of calls in the window before the rates are evaluated
+ * @param windowSize            number of most recent calls the rates are computed on
+ * @param openDuration          time in milliseconds an open circuit waits before letting trial calls through
+ * @param halfOpenCalls         number of trial calls that decide whether a half-open circuit closes or opens again
+ */
+public record CircuitBreakerConfiguration(
+        boolean enabled,
+        int failureRateThreshold,
+        int slowCallRateThreshold,
+        long slowCallDuration,
+        int minimumCalls,
+        int windowSize,
+        long openDuration,
+        int halfOpenCalls) {
+
+    public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50; // %
+    public static final int DEFAULT_SLOW_CALL_RATE_THRESHOLD = 100; // %
+    public static final long DEFAULT_SLOW_CALL_DURATION = 10_000; // ms
+    public static final int DEFAULT_MINIMUM_CALLS = 20;
+    public static final int DEFAULT_WINDOW_SIZE = 100;
+    public static final long DEFAULT_OPEN_DURATION = 30_000; // ms
+    public static final int DEFAULT_HALF_OPEN_CALLS = 5;
+
+    public static final CircuitBreakerConfiguration DISABLED = new CircuitBreakerConfiguration(
+            false,
+            DEFAULT_FAILURE_RATE_THRESHOLD,
+            DEFAULT_SLOW_CALL_RATE_THRESHOLD,
+            DEFAULT_SLOW_CALL_DURATION,
+            DEFAULT_MINIMUM_CALLS,
+            DEFAULT_WINDOW_SIZE,
+            DEFAULT_OPEN_DURATION,
+            DEFAULT_HALF_OPEN_CALLS
+    );
+}
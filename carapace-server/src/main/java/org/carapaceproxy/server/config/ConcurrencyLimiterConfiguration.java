@@ -0,0 +1,39 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.config;
+
+/**
+ * Configuration of the adaptive concurrency limiters of the backends.
+ *
+ * @param enabled      whether the limiters are enabled
+ * @param initialLimit in-flight requests allowed to a backend before any latency is measured
+ * @param minLimit     lower bound of the in-flight requests limit
+ * @param maxLimit     upper bound of the in-flight requests limit
+ */
+public record ConcurrencyLimiterConfiguration(boolean enabled, int initialLimit, int minLimit, int maxLimit) {
+
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    public static final int DEFAULT_MIN_LIMIT = 4;
+    public static final int DEFAULT_MAX_LIMIT = 1_000;
+
+    public static final ConcurrencyLimiterConfiguration DISABLED = new ConcurrencyLimiterConfiguration(
+            false, DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT
+    );
+}
@@ -41,6 +41,7 @@ public class ConnectionPoolConfiguration {
     public static final int DEFAULT_KEEPALIVE_INTERVAL = 60;
     public static final int DEFAULT_KEEPALIVE_COUNT = 8;
     public static final boolean DEFAULT_KEEPALIVE = true;
+    public static final int DEFAULT_MIN_IDLE = 0;
 
     private String id;
     private String domain;
@@ -56,4 +57,5 @@ public class ConnectionPoolConfiguration {
     private int keepaliveCount = DEFAULT_KEEPALIVE_COUNT;
     private boolean keepAlive = DEFAULT_KEEPALIVE;
     private boolean enabled;
+    private int minIdle = DEFAULT_MIN_IDLE;
 }
@@ -0,0 +1,53 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.config;
+
+import java.util.Map;
+
+/**
+ * Configuration of the fair queuing of the requests waiting for a backend connection.
+ *
+ * @param enabled      whether the requests are queued per tenant when a connection pool is exhausted
+ * @param tenantKey    what identifies the tenant of a request
+ * @param shares       the share of each tenant, i.e. how many of its requests are admitted in every round
+ * @param defaultShare the share of the tenants without an explicit one
+ */
+public record FairQueuingConfiguration(boolean enabled, TenantKey tenantKey, Map<String, Integer> shares, int defaultShare) {
+
+    public static final int DEFAULT_SHARE = 1;
+
+    public static final FairQueuingConfiguration DISABLED = new FairQueuingConfiguration(
+            false, TenantKey.USERID, Map.of(), DEFAULT_SHARE
+    );
+
+    public enum TenantKey {
+        USERID,
+        ROUTE
+    }
+
+    public String tenantOf(final String userId, final String routeId) {
+        final String tenant = tenantKey == TenantKey.USERID ? userId : routeId;
+        return tenant != null ? tenant : "";
+    }
+
+    public int shareOf(final String tenant) {
+        return shares.getOrDefault(tenant, defaultShare);
+    }
+}
@@ -22,9 +22,6 @@ package org.carapaceproxy.server.config;
 import static reactor.netty.http.HttpProtocol.H2;
 import static reactor.netty.http.HttpProtocol.H2C;
 import static reactor.netty.http.HttpProtocol.HTTP11;
-import io.netty.channel.group.ChannelGroup;
-import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.util.concurrent.DefaultEventExecutor;
 import java.util.Set;
 import org.carapaceproxy.core.EndpointKey;
 import org.carapaceproxy.core.ForwardedStrategies;
@@ -32,6 +29,11 @@ import reactor.netty.http.HttpProtocol;
 
 /**
  * Listens for connections on the network
+ *
+ * @param acceptors number of sockets bound with SO_REUSEPORT on the same port, 0 means one per event loop;
+ *                  more than one requires the epoll transport
+ * @param reusePort whether a single socket is bound with SO_REUSEPORT too, so that a restart binds the new socket
+ *                  before closing the previous one; any other process of the same user can then bind the port as well
  */
 public record NetworkListenerConfiguration(
         String host,
@@ -49,7 +51,8 @@ public record NetworkListenerConfiguration(
         String forwardedStrategy,
         Set<String> trustedIps,
         Set<HttpProtocol> protocols,
-        ChannelGroup group
+        int acceptors,
+        boolean reusePort
 ) {
 
     public static final Set<String> DEFAULT_SSL_PROTOCOLS = Set.of("TLSv1.2", "TLSv1.3");
@@ -60,6 +63,8 @@ public record NetworkListenerConfiguration(
     public static final int DEFAULT_KEEP_ALIVE_COUNT = 8;
     public static final int DEFAULT_MAX_KEEP_ALIVE_REQUESTS = 1000;
     public static final String DEFAULT_FORWARDED_STRATEGY = ForwardedStrategies.preserve().name();
+    public static final int DEFAULT_ACCEPTORS = 1;
+    public static final boolean DEFAULT_REUSE_PORT = false;
 
     public NetworkListenerConfiguration {
         if (protocols == null || protocols.isEmpty()) {
@@ -68,6 +73,45 @@ public record NetworkListenerConfiguration(
         if (!ssl && protocols.contains(H2)) {
             throw new IllegalArgumentException("H2 requires SSL support");
         }
+        if (acceptors < 0) {
+            throw new IllegalArgumentException("The number of acceptors cannot be negative");
+        }
+    }
+
+    public NetworkListenerConfiguration(
+            final String host,
+            final int port,
+            final boolean ssl,
+            final String sslCiphers,
+            final String defaultCertificate,
+            final Set<String> sslProtocols,
+            final int soBacklog,
+            final boolean keepAlive,
+            final int keepAliveIdle,
+            final int keepAliveInterval,
+            final int keepAliveCount,
+            final int maxKeepAliveRequests,
+            final String forwardedStrategy,
+            final Set<String> trustedIps,
+            final Set<HttpProtocol> protocols) {
+        this(
+                host,
+                port,
+                ssl,
+                sslCiphers,
+                defaultCertificate,
+                sslProtocols,
+                soBacklog,
+                keepAlive,
+                keepAliveIdle,
+                keepAliveInterval,
+                keepAliveCount,
+                maxKeepAliveRequests,
+                forwardedStrategy,
+                trustedIps,
+                protocols,
+                DEFAULT_ACCEPTORS,
+                DEFAULT_REUSE_PORT);
     }
 
     public static NetworkListenerConfiguration withDefault(final String host, final int port) {
@@ -125,8 +169,7 @@ public record NetworkListenerConfiguration(
                 DEFAULT_MAX_KEEP_ALIVE_REQUESTS,
                 DEFAULT_FORWARDED_STRATEGY,
                 Set.of(),
-                protocols,
-                new DefaultChannelGroup(new DefaultEventExecutor()));
+                protocols);
     }
 
     public static NetworkListenerConfiguration withDefault(
@@ -156,8 +199,7 @@ public record NetworkListenerConfiguration(
                 maxKeepAliveRequests,
                 DEFAULT_FORWARDED_STRATEGY,
                 Set.of(),
-                getDefaultHttpProtocols(ssl),
-                new DefaultChannelGroup(new DefaultEventExecutor()));
+                getDefaultHttpProtocols(ssl));
     }
 
     /**
@@ -182,8 +224,7 @@ public record NetworkListenerConfiguration(
                 DEFAULT_MAX_KEEP_ALIVE_REQUESTS,
                 DEFAULT_FORWARDED_STRATEGY,
                 Set.of(),
-                protocols,
-                new DefaultChannelGroup(new DefaultEventExecutor()));
+                protocols);
     }
 
     public static Set<HttpProtocol> getDefaultHttpProtocols(final boolean ssl) {
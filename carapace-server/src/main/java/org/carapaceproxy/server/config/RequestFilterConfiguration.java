@@ -20,12 +20,14 @@
 package org.carapaceproxy.server.config;
 
 import java.util.Map;
+import lombok.EqualsAndHashCode;
 
 /**
  * Configuration for a TLS Certificate
  *
  * @author enrico.olivelli
  */
+@EqualsAndHashCode
 public class RequestFilterConfiguration {
 
     private final String type;
@@ -26,10 +26,11 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.Setter;
 import lombok.ToString;
+import org.carapaceproxy.core.EndpointKey;
 import org.carapaceproxy.server.backends.BackendHealthStatus;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class MapResult {
 
     public enum Action {
@@ -94,6 +95,16 @@ public class MapResult {
     private String redirectProto;
     private String redirectPath;
     private boolean ssl;
+    private int maxRetries;
+    private int hedgePercentile;
+
+    /**
+     * Other usable backends selected for the request, sorted from the most desirable,
+     * eligible for a retry or a hedged request.
+     */
+    @Builder.Default
+    @EqualsAndHashCode.Exclude
+    private List<EndpointKey> fallbacks = List.of();
 
     @Setter(AccessLevel.NONE)
     @EqualsAndHashCode.Exclude
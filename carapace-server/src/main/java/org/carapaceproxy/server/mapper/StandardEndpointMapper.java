@@ -23,6 +23,8 @@ import static org.carapaceproxy.core.StaticContentsManager.DEFAULT_INTERNAL_SERV
 import static org.carapaceproxy.core.StaticContentsManager.DEFAULT_MAINTENANCE_MODE_ERROR;
 import static org.carapaceproxy.core.StaticContentsManager.DEFAULT_NOT_FOUND;
 import static org.carapaceproxy.core.StaticContentsManager.IN_MEMORY_RESOURCE;
+import static org.carapaceproxy.server.config.BackendConfiguration.DEFAULT_SSL_SESSION_CACHE_SIZE;
+import static org.carapaceproxy.server.config.BackendConfiguration.DEFAULT_SSL_SESSION_TIMEOUT;
 import com.google.common.net.HostAndPort;
 import com.google.common.net.InetAddresses;
 import com.google.common.net.InternetDomainName;
@@ -265,6 +267,15 @@ public class StandardEndpointMapper extends EndpointMapper {
                             }
                             // falls through
                         case STABLE: {
+                            // the permission to call the backend is acquired when forwarding, a request served from the cache does not call it
+                            if (!backendStatus.hasConcurrency()) {
+                                LOG.debug("Backend {} reached its concurrency limit of {}, skipping...", backendId, backendStatus.getConcurrencyLimiter().getLimit());
+                                continue;
+                            }
+                            if (!backendStatus.getCircuitBreaker().isCallPermitted()) {
+                                LOG.info("Backend {} circuit breaker is open, skipping...", backendId);
+                                continue;
+                            }
                             List<CustomHeader> customHeaders = action.getCustomHeaders();
                             if (this.debuggingHeaderEnabled) {
                                 customHeaders = new ArrayList<>(customHeaders);
@@ -274,6 +285,7 @@ public class StandardEndpointMapper extends EndpointMapper {
                                         + backendId;
                                 customHeaders.add(new CustomHeader(DEBUGGING_HEADER_ID, debuggingHeaderName, routingPath, HeaderMode.ADD));
                             }
+                            final boolean retryable = action.getMaxRetries() > 0 || action.getHedgePercentile() > 0;
                             return MapResult.builder()
                                     .host(backend.host())
                                     .port(backend.port())
@@ -282,6 +294,9 @@ public class StandardEndpointMapper extends EndpointMapper {
                                     .customHeaders(customHeaders)
                                     .healthStatus(backendStatus)
                                     .ssl(backend.ssl())
+                                    .maxRetries(action.getMaxRetries())
+                                    .hedgePercentile(action.getHedgePercentile())
+                                    .fallbacks(retryable ? findFallbacks(selectedBackends, backendId) : List.of())
                                     .build();
                         }
                     }
@@ -297,6 +312,30 @@ public class StandardEndpointMapper extends EndpointMapper {
         return MapResult.notFound(MapResult.NO_ROUTE);
     }
 
+    /**
+     * Collect the backends following the chosen one in the selection that are not known to be down
+     * and whose circuit breaker is not open.
+     *
+     * @param selectedBackends the backends selected for the request, sorted from the most desirable
+     * @param chosenBackendId  the backend the request is going to be forwarded to
+     * @return the endpoints of the backends to use when retrying or hedging the request
+     */
+    private List<EndpointKey> findFallbacks(final List<String> selectedBackends, final String chosenBackendId) {
+        final List<EndpointKey> fallbacks = new ArrayList<>();
+        final int start = selectedBackends.indexOf(chosenBackendId) + 1;
+        for (final String backendId : selectedBackends.subList(start, selectedBackends.size())) {
+            final BackendConfiguration backend = this.backends.get(backendId);
+            if (backend == null) {
+                continue;
+            }
+            final BackendHealthStatus status = getBackendHealthManager().getBackendStatus(backend.hostPort());
+            if (status.getStatus() != BackendHealthStatus.Status.DOWN && status.getCircuitBreaker().isCallPermitted()) {
+                fallbacks.add(backend.hostPort());
+            }
+        }
+        return fallbacks;
+    }
+
     private ActionConfiguration getErrorActionConfiguration(final String routeId, final String defaultAction) {
         // Attempt to find a route-specific configuration first
         return routes.stream()
@@ -424,8 +463,7 @@ public class StandardEndpointMapper extends EndpointMapper {
         /*
          * HEADERS
          */
-        int max = properties.findMaxIndexForPrefix("header");
-        for (int i = 0; i <= max; i++) {
+        for (int i : properties.findIndexesForPrefix("header")) {
             String prefix = "header." + i + ".";
             String id = properties.getString(prefix + "id", "");
             String name = properties.getString(prefix + "name", "");
@@ -440,8 +478,7 @@ public class StandardEndpointMapper extends EndpointMapper {
         /*
          * ACTIONS
          */
-        max = properties.findMaxIndexForPrefix("action");
-        for (int i = 0; i <= max; i++) {
+        for (int i : properties.findIndexesForPrefix("action")) {
             String prefix = "action." + i + ".";
             String id = properties.getString(prefix + "id", "");
             boolean enabled = properties.getBoolean(prefix + "enabled", false);
@@ -489,17 +526,28 @@ public class StandardEndpointMapper extends EndpointMapper {
                     }
                 }
 
+                // Retries and hedging of idempotent requests
+                final int maxRetries = properties.getInt(prefix + "retries", 0);
+                if (maxRetries < 0) {
+                    throw new ConfigurationNotValidException("while configuring action '" + id + "': invalid value '" + maxRetries + "' for retries");
+                }
+                action.setMaxRetries(maxRetries);
+                final int hedgePercentile = properties.getInt(prefix + "hedge.percentile", 0);
+                if (hedgePercentile < 0 || hedgePercentile > 99) {
+                    throw new ConfigurationNotValidException("while configuring action '" + id + "': invalid value '" + hedgePercentile + "' for hedge.percentile (allowed: 0-99)");
+                }
+                action.setHedgePercentile(hedgePercentile);
+
                 addAction(action);
-                LOG.info("configured action {} type={} enabled:{} headers:{} redirect location:{} redirect proto:{} redirect host:{} redirect port:{} redirect path:{}",
-                        id, actionType, enabled, headersIds, redirectLocation, action.getRedirectProto(), action.getRedirectHost(), action.getRedirectPort(), action.getRedirectPath());
+                LOG.info("configured action {} type={} enabled:{} headers:{} redirect location:{} redirect proto:{} redirect host:{} redirect port:{} redirect path:{} retries:{} hedge percentile:{}",
+                        id, actionType, enabled, headersIds, redirectLocation, action.getRedirectProto(), action.getRedirectHost(), action.getRedirectPort(), action.getRedirectPath(), maxRetries, hedgePercentile);
             }
         }
 
         /*
          * BACKENDS
          */
-        max = properties.findMaxIndexForPrefix("backend");
-        for (int i = 0; i <= max; i++) {
+        for (int i : properties.findIndexesForPrefix("backend")) {
             String prefix = "backend." + i + ".";
             String id = properties.getString(prefix + "id", "");
             if (!id.isEmpty()) {
@@ -520,10 +568,20 @@ public class StandardEndpointMapper extends EndpointMapper {
                     default:
                         throw new ConfigurationNotValidException("invalid probeScheme=" + probeScheme + " while configuring backend '" + id + "' (allowed: http|https)");
                 }
-                LOG.info("configured backend {} {}:{} enabled={} capacity={} ssl={} caCertificate={} caCertificatePassword={} probeScheme={}",
-                         id, host, port, enabled, safeCapacity, ssl, caCertificatePath, caCertificatePassword != null ? "******" : null, probeSchemeNormalized);
+                final int sslSessionCacheSize = properties.getInt(prefix + "sslsessioncachesize", DEFAULT_SSL_SESSION_CACHE_SIZE);
+                if (sslSessionCacheSize < 0) {
+                    throw new ConfigurationNotValidException("invalid sslSessionCacheSize=" + sslSessionCacheSize + " while configuring backend '" + id + "'");
+                }
+                final int sslSessionTimeout = properties.getInt(prefix + "sslsessiontimeout", DEFAULT_SSL_SESSION_TIMEOUT);
+                if (sslSessionTimeout < 0) {
+                    throw new ConfigurationNotValidException("invalid sslSessionTimeout=" + sslSessionTimeout + " while configuring backend '" + id + "'");
+                }
+                LOG.info("configured backend {} {}:{} enabled={} capacity={} ssl={} caCertificate={} caCertificatePassword={} probeScheme={} sslSessionCacheSize={} sslSessionTimeout={}",
+                         id, host, port, enabled, safeCapacity, ssl, caCertificatePath, caCertificatePassword != null ? "******" : null, probeSchemeNormalized, sslSessionCacheSize, sslSessionTimeout);
                 if (enabled) {
-                    addBackend(new BackendConfiguration(id, new EndpointKey(host, port), probePath, safeCapacity, ssl, caCertificatePath, caCertificatePassword, probeSchemeNormalized));
+                    addBackend(new BackendConfiguration(
+                            id, new EndpointKey(host, port), probePath, safeCapacity, ssl, caCertificatePath, caCertificatePassword, probeSchemeNormalized, sslSessionCacheSize, sslSessionTimeout
+                    ));
                 }
             }
         }
@@ -531,8 +589,7 @@ public class StandardEndpointMapper extends EndpointMapper {
         /*
          * DIRECTORS
          */
-        max = properties.findMaxIndexForPrefix("director");
-        for (int i = 0; i <= max; i++) {
+        for (int i : properties.findIndexesForPrefix("director")) {
             String prefix = "director." + i + ".";
             String id = properties.getString(prefix + "id", "");
             if (!id.isEmpty()) {
@@ -554,8 +611,7 @@ public class StandardEndpointMapper extends EndpointMapper {
         /*
          * ROUTES
          */
-        max = properties.findMaxIndexForPrefix("route");
-        for (int i = 0; i <= max; i++) {
+        for (int i : properties.findIndexesForPrefix("route")) {
             String prefix = "route." + i + ".";
             String id = properties.getString(prefix + "id", "");
             if (id.isEmpty()) {
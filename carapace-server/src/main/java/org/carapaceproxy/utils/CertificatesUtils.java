@@ -24,6 +24,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -43,6 +44,7 @@ import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
 import org.carapaceproxy.core.RuntimeServerConfiguration;
+import org.carapaceproxy.server.certificates.CertificatesIndex;
 import org.carapaceproxy.server.config.SSLCertificateConfiguration;
 
 /**
@@ -160,6 +162,26 @@ public final class CertificatesUtils {
         return ks;
     }
 
+    public static byte[] readKeyStoreFile(String filename, File basePath) throws IOException {
+        File sslCertFile = filename.startsWith("/") ? new File(filename) : new File(basePath, filename);
+        return Files.readAllBytes(sslCertFile.getAbsoluteFile().toPath());
+    }
+
+    /**
+     * A value that changes when a file is modified, cheaper to compute than reading the file.
+     *
+     * @param filename the path of the file, relative to basePath allowed
+     * @param basePath the base path
+     * @return the modification time and the size of the file, or null if it does not exist
+     */
+    public static String fileStamp(String filename, File basePath) {
+        if (filename == null || filename.isEmpty()) {
+            return null;
+        }
+        File file = (filename.startsWith("/") ? new File(filename) : new File(basePath, filename)).getAbsoluteFile();
+        return file.isFile() ? file.lastModified() + ":" + file.length() : null;
+    }
+
     public static Map<String, X509Certificate> loadCaCerts(TrustManagerFactory trustManagerFactory) {
         final Map<String, X509Certificate> certificateAuthorities = new HashMap<>();
         for (TrustManager trustManager : trustManagerFactory.getTrustManagers()) {
@@ -249,51 +271,7 @@ public final class CertificatesUtils {
         return WILDCARD_PREFIX + Objects.requireNonNull(name);
     }
 
-    public static boolean certificateMatches(
-            final String hostname, final SSLCertificateConfiguration certificate, final boolean exact) {
-        if (certificate.getSubjectAltNames() == null || certificate.getSubjectAltNames().isEmpty()) {
-            if (exact) {
-                return !certificate.isWildcard() && hostname.equals(certificate.getHostname());
-            }
-            return certificate.isWildcard() && hostname.endsWith(certificate.getHostname());
-        }
-        for (final String name : certificate.getNames()) {
-            final boolean wildcard = isWildcard(name);
-            if (exact && !wildcard && hostname.equals(name)) {
-                return true;
-            }
-            if (!exact && wildcard && hostname.endsWith(CertificatesUtils.removeWildcard(name))) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    public static SSLCertificateConfiguration chooseCertificate(final RuntimeServerConfiguration currentConfiguration, String sniHostname, final String defaultCertificate) {
-        if (sniHostname == null) {
-            sniHostname = "";
-        }
-        final var certificates = currentConfiguration.getCertificates();
-        SSLCertificateConfiguration certificateMatchExact = null;
-        SSLCertificateConfiguration certificateMatchNoExact = null;
-        for (final var c : certificates.values()) {
-            if (certificateMatches(sniHostname, c, true)) {
-                certificateMatchExact = c;
-            } else if (certificateMatches(sniHostname, c, false)) {
-                if (certificateMatchNoExact == null || c.isMoreSpecific(certificateMatchNoExact)) {
-                    certificateMatchNoExact = c;
-                }
-            }
-        }
-        SSLCertificateConfiguration chosen = null;
-        if (certificateMatchExact != null) {
-            chosen = certificateMatchExact;
-        } else if (certificateMatchNoExact != null) {
-            chosen = certificateMatchNoExact;
-        }
-        if (chosen == null) {
-            chosen = certificates.get(defaultCertificate);
-        }
-        return chosen;
+    public static SSLCertificateConfiguration chooseCertificate(final RuntimeServerConfiguration currentConfiguration, final String sniHostname, final String defaultCertificate) {
+        return new CertificatesIndex(currentConfiguration.getCertificates()).choose(sniHostname, defaultCertificate);
     }
 }
@@ -29,19 +29,25 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.aMapWithSize;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
 import java.util.Properties;
 import org.apache.http.HttpStatus;
@@ -57,6 +63,7 @@ import org.carapaceproxy.server.filters.XForwardedForRequestFilter;
 import org.carapaceproxy.server.mapper.StandardEndpointMapper;
 import org.carapaceproxy.user.SimpleUserRealm;
 import org.carapaceproxy.user.UserRealm;
+import org.carapaceproxy.utils.KeyStoreRule;
 import org.carapaceproxy.utils.TestEndpointMapper;
 import org.carapaceproxy.utils.TestUserRealm;
 import org.carapaceproxy.utils.TestUtils;
@@ -73,6 +80,12 @@ public class ApplyConfigurationTest {
 
     @ClassRule
     public static WireMockRule wireMockRule = new WireMockRule(0);
+    @ClassRule(order = 0)
+    public static TemporaryFolder keyStoresDir = new TemporaryFolder();
+    @ClassRule(order = 1)
+    public static KeyStoreRule oldTrustStore = new KeyStoreRule(keyStoresDir);
+    @ClassRule(order = 2)
+    public static KeyStoreRule newTrustStore = new KeyStoreRule(keyStoresDir);
     @Rule
     public TemporaryFolder tmpDir = new TemporaryFolder();
 
@@ -256,6 +269,32 @@ public class ApplyConfigurationTest {
         return configuration;
     }
 
+    @Test
+    public void testReapplyConfigurationAfterTrustStoreReplaced() throws Exception {
+        try (HttpProxyServer server = new HttpProxyServer(StandardEndpointMapper::new, tmpDir.newFolder())) {
+            final File trustStoreFile = tmpDir.newFile("truststore.p12");
+            Files.copy(oldTrustStore.getTrustStoreFile().toPath(), trustStoreFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            final Properties configuration = props(Map.of(
+                    "truststore.ssltruststorefile", trustStoreFile.getAbsolutePath(),
+                    "truststore.ssltruststorepassword", new String(oldTrustStore.getKeyStorePassword())
+            ));
+            server.configureAtBoot(new PropertiesConfigurationStore(new Properties()));
+            server.start();
+            reloadConfiguration(server, configuration);
+            assertThat(server.getTrustStoreManager().getCertificateAuthorities().values(), contains(oldTrustStore.getCertificate()));
+            final String oldStamp = server.getTrustStoreManager().getTrustStoreStamp();
+
+            // replace the file in place, keeping its path
+            Files.copy(newTrustStore.getTrustStoreFile().toPath(), trustStoreFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            assertTrue(trustStoreFile.setLastModified(trustStoreFile.lastModified() + 10_000));
+
+            // the same configuration is applied again
+            reloadConfiguration(server, configuration);
+            assertThat(server.getTrustStoreManager().getTrustStoreStamp(), is(not(oldStamp)));
+            assertThat(server.getTrustStoreManager().getCertificateAuthorities().values(), contains(newTrustStore.getCertificate()));
+        }
+    }
+
     @Test
     public void testUserRealm() throws Exception {
 
@@ -21,6 +21,7 @@ package org.carapaceproxy.backends;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.head;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static org.hamcrest.CoreMatchers.containsString;
@@ -30,6 +31,9 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -46,6 +50,7 @@ import java.net.SocketAddress;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import org.carapaceproxy.api.ConnectionPoolsResource;
 import org.carapaceproxy.api.UseAdminServer;
 import org.carapaceproxy.core.ConnectionsManager;
@@ -68,7 +73,11 @@ public class ConnectionPoolTest extends UseAdminServer {
     @Rule
     public WireMockRule wireMockRule = new WireMockRule(0);
 
-    private void configureAndStartServer() throws Exception {
+    private Properties configureAndStartServer() throws Exception {
+        return configureAndStartServer(new Properties());
+    }
+
+    private Properties configureAndStartServer(final Properties bootConfig) throws Exception {
         HttpTestUtils.overrideJvmWideHttpsVerifier();
 
         stubFor(get(urlEqualTo("/index.html"))
@@ -85,6 +94,7 @@ public class ConnectionPoolTest extends UseAdminServer {
         config.put("aws.accesskey", "accesskey");
         config.put("aws.secretkey", "secretkey");
         config.put("healthmanager.tolerant", "true");
+        config.putAll(bootConfig);
         startServer(config);
 
         // Default certificate
@@ -157,6 +167,7 @@ public class ConnectionPoolTest extends UseAdminServer {
         config.put("connectionpool.3.enabled", "true");
 
         changeDynamicConfiguration(config);
+        return config;
     }
 
     @Test
@@ -256,7 +267,7 @@ public class ConnectionPoolTest extends UseAdminServer {
 
         // default pool
         ConnectionPoolConfiguration defaultPool = new ConnectionPoolConfiguration(
-                "*", "*", 10, 5_000, 10_000, 15_000, 20_000, 100_000, 50_000, 500, 50, 5, true,true
+                "*", "*", 10, 5_000, 10_000, 15_000, 20_000, 100_000, 50_000, 500, 50, 5, true, true, 0
         );
         {
             ConnectionProvider provider = server.getProxyRequestsManager().getConnectionsManager().getConnectionProvider(defaultPool);
@@ -269,7 +280,7 @@ public class ConnectionPoolTest extends UseAdminServer {
 
         // pool with defaults
         ConnectionPoolConfiguration poolWithDefaults = new ConnectionPoolConfiguration(
-                "localhost", "localhost", 10, 5_000, 10_000, 15_000, 20_000, 100_000, 50_000, 500, 50, 5, true, true
+                "localhost", "localhost", 10, 5_000, 10_000, 15_000, 20_000, 100_000, 50_000, 500, 50, 5, true, true, 0
         );
         {
             ConnectionProvider provider = server.getProxyRequestsManager().getConnectionsManager().getConnectionProvider(poolWithDefaults);
@@ -282,7 +293,7 @@ public class ConnectionPoolTest extends UseAdminServer {
 
         // custom pool
         ConnectionPoolConfiguration customPool = new ConnectionPoolConfiguration(
-                "localhosts", "localhost[0-9]", 20, 21_000, 22_000, 23_000, 24_000, 100_000, 25_000, 250, 25, 2, true,true
+                "localhosts", "localhost[0-9]", 20, 21_000, 22_000, 23_000, 24_000, 100_000, 25_000, 250, 25, 2, true, true, 0
         );
         {
             ConnectionProvider provider = server.getProxyRequestsManager().getConnectionsManager().getConnectionProvider(customPool);
@@ -375,6 +386,115 @@ public class ConnectionPoolTest extends UseAdminServer {
         }
     }
 
+    @Test
+    public void testIncrementalReload() throws Exception {
+        final Properties config = configureAndStartServer();
+        final ConnectionsManager connectionsManager = server.getProxyRequestsManager().getConnectionsManager();
+        final ConnectionPoolConfiguration defaultPool = connectionsManager.findConnectionPool("localhostx");
+        final ConnectionPoolConfiguration customPool = connectionsManager.findConnectionPool("localhost3");
+        final ConnectionProvider defaultProvider = connectionsManager.getConnectionProvider(defaultPool);
+        final ConnectionProvider customProvider = connectionsManager.getConnectionProvider(customPool);
+
+        // a new backend does not affect the pools
+        config.put("backend.3.id", "localhost3");
+        config.put("backend.3.enabled", "true");
+        config.put("backend.3.host", "localhost3");
+        config.put("backend.3.port", String.valueOf(wireMockRule.port()));
+        changeDynamicConfiguration(config);
+        assertSame(defaultProvider, connectionsManager.getConnectionProvider(defaultPool));
+        assertSame(customProvider, connectionsManager.getConnectionProvider(customPool));
+
+        // only the changed pool is replaced
+        config.put("connectionpool.3.maxconnectionsperendpoint", "30");
+        changeDynamicConfiguration(config);
+        assertSame(defaultProvider, connectionsManager.getConnectionProvider(defaultPool));
+        final ConnectionPoolConfiguration updatedPool = connectionsManager.findConnectionPool("localhost3");
+        assertThat(updatedPool.getMaxConnectionsPerEndpoint(), is(30));
+        final ConnectionProvider updatedProvider = connectionsManager.getConnectionProvider(updatedPool);
+        assertNotSame(customProvider, updatedProvider);
+        assertThat(updatedProvider.maxConnectionsPerHost().size(), is(3));
+        assertTrue(updatedProvider.maxConnectionsPerHost().values().stream().allMatch(e -> e == 30));
+
+        try (RawHttpClient client = new RawHttpClient("localhost", server.getLocalPort())) {
+            RawHttpClient.HttpResponse resp = client.executeRequest("GET /index.html HTTP/1.1\r\n" + HttpHeaderNames.HOST + ": localhost3" + "\r\n\r\n");
+            assertEquals("it <b>works</b> !!", resp.getBodyString());
+        }
+    }
+
+    @Test
+    public void testMinIdleConnections() throws Exception {
+        final Properties config = configureAndStartServer();
+        // warm-up requests probe the backend
+        stubFor(head(urlEqualTo("/")).willReturn(aResponse().withStatus(200)));
+        final EndpointKey backend = EndpointKey.make("localhost", wireMockRule.port());
+
+        config.put("connectionsmanager.minidle", "3");
+        changeDynamicConfiguration(config);
+        assertThat(server.getCurrentConfiguration().getDefaultConnectionPool().getMinIdle(), is(3));
+        assertThat(server.getCurrentConfiguration().getConnectionPools().get("localhosts").getMinIdle(), is(3));
+
+        // connections are opened without any client request
+        TestUtils.waitForCondition(() -> {
+            final Map<String, HttpProxyServer.ConnectionPoolStats> stats = server.getConnectionPoolsStats().get(backend);
+            return stats != null
+                    && stats.get("*") != null && stats.get("*").getTotalConnections() >= 3
+                    && stats.get("localhosts") != null && stats.get("localhosts").getTotalConnections() >= 3;
+        }, 10);
+    }
+
+    @Test
+    public void testColocation() throws Exception {
+        final Properties bootConfig = new Properties();
+        bootConfig.put("eventloop.worker.threads", "2");
+        final Properties config = configureAndStartServer(bootConfig);
+        config.put("connectionsmanager.colocation", "true");
+        changeDynamicConfiguration(config);
+
+        final ConnectionsManager connectionsManager = server.getProxyRequestsManager().getConnectionsManager();
+        final ConnectionPoolConfiguration defaultPool = connectionsManager.findConnectionPool("localhostx");
+        final ConnectionProvider partition = connectionsManager.getConnectionProvider(defaultPool, 0, 2);
+        assertNotSame(connectionsManager.getConnectionProvider(defaultPool), partition);
+        assertSame(partition, connectionsManager.getConnectionProvider(defaultPool, 0, 2));
+        assertTrue(partition.maxConnectionsPerHost().values().stream().allMatch(e -> e == 5));
+
+        for (int i = 0; i < 4; i++) {
+            try (RawHttpClient client = new RawHttpClient("localhost", server.getLocalPort())) {
+                RawHttpClient.HttpResponse resp = client.executeRequest("GET /index.html HTTP/1.1\r\n" + HttpHeaderNames.HOST + ": localhostx" + "\r\n\r\n");
+                assertEquals("it <b>works</b> !!", resp.getBodyString());
+            }
+        }
+        // the stats of the partitions add up under the name of the pool
+        final Map<String, HttpProxyServer.ConnectionPoolStats> stats = server.getConnectionPoolsStats().get(EndpointKey.make("localhost", wireMockRule.port()));
+        assertTrue(stats.get("*").getTotalConnections() >= 1);
+    }
+
+    @Test
+    public void testColocationOnTlsEventLoops() throws Exception {
+        final Properties bootConfig = new Properties();
+        bootConfig.put("eventloop.worker.threads", "2");
+        bootConfig.put("eventloop.ssl.threads", "2");
+        final Properties config = configureAndStartServer(bootConfig);
+        config.put("connectionsmanager.colocation", "true");
+        config.put("listener.2.host", "localhost");
+        config.put("listener.2.port", "8087");
+        config.put("listener.2.ssl", "true");
+        config.put("listener.2.enabled", "true");
+        config.put("listener.2.defaultcertificate", "*");
+        changeDynamicConfiguration(config);
+
+        for (int i = 0; i < 4; i++) {
+            try (RawHttpClient client = new RawHttpClient("localhost", 8087, true)) {
+                RawHttpClient.HttpResponse resp = client.executeRequest("GET /index.html HTTP/1.1\r\n" + HttpHeaderNames.HOST + ": localhostx" + "\r\n\r\n");
+                assertEquals("it <b>works</b> !!", resp.getBodyString());
+            }
+        }
+        // the TLS event loops follow the worker ones, each one acquires connections from its own partition
+        final ConnectionsManager connectionsManager = server.getProxyRequestsManager().getConnectionsManager();
+        final Set<Integer> partitions = connectionsManager.getPartitions(connectionsManager.findConnectionPool("localhostx"));
+        assertFalse(partitions.isEmpty());
+        assertTrue(partitions.stream().allMatch(partition -> partition >= 2 && partition < 4));
+    }
+
     @Test
     public void testAPIResource() throws Exception {
         configureAndStartServer();
@@ -394,22 +514,22 @@ public class ConnectionPoolTest extends UseAdminServer {
 
             // default pool
             assertThat(pools.get("*"), is(new ConnectionPoolsResource.ConnectionPoolBean(
-                    "*", "*", 10, 5_000, 10_000, 15_000, 20_000, 100_000, 50_000, 500, 50, 5, true,true, 0
+                    "*", "*", 10, 5_000, 10_000, 15_000, 20_000, 100_000, 50_000, 500, 50, 5, true, true, 0, 0
             )));
 
             // pool with defaults
             assertThat(pools.get("localhost"), is(new ConnectionPoolsResource.ConnectionPoolBean(
-                    "localhost", "localhost", 10, 5_000, 10_000, 15_000, 20_000, 100_000,50_000, 500, 50, 5, true,true, 1
+                    "localhost", "localhost", 10, 5_000, 10_000, 15_000, 20_000, 100_000,50_000, 500, 50, 5, true, true, 0, 1
             )));
 
             // disabled custom pool
             assertThat(pools.get("localhost2"), is(new ConnectionPoolsResource.ConnectionPoolBean(
-                    "localhost2", "localhost2", 10, 5_000, 10_000, 15_000, 20_000, 100_000, 50_000, 500, 50, 5, true, false, 0
+                    "localhost2", "localhost2", 10, 5_000, 10_000, 15_000, 20_000, 100_000, 50_000, 500, 50, 5, true, false, 0, 0
             )));
 
             // custom pool
             assertThat(pools.get("localhosts"), is(new ConnectionPoolsResource.ConnectionPoolBean(
-                    "localhosts", "localhost[0-9]", 20, 21_000, 22_000, 23_000, 24_000, 100_000, 25_000, 250, 25, 2, true, true, 0
+                    "localhosts", "localhost[0-9]", 20, 21_000, 22_000, 23_000, 24_000, 100_000, 25_000, 250, 25, 2, true, true, 0, 0
             )));
         }
     }
@@ -0,0 +1,93 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.configstore;
+
+import static org.junit.Assert.assertEquals;
+import java.util.Properties;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.carapaceproxy.server.config.ConfigurationNotValidException;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the configuration store on large configurations.
+ * It is not part of the default build, run it with {@code mvn test -Pbenchmarks}.
+ */
+@RunWith(JUnitParamsRunner.class)
+public class ConfigurationStoreBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigurationStoreBenchmark.class);
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private ConfigurationStore store;
+
+    @After
+    public void after() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    /**
+     * Measures the time to commit a configuration, and a slightly changed one, by size of the configuration.
+     */
+    @Test
+    @Parameters({"1000", "10000", "30000"})
+    public void testCommitConfigurationTime(int backends) throws ConfigurationNotValidException {
+        Properties props = new Properties();
+        props.put("db.jdbc.url", "jdbc:herddb:localhost");
+        store = new HerdDBConfigurationStore(new PropertiesConfigurationStore(props), false, null, tmpDir.getRoot(), NullStatsLogger.INSTANCE);
+
+        for (int i = 0; i < backends; i++) {
+            props.setProperty("backend." + i + ".id", "backend" + i);
+            props.setProperty("backend." + i + ".host", "localhost");
+            props.setProperty("backend." + i + ".port", String.valueOf(8000 + i));
+        }
+        long start = System.nanoTime();
+        store.commitConfiguration(new PropertiesConfigurationStore(props));
+        long full = System.nanoTime() - start;
+
+        // a single backend changes and another one is removed
+        props.setProperty("backend.0.port", "9999");
+        props.remove("backend.1.id");
+        props.remove("backend.1.host");
+        props.remove("backend.1.port");
+        start = System.nanoTime();
+        store.commitConfiguration(new PropertiesConfigurationStore(props));
+        long delta = System.nanoTime() - start;
+        LOG.info("Committed {} properties in {} ms, changes in {} ms", props.size(), full / 1_000_000, delta / 1_000_000);
+        store.close();
+
+        store = new HerdDBConfigurationStore(new PropertiesConfigurationStore(props), false, null, tmpDir.getRoot(), NullStatsLogger.INSTANCE);
+        assertEquals(props.size(), store.asProperties(null).size());
+        assertEquals("9999", store.getProperty("backend.0.port", ""));
+        assertEquals("", store.getProperty("backend.1.id", ""));
+        assertEquals(String.valueOf(8000 + backends - 1), store.getProperty("backend." + (backends - 1) + ".port", ""));
+    }
+}
@@ -26,9 +26,12 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import java.net.URI;
 import java.security.KeyPair;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -283,6 +286,39 @@ public class ConfigurationStoreTest {
         cert1.setPendingChallengesData(Map.of(cert1.getDomain(), JSON.parse("{\"challenge\": \"updateddata\"}")));
         store.saveCertificate(cert1);
         assertEquals(cert1, store.loadCertificateForDomain(d1));
+
+        // Batched saving (updates and inserts) and loading
+        cert2.setState(DynamicCertificateState.VERIFYING);
+        CertificateData cert3 = new CertificateData("batch." + d1, "encodedChain3", DynamicCertificateState.WAITING);
+        store.saveCertificates(List.of(cert1, cert2, cert3));
+        assertEquals(
+                Map.of(d1, cert1, d2, cert2, cert3.getDomain(), cert3),
+                store.loadCertificatesForDomains(List.of(d1, d2, cert3.getDomain(), "missing." + d1))
+        );
+        assertEquals(Map.of(), store.loadCertificatesForDomains(List.of()));
+
+        // Changed certificates loading
+        final Map<String, Long> known = new HashMap<>();
+        for (CertificateData cert : List.of(cert1, cert2, cert3)) {
+            known.put(cert.getDomain(), store.loadCertificateForDomain(cert.getDomain()).getVersion());
+        }
+        if (store instanceof HerdDBConfigurationStore) {
+            final long version = known.get(d1);
+            assertTrue(version > 0);
+            assertEquals(version, (long) known.get(cert3.getDomain()));
+            assertEquals(Map.of(), store.loadChangedCertificates(known));
+            cert2.setState(DynamicCertificateState.AVAILABLE);
+            store.saveCertificate(cert2);
+            assertTrue(cert2.getVersion() > version);
+            assertEquals(Map.of(d2, cert2), store.loadChangedCertificates(known));
+            assertEquals(Map.of(), store.loadChangedCertificates(Map.of(d1, version)));
+            // a version lower than the known ones, e.g. committed late by another peer, is a change as well
+            known.put(d2, cert2.getVersion());
+            known.put(d1, version + 1);
+            assertEquals(Map.of(d1, cert1), store.loadChangedCertificates(known));
+        } else {
+            assertEquals(Map.of(d1, cert1, d2, cert2, cert3.getDomain(), cert3), store.loadChangedCertificates(known));
+        }
     }
 
     private void testAcmeChallengeTokens() {
@@ -381,4 +417,38 @@ public class ConfigurationStoreTest {
         ));
     }
 
+    /**
+     * Commits a configuration, and a slightly changed one.
+     *
+     * @see ConfigurationStoreBenchmark#testCommitConfigurationTime(int)
+     */
+    @Test
+    public void testCommitConfiguration() throws ConfigurationNotValidException {
+        Properties props = new Properties();
+        props.put("db.jdbc.url", "jdbc:herddb:localhost");
+        store = new HerdDBConfigurationStore(new PropertiesConfigurationStore(props), false, null, tmpDir.getRoot(), NullStatsLogger.INSTANCE);
+
+        int backends = 200;
+        for (int i = 0; i < backends; i++) {
+            props.setProperty("backend." + i + ".id", "backend" + i);
+            props.setProperty("backend." + i + ".host", "localhost");
+            props.setProperty("backend." + i + ".port", String.valueOf(8000 + i));
+        }
+        store.commitConfiguration(new PropertiesConfigurationStore(props));
+
+        // a single backend changes and another one is removed
+        props.setProperty("backend.0.port", "9999");
+        props.remove("backend.1.id");
+        props.remove("backend.1.host");
+        props.remove("backend.1.port");
+        store.commitConfiguration(new PropertiesConfigurationStore(props));
+        store.close();
+
+        store = new HerdDBConfigurationStore(new PropertiesConfigurationStore(props), false, null, tmpDir.getRoot(), NullStatsLogger.INSTANCE);
+        assertEquals(props.size(), store.asProperties(null).size());
+        assertEquals("9999", store.getProperty("backend.0.port", ""));
+        assertEquals("", store.getProperty("backend.1.id", ""));
+        assertEquals(String.valueOf(8000 + backends - 1), store.getProperty("backend." + (backends - 1) + ".port", ""));
+    }
+
 }
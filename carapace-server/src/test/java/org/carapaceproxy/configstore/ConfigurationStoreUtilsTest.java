@@ -33,8 +33,10 @@ import static org.carapaceproxy.server.certificates.DynamicCertificatesManager.D
 import static org.carapaceproxy.utils.CertificatesTestUtils.generateSampleChain;
 import static org.carapaceproxy.utils.TestUtils.assertEqualsKey;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import org.carapaceproxy.server.certificates.KeyPairsType;
 import org.junit.Test;
 import org.shredzone.acme4j.util.KeyPairUtils;
 
@@ -59,6 +61,20 @@ public class ConfigurationStoreUtilsTest {
         assertEqualsKey(publicKey, base64DecodePublicKey(_publicKey));
     }
 
+    @Test
+    public void testBase64EncodeDecodeECKeys() throws Exception {
+        KeyPair pair = KeyPairsType.EC.createKeyPair(DEFAULT_KEYPAIRS_SIZE);
+        assertTrue(KeyPairsType.EC.matches(pair));
+
+        PrivateKey privateKey = base64DecodePrivateKey(base64EncodeKey(pair.getPrivate()));
+        PublicKey publicKey = base64DecodePublicKey(base64EncodeKey(pair.getPublic()));
+
+        assertEqualsKey(pair.getPrivate(), privateKey);
+        assertEqualsKey(pair.getPublic(), publicKey);
+        assertTrue(KeyPairsType.EC.matches(new KeyPair(publicKey, privateKey)));
+        assertFalse(KeyPairsType.RSA.matches(new KeyPair(publicKey, privateKey)));
+    }
+
     @Test
     public void testBase64EncodeEncodeCertificateChain() throws Exception {
         KeyPair endUserKeyPair = KeyPairUtils.createKeyPair(DEFAULT_KEYPAIRS_SIZE);
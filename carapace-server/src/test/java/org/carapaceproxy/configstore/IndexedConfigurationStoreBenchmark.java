@@ -0,0 +1,64 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.configstore;
+
+import static org.carapaceproxy.configstore.IndexedConfigurationStoreTest.generateConfiguration;
+import static org.carapaceproxy.configstore.IndexedConfigurationStoreTest.parse;
+import static org.junit.Assert.assertEquals;
+import java.util.Properties;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.carapaceproxy.server.mapper.StandardEndpointMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the indexed view of the configuration on large configurations.
+ * It is not part of the default build, run it with {@code mvn test -Pbenchmarks}.
+ */
+@RunWith(JUnitParamsRunner.class)
+public class IndexedConfigurationStoreBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexedConfigurationStoreBenchmark.class);
+
+    /**
+     * Measures the time to parse large generated configurations, from the plain store and from the indexed view.
+     */
+    @Test
+    @Parameters({"1000", "5000", "20000"})
+    public void testParseTime(int size) throws Exception {
+        Properties props = generateConfiguration(size);
+        ConfigurationStore store = new PropertiesConfigurationStore(props);
+
+        long start = System.nanoTime();
+        StandardEndpointMapper plain = parse(store);
+        long plainTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        StandardEndpointMapper indexed = parse(IndexedConfigurationStore.of(store));
+        long indexedTime = System.nanoTime() - start;
+
+        assertEquals(plain.getBackends(), indexed.getBackends());
+        assertEquals(plain.getRoutes().size(), indexed.getRoutes().size());
+        LOG.info("Parsed {} properties in {} ms, indexed in {} ms", props.size(), plainTime / 1_000_000, indexedTime / 1_000_000);
+    }
+}
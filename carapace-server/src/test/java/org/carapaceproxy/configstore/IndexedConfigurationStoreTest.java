@@ -0,0 +1,118 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.configstore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import org.carapaceproxy.core.RuntimeServerConfiguration;
+import org.carapaceproxy.server.config.ConfigurationNotValidException;
+import org.carapaceproxy.server.mapper.StandardEndpointMapper;
+import org.junit.Test;
+
+public class IndexedConfigurationStoreTest {
+
+    @Test
+    public void testSameIndexesOfTheStore() {
+        Properties props = new Properties();
+        props.setProperty("property.0.value", "value");
+        props.setProperty("property.1.value", "value");
+        props.setProperty("property.100.value", "value");
+        props.setProperty("property2.111.value", "value");
+        props.setProperty("property.weird.8.9.value", "value");
+        props.setProperty("property.-3.value", "value");
+        props.setProperty("property.x.value", "value");
+        props.setProperty("property.", "value");
+        ConfigurationStore store = new PropertiesConfigurationStore(props);
+        ConfigurationStore indexed = IndexedConfigurationStore.of(store);
+        assertSame(indexed, IndexedConfigurationStore.of(indexed));
+
+        for (String prefix : List.of("property", "property2", "property.weird", "property.weird.8", "property.weird.8.9",
+                "property.weird.8.9.value", "missing", "")) {
+            assertEquals(prefix, store.findMaxIndexForPrefix(prefix), indexed.findMaxIndexForPrefix(prefix));
+            assertEquals(prefix, store.findIndexesForPrefix(prefix), indexed.findIndexesForPrefix(prefix));
+        }
+        assertEquals(new TreeSet<>(List.of(0, 1, 100)), indexed.findIndexesForPrefix("property"));
+        assertEquals(props, indexed.asProperties(null));
+    }
+
+    @Test
+    public void testEntries() {
+        Properties props = new Properties();
+        props.setProperty("filter.1.type", "add-x-forwarded-for");
+        props.setProperty("filter.1.param", "value");
+        props.setProperty("filter.1.nested.2.param", "nested");
+        props.setProperty("filter.10.type", "other");
+        ConfigurationStore store = new PropertiesConfigurationStore(props);
+        ConfigurationStore indexed = IndexedConfigurationStore.of(store);
+        for (String prefix : List.of("filter.1.", "filter.10.", "filter.1.nested.2.", "filter.1", "filter.", "missing.")) {
+            Map<String, String> expected = new HashMap<>();
+            store.forEach(prefix, expected::put);
+            Map<String, String> actual = new HashMap<>();
+            indexed.forEach(prefix, actual::put);
+            assertEquals(prefix, expected, actual);
+        }
+        assertEquals("value", indexed.getProperty("filter.1.param", null));
+        assertEquals("default", indexed.getProperty("filter.2.param", "default"));
+    }
+
+    /**
+     * The indexed view parses to the same configuration as the plain store.
+     *
+     * @see IndexedConfigurationStoreBenchmark#testParseTime(int)
+     */
+    @Test
+    public void testParse() throws Exception {
+        ConfigurationStore store = new PropertiesConfigurationStore(generateConfiguration(200));
+        StandardEndpointMapper plain = parse(store);
+        StandardEndpointMapper indexed = parse(IndexedConfigurationStore.of(store));
+        assertEquals(200, indexed.getBackends().size());
+        assertEquals(plain.getBackends(), indexed.getBackends());
+        assertEquals(plain.getRoutes().size(), indexed.getRoutes().size());
+    }
+
+    static Properties generateConfiguration(int size) {
+        Properties props = new Properties();
+        for (int i = 0; i < size; i++) {
+            // gaps among the indexes, as left by removed entries
+            int index = i * 2;
+            props.setProperty("backend." + index + ".id", "backend" + i);
+            props.setProperty("backend." + index + ".enabled", "true");
+            props.setProperty("backend." + index + ".host", "localhost");
+            props.setProperty("backend." + index + ".port", String.valueOf(1024 + i));
+            props.setProperty("route." + index + ".id", "route" + i);
+            props.setProperty("route." + index + ".enabled", "true");
+            props.setProperty("route." + index + ".action", "proxy-all");
+            props.setProperty("route." + index + ".match", "request.uri ~ \".*/path" + i + "/.*\"");
+        }
+        return props;
+    }
+
+    static StandardEndpointMapper parse(ConfigurationStore store) throws ConfigurationNotValidException {
+        new RuntimeServerConfiguration().configure(store);
+        StandardEndpointMapper mapper = new StandardEndpointMapper(null);
+        mapper.configure(store);
+        return mapper;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.prometheus.client.CollectorRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.carapaceproxy.server.config.BackendConfiguration;
+import org.carapaceproxy.utils.KeyStoreRule;
+import org.carapaceproxy.utils.RawHttpClient;
+import org.carapaceproxy.utils.TestEndpointMapper;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BackendSslContextsTest {
+
+    @ClassRule(order = 0)
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+    @ClassRule(order = 1)
+    public static KeyStoreRule backendKeyStore = new KeyStoreRule(temporaryFolder);
+
+    @Rule
+    public WireMockRule backendRule = new WireMockRule(WireMockConfiguration.options()
+            .dynamicHttpsPort()
+            .httpDisabled(true)
+            .keystoreType("PKCS12")
+            .keystorePath(backendKeyStore.getKeyStoreFile().getAbsolutePath())
+            .keystorePassword(new String(backendKeyStore.getKeyStorePassword())));
+
+    private static BackendConfiguration backend(final String id, final String caCertificatePath, final int sessionCacheSize, final int sessionTimeout) {
+        return new BackendConfiguration(id, new EndpointKey("localhost", 8443), "/", -1, true, caCertificatePath, null, "https", sessionCacheSize, sessionTimeout);
+    }
+
+    @Test
+    public void testContextsAreKeptAcrossReloads() throws Exception {
+        final List<BackendSslContexts.Key> builds = new ArrayList<>();
+        final BackendSslContexts contexts = new BackendSslContexts(key -> {
+            builds.add(key);
+            return SslContextBuilder.forClient().build();
+        }, path -> "v1");
+        final RuntimeServerConfiguration configuration = new RuntimeServerConfiguration();
+        final BackendConfiguration plain = backend("plain", null, 0, 0);
+        final BackendConfiguration tuned = backend("tuned", null, 1000, 60);
+        final BackendConfiguration withCa = backend("ca", "ca.p12", 0, 0);
+
+        contexts.reloadConfiguration(configuration, List.of(plain, tuned, withCa));
+        // the default one is shared with the backends without specific settings
+        assertEquals(3, builds.size());
+        final SslContext plainContext = contexts.get(plain);
+        final SslContext tunedContext = contexts.get(tuned);
+        final SslContext caContext = contexts.get(withCa);
+        assertNotSame(plainContext, tunedContext);
+        assertNotSame(plainContext, caContext);
+        assertSame(plainContext, contexts.get(backend("unknown", "unknown.p12", 0, 0)));
+
+        // nothing changed, the cached sessions must survive
+        contexts.reloadConfiguration(configuration, List.of(plain, tuned, withCa));
+        assertEquals(3, builds.size());
+        assertSame(plainContext, contexts.get(plain));
+        assertSame(tunedContext, contexts.get(tuned));
+        assertSame(caContext, contexts.get(withCa));
+
+        // a new truststore invalidates only the contexts that use it
+        configuration.setSslTrustStoreFile("truststore.p12");
+        contexts.reloadConfiguration(configuration, List.of(plain, tuned, withCa));
+        assertEquals(5, builds.size());
+        assertNotSame(plainContext, contexts.get(plain));
+        assertNotSame(tunedContext, contexts.get(tuned));
+        assertSame(caContext, contexts.get(withCa));
+
+        // changed session settings need another context
+        final BackendConfiguration retuned = backend("tuned", null, 1000, 120);
+        contexts.reloadConfiguration(configuration, List.of(plain, retuned));
+        assertEquals(6, builds.size());
+        assertEquals(new BackendSslContexts.Key(null, null, 1000, 120), builds.get(5));
+    }
+
+    @Test
+    public void testFilesReplacedInPlace() throws Exception {
+        final List<BackendSslContexts.Key> builds = new ArrayList<>();
+        final Map<String, String> stamps = new HashMap<>();
+        stamps.put("truststore.p12", "v1");
+        stamps.put("ca.p12", "v1");
+        final BackendSslContexts contexts = new BackendSslContexts(key -> {
+            builds.add(key);
+            return SslContextBuilder.forClient().build();
+        }, stamps::get);
+        final RuntimeServerConfiguration configuration = new RuntimeServerConfiguration();
+        configuration.setSslTrustStoreFile("truststore.p12");
+        final BackendConfiguration plain = backend("plain", null, 0, 0);
+        final BackendConfiguration withCa = backend("ca", "ca.p12", 0, 0);
+        contexts.reloadConfiguration(configuration, List.of(plain, withCa));
+        assertEquals(2, builds.size());
+        final SslContext plainContext = contexts.get(plain);
+        final SslContext caContext = contexts.get(withCa);
+
+        // the CA certificate is rotated at the same path
+        stamps.put("ca.p12", "v2");
+        contexts.reloadConfiguration(configuration, List.of(plain, withCa));
+        assertEquals(3, builds.size());
+        assertSame(plainContext, contexts.get(plain));
+        assertNotSame(caContext, contexts.get(withCa));
+
+        // so is the truststore
+        stamps.put("truststore.p12", "v2");
+        contexts.reloadConfiguration(configuration, List.of(plain, withCa));
+        assertEquals(4, builds.size());
+        assertNotSame(plainContext, contexts.get(plain));
+    }
+
+    @Test
+    public void testSecondConnectionResumesTheSession() throws Exception {
+        // each response closes the connection, the second request needs a new one
+        backendRule.stubFor(get(urlEqualTo("/index.html"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "text/html")
+                        .withHeader("Connection", "close")
+                        .withBody("it <b>works</b> !!")));
+        final BackendConfiguration backend = new BackendConfiguration(
+                "wiremock",
+                new EndpointKey("localhost", backendRule.httpsPort()),
+                "/index.html",
+                0,
+                true,
+                backendKeyStore.getTrustStoreFile().getAbsolutePath(),
+                new String(backendKeyStore.getKeyStorePassword()),
+                "https"
+        );
+        final String[] labels = {"host"};
+        final String[] host = {"localhost_" + backendRule.httpsPort()};
+        try (HttpProxyServer server = HttpProxyServer.buildForTests("localhost", 0, new TestEndpointMapper(backend, false), temporaryFolder.newFolder())) {
+            server.start();
+            final int port = server.getLocalPort();
+            for (int i = 0; i < 2; i++) {
+                try (RawHttpClient client = new RawHttpClient("localhost", port)) {
+                    final String body = client.executeRequest("GET /index.html HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBodyString();
+                    assertEquals("it <b>works</b> !!", body);
+                }
+            }
+        }
+        assertEquals(1, CollectorRegistry.defaultRegistry.getSampleValue("backends_tls_full_handshakes_total", labels, host), 0);
+        assertEquals(1, CollectorRegistry.defaultRegistry.getSampleValue("backends_tls_resumed_handshakes_total", labels, host), 0);
+    }
+
+    @Test
+    public void testPasswordIsMasked() {
+        final String key = new BackendSslContexts.Key("ca.p12", "secret", 0, 0).toString();
+        assertTrue(key.contains("ca.p12"));
+        assertFalse(key.contains("secret"));
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static org.carapaceproxy.server.config.SSLCertificateConfiguration.CertificateMode.STATIC;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.carapaceproxy.configstore.PropertiesConfigurationStore;
+import org.carapaceproxy.server.config.ConfigurationNotValidException;
+import org.carapaceproxy.server.config.ConnectionPoolConfiguration;
+import org.carapaceproxy.server.config.NetworkListenerConfiguration;
+import org.carapaceproxy.server.config.RequestFilterConfiguration;
+import org.carapaceproxy.server.config.SSLCertificateConfiguration;
+import org.carapaceproxy.server.mapper.StandardEndpointMapper;
+import org.carapaceproxy.utils.TestEndpointMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class ConfigurationDeltaTest {
+
+    // read through the current configuration where they are used, so that applying it is enough
+    private static final Set<String> READ_AT_USE = Set.of(
+            "backendsUnreachableOnStuckRequests", "requestCompressionEnabled", "maintenanceModeEnabled",
+            "http10BackwardCompatibilityEnabled", "localCertificatesStorePath", "localCertificatesStorePeersIds",
+            "maxAttempts", "fairQueuingConfiguration", "accessLogAdvancedEnabled", "accessLogAdvancedBodySize",
+            "supportedSSLProtocols"
+    );
+
+    // defaults of the settings of each listener, compared through the listeners
+    private static final Set<String> LISTENER_DEFAULTS = Set.of("soBacklog", "serverKeepAlive", "maxKeepAliveRequests");
+
+    // parsed into the default connection pool, compared through it
+    private static final Set<String> DEFAULT_POOL_SETTINGS = Set.of(
+            "maxConnectionsPerEndpoint", "borrowTimeout", "connectTimeout", "stuckRequestTimeout", "idleTimeout",
+            "maxLifeTime", "disposeTimeout", "keepaliveIdle", "keepaliveInterval", "keepaliveCount", "clientKeepAlive",
+            "minIdle"
+    );
+
+    // the realm is rebuilt at every change, as it may read an external file
+    private static final Set<String> ALWAYS_APPLIED = Set.of("userRealmClassname");
+
+    private static Map<String, String> baseProperties() {
+        final Map<String, String> properties = new HashMap<>();
+        properties.put("listener.1.host", "localhost");
+        properties.put("listener.1.port", "8080");
+        properties.put("backend.1.id", "b1");
+        properties.put("backend.1.host", "localhost");
+        properties.put("backend.1.port", "8086");
+        properties.put("route.1.id", "r1");
+        properties.put("route.1.action", "proxy-all");
+        properties.put("route.1.match", "all");
+        properties.put("cache.maxsize", "1000");
+        return properties;
+    }
+
+    private static RuntimeServerConfiguration configure(final Map<String, String> properties) throws ConfigurationNotValidException {
+        final Properties props = new Properties();
+        props.putAll(properties);
+        final RuntimeServerConfiguration configuration = new RuntimeServerConfiguration();
+        configuration.configure(new PropertiesConfigurationStore(props));
+        return configuration;
+    }
+
+    private static ConfigurationDelta delta(final Map<String, String> oldProperties, final Map<String, String> newProperties) throws ConfigurationNotValidException {
+        return ConfigurationDelta.between(oldProperties, configure(oldProperties), newProperties, configure(newProperties));
+    }
+
+    @Test
+    public void testNoChange() throws Exception {
+        final ConfigurationDelta delta = delta(baseProperties(), baseProperties());
+        assertTrue(delta.isEmpty());
+        assertFalse(delta.mapper());
+        assertFalse(delta.listeners());
+    }
+
+    @Test
+    public void testRoutingChange() throws Exception {
+        final Map<String, String> changed = baseProperties();
+        changed.put("route.1.match", "request.uri ~ \".*index.html.*\"");
+        changed.remove("backend.1.port");
+        final ConfigurationDelta delta = delta(baseProperties(), changed);
+        assertEquals(Set.of("route.1.match", "backend.1.port"), delta.changedProperties());
+        assertTrue(delta.mapper());
+        assertFalse(delta.listeners());
+        assertFalse(delta.certificates());
+        assertFalse(delta.cache());
+        assertFalse(delta.connections());
+        assertFalse(delta.healthManager());
+    }
+
+    @Test
+    public void testSubsystemsChange() throws Exception {
+        final Map<String, String> changed = baseProperties();
+        changed.put("listener.1.port", "8081");
+        changed.put("cache.maxsize", "2000");
+        final ConfigurationDelta delta = delta(baseProperties(), changed);
+        assertFalse(delta.mapper());
+        assertTrue(delta.listeners());
+        assertTrue(delta.cache());
+        assertFalse(delta.certificates());
+        assertFalse(delta.requestsLogger());
+        assertFalse(delta.overload());
+    }
+
+    @Test
+    public void testCustomMapperIsAlwaysRebuilt() throws Exception {
+        final Map<String, String> base = baseProperties();
+        base.put("mapper.class", TestEndpointMapper.class.getName());
+        final Map<String, String> changed = new HashMap<>(base);
+        changed.put("cache.maxsize", "2000");
+        assertTrue(delta(base, changed).mapper());
+    }
+
+    @Test
+    @Parameters({
+            "connectionsmanager.maxconnectionsperendpoint, 20",
+            "connectionsmanager.borrowtimeout, 1000",
+            "connectionsmanager.connecttimeout, 1000",
+            "connectionsmanager.stuckrequesttimeout, 1000",
+            "connectionsmanager.idletimeout, 1000",
+            "connectionsmanager.maxlifetime, 1000",
+            "connectionsmanager.disposetimeout, 1000",
+            "connectionsmanager.minidle, 2",
+            "connectionsmanager.colocation, true"
+    })
+    public void testConnectionsChange(final String key, final String value) throws Exception {
+        final Map<String, String> changed = baseProperties();
+        changed.put(key, value);
+        final ConfigurationDelta delta = delta(baseProperties(), changed);
+        assertTrue(key, delta.connections());
+        assertFalse(key, delta.mapper());
+        assertFalse(key, delta.listeners());
+    }
+
+    /**
+     * The keepalive settings of the default pool are the defaults of the listeners as well.
+     */
+    @Test
+    @Parameters({
+            "connectionsmanager.keepaliveidle, 10",
+            "connectionsmanager.keepaliveinterval, 10",
+            "connectionsmanager.keepalivecount, 2"
+    })
+    public void testConnectionsAndListenersChange(final String key, final String value) throws Exception {
+        final Map<String, String> changed = baseProperties();
+        changed.put(key, value);
+        final ConfigurationDelta delta = delta(baseProperties(), changed);
+        assertTrue(key, delta.connections());
+        assertTrue(key, delta.listeners());
+        assertFalse(key, delta.mapper());
+    }
+
+    @Test
+    public void testDefaultPoolKeepAliveChange() throws Exception {
+        final RuntimeServerConfiguration configuration = configure(baseProperties());
+        final RuntimeServerConfiguration changed = configure(baseProperties());
+        changed.getDefaultConnectionPool().setKeepAlive(!configuration.getDefaultConnectionPool().isKeepAlive());
+        final Map<String, String> changedProperties = baseProperties();
+        changedProperties.put("dummy", "changed");
+        assertTrue(ConfigurationDelta.between(baseProperties(), configuration, changedProperties, changed).connections());
+    }
+
+    /**
+     * A new setting must either be compared by a flag of the delta, or be listed here with the reason why it needs not.
+     */
+    @Test
+    public void testEveryFieldIsCovered() throws Exception {
+        final Set<String> fields = Arrays.stream(RuntimeServerConfiguration.class.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                .map(Field::getName)
+                .collect(Collectors.toSet());
+        for (final Set<String> exempted : List.of(READ_AT_USE, LISTENER_DEFAULTS, DEFAULT_POOL_SETTINGS, ALWAYS_APPLIED)) {
+            assertTrue("stale exemption " + exempted, fields.containsAll(exempted));
+        }
+        final Map<String, String> oldProperties = Map.of("dummy", "old");
+        final Map<String, String> newProperties = Map.of("dummy", "new");
+        for (final Field field : RuntimeServerConfiguration.class.getDeclaredFields()) {
+            final String name = field.getName();
+            if (Modifier.isStatic(field.getModifiers())
+                    || READ_AT_USE.contains(name)
+                    || LISTENER_DEFAULTS.contains(name)
+                    || DEFAULT_POOL_SETTINGS.contains(name)
+                    || ALWAYS_APPLIED.contains(name)) {
+                continue;
+            }
+            final RuntimeServerConfiguration oldConfiguration = new RuntimeServerConfiguration();
+            final RuntimeServerConfiguration newConfiguration = new RuntimeServerConfiguration();
+            oldConfiguration.setMapperClassname(StandardEndpointMapper.class.getName());
+            newConfiguration.setMapperClassname(StandardEndpointMapper.class.getName());
+            field.setAccessible(true);
+            field.set(newConfiguration, changed(field, field.get(newConfiguration)));
+            final ConfigurationDelta delta = ConfigurationDelta.between(oldProperties, oldConfiguration, newProperties, newConfiguration);
+            assertTrue("field " + name + " is not compared by any flag of " + delta, anyFlag(delta));
+        }
+    }
+
+    private static boolean anyFlag(final ConfigurationDelta delta) {
+        return delta.mapper() || delta.filters() || delta.healthManager() || delta.certificates() || delta.trustStore()
+                || delta.ocspStapling() || delta.sessionTicketKeys() || delta.listeners() || delta.cache()
+                || delta.requestsLogger() || delta.connections() || delta.retryBudget() || delta.overload();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object changed(final Field field, final Object value) throws Exception {
+        final Class<?> type = field.getType();
+        if (type == int.class) {
+            return (int) value + 1;
+        }
+        if (type == long.class) {
+            return (long) value + 1;
+        }
+        if (type == boolean.class) {
+            return !(boolean) value;
+        }
+        if (type == String.class) {
+            return value + "-changed";
+        }
+        if (type.isEnum()) {
+            final Object[] constants = type.getEnumConstants();
+            return constants[(((Enum<?>) value).ordinal() + 1) % constants.length];
+        }
+        if (type == Set.class) {
+            final Set set = value != null ? new HashSet<>((Set) value) : new HashSet<>();
+            set.add("changed");
+            return set;
+        }
+        if (type.isRecord()) {
+            return changedRecord(value);
+        }
+        switch (field.getName()) {
+            case "listeners": {
+                final Map map = new LinkedHashMap<>((Map) value);
+                final NetworkListenerConfiguration listener = NetworkListenerConfiguration.withDefault("localhost", 8080);
+                map.put(listener.getKey(), listener);
+                return map;
+            }
+            case "certificates": {
+                final Map map = new HashMap<>((Map) value);
+                map.put("localhost", new SSLCertificateConfiguration("localhost", null, "cert.p12", "pwd", STATIC));
+                return map;
+            }
+            case "connectionPools": {
+                final Map map = new HashMap<>((Map) value);
+                map.put("pool", new ConnectionPoolConfiguration());
+                return map;
+            }
+            case "requestFilters": {
+                final List list = new ArrayList<>((List) value);
+                list.add(new RequestFilterConfiguration("add-x-forwarded-for", Map.of()));
+                return list;
+            }
+            case "defaultConnectionPool":
+                return new ConnectionPoolConfiguration();
+            default:
+                fail("field " + field.getName() + " of type " + type.getName() + " is new: compare it in ConfigurationDelta and add a case here");
+                return null;
+        }
+    }
+
+    // changes the first boolean or numeric component
+    private static Object changedRecord(final Object value) throws Exception {
+        final RecordComponent[] components = value.getClass().getRecordComponents();
+        final Object[] args = new Object[components.length];
+        final Class<?>[] types = new Class<?>[components.length];
+        boolean changed = false;
+        for (int i = 0; i < components.length; i++) {
+            types[i] = components[i].getType();
+            args[i] = components[i].getAccessor().invoke(value);
+            if (!changed && types[i] == boolean.class) {
+                args[i] = !(boolean) args[i];
+                changed = true;
+            } else if (!changed && types[i] == int.class) {
+                args[i] = (int) args[i] + 1;
+                changed = true;
+            }
+        }
+        return value.getClass().getDeclaredConstructor(types).newInstance(args);
+    }
+
+    @Test
+    public void testFull() {
+        final ConfigurationDelta delta = ConfigurationDelta.full(baseProperties());
+        assertEquals(baseProperties().keySet(), delta.changedProperties());
+        assertTrue(delta.mapper());
+        assertTrue(delta.listeners());
+        assertTrue(delta.connections());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static org.carapaceproxy.server.certificates.DynamicCertificatesManager.DEFAULT_KEYPAIRS_SIZE;
+import static org.carapaceproxy.utils.CertificatesTestUtils.generateSampleChain;
+import static org.carapaceproxy.utils.CertificatesUtils.KEYSTORE_PW;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+import org.carapaceproxy.server.certificates.KeyPairsType;
+import org.junit.Test;
+
+public class DualCertificateKeyManagerTest {
+
+    private static final String[] RSA_ONLY = {"rsa_pss_rsae_sha256", "rsa_pkcs1_sha256"};
+    private static final String[] WITH_ECDSA = {"ecdsa_secp256r1_sha256", "rsa_pss_rsae_sha256"};
+
+    private static KeyStore keystore(final KeyPairsType... types) throws Exception {
+        final KeyStore keystore = KeyStore.getInstance("PKCS12");
+        keystore.load(null, KEYSTORE_PW);
+        for (final KeyPairsType type : types) {
+            final KeyPair pair = type.createKeyPair(DEFAULT_KEYPAIRS_SIZE);
+            keystore.setKeyEntry(type.name().toLowerCase(), pair.getPrivate(), KEYSTORE_PW, generateSampleChain(pair, false));
+        }
+        return keystore;
+    }
+
+    private static DualCertificateKeyManager keyManager(final KeyStore keystore) throws Exception {
+        final KeyManagerFactory factory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        factory.init(keystore, KEYSTORE_PW);
+        return DualCertificateKeyManager.wrap((X509ExtendedKeyManager) factory.getKeyManagers()[0], keystore);
+    }
+
+    @Test
+    public void testDualKeystore() throws Exception {
+        assertFalse(DualCertificateKeyManager.isDual(keystore(KeyPairsType.RSA)));
+        assertFalse(DualCertificateKeyManager.isDual(keystore(KeyPairsType.EC)));
+        assertTrue(DualCertificateKeyManager.isDual(keystore(KeyPairsType.RSA, KeyPairsType.EC)));
+    }
+
+    @Test
+    public void testChooseAliasTls13() throws Exception {
+        final DualCertificateKeyManager keyManager = keyManager(keystore(KeyPairsType.RSA, KeyPairsType.EC));
+
+        assertEquals("ec", keyManager.chooseAlias("RSA", "TLSv1.3", WITH_ECDSA));
+        assertEquals("rsa", keyManager.chooseAlias("EC", "TLSv1.3", RSA_ONLY));
+        assertEquals("EC", keyManager.getPrivateKey("ec").getAlgorithm());
+        assertEquals("RSA", keyManager.getPrivateKey("rsa").getAlgorithm());
+    }
+
+    @Test
+    public void testChooseAliasTls12() throws Exception {
+        final DualCertificateKeyManager keyManager = keyManager(keystore(KeyPairsType.RSA, KeyPairsType.EC));
+
+        // the certificate type is bound to the negotiated suite
+        assertEquals("rsa", keyManager.chooseAlias("RSA", "TLSv1.2", WITH_ECDSA));
+        assertEquals("ec", keyManager.chooseAlias("EC", "TLSv1.2", WITH_ECDSA));
+        assertEquals("ec", keyManager.chooseAlias("EC_EC", "TLSv1.2", WITH_ECDSA));
+        assertNull(keyManager.chooseAlias("EC", "TLSv1.2", RSA_ONLY));
+        assertNull(keyManager.chooseAlias("DH_RSA", "TLSv1.2", WITH_ECDSA));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.concurrent.EventExecutor;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import org.carapaceproxy.configstore.PropertiesConfigurationStore;
+import org.carapaceproxy.server.config.ConfigurationNotValidException;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+public class EventLoopsTest {
+
+    @Test
+    public void testSharedWorkerGroup() throws Exception {
+        final EventLoops eventLoops = new EventLoops();
+        eventLoops.configure(new PropertiesConfigurationStore(new Properties()));
+        try {
+            assertSame(eventLoops.getWorkerGroup(), eventLoops.getBossGroup());
+            assertSame(eventLoops.getWorkerGroup(), eventLoops.getSslGroup());
+            assertEquals(1, eventLoops.getGroups().size());
+        } finally {
+            eventLoops.getWorkerGroup().shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testDedicatedGroups() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("eventloop.worker.threads", "2");
+        properties.put("eventloop.boss.threads", "1");
+        properties.put("eventloop.ssl.threads", "3");
+        final EventLoops eventLoops = new EventLoops();
+        eventLoops.configure(new PropertiesConfigurationStore(properties));
+        try {
+            assertNotSame(eventLoops.getWorkerGroup(), eventLoops.getBossGroup());
+            assertNotSame(eventLoops.getWorkerGroup(), eventLoops.getSslGroup());
+            int workers = 0;
+            for (final EventExecutor ignored : eventLoops.getWorkerGroup()) {
+                workers++;
+            }
+            assertEquals(2, workers);
+            assertEquals(3, eventLoops.getGroups().size());
+            eventLoops.run();
+        } finally {
+            eventLoops.getGroups().values().forEach(EventLoopGroup::shutdownGracefully);
+        }
+    }
+
+    /**
+     * With every native transport on the classpath, the channels must still be the ones of the configured transport.
+     */
+    @Test
+    public void testChannelsMatchTransport() throws Exception {
+        final EventLoops eventLoops = new EventLoops();
+        eventLoops.configure(new PropertiesConfigurationStore(new Properties()));
+        final TransportType transport = eventLoops.getTransport();
+        final DisposableServer server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .runOn(eventLoops.getServerLoopResources(false))
+                .handle((request, response) -> response.sendString(Mono.just("ok")))
+                .bindNow();
+        try {
+            assertEquals(transport.channelClass(ServerSocketChannel.class), server.channel().getClass());
+            assertTrue(contains(eventLoops.getBossGroup(), server.channel().eventLoop()));
+
+            final AtomicReference<Channel> clientChannel = new AtomicReference<>();
+            final String body = HttpClient.newConnection()
+                    .runOn(eventLoops.getClientLoopResources(eventLoops.getWorkerGroup()))
+                    .doOnConnected(connection -> clientChannel.set(connection.channel()))
+                    .get()
+                    .uri("http://localhost:" + server.port() + "/")
+                    .responseContent()
+                    .aggregate()
+                    .asString()
+                    .block();
+            assertEquals("ok", body);
+            assertEquals(transport.channelClass(SocketChannel.class), clientChannel.get().getClass());
+            assertTrue(contains(eventLoops.getWorkerGroup(), clientChannel.get().eventLoop()));
+        } finally {
+            server.disposeNow();
+            eventLoops.getGroups().values().forEach(EventLoopGroup::shutdownGracefully);
+        }
+    }
+
+    private static boolean contains(final EventLoopGroup group, final EventExecutor loop) {
+        for (final EventExecutor executor : group) {
+            if (executor == loop) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test(expected = ConfigurationNotValidException.class)
+    public void testInvalidThreads() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("eventloop.worker.threads", "-1");
+        new EventLoops().configure(new PropertiesConfigurationStore(properties));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+public class FairQueueTest {
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    private final List<String> started = new ArrayList<>();
+    private final List<Sinks.Empty<Void>> running = new ArrayList<>();
+
+    private void submit(final FairQueue queue, final String tenant, final int share) {
+        final Sinks.Empty<Void> completion = Sinks.empty();
+        queue.submit(tenant, share, 1, TIMEOUT, Mono.fromRunnable(() -> {
+            started.add(tenant);
+            running.add(completion);
+        }).then(completion.asMono())).subscribe();
+    }
+
+    private void completeAll() {
+        while (!running.isEmpty()) {
+            running.remove(0).tryEmitEmpty();
+        }
+    }
+
+    @Test
+    public void testRoundRobinAcrossTenants() {
+        final FairQueue queue = new FairQueue("test_1");
+        submit(queue, "blocker", 1);
+        for (int i = 0; i < 3; i++) {
+            submit(queue, "greedy", 1);
+        }
+        submit(queue, "polite", 1);
+        completeAll();
+        assertEquals(List.of("blocker", "greedy", "polite", "greedy", "greedy"), started);
+        assertTrue(queue.isIdle());
+    }
+
+    @Test
+    public void testShares() {
+        final FairQueue queue = new FairQueue("test_2");
+        submit(queue, "blocker", 1);
+        for (int i = 0; i < 4; i++) {
+            submit(queue, "premium", 2);
+            submit(queue, "basic", 1);
+        }
+        completeAll();
+        assertEquals(List.of("blocker", "premium", "premium", "basic", "premium", "premium", "basic", "basic", "basic"), started);
+        assertTrue(queue.isIdle());
+    }
+
+    @Test
+    public void testCancelledWaiterLeavesTheQueue() {
+        final FairQueue queue = new FairQueue("test_3");
+        submit(queue, "blocker", 1);
+        queue.submit("cancelled", 1, 1, TIMEOUT, Mono.fromRunnable(() -> started.add("cancelled"))).subscribe().dispose();
+        submit(queue, "other", 1);
+        completeAll();
+        assertEquals(List.of("blocker", "other"), started);
+        assertTrue(queue.isIdle());
+    }
+
+    @Test
+    public void testAdmissionTimeout() {
+        final FairQueue queue = new FairQueue("test_4");
+        submit(queue, "blocker", 1);
+        StepVerifier.create(queue.submit("late", 1, 1, Duration.ofMillis(50), Mono.fromRunnable(() -> started.add("late"))))
+                .expectError(FairQueue.AdmissionTimeoutException.class)
+                .verify(TIMEOUT);
+        completeAll();
+        assertEquals(List.of("blocker"), started);
+        assertTrue(queue.isIdle());
+    }
+
+    @Test
+    public void testEnterTakesTheSlotRightAway() {
+        final FairQueue queue = new FairQueue("test_5");
+        final Sinks.Empty<Void> completion = Sinks.empty();
+        final Flux<Void> admitted = queue.enter("tenant", 1, 1, TIMEOUT, completion.asMono());
+        assertFalse(queue.isIdle());
+        admitted.subscribe();
+        completion.tryEmitEmpty();
+        assertTrue(queue.isIdle());
+    }
+}
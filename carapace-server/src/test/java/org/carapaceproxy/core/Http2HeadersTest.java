@@ -21,12 +21,10 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
-import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
-import io.netty.util.concurrent.DefaultEventExecutor;
 import java.io.IOException;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
@@ -69,8 +67,7 @@ public class Http2HeadersTest {
                 DEFAULT_MAX_KEEP_ALIVE_REQUESTS,
                 DEFAULT_FORWARDED_STRATEGY,
                 Set.of(),
-                Set.of(HttpProtocol.H2C, HttpProtocol.HTTP11),
-                new DefaultChannelGroup(new DefaultEventExecutor()));
+                Set.of(HttpProtocol.H2C, HttpProtocol.HTTP11));
     }
 
     /**
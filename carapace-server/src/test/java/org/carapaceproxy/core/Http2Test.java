@@ -17,9 +17,7 @@ import static org.carapaceproxy.server.config.NetworkListenerConfiguration.DEFAU
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
-import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.handler.codec.http.HttpResponseStatus;
-import io.netty.util.concurrent.DefaultEventExecutor;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
@@ -94,8 +92,7 @@ public class Http2Test {
                     DEFAULT_MAX_KEEP_ALIVE_REQUESTS,
                     DEFAULT_FORWARDED_STRATEGY,
                     Set.of(),
-                    carapaceProtocols,
-                    new DefaultChannelGroup(new DefaultEventExecutor())));
+                    carapaceProtocols));
 
             server.start();
             final var port = server.getLocalPort();
@@ -0,0 +1,173 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.carapaceproxy.configstore.PropertiesConfigurationStore;
+import org.carapaceproxy.server.config.ConfigurationNotValidException;
+import org.carapaceproxy.server.mapper.StandardEndpointMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ListenersTest {
+
+    private static final EndpointKey FIRST = new EndpointKey("localhost", 8081);
+    private static final EndpointKey SECOND = new EndpointKey("localhost", 8082);
+    private static final EndpointKey THIRD = new EndpointKey("localhost", 8083);
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private static Properties configuration(final int parallelism) {
+        final Properties configuration = new Properties();
+        configuration.put("listeners.boot.parallelism", String.valueOf(parallelism));
+        for (final EndpointKey listener : List.of(FIRST, SECOND, THIRD)) {
+            final int index = listener.port() - 8080;
+            configuration.put("listener." + index + ".host", listener.host());
+            configuration.put("listener." + index + ".port", String.valueOf(listener.port()));
+            configuration.put("listener." + index + ".enabled", "true");
+        }
+        return configuration;
+    }
+
+    private static boolean isBound(final EndpointKey hostPort) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(hostPort.host(), hostPort.port()), 1000);
+            return true;
+        } catch (IOException err) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testInvalidParallelism() throws Exception {
+        try (HttpProxyServer server = new HttpProxyServer(StandardEndpointMapper::new, tmpDir.newFolder())) {
+            assertThrows(ConfigurationNotValidException.class, () -> server.configureAtBoot(new PropertiesConfigurationStore(configuration(0))));
+        }
+    }
+
+    @Test
+    public void testListenersArePreparedConcurrently() throws Exception {
+        try (HttpProxyServer server = new HttpProxyServer(StandardEndpointMapper::new, tmpDir.newFolder())) {
+            server.configureAtBoot(new PropertiesConfigurationStore(configuration(3)));
+            // each preparation waits for the others, it cannot complete unless they run together
+            final CountDownLatch preparing = new CountDownLatch(3);
+            final AtomicBoolean concurrent = new AtomicBoolean(true);
+            server.getListeners().setBootObserver(new Listeners.BootObserver() {
+                @Override
+                public void preparing(final EndpointKey hostPort) {
+                    preparing.countDown();
+                    try {
+                        if (!preparing.await(10, TimeUnit.SECONDS)) {
+                            concurrent.set(false);
+                        }
+                    } catch (InterruptedException err) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            server.start();
+
+            assertTrue(concurrent.get());
+            assertEquals(3, server.getListeners().getListeningChannels().size());
+        }
+    }
+
+    @Test
+    public void testListenersAreBoundInConfigurationOrder() throws Exception {
+        try (HttpProxyServer server = new HttpProxyServer(StandardEndpointMapper::new, tmpDir.newFolder())) {
+            server.configureAtBoot(new PropertiesConfigurationStore(configuration(3)));
+            final List<EndpointKey> bound = new CopyOnWriteArrayList<>();
+            server.getListeners().setBootObserver(new Listeners.BootObserver() {
+                @Override
+                public void preparing(final EndpointKey hostPort) {
+                    // the first listener is the last one to be ready
+                    if (FIRST.equals(hostPort)) {
+                        try {
+                            Thread.sleep(500);
+                        } catch (InterruptedException err) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+
+                @Override
+                public void bound(final EndpointKey hostPort) {
+                    bound.add(hostPort);
+                }
+            });
+            server.start();
+
+            assertEquals(List.of(FIRST, SECOND, THIRD), bound);
+        }
+    }
+
+    @Test
+    public void testFailedPreparationDoesNotStopTheOthers() throws Exception {
+        try (HttpProxyServer server = new HttpProxyServer(StandardEndpointMapper::new, tmpDir.newFolder())) {
+            final Properties configuration = configuration(3);
+            configuration.put("certificate.1.hostname", "*");
+            configuration.put("certificate.1.file", tmpDir.getRoot().getAbsolutePath() + "/missing.p12");
+            configuration.put("certificate.1.password", "changeit");
+            configuration.put("listener.2.ssl", "true");
+            configuration.put("listener.2.defaultcertificate", "*");
+            server.configureAtBoot(new PropertiesConfigurationStore(configuration));
+            server.start();
+
+            assertEquals(2, server.getListeners().getListeningChannels().size());
+            assertFalse(server.getListeners().getListeningChannels().containsKey(SECOND));
+            assertFalse(isBound(SECOND));
+            assertTrue(isBound(FIRST));
+            assertTrue(isBound(THIRD));
+        }
+    }
+
+    @Test
+    public void testRestartAfterStop() throws Exception {
+        try (HttpProxyServer server = new HttpProxyServer(StandardEndpointMapper::new, tmpDir.newFolder())) {
+            server.configureAtBoot(new PropertiesConfigurationStore(configuration(2)));
+            server.start();
+            assertTrue(isBound(FIRST));
+
+            server.getListeners().stop();
+            assertTrue(server.getListeners().getListeningChannels().isEmpty());
+            assertFalse(isBound(FIRST));
+
+            server.getListeners().start();
+            assertEquals(3, server.getListeners().getListeningChannels().size());
+            assertTrue(isBound(FIRST));
+            assertTrue(isBound(SECOND));
+            assertTrue(isBound(THIRD));
+        }
+    }
+}
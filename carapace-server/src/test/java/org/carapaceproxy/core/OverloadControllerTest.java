@@ -0,0 +1,64 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class OverloadControllerTest {
+
+    private static final long TARGET = OverloadController.DEFAULT_LAG_TARGET;
+    private static final long INTERVAL = OverloadController.DEFAULT_INTERVAL;
+
+    @Test
+    public void testShortBurstIsTolerated() {
+        final OverloadController controller = new OverloadController(null);
+        controller.onSample(TARGET * 4, 0, 1_000);
+        controller.onSample(TARGET * 4, 0, 1_000 + INTERVAL - 1);
+        assertFalse(controller.isOverloaded());
+        controller.onSample(0, 0, 1_000 + INTERVAL);
+        controller.onSample(TARGET * 4, 0, 1_000 + INTERVAL + 1);
+        assertFalse(controller.isOverloaded());
+    }
+
+    @Test
+    public void testSustainedLagShedsUntilRecovery() {
+        final OverloadController controller = new OverloadController(null);
+        controller.onSample(TARGET + 1, 0, 1_000);
+        controller.onSample(TARGET + 1, 0, 1_000 + INTERVAL);
+        assertTrue(controller.isOverloaded());
+        controller.onSample(TARGET + 1, 0, 1_000 + INTERVAL * 2);
+        assertTrue(controller.isOverloaded());
+        controller.onSample(TARGET, 0, 1_000 + INTERVAL * 3);
+        assertFalse(controller.isOverloaded());
+    }
+
+    @Test
+    public void testPendingTasks() {
+        final OverloadController controller = new OverloadController(null);
+        final int maxPendingTasks = OverloadController.DEFAULT_MAX_PENDING_TASKS;
+        controller.onSample(0, maxPendingTasks + 1, 1_000);
+        controller.onSample(0, maxPendingTasks + 1, 1_000 + INTERVAL);
+        assertTrue(controller.isOverloaded());
+        controller.onSample(0, maxPendingTasks, 1_000 + INTERVAL * 2);
+        assertFalse(controller.isOverloaded());
+    }
+}
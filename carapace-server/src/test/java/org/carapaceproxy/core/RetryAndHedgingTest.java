@@ -0,0 +1,166 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import java.util.Properties;
+import org.carapaceproxy.configstore.PropertiesConfigurationStore;
+import org.carapaceproxy.server.config.ActionConfiguration;
+import org.carapaceproxy.server.config.NetworkListenerConfiguration;
+import org.carapaceproxy.server.mapper.StandardEndpointMapper;
+import org.carapaceproxy.utils.RawHttpClient;
+import org.carapaceproxy.utils.TestUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Retries and hedged requests forwarded on the fallback backends of a route.
+ */
+public class RetryAndHedgingTest {
+
+    @Rule
+    public WireMockRule primary = new WireMockRule(0);
+
+    @Rule
+    public WireMockRule fallback = new WireMockRule(0);
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    /**
+     * A route forwarding to the backends listening on the given ports, sorted from the most desirable.
+     */
+    private static Properties configuration(final int retries, final int hedgePercentile, final int... ports) {
+        final Properties properties = new Properties();
+        properties.put("healthmanager.tolerant", "true");
+        for (int i = 0; i < ports.length; i++) {
+            final String prefix = "backend." + (i + 1) + ".";
+            properties.put(prefix + "id", "backend-" + (i + 1));
+            properties.put(prefix + "enabled", "true");
+            properties.put(prefix + "host", "localhost");
+            properties.put(prefix + "port", String.valueOf(ports[i]));
+            properties.put(prefix + "probePath", "/");
+        }
+        properties.put("director.1.id", "director-1");
+        // all the backends, in the configuration order
+        properties.put("director.1.backends", "*");
+        properties.put("director.1.enabled", "true");
+        properties.put("action.1.id", "proxy-1");
+        properties.put("action.1.enabled", "true");
+        properties.put("action.1.type", ActionConfiguration.TYPE_PROXY);
+        properties.put("action.1.director", "director-1");
+        properties.put("action.1.retries", String.valueOf(retries));
+        properties.put("action.1.hedge.percentile", String.valueOf(hedgePercentile));
+        properties.put("route.100.id", "route-1");
+        properties.put("route.100.enabled", "true");
+        properties.put("route.100.match", "all");
+        properties.put("route.100.action", "proxy-1");
+        return properties;
+    }
+
+    private HttpProxyServer startServer(final Properties properties) throws Exception {
+        final HttpProxyServer server = new HttpProxyServer(StandardEndpointMapper::new, tmpDir.newFolder());
+        server.configureAtBoot(new PropertiesConfigurationStore(properties));
+        server.addListener(NetworkListenerConfiguration.withDefault("localhost", 0));
+        server.start();
+        return server;
+    }
+
+    private static RawHttpClient.HttpResponse request(final HttpProxyServer server, final String uri) throws Exception {
+        try (RawHttpClient client = new RawHttpClient("localhost", server.getLocalPort())) {
+            return client.executeRequest("GET " + uri + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+        }
+    }
+
+    @Test
+    public void testRetryOnConnectionFailure() throws Exception {
+        fallback.stubFor(get(urlEqualTo("/index.html")).willReturn(aResponse().withStatus(200).withBody("fallback")));
+        final double retried = ProxyRequestsManager.RETRIED_REQUESTS_COUNTER.get();
+
+        try (HttpProxyServer server = startServer(configuration(1, 0, TestUtils.getFreePort(), fallback.port()))) {
+            final RawHttpClient.HttpResponse response = request(server, "/index.html");
+            assertEquals("HTTP/1.1 200 OK\r\n", response.getStatusLine());
+            assertEquals("fallback", response.getBodyString());
+            assertEquals(retried + 1, ProxyRequestsManager.RETRIED_REQUESTS_COUNTER.get(), 0);
+            TestUtils.waitForCondition(() -> ProxyRequestsManager.PENDING_REQUESTS_GAUGE.get() == 0, 10);
+        }
+    }
+
+    @Test
+    public void testRetryBudgetExhausted() throws Exception {
+        fallback.stubFor(get(urlEqualTo("/index.html")).willReturn(aResponse().withStatus(200).withBody("fallback")));
+        final double retried = ProxyRequestsManager.RETRIED_REQUESTS_COUNTER.get();
+        final double exhausted = ProxyRequestsManager.RETRY_BUDGET_EXHAUSTED_COUNTER.get();
+
+        // a single retry is allowed, the second one finds the budget exhausted
+        final Properties properties = configuration(2, 0, TestUtils.getFreePort(), TestUtils.getFreePort(), fallback.port());
+        properties.put("connectionsmanager.retrybudget.percent", "0");
+        properties.put("connectionsmanager.retrybudget.burst", "1");
+        try (HttpProxyServer server = startServer(properties)) {
+            final RawHttpClient.HttpResponse response = request(server, "/index.html");
+            assertEquals("HTTP/1.1 503 Service Unavailable\r\n", response.getStatusLine());
+            assertEquals(retried + 1, ProxyRequestsManager.RETRIED_REQUESTS_COUNTER.get(), 0);
+            assertEquals(exhausted + 1, ProxyRequestsManager.RETRY_BUDGET_EXHAUSTED_COUNTER.get(), 0);
+            assertTrue(fallback.findAll(anyRequestedFor(anyUrl())).isEmpty());
+            TestUtils.waitForCondition(() -> ProxyRequestsManager.PENDING_REQUESTS_GAUGE.get() == 0, 10);
+        }
+    }
+
+    @Test
+    public void testHedgedRequestCancelsTheSlowOne() throws Exception {
+        primary.stubFor(get(urlEqualTo("/fast.html")).willReturn(aResponse().withStatus(200).withBody("primary")));
+        primary.stubFor(get(urlEqualTo("/slow.html")).willReturn(aResponse().withStatus(200).withBody("primary").withFixedDelay(5_000)));
+        fallback.stubFor(get(urlEqualTo("/slow.html")).willReturn(aResponse().withStatus(200).withBody("fallback")));
+        final double hedged = ProxyRequestsManager.HEDGED_REQUESTS_COUNTER.get();
+
+        final Properties properties = configuration(0, 50, primary.port(), fallback.port());
+        // the warm up requests exceed the default size of the pool
+        properties.put("connectionsmanager.maxconnectionsperendpoint", "1000");
+        try (HttpProxyServer server = startServer(properties)) {
+            // the route needs enough samples before hedging
+            try (RawHttpClient client = new RawHttpClient("localhost", server.getLocalPort())) {
+                for (int i = 0; i < RouteLatencyTracker.MIN_SAMPLES; i++) {
+                    assertEquals("primary", client.get("/fast.html").getBodyString());
+                }
+            }
+            assertEquals(hedged, ProxyRequestsManager.HEDGED_REQUESTS_COUNTER.get(), 0);
+
+            final long start = System.currentTimeMillis();
+            final RawHttpClient.HttpResponse response = request(server, "/slow.html");
+            assertEquals("HTTP/1.1 200 OK\r\n", response.getStatusLine());
+            assertEquals("fallback", response.getBodyString());
+            assertTrue(System.currentTimeMillis() - start < 5_000);
+            assertEquals(hedged + 1, ProxyRequestsManager.HEDGED_REQUESTS_COUNTER.get(), 0);
+
+            // the slow attempt is cancelled, instead of waiting for the response of the primary backend
+            final EndpointKey primaryKey = new EndpointKey("localhost", primary.port());
+            TestUtils.waitForCondition(() -> server.getBackendHealthManager().getBackendStatus(primaryKey).getConnections() == 0, 2);
+            TestUtils.waitForCondition(() -> ProxyRequestsManager.PENDING_REQUESTS_GAUGE.get() == 0, 2);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class RetryBudgetTest {
+
+    @Test
+    public void testBudgetStartsFullAndIsExhausted() {
+        final RetryBudget budget = new RetryBudget(10, 3);
+        assertEquals(3, budget.getAvailableTokens());
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    public void testRequestsEarnRetries() {
+        final RetryBudget budget = new RetryBudget(10, 3);
+        while (budget.tryAcquire()) {
+            // drain
+        }
+        for (int i = 0; i < 9; i++) {
+            budget.deposit();
+        }
+        assertFalse(budget.tryAcquire());
+        budget.deposit();
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    public void testBalanceIsCapped() {
+        final RetryBudget budget = new RetryBudget(50, 2);
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+        assertEquals(2, budget.getAvailableTokens());
+    }
+
+    @Test
+    public void testZeroPercentDisablesRetriesOnceBurstIsSpent() {
+        final RetryBudget budget = new RetryBudget(0, 1);
+        assertTrue(budget.tryAcquire());
+        for (int i = 0; i < 1_000; i++) {
+            budget.deposit();
+        }
+        assertFalse(budget.tryAcquire());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static org.junit.Assert.assertEquals;
+import java.util.Set;
+import org.junit.Test;
+
+public class RouteLatencyTrackerTest {
+
+    @Test
+    public void testNoThresholdWithoutEnoughSamples() {
+        final RouteLatencyTracker tracker = new RouteLatencyTracker();
+        assertEquals(-1, tracker.getPercentile("route", 95));
+        for (int i = 0; i < RouteLatencyTracker.MIN_SAMPLES - 1; i++) {
+            tracker.record("route", i);
+        }
+        assertEquals(-1, tracker.getPercentile("route", 95));
+        tracker.record("route", 1_000);
+        assertEquals(-1, tracker.getPercentile("other", 95));
+    }
+
+    @Test
+    public void testPercentiles() {
+        final RouteLatencyTracker tracker = new RouteLatencyTracker();
+        for (int i = 1; i <= 100; i++) {
+            tracker.record("route", i);
+        }
+        assertEquals(50, tracker.getPercentile("route", 50));
+        assertEquals(95, tracker.getPercentile("route", 95));
+        assertEquals(99, tracker.getPercentile("route", 99));
+    }
+
+    @Test
+    public void testWindowSlides() {
+        final RouteLatencyTracker tracker = new RouteLatencyTracker();
+        for (int i = 0; i < RouteLatencyTracker.WINDOW_SIZE; i++) {
+            tracker.record("route", 1_000);
+        }
+        assertEquals(1_000, tracker.getPercentile("route", 50));
+        for (int i = 0; i < RouteLatencyTracker.WINDOW_SIZE; i++) {
+            tracker.record("route", 10);
+        }
+        assertEquals(10, tracker.getPercentile("route", 99));
+    }
+
+    @Test
+    public void testRetain() {
+        final RouteLatencyTracker tracker = new RouteLatencyTracker();
+        for (int i = 1; i <= RouteLatencyTracker.MIN_SAMPLES; i++) {
+            tracker.record("kept", i);
+            tracker.record("dropped", i);
+        }
+        tracker.retain(Set.of("kept"));
+        assertEquals(50, tracker.getPercentile("kept", 50));
+        assertEquals(-1, tracker.getPercentile("dropped", 50));
+    }
+}
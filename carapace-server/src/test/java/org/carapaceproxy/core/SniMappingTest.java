@@ -0,0 +1,122 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static org.carapaceproxy.server.config.SSLCertificateConfiguration.CertificateMode.STATIC;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.carapaceproxy.server.certificates.CertificatesIndex;
+import org.carapaceproxy.server.config.SSLCertificateConfiguration;
+import org.junit.Test;
+import reactor.netty.tcp.SslProvider;
+
+public class SniMappingTest {
+
+    private static SslProvider provider() throws Exception {
+        return SslProvider.builder().sslContext(SslContextBuilder.forClient().build()).build();
+    }
+
+    private static SslProvider map(final SniMapping mapping, final String hostname) throws Exception {
+        return mapping.map(hostname, ImmediateEventExecutor.INSTANCE.newPromise()).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testLazyLoad() throws Exception {
+        final SSLCertificateConfiguration localhost = new SSLCertificateConfiguration("localhost", null, "localhost.p12", "", STATIC);
+        final SSLCertificateConfiguration wildcard = new SSLCertificateConfiguration("*.example.com", null, "example.p12", "", STATIC);
+        final SslProvider fallback = provider();
+        final SslProvider loaded = provider();
+        final AtomicInteger loads = new AtomicInteger();
+        final SniMapping mapping = new SniMapping(new SniMapping.Providers() {
+            private volatile SslProvider cached;
+
+            @Override
+            public SslProvider getIfPresent(final SSLCertificateConfiguration certificate) {
+                return cached;
+            }
+
+            @Override
+            public SslProvider load(final SSLCertificateConfiguration certificate) {
+                loads.incrementAndGet();
+                return cached = loaded;
+            }
+        });
+        mapping.update(new CertificatesIndex(Map.of(localhost.getId(), localhost, wildcard.getId(), wildcard)), "localhost", fallback);
+
+        assertSame(fallback, map(mapping, null));
+        assertSame(fallback, map(mapping, "localhost"));
+        assertSame(fallback, map(mapping, "www.example.org"));
+        assertEquals(0, loads.get());
+
+        assertSame(loaded, map(mapping, "www.example.com"));
+        assertSame(loaded, map(mapping, "api.example.com"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testCatchAllFallsBackToDefault() throws Exception {
+        final SSLCertificateConfiguration any = new SSLCertificateConfiguration("*", null, "any.p12", "", STATIC);
+        final SSLCertificateConfiguration wildcard = new SSLCertificateConfiguration("*.example.com", null, "example.p12", "", STATIC);
+        final SslProvider fallback = provider();
+        final SslProvider loaded = provider();
+        final SniMapping mapping = new SniMapping(new SniMapping.Providers() {
+            @Override
+            public SslProvider getIfPresent(final SSLCertificateConfiguration certificate) {
+                return null;
+            }
+
+            @Override
+            public SslProvider load(final SSLCertificateConfiguration certificate) {
+                return loaded;
+            }
+        });
+        mapping.update(new CertificatesIndex(Map.of(any.getId(), any, wildcard.getId(), wildcard)), "localhost", fallback);
+
+        assertSame(fallback, map(mapping, null));
+        assertSame(fallback, map(mapping, "www.example.org"));
+        assertSame(fallback, map(mapping, "example.com"));
+        assertSame(fallback, map(mapping, "a.b.example.com"));
+        assertSame(loaded, map(mapping, "www.example.com"));
+    }
+
+    @Test
+    public void testFallbackOnLoadFailure() throws Exception {
+        final SSLCertificateConfiguration certificate = new SSLCertificateConfiguration("www.example.com", null, "missing.p12", "", STATIC);
+        final SslProvider fallback = provider();
+        final SniMapping mapping = new SniMapping(new SniMapping.Providers() {
+            @Override
+            public SslProvider getIfPresent(final SSLCertificateConfiguration certificate) {
+                return null;
+            }
+
+            @Override
+            public SslProvider load(final SSLCertificateConfiguration certificate) throws Exception {
+                throw new IllegalStateException("cannot read " + certificate.getFile());
+            }
+        });
+        mapping.update(new CertificatesIndex(Map.of(certificate.getId(), certificate)), "localhost", fallback);
+        assertSame(fallback, map(mapping, "www.example.com"));
+    }
+}
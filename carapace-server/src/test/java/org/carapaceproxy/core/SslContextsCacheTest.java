@@ -0,0 +1,205 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static org.carapaceproxy.server.config.NetworkListenerConfiguration.DEFAULT_FORWARDED_STRATEGY;
+import static org.carapaceproxy.server.config.NetworkListenerConfiguration.DEFAULT_SSL_PROTOCOLS;
+import static org.carapaceproxy.server.config.SSLCertificateConfiguration.CertificateMode.STATIC;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static reactor.netty.http.HttpProtocol.HTTP11;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.carapaceproxy.server.config.NetworkListenerConfiguration;
+import org.carapaceproxy.server.config.SSLCertificateConfiguration;
+import org.junit.Test;
+
+public class SslContextsCacheTest {
+
+    private static final NetworkListenerConfiguration LISTENER = new NetworkListenerConfiguration(
+            "localhost", 0, true, null, "localhost", DEFAULT_SSL_PROTOCOLS, 128, true, 300, 60, 8, 1000, DEFAULT_FORWARDED_STRATEGY, Set.of(), Set.of(HTTP11)
+    );
+    private static final SSLCertificateConfiguration CERTIFICATE = new SSLCertificateConfiguration("localhost", null, "localhost.p12", "pwd", STATIC);
+
+    private static final class TestLoader implements SslContextsCache.Loader {
+
+        private final AtomicInteger builds = new AtomicInteger();
+        private final AtomicInteger reads = new AtomicInteger();
+        private volatile String content = "v1";
+        private volatile String stamp = "s1";
+        private volatile CountDownLatch readGate;
+
+        @Override
+        public byte[] read() {
+            reads.incrementAndGet();
+            if (readGate != null) {
+                try {
+                    readGate.await();
+                } catch (InterruptedException err) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return content != null ? content.getBytes(StandardCharsets.UTF_8) : null;
+        }
+
+        @Override
+        public String stamp() {
+            return stamp;
+        }
+
+        @Override
+        public SslContext build(final byte[] keystore) {
+            builds.incrementAndGet();
+            try {
+                return SslContextBuilder.forClient().build();
+            } catch (Exception err) {
+                throw new IllegalStateException(err);
+            }
+        }
+    }
+
+    private static Map<String, SSLCertificateConfiguration> certificates(final SSLCertificateConfiguration... certificates) {
+        final Map<String, SSLCertificateConfiguration> byId = new HashMap<>();
+        for (final SSLCertificateConfiguration certificate : certificates) {
+            byId.put(certificate.getId(), certificate);
+        }
+        return byId;
+    }
+
+    @Test
+    public void testReuseAcrossReloads() throws Exception {
+        final SslContextsCache cache = new SslContextsCache();
+        final TestLoader loader = new TestLoader();
+        assertNull(cache.getIfPresent(LISTENER, CERTIFICATE));
+
+        final SslContext first = cache.get(LISTENER, CERTIFICATE, loader);
+        assertSame(first, cache.getIfPresent(LISTENER, CERTIFICATE));
+        assertEquals(1, loader.reads.get());
+
+        // unchanged stamp: handshakes still find the context, nothing is read again
+        cache.retain(certificates(CERTIFICATE), certificate -> loader.stamp);
+        assertSame(first, cache.getIfPresent(LISTENER, CERTIFICATE));
+        assertSame(first, cache.get(LISTENER, CERTIFICATE, loader));
+        assertEquals(1, loader.reads.get());
+
+        // changed stamp, same keystore: the context is reused, only the fingerprint is computed again
+        loader.stamp = "s2";
+        cache.retain(certificates(CERTIFICATE), certificate -> loader.stamp);
+        assertNull(cache.getIfPresent(LISTENER, CERTIFICATE));
+        assertSame(first, cache.get(LISTENER, CERTIFICATE, loader));
+        assertEquals(2, loader.reads.get());
+        assertEquals(1, loader.builds.get());
+
+        // changed keystore: a new context replaces the previous one
+        loader.content = "v2";
+        loader.stamp = "s3";
+        cache.retain(certificates(CERTIFICATE), certificate -> loader.stamp);
+        final SslContext second = cache.get(LISTENER, CERTIFICATE, loader);
+        assertNotSame(first, second);
+        assertEquals(2, loader.builds.get());
+
+        // changed configuration of the certificate, same stamp
+        final SSLCertificateConfiguration otherPassword = new SSLCertificateConfiguration("localhost", null, "localhost.p12", "other", STATIC);
+        cache.retain(certificates(otherPassword), certificate -> loader.stamp);
+        assertNull(cache.getIfPresent(LISTENER, otherPassword));
+        assertNotSame(second, cache.get(LISTENER, otherPassword, loader));
+        assertEquals(3, loader.builds.get());
+
+        // dropped certificate
+        cache.retain(certificates(), certificate -> loader.stamp);
+        assertNull(cache.getIfPresent(LISTENER, CERTIFICATE));
+        cache.get(LISTENER, CERTIFICATE, loader);
+        assertEquals(4, loader.builds.get());
+
+        loader.content = null;
+        loader.stamp = "s4";
+        cache.retain(certificates(CERTIFICATE), certificate -> loader.stamp);
+        assertNull(cache.get(LISTENER, CERTIFICATE, loader));
+    }
+
+    @Test
+    public void testSharedAmongListeners() throws Exception {
+        final SslContextsCache cache = new SslContextsCache();
+        final TestLoader loader = new TestLoader();
+        final NetworkListenerConfiguration otherListener = new NetworkListenerConfiguration(
+                "localhost", 1, true, null, "localhost", DEFAULT_SSL_PROTOCOLS, 128, true, 300, 60, 8, 1000, DEFAULT_FORWARDED_STRATEGY, Set.of(), Set.of(HTTP11)
+        );
+        final SslContext first = cache.get(LISTENER, CERTIFICATE, loader);
+        assertSame(first, cache.getIfPresent(otherListener, CERTIFICATE));
+        assertSame(first, cache.get(otherListener, CERTIFICATE, loader));
+        assertEquals(1, loader.builds.get());
+
+        // other TLS settings need their own context
+        final NetworkListenerConfiguration otherProtocols = new NetworkListenerConfiguration(
+                "localhost", 2, true, null, "localhost", Set.of("TLSv1.3"), 128, true, 300, 60, 8, 1000, DEFAULT_FORWARDED_STRATEGY, Set.of(), Set.of(HTTP11)
+        );
+        assertNull(cache.getIfPresent(otherProtocols, CERTIFICATE));
+        assertNotSame(first, cache.get(otherProtocols, CERTIFICATE, loader));
+        assertEquals(2, loader.builds.get());
+    }
+
+    @Test
+    public void testUnknownStampIsReadAgain() throws Exception {
+        final SslContextsCache cache = new SslContextsCache();
+        final TestLoader loader = new TestLoader();
+        loader.stamp = null;
+        final SslContext first = cache.get(LISTENER, CERTIFICATE, loader);
+        cache.retain(certificates(CERTIFICATE), certificate -> null);
+        assertNull(cache.getIfPresent(LISTENER, CERTIFICATE));
+        assertSame(first, cache.get(LISTENER, CERTIFICATE, loader));
+        assertEquals(2, loader.reads.get());
+    }
+
+    @Test
+    public void testConcurrentLoadsReadOnce() throws Exception {
+        final SslContextsCache cache = new SslContextsCache();
+        final TestLoader loader = new TestLoader();
+        loader.readGate = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<SslContext> first = executor.submit(() -> cache.get(LISTENER, CERTIFICATE, loader));
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while (loader.reads.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            final Future<SslContext> second = executor.submit(() -> cache.get(LISTENER, CERTIFICATE, loader));
+            final Future<SslContext> third = executor.submit(() -> cache.get(LISTENER, CERTIFICATE, loader));
+            Thread.sleep(100);
+            loader.readGate.countDown();
+            assertSame(first.get(), second.get());
+            assertSame(first.get(), third.get());
+            assertEquals(1, loader.reads.get());
+            assertEquals(1, loader.builds.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.unix.DomainSocketChannel;
+import org.carapaceproxy.server.config.ConfigurationNotValidException;
+import org.junit.Test;
+
+public class TransportTypeTest {
+
+    @Test
+    public void testSelect() throws Exception {
+        assertEquals(TransportType.getDefault(), TransportType.select("auto"));
+        assertEquals(TransportType.getDefault(), TransportType.select(null));
+        assertEquals(TransportType.NIO, TransportType.select("nio"));
+        // unavailable transports fall back to the default one
+        assertEquals(TransportType.IO_URING.isAvailable() ? TransportType.IO_URING : TransportType.getDefault(), TransportType.select("io_uring"));
+        assertEquals(TransportType.EPOLL.isAvailable() ? TransportType.EPOLL : TransportType.NIO, TransportType.select("EPOLL"));
+    }
+
+    @Test(expected = ConfigurationNotValidException.class)
+    public void testUnknownTransport() throws Exception {
+        TransportType.select("kqueue2");
+    }
+
+    @Test
+    public void testKeepAliveOptions() {
+        for (final TransportType transport : TransportType.values()) {
+            assertNotNull(transport.tcpKeepIdle());
+            assertNotNull(transport.tcpKeepInterval());
+            assertNotNull(transport.tcpKeepCount());
+        }
+        assertTrue(TransportType.EPOLL.supportsReusePort());
+        assertTrue(TransportType.EPOLL.soReusePort().isPresent());
+        assertFalse(TransportType.NIO.supportsReusePort());
+        assertTrue(TransportType.NIO.soReusePort().isEmpty());
+    }
+
+    @Test
+    public void testChannelClasses() {
+        assertEquals(NioServerSocketChannel.class, TransportType.NIO.channelClass(ServerSocketChannel.class));
+        assertEquals(NioSocketChannel.class, TransportType.NIO.channelClass(SocketChannel.class));
+        for (final TransportType transport : TransportType.values()) {
+            assertTrue(ServerSocketChannel.class.isAssignableFrom(transport.channelClass(ServerSocketChannel.class)));
+            assertTrue(SocketChannel.class.isAssignableFrom(transport.channelClass(SocketChannel.class)));
+            assertNull(transport.channelClass(DomainSocketChannel.class));
+        }
+    }
+}
@@ -1,22 +1,45 @@
 package org.carapaceproxy.listeners;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.netty.channel.epoll.Epoll;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.carapaceproxy.configstore.PropertiesConfigurationStore;
 import org.carapaceproxy.core.EndpointKey;
 import org.carapaceproxy.core.HttpProxyServer;
 import org.carapaceproxy.core.ListeningChannel;
+import org.carapaceproxy.server.config.ActionConfiguration;
 import org.carapaceproxy.server.config.ConfigurationChangeInProgressException;
 import org.carapaceproxy.server.mapper.StandardEndpointMapper;
+import org.carapaceproxy.utils.RawHttpClient;
+import org.carapaceproxy.utils.TestUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 public class ListenerConfigurationTest {
 
+    @Rule
+    public WireMockRule backend = new WireMockRule(0);
+
     @Rule
     public TemporaryFolder tmpDir = new TemporaryFolder();
 
@@ -126,6 +149,140 @@ public class ListenerConfigurationTest {
         }
     }
 
+    @Test
+    public void testListenerAcceptors() throws Exception {
+        try (HttpProxyServer server = new HttpProxyServer(StandardEndpointMapper::new, tmpDir.newFolder())) {
+            Properties configuration = new Properties();
+            configuration.put("listener.1.host", "localhost");
+            configuration.put("listener.1.port", "8080");
+            configuration.put("listener.1.enabled", "true");
+            server.configureAtBoot(new PropertiesConfigurationStore(configuration));
+            server.start();
+
+            EndpointKey listenerKey = new EndpointKey("localhost", 8080);
+            assertEquals(1, server.getListeners().getListeningChannels().get(listenerKey).getChannels().size());
+
+            configuration.put("listener.1.acceptors", "3");
+            reloadConfiguration(configuration, server);
+
+            ListeningChannel listener = server.getListeners().getListeningChannels().get(listenerKey);
+            assertEquals(3, listener.getConfig().acceptors());
+            // without epoll SO_REUSEPORT is not available, and the listener falls back to a single socket
+            assertEquals(Epoll.isAvailable() ? 3 : 1, listener.getChannels().size());
+            assertEquals(8080, listener.getChannelPort());
+        }
+    }
+
+    @Test
+    public void testListenerRestartKeepsPortBound() throws Exception {
+        Properties configuration = new Properties();
+        configuration.put("listener.1.reuseport", "true");
+        assertRestartKeepsServing(configuration, true);
+    }
+
+    /**
+     * With one acceptor per event loop, the port is shared only if there is more than one loop to accept on.
+     */
+    @Test
+    public void testListenerRestartWithAcceptorPerLoop() throws Exception {
+        Properties configuration = new Properties();
+        configuration.put("eventloop.boss.threads", "1");
+        configuration.put("listener.1.acceptors", "0");
+        assertRestartKeepsServing(configuration, false);
+
+        configuration.put("eventloop.boss.threads", "2");
+        assertRestartKeepsServing(configuration, true);
+    }
+
+    private void assertRestartKeepsServing(Properties configuration, boolean sharedPort) throws Exception {
+        backend.stubFor(get(urlEqualTo("/slow.html"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(1_000)
+                        .withBody("it <b>works</b> !!")));
+        try (HttpProxyServer server = new HttpProxyServer(StandardEndpointMapper::new, tmpDir.newFolder())) {
+            configuration.put("listener.1.host", "localhost");
+            configuration.put("listener.1.port", "8080");
+            configuration.put("listener.1.enabled", "true");
+            configuration.put("clients.drain.timeout", "5");
+            configuration.put("healthmanager.tolerant", "true");
+            configuration.put("backend.1.id", "backend");
+            configuration.put("backend.1.enabled", "true");
+            configuration.put("backend.1.host", "localhost");
+            configuration.put("backend.1.port", String.valueOf(backend.port()));
+            configuration.put("director.1.id", "director");
+            configuration.put("director.1.backends", "backend");
+            configuration.put("director.1.enabled", "true");
+            configuration.put("action.1.id", "proxy");
+            configuration.put("action.1.enabled", "true");
+            configuration.put("action.1.type", ActionConfiguration.TYPE_PROXY);
+            configuration.put("action.1.director", "director");
+            configuration.put("route.1.id", "route");
+            configuration.put("route.1.enabled", "true");
+            configuration.put("route.1.match", "request.uri ~ \".*slow.html\"");
+            configuration.put("route.1.action", "proxy");
+            configuration.remove("listener.1.keepaliveidle");
+            server.configureAtBoot(new PropertiesConfigurationStore(configuration));
+            server.start();
+
+            EndpointKey listenerKey = new EndpointKey("localhost", 8080);
+            ListeningChannel before = server.getListeners().getListeningChannels().get(listenerKey);
+            boolean reusePort = sharedPort && server.getEventLoops().getTransport().supportsReusePort();
+            assertEquals(reusePort, before.isReusePort());
+
+            // a request still waiting for the backend while the listener restarts
+            int requested = backend.findAll(getRequestedFor(urlEqualTo("/slow.html"))).size();
+            CompletableFuture<String> inFlight = CompletableFuture.supplyAsync(() -> {
+                try (RawHttpClient client = new RawHttpClient("localhost", 8080)) {
+                    return client.get("/slow.html").getBodyString();
+                } catch (IOException err) {
+                    throw new UncheckedIOException(err);
+                }
+            });
+            TestUtils.waitForCondition(() -> backend.findAll(getRequestedFor(urlEqualTo("/slow.html"))).size() > requested, 10);
+
+            configuration.put("listener.1.keepaliveidle", "10");
+            reloadConfiguration(configuration, server);
+
+            ListeningChannel after = server.getListeners().getListeningChannels().get(listenerKey);
+            assertNotSame(before, after);
+            assertEquals(reusePort, after.isReusePort());
+            assertEquals(8080, after.getChannelPort());
+            try (RawHttpClient client = new RawHttpClient("localhost", 8080)) {
+                assertTrue(client.get("/index.html").getStatusLine().startsWith("HTTP/1.1"));
+            }
+            if (reusePort) {
+                // the previous sockets are drained, otherwise they are closed before binding the new ones
+                assertEquals("it <b>works</b> !!", inFlight.get(10, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    public void testListenerPortIsNotSharedByDefault() throws Exception {
+        try (HttpProxyServer server = new HttpProxyServer(StandardEndpointMapper::new, tmpDir.newFolder())) {
+            Properties configuration = new Properties();
+            configuration.put("listener.1.host", "localhost");
+            configuration.put("listener.1.port", "8080");
+            configuration.put("listener.1.enabled", "true");
+            server.configureAtBoot(new PropertiesConfigurationStore(configuration));
+            server.start();
+            assumeTrue(server.getEventLoops().getTransport().supportsReusePort());
+
+            EndpointKey listenerKey = new EndpointKey("localhost", 8080);
+            assertFalse(server.getListeners().getListeningChannels().get(listenerKey).isReusePort());
+            // another process asking for SO_REUSEPORT still finds the port in use
+            try (ServerSocketChannel other = ServerSocketChannel.open()) {
+                other.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                assertThrows(BindException.class, () -> other.bind(new InetSocketAddress("localhost", 8080)));
+            }
+
+            configuration.put("listener.1.reuseport", "true");
+            reloadConfiguration(configuration, server);
+            assertTrue(server.getListeners().getListeningChannels().get(listenerKey).isReusePort());
+        }
+    }
+
     private void reloadConfiguration(Properties configuration, final HttpProxyServer server) throws
             ConfigurationChangeInProgressException, InterruptedException {
         PropertiesConfigurationStore config = new PropertiesConfigurationStore(configuration);
@@ -0,0 +1,135 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.backends;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.carapaceproxy.core.EndpointKey;
+import org.carapaceproxy.server.config.CircuitBreakerConfiguration;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    private static final EndpointKey BACKEND = new EndpointKey("localhost", 8080);
+
+    private static CircuitBreaker newCircuitBreaker(final long openDuration) {
+        return new CircuitBreaker(BACKEND, new CircuitBreakerConfiguration(
+                true, 50, 80, 1_000, 4, 10, openDuration, 2
+        ));
+    }
+
+    @Test
+    public void testDisabledCircuitBreakerNeverOpens() {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(BACKEND, CircuitBreakerConfiguration.DISABLED);
+        for (int i = 0; i < 1_000; i++) {
+            circuitBreaker.onFailure(0);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testOpensOnFailureRate() {
+        final CircuitBreaker circuitBreaker = newCircuitBreaker(60_000);
+        circuitBreaker.onFailure(0);
+        circuitBreaker.onFailure(0);
+        circuitBreaker.onSuccess(0);
+        // not enough calls yet
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.onSuccess(0);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.isCallPermitted());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testOpensOnSlowCallRate() {
+        final CircuitBreaker circuitBreaker = newCircuitBreaker(60_000);
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onSuccess(5_000);
+        }
+        circuitBreaker.onSuccess(0);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.onSuccess(5_000);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testStaysClosedBelowThresholds() {
+        final CircuitBreaker circuitBreaker = newCircuitBreaker(60_000);
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onFailure(0);
+            for (int j = 0; j < 3; j++) {
+                circuitBreaker.onSuccess(0);
+            }
+        }
+        // 25% of failures
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenClosesAfterSuccessfulTrials() {
+        final CircuitBreaker circuitBreaker = newCircuitBreaker(0);
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onFailure(0);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onSuccess(0);
+        circuitBreaker.onSuccess(0);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenOpensAgainAfterFailedTrials() {
+        final CircuitBreaker circuitBreaker = newCircuitBreaker(0);
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onFailure(0);
+        }
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onSuccess(0);
+        circuitBreaker.onFailure(0);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testReleasedTrialCanBeTakenAgain() {
+        final CircuitBreaker circuitBreaker = newCircuitBreaker(0);
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onFailure(0);
+        }
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        // e.g. the trial call was cancelled before its response
+        circuitBreaker.releasePermission();
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onSuccess(0);
+        circuitBreaker.onSuccess(0);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        // a release without a pending trial has no effect
+        circuitBreaker.releasePermission();
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+}
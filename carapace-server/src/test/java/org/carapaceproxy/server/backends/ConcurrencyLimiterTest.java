@@ -0,0 +1,162 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.backends;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.carapaceproxy.core.EndpointKey;
+import org.carapaceproxy.server.config.ConcurrencyLimiterConfiguration;
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+    private static final EndpointKey BACKEND = new EndpointKey("localhost", 8080);
+
+    @Test
+    public void testDisabledLimiterAllowsEverything() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(BACKEND, ConcurrencyLimiterConfiguration.DISABLED);
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertTrue(limiter.isAvailable());
+        assertEquals(100_000, limiter.getInFlight());
+    }
+
+    @Test
+    public void testInitialLimit() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(BACKEND, new ConcurrencyLimiterConfiguration(true, 10, 2, 100));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.isAvailable());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(10, limiter.getInFlight());
+    }
+
+    @Test
+    public void testReleaseFreesASlot() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(BACKEND, new ConcurrencyLimiterConfiguration(true, 2, 2, 100));
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.release();
+        assertTrue(limiter.isAvailable());
+        assertTrue(limiter.tryAcquire());
+        // releasing more than acquired does not make room over the limit
+        for (int i = 0; i < 5; i++) {
+            limiter.release();
+        }
+        assertEquals(0, limiter.getInFlight());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testConcurrentRequestsDoNotOvershootTheLimit() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(BACKEND, new ConcurrencyLimiterConfiguration(true, 10, 2, 100));
+        final int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger acquired = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 10_000; j++) {
+                        if (limiter.tryAcquire()) {
+                            acquired.incrementAndGet();
+                            maxInFlight.accumulateAndGet(limiter.getInFlight(), Math::max);
+                            limiter.release();
+                        }
+                    }
+                    // the slots left at the end are never released
+                    return limiter.tryAcquire();
+                }));
+            }
+            start.countDown();
+            int held = 0;
+            for (final Future<?> future : futures) {
+                if ((Boolean) future.get(30, TimeUnit.SECONDS)) {
+                    held++;
+                }
+            }
+            assertTrue(acquired.get() > 0);
+            assertTrue("in flight " + maxInFlight.get(), maxInFlight.get() <= 10);
+            assertTrue(held <= 10);
+            assertEquals(held, limiter.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLimitGrowsWhileLatencyIsFlat() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(BACKEND, new ConcurrencyLimiterConfiguration(true, 10, 2, 100));
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(10, limiter.getLimit());
+        }
+        assertEquals(100, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimitDoesNotGrowWhenUnderused() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(BACKEND, new ConcurrencyLimiterConfiguration(true, 10, 2, 100));
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(10, 1);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimitShrinksWhenLatencyRises() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(BACKEND, new ConcurrencyLimiterConfiguration(true, 50, 2, 100));
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(10, limiter.getLimit());
+        }
+        final int limitBefore = limiter.getLimit();
+        for (int i = 0; i < 30; i++) {
+            limiter.onSample(200, limiter.getLimit());
+        }
+        assertTrue(limiter.getLimit() < limitBefore);
+    }
+
+    @Test
+    public void testDropsShrinkTheLimitDownToTheMinimum() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(BACKEND, new ConcurrencyLimiterConfiguration(true, 10, 2, 100));
+        limiter.onDropped();
+        assertEquals(9, limiter.getLimit());
+        for (int i = 0; i < 100; i++) {
+            limiter.onDropped();
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+}
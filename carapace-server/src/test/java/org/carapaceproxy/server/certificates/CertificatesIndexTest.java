@@ -0,0 +1,104 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.certificates;
+
+import static org.carapaceproxy.server.config.SSLCertificateConfiguration.CertificateMode.STATIC;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.carapaceproxy.server.config.SSLCertificateConfiguration;
+import org.junit.Test;
+
+public class CertificatesIndexTest {
+
+    private static SSLCertificateConfiguration certificate(final String hostname, final String... subjectAltNames) {
+        return new SSLCertificateConfiguration(hostname, Set.of(subjectAltNames), "cert.p12", "pwd", STATIC);
+    }
+
+    private static CertificatesIndex index(final SSLCertificateConfiguration... certificates) {
+        final Map<String, SSLCertificateConfiguration> map = new HashMap<>();
+        for (final SSLCertificateConfiguration certificate : certificates) {
+            map.put(certificate.getId(), certificate);
+        }
+        return new CertificatesIndex(map);
+    }
+
+    @Test
+    public void testExactBeforeWildcard() {
+        final SSLCertificateConfiguration exact = certificate("www.example.com");
+        final SSLCertificateConfiguration wildcard = certificate("*.example.com");
+        final CertificatesIndex index = index(exact, wildcard);
+        assertSame(exact, index.lookup("www.example.com"));
+        assertSame(exact, index.lookup("WWW.EXAMPLE.COM"));
+        assertSame(wildcard, index.lookup("api.example.com"));
+        assertNull(index.lookup("a.b.example.com"));
+        assertNull(index.lookup("example.com"));
+        assertNull(index.lookup(".example.com"));
+        assertNull(index.lookup("badexample.com"));
+        assertNull(index.lookup("www.example.org"));
+        assertNull(index.lookup(null));
+    }
+
+    @Test
+    public void testMostSpecificWildcard() {
+        final SSLCertificateConfiguration generic = certificate("*.example.com");
+        final SSLCertificateConfiguration specific = certificate("*.shop.example.com");
+        final SSLCertificateConfiguration any = certificate("*");
+        final CertificatesIndex index = index(generic, specific, any);
+        assertSame(specific, index.lookup("eu.shop.example.com"));
+        assertSame(generic, index.lookup("blog.example.com"));
+        assertNull(index.lookup("a.eu.shop.example.com"));
+        assertSame(generic, index.lookup("shop.example.com"));
+    }
+
+    @Test
+    public void testCatchAllIsOnlyDefault() {
+        final SSLCertificateConfiguration any = certificate("*");
+        final SSLCertificateConfiguration fallback = certificate("localhost");
+        final CertificatesIndex index = index(any, fallback, certificate("*.example.com"));
+        assertNull(index.lookup("www.example.org"));
+        assertNull(index.lookup("example.com"));
+        assertNull(index.lookup(null));
+        assertSame(fallback, index.choose("www.example.org", "localhost"));
+        assertSame(fallback, index.choose(null, "localhost"));
+        assertSame(any, index.choose("www.example.org", "missing"));
+        assertSame(any, index.choose(null, null));
+    }
+
+    @Test
+    public void testSubjectAltNames() {
+        final SSLCertificateConfiguration certificate = certificate("example.com", "www.example.com", "*.api.example.com");
+        final CertificatesIndex index = index(certificate);
+        assertSame(certificate, index.lookup("example.com"));
+        assertSame(certificate, index.lookup("www.example.com"));
+        assertSame(certificate, index.lookup("v1.api.example.com"));
+        assertNull(index.lookup("blog.example.com"));
+    }
+
+    @Test
+    public void testDefault() {
+        final SSLCertificateConfiguration fallback = certificate("localhost");
+        final CertificatesIndex index = index(fallback, certificate("www.example.com"));
+        assertSame(fallback, index.choose("www.example.org", "localhost"));
+        assertNull(index.choose("www.example.org", "missing"));
+    }
+}
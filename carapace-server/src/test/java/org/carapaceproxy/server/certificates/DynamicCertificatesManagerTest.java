@@ -38,6 +38,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -48,7 +49,9 @@ import static org.shredzone.acme4j.Status.VALID;
 import java.net.URI;
 import java.security.KeyPair;
 import java.security.cert.X509Certificate;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -165,7 +168,7 @@ public class DynamicCertificatesManagerTest {
         Whitebox.setInternalState(man, ac);
 
         // Store mocking
-        ConfigurationStore store = mock(ConfigurationStore.class);
+        ConfigurationStore store = mockStore();
         String chain = base64EncodeCertificateChain(generateSampleChain(keyPair, false), keyPair.getPrivate());
         when(store.loadKeyPairForDomain(anyString())).thenReturn(keyPair);
 
@@ -301,6 +304,28 @@ public class DynamicCertificatesManagerTest {
         }
     }
 
+    /**
+     * A store whose batched loads and saves delegate to the single ones, stubbed and verified by the tests.
+     */
+    private static ConfigurationStore mockStore() {
+        ConfigurationStore store = mock(ConfigurationStore.class);
+        when(store.loadCertificatesForDomains(any())).thenAnswer(invocation -> {
+            Map<String, CertificateData> certificates = new HashMap<>();
+            for (String domain : invocation.<Collection<String>>getArgument(0)) {
+                CertificateData cert = store.loadCertificateForDomain(domain);
+                if (cert != null) {
+                    certificates.put(domain, cert);
+                }
+            }
+            return certificates;
+        });
+        doAnswer(invocation -> {
+            invocation.<Collection<CertificateData>>getArgument(0).forEach(store::saveCertificate);
+            return null;
+        }).when(store).saveCertificates(any());
+        return store;
+    }
+
     private void assertCertificateState(String domain, DynamicCertificateState expectedState, int expectedCycleCount, DynamicCertificatesManager dCMan) {
         assertEquals(expectedState, dCMan.getStateOfCertificate(domain)); // on db
         assertEquals(expectedState, dCMan.getCertificateDataForDomain(domain).getState()); // on cache
@@ -371,7 +396,7 @@ public class DynamicCertificatesManagerTest {
         Whitebox.setInternalState(man, r53Client);
 
         // Store mocking
-        ConfigurationStore store = mock(ConfigurationStore.class);
+        ConfigurationStore store = mockStore();
         when(store.loadKeyPairForDomain(anyString())).thenReturn(keyPair);
 
         // certificate to order
@@ -510,7 +535,7 @@ public class DynamicCertificatesManagerTest {
         Whitebox.setInternalState(man, r53Client);
 
         // Store mocking
-        ConfigurationStore store = mock(ConfigurationStore.class);
+        ConfigurationStore store = mockStore();
         when(store.loadKeyPairForDomain(anyString())).thenReturn(keyPair);
 
         // certificate to order
@@ -618,7 +643,7 @@ public class DynamicCertificatesManagerTest {
         Whitebox.setInternalState(man, ac);
 
         // Store mocking
-        ConfigurationStore store = mock(ConfigurationStore.class);
+        ConfigurationStore store = mockStore();
         when(store.loadKeyPairForDomain(anyString())).thenReturn(keyPair);
 
         // certificate to order
@@ -0,0 +1,111 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.certificates;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.carapaceproxy.cluster.GroupMembershipHandler;
+import org.carapaceproxy.cluster.impl.NullGroupMembershipHandler;
+import org.junit.Test;
+
+public class SessionTicketKeysManagerTest {
+
+    @Test
+    public void testRotation() {
+        final byte[] data = SessionTicketKeysManager.rotate(1_000, null);
+        final OpenSslSessionTicketKey[] before = SessionTicketKeysManager.toTicketKeys(data);
+        final OpenSslSessionTicketKey[] after = SessionTicketKeysManager.toTicketKeys(SessionTicketKeysManager.rotate(2_000, data));
+        assertEquals(3, after.length);
+        // current, next, previous
+        assertArrayEquals(before[1].name(), after[0].name());
+        assertArrayEquals(before[1].aesKey(), after[0].aesKey());
+        assertArrayEquals(before[0].name(), after[2].name());
+        assertArrayEquals(before[0].hmacKey(), after[2].hmacKey());
+        assertFalse(Arrays.equals(before[2].name(), after[1].name()));
+    }
+
+    @Test
+    public void testSharedKeys() {
+        final NullGroupMembershipHandler groupMembershipHandler = new NullGroupMembershipHandler();
+        final AtomicInteger changes = new AtomicInteger();
+        final SessionTicketKeysManager manager = new SessionTicketKeysManager(changes::incrementAndGet);
+        manager.attachGroupMembershipHandler(groupMembershipHandler);
+
+        manager.run();
+        assertEquals(1, changes.get());
+        final byte[] shared = groupMembershipHandler.loadSharedData("session_ticket_keys");
+        assertNotNull(shared);
+
+        // not expired yet
+        manager.run();
+        assertEquals(1, changes.get());
+        assertArrayEquals(shared, groupMembershipHandler.loadSharedData("session_ticket_keys"));
+
+        // another peer rotated the keys
+        final byte[] rotated = SessionTicketKeysManager.rotate(System.currentTimeMillis(), shared);
+        groupMembershipHandler.storeSharedData("session_ticket_keys", rotated);
+        manager.run();
+        assertEquals(2, changes.get());
+        assertArrayEquals(rotated, groupMembershipHandler.loadSharedData("session_ticket_keys"));
+    }
+
+    @Test
+    public void testRotationEventDoesNotCarryTheKeys() {
+        final List<Map<String, Object>> fired = new ArrayList<>();
+        final AtomicReference<GroupMembershipHandler.EventCallback> callback = new AtomicReference<>();
+        final NullGroupMembershipHandler groupMembershipHandler = new NullGroupMembershipHandler() {
+            @Override
+            public void watchEvent(final String eventId, final EventCallback eventCallback) {
+                callback.set(eventCallback);
+            }
+
+            @Override
+            public void fireEvent(final String eventId, final Map<String, Object> data) {
+                fired.add(data);
+            }
+        };
+        final AtomicInteger changes = new AtomicInteger();
+        final SessionTicketKeysManager manager = new SessionTicketKeysManager(changes::incrementAndGet);
+        manager.attachGroupMembershipHandler(groupMembershipHandler);
+
+        manager.run();
+        assertEquals(1, fired.size());
+        assertNull(fired.get(0));
+
+        // the peer notified of a rotation reads the keys from the shared data
+        final byte[] rotated = SessionTicketKeysManager.rotate(System.currentTimeMillis(), groupMembershipHandler.loadSharedData("session_ticket_keys"));
+        groupMembershipHandler.storeSharedData("session_ticket_keys", rotated);
+        callback.get().eventFired("session_ticket_keys_changed", Map.of());
+        assertEquals(2, changes.get());
+        // the keys are applied once
+        callback.get().eventFired("session_ticket_keys_changed", Map.of());
+        assertEquals(2, changes.get());
+    }
+}
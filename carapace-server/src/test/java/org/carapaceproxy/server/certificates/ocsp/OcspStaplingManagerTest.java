@@ -0,0 +1,153 @@
+/*
+ Licensed to Diennea S.r.l. under one
+ or more contributor license agreements. See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership. Diennea S.r.l. licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+
+ */
+package org.carapaceproxy.server.certificates.ocsp;
+
+import static org.carapaceproxy.server.certificates.DynamicCertificatesManager.DEFAULT_KEYPAIRS_SIZE;
+import static org.carapaceproxy.server.config.SSLCertificateConfiguration.CertificateMode.STATIC;
+import static org.carapaceproxy.utils.CertificatesTestUtils.generateSampleChain;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.operator.DigestCalculatorProvider;
+import org.bouncycastle.operator.bc.BcDigestCalculatorProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.carapaceproxy.configstore.PropertiesConfigurationStore;
+import org.carapaceproxy.core.RuntimeServerConfiguration;
+import org.carapaceproxy.server.config.SSLCertificateConfiguration;
+import org.junit.Test;
+import org.shredzone.acme4j.util.KeyPairUtils;
+
+public class OcspStaplingManagerTest {
+
+    private static OCSPResp generateOCSPResponse(final Certificate[] chain, final Date thisUpdate, final Date nextUpdate) throws Exception {
+        final X509Certificate cert = (X509Certificate) chain[0];
+        final X509Certificate issuer = (X509Certificate) chain[chain.length - 1];
+        final DigestCalculatorProvider digCalcProv = new BcDigestCalculatorProvider();
+        final BasicOCSPRespBuilder basicBuilder = new BasicOCSPRespBuilder(
+                SubjectPublicKeyInfo.getInstance(issuer.getPublicKey().getEncoded()),
+                digCalcProv.get(CertificateID.HASH_SHA1)
+        );
+        final CertificateID certId = new CertificateID(digCalcProv.get(CertificateID.HASH_SHA1), new JcaX509CertificateHolder(issuer), cert.getSerialNumber());
+        basicBuilder.addResponse(certId, CertificateStatus.GOOD, thisUpdate, nextUpdate, null);
+        final BasicOCSPResp resp = basicBuilder.build(
+                new JcaContentSignerBuilder("SHA256withRSA").build(KeyPairUtils.createKeyPair(DEFAULT_KEYPAIRS_SIZE).getPrivate()), null, new Date()
+        );
+        return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, resp);
+    }
+
+    private static String fingerprint(final Certificate cert) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(cert.getEncoded()));
+    }
+
+    private static Date fromNow(final long days) {
+        return new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(days));
+    }
+
+    @Test
+    public void testRefreshDue() throws Exception {
+        final KeyPair keyPair = KeyPairUtils.createKeyPair(DEFAULT_KEYPAIRS_SIZE);
+        final Certificate[] chain = generateSampleChain(keyPair, false);
+        assertFalse(OcspStaplingManager.isRefreshDue(generateOCSPResponse(chain, fromNow(-1), fromNow(6))));
+        // more than half of the validity elapsed
+        assertTrue(OcspStaplingManager.isRefreshDue(generateOCSPResponse(chain, fromNow(-5), fromNow(2))));
+        assertTrue(OcspStaplingManager.isRefreshDue(generateOCSPResponse(chain, fromNow(-7), fromNow(-1))));
+    }
+
+    @Test
+    public void testStoredResponse() throws Exception {
+        final KeyPair keyPair = KeyPairUtils.createKeyPair(DEFAULT_KEYPAIRS_SIZE);
+        final Certificate[] chain = generateSampleChain(keyPair, false);
+        final byte[] encoded = generateOCSPResponse(chain, fromNow(-1), fromNow(6)).getEncoded();
+
+        // a response got by another peer
+        final PropertiesConfigurationStore store = new PropertiesConfigurationStore(new Properties());
+        final String id = fingerprint(chain[0]);
+        store.saveOcspResponse(id, encoded);
+
+        final OcspStaplingManager manager = new OcspStaplingManager(null);
+        try {
+            manager.setConfigurationStore(store);
+            manager.addCertificateForStapling("localhost", chain);
+            assertEquals(0, manager.getOcspResponseForCertificate(chain[0]).length);
+
+            manager.run();
+            assertArrayEquals(encoded, manager.getOcspResponseForCertificate(chain[0]));
+        } finally {
+            manager.stop();
+        }
+    }
+
+    @Test
+    public void testDropResponsesOfCertificatesNoLongerConfigured() throws Exception {
+        final Certificate[] chain = generateSampleChain(KeyPairUtils.createKeyPair(DEFAULT_KEYPAIRS_SIZE), false);
+        final Certificate[] renewedChain = generateSampleChain(KeyPairUtils.createKeyPair(DEFAULT_KEYPAIRS_SIZE), false);
+        final Certificate[] otherChain = generateSampleChain(KeyPairUtils.createKeyPair(DEFAULT_KEYPAIRS_SIZE), false);
+        final PropertiesConfigurationStore store = new PropertiesConfigurationStore(new Properties());
+        for (final Certificate[] c : List.of(chain, renewedChain, otherChain)) {
+            store.saveOcspResponse(fingerprint(c[0]), generateOCSPResponse(c, fromNow(-1), fromNow(6)).getEncoded());
+        }
+
+        final OcspStaplingManager manager = new OcspStaplingManager(null);
+        try {
+            manager.setConfigurationStore(store);
+            manager.addCertificateForStapling("localhost", chain);
+            manager.addCertificateForStapling("other", otherChain);
+            manager.run();
+            assertTrue(manager.getOcspResponseForCertificate(chain[0]).length > 0);
+
+            // the renewed certificate supersedes the previous one
+            manager.addCertificateForStapling("localhost", renewedChain);
+            assertEquals(0, manager.getOcspResponseForCertificate(chain[0]).length);
+            assertNull(store.loadOcspResponse(fingerprint(chain[0])));
+
+            // the certificates no longer configured are dropped, the others keep their responses
+            final RuntimeServerConfiguration configuration = new RuntimeServerConfiguration();
+            configuration.addCertificate(new SSLCertificateConfiguration("localhost", null, "localhost.p12", "testproxy", STATIC));
+            manager.run();
+            manager.reloadConfiguration(configuration);
+            assertTrue(manager.getOcspResponseForCertificate(renewedChain[0]).length > 0);
+            assertEquals(0, manager.getOcspResponseForCertificate(otherChain[0]).length);
+            assertNull(store.loadOcspResponse(fingerprint(otherChain[0])));
+            assertNotNull(store.loadOcspResponse(fingerprint(renewedChain[0])));
+        } finally {
+            manager.stop();
+        }
+    }
+}
@@ -50,9 +50,13 @@ import org.carapaceproxy.core.HttpProxyServer;
 import org.carapaceproxy.core.StaticContentsManager;
 import org.carapaceproxy.server.backends.BackendHealthManager;
 import org.carapaceproxy.server.backends.BackendHealthStatus;
+import org.carapaceproxy.server.backends.CircuitBreaker;
+import org.carapaceproxy.server.backends.ConcurrencyLimiter;
 import org.carapaceproxy.server.certificates.DynamicCertificatesManager;
 import org.carapaceproxy.server.config.ActionConfiguration;
 import org.carapaceproxy.server.config.BackendConfiguration;
+import org.carapaceproxy.server.config.CircuitBreakerConfiguration;
+import org.carapaceproxy.server.config.ConcurrencyLimiterConfiguration;
 import org.carapaceproxy.server.config.DirectorConfiguration;
 import org.carapaceproxy.server.config.RouteConfiguration;
 import org.carapaceproxy.server.config.SafeBackendSelector;
@@ -73,6 +77,19 @@ public class BasicStandardEndpointMapperTest {
     @Rule
     public TemporaryFolder tmpDir = new TemporaryFolder();
 
+    /**
+     * A healthy backend, whose circuit breaker and concurrency limiter never refuse a request.
+     */
+    private static BackendHealthStatus mockAliveStatus(final EndpointKey hostPort) {
+        final BackendHealthStatus status = mock(BackendHealthStatus.class);
+        when(status.getStatus()).thenReturn(BackendHealthStatus.Status.STABLE);
+        when(status.hasConcurrency()).thenReturn(true);
+        when(status.tryAcquireCall()).thenReturn(true);
+        when(status.getCircuitBreaker()).thenReturn(new CircuitBreaker(hostPort, CircuitBreakerConfiguration.DISABLED));
+        when(status.getConcurrencyLimiter()).thenReturn(new ConcurrencyLimiter(hostPort, ConcurrencyLimiterConfiguration.DISABLED));
+        return status;
+    }
+
     @Test
     public void test() throws Exception {
         stubFor(get(urlEqualTo("/index.html"))
@@ -262,8 +279,7 @@ public class BasicStandardEndpointMapperTest {
 
             BackendHealthManager bhMan = mock(BackendHealthManager.class);
             final EndpointKey alive = EndpointKey.make("localhost:" + backend.port());
-            final BackendHealthStatus mockAliveStatus = mock(BackendHealthStatus.class);
-            when(mockAliveStatus.getStatus()).thenReturn(BackendHealthStatus.Status.STABLE);
+            final BackendHealthStatus mockAliveStatus = mockAliveStatus(alive);
             when(bhMan.getBackendStatus(eq(alive))).thenReturn(mockAliveStatus);
             final EndpointKey down = EndpointKey.make("localhost-down:" + backend.port());
             final BackendHealthStatus mockDownStatus = mock(BackendHealthStatus.class);
@@ -336,8 +352,7 @@ public class BasicStandardEndpointMapperTest {
         };
         BackendHealthManager bhMan = mock(BackendHealthManager.class);
         final EndpointKey alive = EndpointKey.make("localhost:" + backendPort);
-        final BackendHealthStatus mockAliveStatus = mock(BackendHealthStatus.class);
-        when(mockAliveStatus.getStatus()).thenReturn(BackendHealthStatus.Status.STABLE);
+        final BackendHealthStatus mockAliveStatus = mockAliveStatus(alive);
         when(bhMan.getBackendStatus(eq(alive))).thenReturn(mockAliveStatus);
         final EndpointKey down = EndpointKey.make("localhost-down:" + backendPort);
         final BackendHealthStatus mockDownStatus = mock(BackendHealthStatus.class);